@@ -0,0 +1,203 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+/**
+ * Adaptive limit of the square divisions in flight, following the additive
+ * increase, multiplicative decrease scheme of TCP congestion control.
+ * <p>
+ * Every square division that completes in time grows the window by
+ * {@code 1 / window}, i.e. by about one per round trip. A congestion signal
+ * shrinks it by the decrease factor: a failed square division or a round
+ * trip time above the base round trip time times the latency tolerance,
+ * which means that requests queue up at the other party. The base round
+ * trip time is the minimum of the last {@value #DEFAULT_RTT_SAMPLES}
+ * successful square divisions, so it follows round trips, which become
+ * slower for good, e.g. larger batches or nodes with more class values,
+ * instead of pinning the window to its lower bound. Only square
+ * divisions sent after the last decrease shrink the window again, so a
+ * burst of slow replies counts as a single signal.
+ * <p>
+ * All times are {@link System#nanoTime()} values passed by the caller.
+ */
+public class AimdWindow {
+
+    public static final double DEFAULT_LATENCY_TOLERANCE = 2d;
+    public static final double DEFAULT_DECREASE_FACTOR = 0.5d;
+    public static final int DEFAULT_RTT_SAMPLES = 64;
+
+    private final int minWindow;
+    private final int maxWindow;
+
+    private double latencyTolerance = DEFAULT_LATENCY_TOLERANCE;
+    private double decreaseFactor = DEFAULT_DECREASE_FACTOR;
+
+    private double window;
+    private int inFlight;
+
+    private long[] rtts = new long[DEFAULT_RTT_SAMPLES];
+    private int rttCount;
+    private int nextRtt;
+    private long minRtt = Long.MAX_VALUE;
+    private boolean decreased;
+    private long lastDecrease;
+
+    /**
+     * Creates a window of 16 square divisions, which adapts between 1 and
+     * 1024.
+     */
+    public AimdWindow() {
+        this(16, 1, 1024);
+    }
+
+    /**
+     * @param initialWindow The initial number of square divisions in flight.
+     * @param minWindow     The lower bound of the window.
+     * @param maxWindow     The upper bound of the window.
+     */
+    public AimdWindow(int initialWindow, int minWindow, int maxWindow) {
+        if (minWindow < 1 || minWindow > initialWindow || initialWindow > maxWindow) {
+            throw new IllegalArgumentException(
+                    "window bounds have to satisfy 1 <= min <= initial <= max");
+        }
+
+        this.window = initialWindow;
+        this.minWindow = minWindow;
+        this.maxWindow = maxWindow;
+    }
+
+    /**
+     * @param latencyTolerance The factor of the minimal round trip time,
+     *                         above which a round trip counts as congested.
+     */
+    public synchronized void setLatencyTolerance(double latencyTolerance) {
+        if (latencyTolerance < 1) {
+            throw new IllegalArgumentException("latency tolerance has to be at least 1");
+        }
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * @param decreaseFactor The factor, by which a congestion signal shrinks
+     *                       the window.
+     */
+    public synchronized void setDecreaseFactor(double decreaseFactor) {
+        if (decreaseFactor <= 0 || decreaseFactor >= 1) {
+            throw new IllegalArgumentException("decrease factor has to be between 0 and 1");
+        }
+        this.decreaseFactor = decreaseFactor;
+    }
+
+    /**
+     * Sets the number of recent round trips, whose minimum is the base
+     * round trip time. The recorded round trips are dropped.
+     *
+     * @param rttSamples The number of round trips.
+     */
+    public synchronized void setRttSamples(int rttSamples) {
+        if (rttSamples < 1) {
+            throw new IllegalArgumentException("at least one round trip has to be kept");
+        }
+        this.rtts = new long[rttSamples];
+        this.rttCount = 0;
+        this.nextRtt = 0;
+        this.minRtt = Long.MAX_VALUE;
+    }
+
+    /**
+     * Takes a slot of the window.
+     *
+     * @return {@code true} if the window had a free slot.
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) window) {
+            return false;
+        }
+
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Returns a slot without a round trip, e.g. if the square division
+     * could not be started.
+     */
+    public synchronized void cancel() {
+        inFlight--;
+    }
+
+    /**
+     * Returns the slot of a finished square division and adapts the window.
+     *
+     * @param sentAt The time the square division was sent.
+     * @param now    The time it finished.
+     * @param failed {@code true} if it failed or expired.
+     */
+    public synchronized void release(long sentAt, long now, boolean failed) {
+        inFlight--;
+
+        long rtt = now - sentAt;
+        if (!failed) {
+            addRtt(rtt);
+        }
+
+        boolean congested = failed || rtt > minRtt * latencyTolerance;
+        if (!congested) {
+            window = Math.min(maxWindow, window + 1d / window);
+        } else if (!decreased || sentAt - lastDecrease > 0) {
+            window = Math.max(minWindow, window * decreaseFactor);
+            decreased = true;
+            lastDecrease = now;
+        }
+    }
+
+    /**
+     * Records a round trip time and updates the minimum of the recorded
+     * ones.
+     */
+    private void addRtt(long rtt) {
+        long evicted = rttCount == rtts.length ? rtts[nextRtt] : Long.MAX_VALUE;
+        rtts[nextRtt] = rtt;
+        nextRtt = (nextRtt + 1) % rtts.length;
+        rttCount = Math.min(rttCount + 1, rtts.length);
+
+        if (rtt <= minRtt) {
+            minRtt = rtt;
+        } else if (evicted == minRtt) {
+            minRtt = Long.MAX_VALUE;
+            for (int i = 0; i < rttCount; i++) {
+                minRtt = Math.min(minRtt, rtts[i]);
+            }
+        }
+    }
+
+    public synchronized int getWindowSize() {
+        return (int) window;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The counts per class value of all attribute values at a tree node,
+ * usually filled by a {@link DataLayer} in a single scan of the rows of
+ * the node.
+ * <p>
+ * Attribute values without rows at the node count zero for every class
+ * value.
+ *
+ * @see DataLayer#contingencyTable(java.util.List)
+ */
+public class ContingencyTable {
+
+    private final Collection<?> classValues;
+    private final Map<String, Map<String, Map<Object, Long>>> counts = new HashMap<>();
+
+    /**
+     * @param classValues The values of the class attribute.
+     */
+    public ContingencyTable(Collection<?> classValues) {
+        this.classValues = classValues;
+    }
+
+    /**
+     * Counts a row with the attribute value and the class value.
+     *
+     * @param attrName   The name of the attribute.
+     * @param attrValue  The value of the attribute.
+     * @param classValue The class value of the row.
+     */
+    public void increment(String attrName, String attrValue, Object classValue) {
+        add(attrName, attrValue, classValue, 1L);
+    }
+
+    /**
+     * Counts several rows with the attribute value and the class value.
+     *
+     * @param attrName   The name of the attribute.
+     * @param attrValue  The value of the attribute.
+     * @param classValue The class value of the rows.
+     * @param count      The number of rows.
+     */
+    public void add(String attrName, String attrValue, Object classValue, long count) {
+        counts.computeIfAbsent(attrName, a -> new HashMap<>())
+                .computeIfAbsent(attrValue, v -> new HashMap<>())
+                .merge(classValue, count, Long::sum);
+    }
+
+    /**
+     * Returns the counts of an attribute value like
+     * {@link DataLayer#countPerClassValue(java.util.List, String, String)}.
+     *
+     * @param attrName  The name of the attribute.
+     * @param attrValue The value of the attribute.
+     * @return A new map with the count of every class value.
+     */
+    public Map<Object, Long> countPerClassValue(String attrName, String attrValue) {
+        Map<Object, Long> valueCounts = counts.getOrDefault(attrName, new HashMap<>())
+                .getOrDefault(attrValue, new HashMap<>());
+
+        Map<Object, Long> result = new LinkedHashMap<>();
+        for (Object cv : classValues) {
+            result.put(cv, valueCounts.getOrDefault(cv, 0L));
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+import de.henku.utils.LruMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves the counts of the attribute values of the controllers from the
+ * contingency tables of the most recently used tree nodes, so the data of
+ * a node is scanned once instead of once per attribute value.
+ * <p>
+ * If the {@link DataLayer} has no contingency tables, every count is
+ * requested from the data layer.
+ */
+class ContingencyTableCache {
+
+    static final int DEFAULT_NODES = 64;
+
+    private final DataLayer dataLayer;
+
+    private volatile int maxNodes = DEFAULT_NODES;
+
+    private final LruMap<List<NodeValuePair>, Node> nodes = new LruMap<>(DEFAULT_NODES);
+
+    ContingencyTableCache(DataLayer dataLayer) {
+        this.dataLayer = dataLayer;
+    }
+
+    /**
+     * Sets the number of tree nodes, whose tables are kept, {@code 0}
+     * disables the cache. The cached tables are dropped.
+     */
+    void setMaxNodes(int maxNodes) {
+        if (maxNodes < 0) {
+            throw new IllegalArgumentException("the number of cached nodes must not be negative");
+        }
+
+        synchronized (nodes) {
+            this.maxNodes = maxNodes;
+            nodes.clear();
+            nodes.setMaxSize(maxNodes);
+        }
+    }
+
+    Map<Object, Long> countPerClassValue(List<NodeValuePair> path, String attrName, String attrValue) {
+        if (maxNodes == 0) {
+            return dataLayer.countPerClassValue(path, attrName, attrValue);
+        }
+
+        Node node;
+        synchronized (nodes) {
+            node = nodes.computeIfAbsent(new ArrayList<>(path), p -> new Node());
+        }
+
+        ContingencyTable table = node.table(path);
+        return table == null
+                ? dataLayer.countPerClassValue(path, attrName, attrValue)
+                : table.countPerClassValue(attrName, attrValue);
+    }
+
+    int size() {
+        synchronized (nodes) {
+            return nodes.size();
+        }
+    }
+
+    /**
+     * The table of a tree node, which is scanned by the first request.
+     */
+    private final class Node {
+
+        private boolean scanned;
+        private ContingencyTable table;
+
+        synchronized ContingencyTable table(List<NodeValuePair> path) {
+            if (!scanned) {
+                table = dataLayer.contingencyTable(path);
+                scanned = true;
+            }
+
+            return table;
+        }
+    }
+}
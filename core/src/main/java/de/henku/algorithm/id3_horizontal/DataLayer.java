@@ -35,4 +35,19 @@ public interface DataLayer {
             String attrName,
             String attrValue
     );
+
+    /**
+     * Counts the rows of a tree node per attribute value and class value
+     * of all attributes, usually in a single scan of the rows.
+     * <p>
+     * The controllers cache the table per tree node and serve the counts
+     * of the single attribute values from it.
+     *
+     * @param path The path of the tree node.
+     * @return The table, or {@code null} if the counts are only available
+     * per attribute value, which is the default.
+     */
+    default ContingencyTable contingencyTable(List<NodeValuePair> path) {
+        return null;
+    }
 }
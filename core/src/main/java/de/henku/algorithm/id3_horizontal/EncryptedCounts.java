@@ -0,0 +1,58 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import java.util.List;
+
+/**
+ * Message of a {@link HomomorphicSquareDivisionMaster}: the encrypted count
+ * of each class value and the encrypted sum of the squared counts.
+ *
+ * @param <C> The ciphertext type.
+ */
+public class EncryptedCounts<C> {
+
+    private final List<Object> classValues;
+    private final List<C> counts;
+    private final C sumOfSquares;
+
+    public EncryptedCounts(List<Object> classValues, List<C> counts, C sumOfSquares) {
+        this.classValues = classValues;
+        this.counts = counts;
+        this.sumOfSquares = sumOfSquares;
+    }
+
+    public List<Object> getClassValues() {
+        return classValues;
+    }
+
+    public List<C> getCounts() {
+        return counts;
+    }
+
+    public C getSumOfSquares() {
+        return sumOfSquares;
+    }
+}
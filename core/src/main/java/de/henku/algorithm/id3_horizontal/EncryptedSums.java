@@ -0,0 +1,57 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+/**
+ * Reply of a {@link HomomorphicSquareDivisionSlave}: the encrypted sums Z
+ * and W over both parties and the class value of the slave, as in
+ * {@link SquareDivisionResult}.
+ *
+ * @param <C> The ciphertext type.
+ */
+public class EncryptedSums<C> {
+
+    private final C z;
+    private final C w;
+    private final Object classValue;
+
+    public EncryptedSums(C z, C w, Object classValue) {
+        this.z = z;
+        this.w = w;
+        this.classValue = classValue;
+    }
+
+    public C getZ() {
+        return z;
+    }
+
+    public C getW() {
+        return w;
+    }
+
+    public Object getClassValue() {
+        return classValue;
+    }
+}
@@ -32,4 +32,12 @@ public class GiniGainResult {
         classValue = cv;
         result = r;
     }
+
+    public Object getClassValue() {
+        return classValue;
+    }
+
+    public Double getResult() {
+        return result;
+    }
 }
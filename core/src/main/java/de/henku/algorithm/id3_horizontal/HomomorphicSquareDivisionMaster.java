@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import de.henku.computations.scheme.HomomorphicScheme;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Square division between the master and a single slave, written against
+ * any {@link HomomorphicScheme}.
+ * <p>
+ * The master sends its encrypted counts {@code x_k} and
+ * {@code sum(x_k^2)}. The slave adds its counts {@code y_k} homomorphically,
+ * {@code Z = sum(x_k^2) + sum(2 * y_k * x_k) + sum(y_k^2)} and
+ * {@code W = sum(x_k) + sum(y_k)}, and the master decrypts Z and W. The
+ * master learns the same values as with {@link SecureSquareDivisionMaster},
+ * which combines its output shares to Z and W, but the protocol needs a
+ * single round trip and only has to decrypt small values. This allows
+ * schemes like {@link de.henku.computations.scheme.EcElGamalScheme}, which
+ * cannot decrypt the random output shares of the share based protocol.
+ *
+ * @param <C> The ciphertext type.
+ * @see HomomorphicSquareDivisionSlave
+ */
+public class HomomorphicSquareDivisionMaster<C> {
+
+    private final HomomorphicScheme<C> scheme;
+
+    private Object classValue;
+
+    /**
+     * @param scheme The scheme, including the private key.
+     */
+    public HomomorphicSquareDivisionMaster(HomomorphicScheme<C> scheme) {
+        this.scheme = scheme;
+    }
+
+    public EncryptedCounts<C> encryptCounts(Map<Object, Long> counts) {
+        List<Object> classValues = new ArrayList<>(counts.size());
+        List<C> encrypted = new ArrayList<>(counts.size());
+        BigInteger sumOfSquares = BigInteger.ZERO;
+
+        for (Map.Entry<Object, Long> e : counts.entrySet()) {
+            long count = e.getValue();
+
+            if (count != 0l) {
+                classValue = e.getKey();
+            }
+
+            BigInteger x = BigInteger.valueOf(count);
+            classValues.add(e.getKey());
+            encrypted.add(scheme.encrypt(x));
+            sumOfSquares = sumOfSquares.add(x.pow(2));
+        }
+
+        return new EncryptedCounts<>(classValues, encrypted, scheme.encrypt(sumOfSquares));
+    }
+
+    public GiniGainResult computeResult(EncryptedSums<C> sums) {
+        BigInteger z = scheme.decrypt(sums.getZ());
+        BigInteger w = scheme.decrypt(sums.getW());
+
+        Object cv = sums.getClassValue() != null ? sums.getClassValue() : classValue;
+
+        double r;
+        if (w.signum() == 0) {
+            r = 0d;
+        } else {
+            r = z.doubleValue() / w.doubleValue();
+        }
+
+        return new GiniGainResult(cv, r);
+    }
+}
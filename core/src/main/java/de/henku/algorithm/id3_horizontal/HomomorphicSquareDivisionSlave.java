@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import de.henku.computations.scheme.HomomorphicScheme;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counterpart of {@link HomomorphicSquareDivisionMaster}.
+ *
+ * @param <C> The ciphertext type.
+ * @see HomomorphicSquareDivisionMaster
+ */
+public class HomomorphicSquareDivisionSlave<C> {
+
+    private final static BigInteger TWO = BigInteger.valueOf(2);
+
+    private final HomomorphicScheme<C> scheme;
+
+    /**
+     * @param scheme The scheme with the public key of the master.
+     */
+    public HomomorphicSquareDivisionSlave(HomomorphicScheme<C> scheme) {
+        this.scheme = scheme;
+    }
+
+    public EncryptedSums<C> addCounts(Map<Object, Long> counts, EncryptedCounts<C> encrypted) {
+        List<Object> classValues = encrypted.getClassValues();
+
+        Object classValue = null;
+        BigInteger sumOfSquares = BigInteger.ZERO;
+        BigInteger sum = BigInteger.ZERO;
+
+        C z = encrypted.getSumOfSquares();
+        C w = null;
+
+        for (int i = 0; i < classValues.size(); i++) {
+            long count = counts.get(classValues.get(i));
+            C x = encrypted.getCounts().get(i);
+
+            if (count != 0l) {
+                classValue = classValues.get(i);
+                z = scheme.add(z, scheme.multiply(x, BigInteger.valueOf(count).multiply(TWO)));
+            }
+
+            w = w == null ? x : scheme.add(w, x);
+
+            BigInteger y = BigInteger.valueOf(count);
+            sumOfSquares = sumOfSquares.add(y.pow(2));
+            sum = sum.add(y);
+        }
+
+        // the fresh encryptions re-randomize both results
+        z = scheme.add(z, scheme.encrypt(sumOfSquares));
+        w = w == null ? scheme.encrypt(sum) : scheme.add(w, scheme.encrypt(sum));
+
+        return new EncryptedSums<>(z, w, classValue);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * A multiplication result carrying the values of all class values in the
+ * slots of a single ciphertext.
+ *
+ * @see PackedSecureSquareDivisionMaster
+ */
+public class PackedMultiplicationResult extends MultiplicationResult {
+
+    private final int slotBits;
+
+    /**
+     * @param classValues The class values in slot order.
+     * @param slotBits    The slot width in bits.
+     * @param result      The packed ciphertext.
+     */
+    public PackedMultiplicationResult(List<Object> classValues, int slotBits, BigInteger result) {
+        super(classValues, result);
+        this.slotBits = slotBits;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Object> getClassValues() {
+        return (List<Object>) getClassValue();
+    }
+
+    public int getSlotBits() {
+        return slotBits;
+    }
+}
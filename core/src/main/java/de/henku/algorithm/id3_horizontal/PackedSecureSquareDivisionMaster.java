@@ -0,0 +1,184 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import de.henku.computations.SecureComputationMaster;
+import de.henku.computations.SlotPacking;
+import de.henku.jpaillier.KeyPair;
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Secure square division master, that packs the counts of all class values
+ * into a single ciphertext.
+ * <p>
+ * Instead of one multiplication per class value, the counts {@code x_k} are
+ * packed into the slots of one plaintext {@code X}. The slave raises the
+ * ciphertext to its counts packed in reverse order, so that the middle slot
+ * of the product contains the inner product {@code sum(x_k * y_k)}, and masks
+ * all slots with random output shares. Z and W are packed into a single
+ * plaintext for the addition as well, so each protocol round transfers one
+ * ciphertext in each direction, independent of the number of class values.
+ *
+ * @see PackedSecureSquareDivisionSlave
+ * @see SlotPacking
+ */
+public class PackedSecureSquareDivisionMaster extends SecureSquareDivisionMaster {
+
+    private final static BigInteger TWO = BigInteger.valueOf(2);
+
+    private final SlotPacking packing;
+
+    private final List<BigInteger> inputs = new ArrayList<>();
+    private int slotBits;
+
+    private SecureComputationMaster multiplication;
+    private SecureComputationMaster addition;
+
+    PackedSecureSquareDivisionMaster(KeyPair keyPair, SlotPacking packing, FactoryHelper factoryHelper) {
+        super(keyPair, factoryHelper);
+        this.packing = packing;
+    }
+
+    public PackedSecureSquareDivisionMaster(KeyPair keyPair, SlotPacking packing) {
+        this(keyPair, packing, new FactoryHelper());
+    }
+
+    @Override
+    public List<MultiplicationResult> createMultiplications(Map<Object, Long> counts) {
+        List<Object> classValues = new ArrayList<>(counts.keySet());
+        int k = classValues.size();
+
+        slotBits = packing.slotBits(k);
+        SlotPacking.checkCapacity(keyPair.getPublicKey(), 2 * k - 1, slotBits);
+
+        for (Object cv : classValues) {
+            long count = counts.get(cv);
+
+            if (count != 0l) {
+                classValue = cv;
+            }
+
+            inputs.add(BigInteger.valueOf(count));
+        }
+
+        multiplication = factoryHelper.finalize(SlotPacking.pack(inputs, slotBits), keyPair);
+        BigInteger result = multiplication.startEncryptedComputation();
+
+        return Collections.singletonList(
+                new PackedMultiplicationResult(classValues, slotBits, result));
+    }
+
+    @Override
+    public AdditionResults handleMultiplicationBackwardStep(List<MultiplicationResult> results) {
+        prepareAddition(results);
+
+        return new PackedAdditionResults(addition.startEncryptedComputation());
+    }
+
+    @Override
+    public void handleAdditionBackwardStep(AdditionResults results) {
+        addition.setDecryptedOutputShare(decryptor.decrypt(results.getResultForZ()));
+    }
+
+    @Override
+    public GiniGainResult handleFusedBackwardStep(List<MultiplicationResult> results,
+                                                  AdditionResults additionResults,
+                                                  List<SquareDivisionResult> outputShares) {
+        prepareAddition(results);
+
+        BigInteger share = fusedOutputShare(outputShares).getOutputShareZ();
+        BigInteger contribution = decryptor.decrypt(additionResults.getResultForZ());
+        addition.setDecryptedOutputShare(fuseOutputShare(addition, share, contribution));
+
+        return computeResult(outputShares);
+    }
+
+    private void prepareAddition(List<MultiplicationResult> results) {
+        multiplication.setDecryptedOutputShare(decryptor.decrypt(results.get(0).getResult()));
+
+        // the middle slot holds this party's share of the inner product
+        BigInteger share = SlotPacking.slot(multiplication.getOutputShare(), inputs.size() - 1, slotBits);
+
+        BigInteger z = share.multiply(TWO);
+        BigInteger w = BigInteger.ZERO;
+        for (BigInteger input : inputs) {
+            z = z.add(input.pow(2));
+            w = w.add(input);
+        }
+
+        addition = factoryHelper.finalize(packAddition(keyPair.getPublicKey(), z, w), keyPair);
+    }
+
+    @Override
+    public GiniGainResult computeResult(List<SquareDivisionResult> outputShares) {
+        PublicKey publicKey = keyPair.getPublicKey();
+        BigInteger n = publicKey.getN();
+
+        BigInteger result = addition.getOutputShare();
+        Object cv = classValue;
+
+        for (SquareDivisionResult os : outputShares) {
+            result = result.multiply(os.getOutputShareZ()).mod(n);
+
+            if (os.getClassValue() != null) {
+                cv = os.getClassValue();
+            }
+        }
+
+        int shift = additionShift(publicKey);
+        BigInteger zResult = result.and(BigInteger.ONE.shiftLeft(shift).subtract(BigInteger.ONE));
+        BigInteger wResult = result.shiftRight(shift);
+
+        double r;
+        if (wResult.equals(BigInteger.ZERO)) {
+            r = 0d;
+        } else {
+            r = zResult.doubleValue() / wResult.doubleValue();
+        }
+
+        return new GiniGainResult(cv, r);
+    }
+
+    /**
+     * Packs the shares of Z and W into one plaintext {@code z + w * 2^s}.
+     * <p>
+     * The shares may be negative, but their sums over all parties are the
+     * non-negative values Z and W, which are recovered from the lower and
+     * upper half of the summed plaintext.
+     */
+    static BigInteger packAddition(PublicKey publicKey, BigInteger z, BigInteger w) {
+        return z.add(w.shiftLeft(additionShift(publicKey)));
+    }
+
+    private static int additionShift(PublicKey publicKey) {
+        return (publicKey.getN().bitLength() - 1) / 2;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import de.henku.computations.SecureAddition;
+import de.henku.computations.SecureMultiplication;
+import de.henku.computations.SlotPacking;
+import de.henku.computations.random.RandomnessProvider;
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counterpart of {@link PackedSecureSquareDivisionMaster}.
+ * <p>
+ * Computes the packed inner product of the master's and its own counts with
+ * a single exponentiation and masks every slot of the result with a random
+ * output share, using a single encryption.
+ *
+ * @see PackedSecureSquareDivisionMaster
+ */
+public class PackedSecureSquareDivisionSlave extends SecureSquareDivisionSlave {
+
+    private final static BigInteger TWO = BigInteger.valueOf(2);
+
+    private final List<BigInteger> inputs = new ArrayList<>();
+
+    private List<Object> classValues;
+    private int slotBits;
+
+    private BigInteger multiplicationOutputShare;
+    private SecureAddition addition;
+
+    public PackedSecureSquareDivisionSlave(PublicKey publicKey) {
+        super(publicKey);
+    }
+
+    /**
+     * Checks whether the results were created by a
+     * {@link PackedSecureSquareDivisionMaster}.
+     *
+     * @param results The results of the previous party.
+     * @return {@code true} if the results are packed.
+     */
+    public static boolean isPacked(List<MultiplicationResult> results) {
+        return results.size() == 1 && results.get(0) instanceof PackedMultiplicationResult;
+    }
+
+    @Override
+    public List<MultiplicationResult> handleMultiplicationForwardStep(Map<Object, Long> counts, List<MultiplicationResult> prevResults) {
+        PackedMultiplicationResult r = (PackedMultiplicationResult) prevResults.get(0);
+
+        classValues = r.getClassValues();
+        slotBits = r.getSlotBits();
+        SlotPacking.checkCapacity(publicKey, 2 * classValues.size() - 1, slotBits);
+
+        for (Object cv : classValues) {
+            long count = counts.get(cv);
+
+            if (count != 0l) {
+                classValue = cv;
+            }
+
+            inputs.add(BigInteger.valueOf(count));
+        }
+
+        // reversed order moves the products x_k * y_k into the middle slot
+        List<BigInteger> reversed = new ArrayList<>(inputs);
+        Collections.reverse(reversed);
+
+        SecureMultiplication m = new SecureMultiplication(
+                SlotPacking.pack(reversed, slotBits), publicKey);
+        BigInteger result = m.forwardStep(r.getResult());
+
+        return Collections.singletonList(
+                new PackedMultiplicationResult(classValues, slotBits, result));
+    }
+
+    /**
+     * The masking is an encryption, so nothing has to be inverted.
+     */
+    @Override
+    protected List<BigInteger> prepareMultiplicationBackwardStep(List<MultiplicationResult> prevResults) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    protected List<MultiplicationResult> completeMultiplicationBackwardStep(List<MultiplicationResult> prevResults,
+                                                                            List<BigInteger> inverses) {
+        int maskBits = slotBits - 1;
+        BigInteger offset = BigInteger.ONE.shiftLeft(maskBits);
+
+        BigInteger[] shares = new BigInteger[2 * classValues.size() - 1];
+        RandomnessProvider.getDefault().nextBits(maskBits, shares);
+
+        // slot value: product + 2^maskBits - share, which never leaves the slot
+        List<BigInteger> masks = new ArrayList<>();
+        for (int i = 0; i < shares.length; i++) {
+            BigInteger share = shares[i];
+            masks.add(offset.subtract(share));
+
+            if (i == classValues.size() - 1) {
+                multiplicationOutputShare = share.subtract(offset);
+            }
+        }
+
+        SecureAddition masking = new SecureAddition(SlotPacking.pack(masks, slotBits), publicKey);
+        BigInteger result = masking.forwardStep(prevResults.get(0).getResult());
+
+        return Collections.singletonList(
+                new PackedMultiplicationResult(classValues, slotBits, result));
+    }
+
+    @Override
+    public AdditionResults handleAdditionForwardStep(AdditionResults data) {
+        BigInteger z = multiplicationOutputShare.multiply(TWO);
+        BigInteger w = BigInteger.ZERO;
+        for (BigInteger input : inputs) {
+            z = z.add(input.pow(2));
+            w = w.add(input);
+        }
+
+        addition = new SecureAddition(
+                PackedSecureSquareDivisionMaster.packAddition(publicKey, z, w), publicKey);
+
+        return new PackedAdditionResults(addition.forwardStep(data.getResultForZ()));
+    }
+
+    @Override
+    protected List<BigInteger> prepareAdditionBackwardStep() {
+        return Collections.singletonList(addition.prepareBackwardStep());
+    }
+
+    @Override
+    protected AdditionResults completeAdditionBackwardStep(AdditionResults data, List<BigInteger> inverses) {
+        return new PackedAdditionResults(addition.completeBackwardStep(data.getResultForZ(), inverses.get(0)));
+    }
+
+    @Override
+    public SquareDivisionResult getAdditionOutputShares() {
+        return new SquareDivisionResult(addition.getOutputShare(), null, classValue);
+    }
+}
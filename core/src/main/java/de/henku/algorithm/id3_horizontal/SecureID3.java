@@ -32,12 +32,27 @@ import de.henku.jpaillier.KeyPair;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 public class SecureID3 {
 
     private SquareDivisionMasterController controller;
 
+    private int maxInFlight = Integer.MAX_VALUE;
+    private int parallelism = 1;
+
+    /**
+     * @param dataLayer The data of the master.
+     * @param sender    The adapter to the next party.
+     * @param keyPair   The key pair of the master. Key pairs of the
+     *                  {@link de.henku.computations.paillier.PaillierKeyPairBuilder}
+     *                  use {@code g = n + 1}, which saves about a third of
+     *                  the cost of every encryption compared to the key
+     *                  pairs of jpaillier's key generator.
+     */
     public SecureID3(
             DataLayer dataLayer,
             SquareDivisionSenderAdapter sender,
@@ -46,23 +61,89 @@ public class SecureID3 {
     }
 
     public ID3Node run(List<Attribute> attributes, List<NodeValuePair> path) {
+        if (parallelism > 1) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                return build(attributes, path, pool).join();
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        List<GiniGainResult> gains = giniGains(attributes, path).join();
+
+        Attribute max = select(attributes, gains);
+        if (max == null) {
+            return leaf(gains);
+        }
+
+        ID3Node n = new ID3Node(max.getName());
+        for (String aV : max.getValues()) {
+
+            List<Attribute> newAttributes = new ArrayList<>(attributes);
+            newAttributes.remove(max);
+
+            List<NodeValuePair> newPath = new ArrayList<>(path);
+            newPath.add(new NodeValuePair(max.getName(), aV));
+
+            if (!newAttributes.isEmpty()) {
+                n.add(aV, run(newAttributes, newPath));
+            }
+        }
+
+        return n;
+    }
+
+    /**
+     * Builds the subtree of a node without blocking, the subtrees of its
+     * children are expanded concurrently on the pool.
+     */
+    private CompletableFuture<ID3Node> build(List<Attribute> attributes, List<NodeValuePair> path,
+                                             Executor pool) {
+        return giniGains(attributes, path).thenCompose(gains -> {
+            Attribute max = select(attributes, gains);
+            if (max == null) {
+                return CompletableFuture.completedFuture(leaf(gains));
+            }
+
+            ID3Node n = new ID3Node(max.getName());
+            List<CompletableFuture<Void>> children = new ArrayList<>();
+            for (String aV : max.getValues()) {
+
+                List<Attribute> newAttributes = new ArrayList<>(attributes);
+                newAttributes.remove(max);
+
+                List<NodeValuePair> newPath = new ArrayList<>(path);
+                newPath.add(new NodeValuePair(max.getName(), aV));
+
+                if (!newAttributes.isEmpty()) {
+                    children.add(CompletableFuture.supplyAsync(() -> build(newAttributes, newPath, pool), pool)
+                            .thenCompose(Function.identity())
+                            .thenAccept(child -> n.add(aV, child)));
+                }
+            }
 
+            return CompletableFuture.allOf(children.toArray(new CompletableFuture<?>[children.size()]))
+                    .thenApply(v -> n);
+        });
+    }
+
+    /**
+     * Returns the attribute with the highest gain, or {@code null} if the
+     * node is a leaf.
+     */
+    private static Attribute select(List<Attribute> attributes, List<GiniGainResult> gains) {
         double maxGain = 0;
         Attribute max = null;
 
         long classValueCount = 0;
 
-        // FIXME: refactor class value assignment
-        Object classValue = "empty";
-
-        for (Attribute attribute : attributes) {
-            GiniGainResult r = giniGain(attribute, path);
-            double current = r.result;
+        for (int i = 0; i < attributes.size(); i++) {
+            Attribute attribute = attributes.get(i);
+            double current = gains.get(i).result;
 
             if (current == -1) {
                 classValueCount++;
-                classValue = r.classValue;
-
             } else {
                 if (current > maxGain) {
                     max = attribute;
@@ -71,49 +152,177 @@ public class SecureID3 {
             }
         }
 
-        if (max == null || classValueCount == 1) {
-            return new ID3Node(classValue.toString());
+        return classValueCount == 1 ? null : max;
+    }
+
+    private static ID3Node leaf(List<GiniGainResult> gains) {
+        // FIXME: refactor class value assignment
+        Object classValue = "empty";
+
+        for (GiniGainResult r : gains) {
+            if (r.result == -1) {
+                classValue = r.classValue;
+            }
         }
 
-        ID3Node n = new ID3Node(max.getName());
-        for (String aV : max.getValues()) {
+        return new ID3Node(classValue.toString());
+    }
 
-            List<Attribute> newAttributes = new ArrayList<>(attributes);
-            newAttributes.remove(max);
+    /**
+     * Enables the parallel build mode, in which the subtrees of sibling
+     * nodes are expanded concurrently on a fork-join pool of the given
+     * parallelism. The pool only lives for a single {@link #run(List, List)}.
+     * <p>
+     * The limit of {@link #setMaxInFlight(int)} applies to every node on its
+     * own, so several nodes may have that many square divisions in flight
+     * at the same time.
+     *
+     * @param parallelism The number of threads, {@code 1} builds the tree
+     *                    depth-first on the calling thread, which is the
+     *                    default.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism has to be positive");
+        }
+        this.parallelism = parallelism;
+    }
 
-            List<NodeValuePair> newPath = new ArrayList<>(path);
-            newPath.add(new NodeValuePair(max.getName(), aV));
+    /**
+     * Limits the number of square divisions of a node, that are in flight
+     * at the same time, unlimited by default.
+     * <p>
+     * The first square divisions of a node are sent as one batch of this
+     * size; whenever one of them is complete, the square division of the
+     * next attribute value is sent. A low limit bounds the memory and the
+     * work queued at the other party, a high limit saves round trips.
+     * <p>
+     * The limit is fixed and per node. To adapt the number of square
+     * divisions in flight of all nodes to the latency of the other party,
+     * use {@link SquareDivisionMasterController#setFlowControl(AimdWindow)}
+     * instead.
+     *
+     * @param maxInFlight The maximum number of square divisions in flight.
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("at least one square division has to be in flight");
+        }
+        this.maxInFlight = maxInFlight;
+    }
 
-            if (!newAttributes.isEmpty()) {
-                n.add(aV, run(newAttributes, newPath));
+    /**
+     * Computes the gini gains of all attributes of a node. The square
+     * divisions of all attribute values are started at once, up to the
+     * limit of {@link #setMaxInFlight(int)}, so that the node takes the
+     * round trips of one square division instead of one per attribute value.
+     */
+    private CompletableFuture<List<GiniGainResult>> giniGains(List<Attribute> attributes, List<NodeValuePair> path) {
+        List<NodeValuePair> attributeValues = new ArrayList<>();
+        for (Attribute attribute : attributes) {
+            for (String attrValue : attribute.getValues()) {
+                attributeValues.add(new NodeValuePair(attribute.getName(), attrValue));
             }
         }
 
-        return n;
+        List<CompletableFuture<GiniGainResult>> futures = computeAll(attributeValues, path);
+
+        List<CompletableFuture<GiniGainResult>> gains = new ArrayList<>(attributes.size());
+        int offset = 0;
+        for (Attribute attribute : attributes) {
+            int values = attribute.getValues().size();
+            gains.add(giniGain(futures.subList(offset, offset + values)));
+            offset += values;
+        }
+
+        return CompletableFuture.allOf(gains.toArray(new CompletableFuture<?>[gains.size()]))
+                .thenApply(v -> {
+                    List<GiniGainResult> results = new ArrayList<>(gains.size());
+                    for (CompletableFuture<GiniGainResult> g : gains) {
+                        results.add(g.join());
+                    }
+                    return results;
+                });
     }
 
-    private GiniGainResult giniGain(Attribute attribute, List<NodeValuePair> path) {
-        double sum = 0;
+    private List<CompletableFuture<GiniGainResult>> computeAll(List<NodeValuePair> attributeValues,
+                                                               List<NodeValuePair> path) {
+        if (attributeValues.size() <= maxInFlight) {
+            return controller.computeAll(attributeValues, path);
+        }
 
-        String attrName = attribute.getName();
+        List<CompletableFuture<GiniGainResult>> results = new ArrayList<>(attributeValues.size());
+        for (int i = 0; i < attributeValues.size(); i++) {
+            results.add(new CompletableFuture<>());
+        }
 
-        for (String attrValue : attribute.getValues()) {
+        start(attributeValues, path, results, 0, maxInFlight, new AtomicInteger(maxInFlight));
 
-            CompletableFuture<GiniGainResult> f = controller.compute(attrName, attrValue, path);
+        return results;
+    }
 
-            try {
-                GiniGainResult r = f.get();
-                double gini = r.result;
-                if (gini == 1) {
-                    return new GiniGainResult(r.classValue, -1d);
-                }
-                sum += gini;
-            } catch (InterruptedException | ExecutionException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+    /**
+     * Starts the square divisions of the attribute values in
+     * {@code [from, to)}. Whenever one of them is complete, the square
+     * division of the next attribute value, that was not started yet, is
+     * started.
+     * <p>
+     * If the controller rejects a start, e.g. because the session cap is
+     * reached, the rejected and all remaining attribute values fail.
+     */
+    private void start(List<NodeValuePair> attributeValues, List<NodeValuePair> path,
+                       List<CompletableFuture<GiniGainResult>> results, int from, int to, AtomicInteger next) {
+        List<CompletableFuture<GiniGainResult>> started;
+        try {
+            started = controller.computeAll(attributeValues.subList(from, to), path);
+        } catch (RuntimeException e) {
+            for (int i = from; i < to; i++) {
+                results.get(i).completeExceptionally(e);
+            }
+            for (int i = next.getAndSet(results.size()); i < results.size(); i++) {
+                results.get(i).completeExceptionally(e);
             }
+            return;
+        }
+
+        for (int i = 0; i < started.size(); i++) {
+            CompletableFuture<GiniGainResult> result = results.get(from + i);
+            started.get(i).whenComplete((r, t) -> {
+                if (t != null) {
+                    result.completeExceptionally(t);
+                } else {
+                    result.complete(r);
+                }
+
+                int n = next.getAndIncrement();
+                if (n < results.size()) {
+                    start(attributeValues, path, results, n, n + 1, next);
+                }
+            });
         }
-        return new GiniGainResult("", sum);
+    }
+
+    /**
+     * Combines the results of the attribute values once all of them are
+     * complete. The first attribute value with a gini of 1 marks the
+     * attribute as pure, like the sequential evaluation did. If a square
+     * division failed, the gain fails with its exception.
+     */
+    private CompletableFuture<GiniGainResult> giniGain(List<CompletableFuture<GiniGainResult>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+                .thenApply(v -> {
+                    double sum = 0;
+
+                    for (CompletableFuture<GiniGainResult> f : futures) {
+                        GiniGainResult r = f.join();
+                        double gini = r.result;
+                        if (gini == 1) {
+                            return new GiniGainResult(r.classValue, -1d);
+                        }
+                        sum += gini;
+                    }
+                    return new GiniGainResult("", sum);
+                });
     }
 
     public SquareDivisionMasterController getController() {
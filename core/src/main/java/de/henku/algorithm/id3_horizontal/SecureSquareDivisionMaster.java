@@ -25,10 +25,13 @@
 package de.henku.algorithm.id3_horizontal;
 
 import de.henku.computations.SecureComputationMaster;
+import de.henku.computations.concurrent.CryptoExecutor;
+import de.henku.computations.paillier.CrtDecryptor;
 import de.henku.jpaillier.KeyPair;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -37,14 +40,16 @@ public class SecureSquareDivisionMaster {
 
     private final static BigInteger TWO = BigInteger.valueOf(2);
 
-    private final KeyPair keyPair;
+    protected final KeyPair keyPair;
+    protected final CrtDecryptor decryptor;
 
-    private final FactoryHelper factoryHelper;
+    protected final FactoryHelper factoryHelper;
+    protected CryptoExecutor executor = CryptoExecutor.getDefault();
     // TODO rename
     private SecureComputationMaster z;
     private SecureComputationMaster w;
 
-    private Object classValue = null;
+    protected Object classValue = null;
 //    private int classValueCount = 0;
 
     private final ConcurrentHashMap<Object, SecureComputationMaster> multiplications =
@@ -53,16 +58,28 @@ public class SecureSquareDivisionMaster {
     SecureSquareDivisionMaster(KeyPair keyPair, FactoryHelper factoryHelper) {
         this.keyPair = keyPair;
         this.factoryHelper = factoryHelper;
+        this.decryptor = factoryHelper.decryptor(keyPair);
     }
 
     public SecureSquareDivisionMaster(KeyPair keyPair) {
         this(keyPair, new FactoryHelper());
     }
 
+    /**
+     * Sets the executor for the encryptions and decryptions of this square
+     * division, {@link CryptoExecutor#getDefault()} by default.
+     *
+     * @param executor The executor.
+     */
+    public void setExecutor(CryptoExecutor executor) {
+        this.executor = executor;
+    }
+
     public List<MultiplicationResult> createMultiplications(Map<Object, Long> counts) {
-        List<MultiplicationResult> results = new ArrayList<>();
+        List<Object> classValues = new ArrayList<>(counts.keySet());
+        List<SecureComputationMaster> masters = new ArrayList<>(classValues.size());
 
-        for (Object cv : counts.keySet()) {
+        for (Object cv : classValues) {
             long count = counts.get(cv);
 
             if ( count != 0l ) {
@@ -72,33 +89,111 @@ public class SecureSquareDivisionMaster {
 
             SecureComputationMaster m = factoryHelper.finalize(count, keyPair);
             multiplications.put(cv, m);
+            masters.add(m);
+        }
 
-            BigInteger result = m.startEncryptedComputation();
+        List<BigInteger> ciphertexts = executor.map(masters, SecureComputationMaster::startEncryptedComputation);
 
-            results.add(new MultiplicationResult(cv, result));
+        List<MultiplicationResult> results = new ArrayList<>();
+        for (int i = 0; i < classValues.size(); i++) {
+            results.add(new MultiplicationResult(classValues.get(i), ciphertexts.get(i)));
         }
 
         return results;
     }
 
     public AdditionResults handleMultiplicationBackwardStep(List<MultiplicationResult> results) {
+        prepareAdditions(results);
+
+        List<BigInteger> encrypted = executor.map(Arrays.asList(z, w),
+                SecureComputationMaster::startEncryptedComputation);
+
+        return new AdditionResults(encrypted.get(0), encrypted.get(1));
+    }
+
+    public void handleAdditionBackwardStep(AdditionResults results) {
+        List<BigInteger> plaintexts = decryptor.decryptAll(
+                Arrays.asList(results.getResultForZ(), results.getResultForW()), executor);
+
+        z.setDecryptedOutputShare(plaintexts.get(0));
+        w.setDecryptedOutputShare(plaintexts.get(1));
+    }
+
+    /**
+     * Completes the square division of the fused protocol flow with the
+     * reply of the last party, without an addition round.
+     * <p>
+     * The last party does not wait for the encrypted Z and W of this party:
+     * it returns {@code E(s)^k} for its input {@code s} and the inverse
+     * {@code k} of its output share. Since
+     * {@code E(m + s)^k = E(m)^k * E(s)^k}, the decryption
+     * {@code m * k + s * k} equals the output share of the addition round,
+     * and {@code k} follows from the output share, that the last party
+     * reveals to this party in both flows.
+     *
+     * @param results         The multiplication results of the last party.
+     * @param additionResults The addition results of the last party.
+     * @param outputShares    The output shares of the last party, which has
+     *                        to be the only other party.
+     * @return The result of the square division.
+     */
+    public GiniGainResult handleFusedBackwardStep(List<MultiplicationResult> results,
+                                                  AdditionResults additionResults,
+                                                  List<SquareDivisionResult> outputShares) {
+        prepareAdditions(results);
+
+        SquareDivisionResult os = fusedOutputShare(outputShares);
+        List<BigInteger> plaintexts = decryptor.decryptAll(
+                Arrays.asList(additionResults.getResultForZ(), additionResults.getResultForW()), executor);
+
+        z.setDecryptedOutputShare(fuseOutputShare(z, os.getOutputShareZ(), plaintexts.get(0)));
+        w.setDecryptedOutputShare(fuseOutputShare(w, os.getOutputShareW(), plaintexts.get(1)));
+
+        return computeResult(outputShares);
+    }
+
+    /**
+     * Returns the output share of the only other party of a fused square
+     * division.
+     */
+    protected static SquareDivisionResult fusedOutputShare(List<SquareDivisionResult> outputShares) {
+        if (outputShares.size() != 1) {
+            throw new IllegalArgumentException("the fused protocol flow requires exactly two parties");
+        }
+
+        return outputShares.get(0);
+    }
+
+    /**
+     * Computes {@code m * k + c mod n} for the input {@code m} of the
+     * computation, the inverse {@code k} of the other party's output share
+     * and its decrypted contribution {@code c}.
+     */
+    protected BigInteger fuseOutputShare(SecureComputationMaster computation, BigInteger outputShare,
+                                         BigInteger contribution) {
+        BigInteger n = keyPair.getPublicKey().getN();
+
+        return computation.getPrivateInput().multiply(outputShare.modInverse(n)).add(contribution).mod(n);
+    }
+
+    private void prepareAdditions(List<MultiplicationResult> results) {
+        List<SecureComputationMaster> masters = new ArrayList<>(results.size());
+        List<BigInteger> ciphertexts = new ArrayList<>(results.size());
 
         for (MultiplicationResult r : results) {
             Object classValue = r.getClassValue();
 
-            SecureComputationMaster m = multiplications.get(classValue);
-            m.decryptAndSetOutputShare(r.getResult());
+            masters.add(multiplications.get(classValue));
+            ciphertexts.add(r.getResult());
+        }
+
+        List<BigInteger> plaintexts = decryptor.decryptAll(ciphertexts, executor);
+        for (int i = 0; i < masters.size(); i++) {
+            masters.get(i).setDecryptedOutputShare(plaintexts.get(i));
         }
 
         z = factoryHelper.finalize(calculateZ(), keyPair);
         w = factoryHelper.finalize(calculateW(), keyPair);
-
-        return new AdditionResults(z.startEncryptedComputation(), w.startEncryptedComputation());
-    }
-
-    public void handleAdditionBackwardStep(AdditionResults results) {
-        z.decryptAndSetOutputShare(results.getResultForZ());
-        w.decryptAndSetOutputShare(results.getResultForW());
     }
 
     private BigInteger calculateZ() {
@@ -165,5 +260,9 @@ public class SecureSquareDivisionMaster {
         SecureComputationMaster finalize(BigInteger input, KeyPair kp) {
             return new SecureComputationMaster(input, kp);
         }
+
+        CrtDecryptor decryptor(KeyPair kp) {
+            return CrtDecryptor.forKeyPair(kp);
+        }
     }
 }
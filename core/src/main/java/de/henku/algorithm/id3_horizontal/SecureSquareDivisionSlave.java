@@ -24,21 +24,33 @@
 
 package de.henku.algorithm.id3_horizontal;
 
+import de.henku.computations.BatchInversion;
 import de.henku.computations.SecureAddition;
 import de.henku.computations.SecureMultiplication;
+import de.henku.computations.concurrent.CryptoExecutor;
+import de.henku.computations.paillier.ModularContext;
+import de.henku.computations.scheme.PaillierScheme;
 import de.henku.jpaillier.PublicKey;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 public class SecureSquareDivisionSlave {
 
     private final static BigInteger TWO = BigInteger.valueOf(2);
 
-    private final PublicKey publicKey;
+    final static AdditionResults EMPTY_ADDITIONS = new AdditionResults(BigInteger.ONE, BigInteger.ONE);
+
+    protected final PublicKey publicKey;
+    private final ModularContext context;
+    protected CryptoExecutor executor = CryptoExecutor.getDefault();
 
     private SecureAddition z;
     private SecureAddition w;
@@ -49,16 +61,28 @@ public class SecureSquareDivisionSlave {
     private final ConcurrentHashMap<Object, SecureMultiplication> multiplications =
             new ConcurrentHashMap<>();
 
-    private Object classValue = null;
+    protected Object classValue = null;
     private int classValueCount = 0;
 
     public SecureSquareDivisionSlave(PublicKey publicKey) {
         this.publicKey = publicKey;
+        this.context = new ModularContext(publicKey);
     }
 
-    public List<MultiplicationResult> handleMultiplicationForwardStep(Map<Object, Long> counts, List<MultiplicationResult> prevResults) {
-        List<MultiplicationResult> results = new ArrayList<>();
+    /**
+     * Sets the executor for the encryptions and exponentiations of this
+     * square division, {@link CryptoExecutor#getDefault()} by default.
+     * <p>
+     * The operations of the class values run in parallel, all bookkeeping
+     * stays on the calling thread.
+     *
+     * @param executor The executor.
+     */
+    public void setExecutor(CryptoExecutor executor) {
+        this.executor = executor;
+    }
 
+    public List<MultiplicationResult> handleMultiplicationForwardStep(Map<Object, Long> counts, List<MultiplicationResult> prevResults) {
         for (MultiplicationResult r : prevResults) {
             Object cv = r.getClassValue();
             long count = counts.get(cv);
@@ -74,50 +98,265 @@ public class SecureSquareDivisionSlave {
                     BigInteger.valueOf(count), publicKey);
 
             multiplications.put(cv, m);
+        }
 
-            BigInteger result = m.forwardStep(r.getResult());
+        return executor.map(prevResults, r -> new MultiplicationResult(r.getClassValue(),
+                multiplications.get(r.getClassValue()).forwardStep(r.getResult())));
+    }
+
+    /**
+     * Adds the inputs of this party to the results of the previous party for
+     * the next party of a chain, see {@link SquareDivisionMiddleController}.
+     * <p>
+     * Every party multiplies its inputs with the sum of the inputs of all
+     * parties before it, so the product of every pair of parties is part of
+     * exactly one multiplication.
+     *
+     * @param prevResults The results of the previous party, whose forward
+     *                    step was computed by
+     *                    {@link #handleMultiplicationForwardStep(Map, List)}.
+     * @return The encrypted sums for the next party.
+     */
+    public List<MultiplicationResult> handleMultiplicationRelayStep(List<MultiplicationResult> prevResults) {
+        return executor.map(prevResults, r -> {
+            SecureAddition a = new SecureAddition(
+                    multiplications.get(r.getClassValue()).getPrivateInput(), publicKey);
+
+            return new MultiplicationResult(r.getClassValue(), a.forwardStep(r.getResult()));
+        });
+    }
 
-            results.add(new MultiplicationResult(cv, result));
+    /**
+     * Adds the backward results of the next parties of a chain to the
+     * backward results of this party, so the master decrypts a single value
+     * per class value.
+     *
+     * @param results     The results of the backward step of this party.
+     * @param nextResults The results of the next party.
+     * @return The combined results in the order of {@code results}.
+     */
+    public List<MultiplicationResult> combineMultiplicationResults(List<MultiplicationResult> results,
+                                                                   List<MultiplicationResult> nextResults) {
+        Map<Object, BigInteger> next = new HashMap<>();
+        for (MultiplicationResult r : nextResults) {
+            next.put(r.getClassValue(), r.getResult());
         }
 
-        return results;
+        PaillierScheme scheme = new PaillierScheme(publicKey);
+        List<MultiplicationResult> combined = new ArrayList<>(results.size());
+        for (MultiplicationResult r : results) {
+            BigInteger c = next.get(r.getClassValue());
+            if (c == null) {
+                throw new IllegalArgumentException("missing result for class value " + r.getClassValue());
+            }
+
+            combined.add(new MultiplicationResult(r.getClassValue(), scheme.add(r.getResult(), c)));
+        }
+
+        return combined;
     }
 
     public List<MultiplicationResult> handleMultiplicationBackwardStep(List<MultiplicationResult> prevResults) {
+        return handleMultiplicationBackwardSteps(
+                Collections.singletonList(this), Collections.singletonList(prevResults)).get(0);
+    }
 
-        List<MultiplicationResult> results = new ArrayList<>();
+    /**
+     * Computes the multiplication backward steps of several square
+     * divisions, which use the same public key.
+     * <p>
+     * The values of all backward steps, that have to be inverted modulo
+     * {@code n^2}, are inverted at once by {@link BatchInversion}.
+     *
+     * @param slaves      The slaves of the square divisions.
+     * @param prevResults The results of the previous party, one list per
+     *                    slave.
+     * @return The results of the backward steps, one list per slave.
+     */
+    public static List<List<MultiplicationResult>> handleMultiplicationBackwardSteps(
+            List<? extends SecureSquareDivisionSlave> slaves, List<List<MultiplicationResult>> prevResults) {
+        List<List<BigInteger>> values = new ArrayList<>();
+        for (int i = 0; i < slaves.size(); i++) {
+            values.add(slaves.get(i).prepareMultiplicationBackwardStep(prevResults.get(i)));
+        }
 
-        for (MultiplicationResult r : prevResults) {
-            Object classValue = r.getClassValue();
+        List<List<BigInteger>> inverses = invert(slaves, values);
 
-            SecureMultiplication m = multiplications.get(classValue);
-            BigInteger newResult = m.backwardStep(r.getResult());
+        List<List<MultiplicationResult>> results = new ArrayList<>();
+        for (int i = 0; i < slaves.size(); i++) {
+            results.add(slaves.get(i).completeMultiplicationBackwardStep(prevResults.get(i), inverses.get(i)));
+        }
 
-            results.add(new MultiplicationResult(classValue, newResult));
+        return results;
+    }
 
+    /**
+     * Generates the output shares of the multiplications and returns the
+     * values, that have to be inverted for the backward step.
+     */
+    protected List<BigInteger> prepareMultiplicationBackwardStep(List<MultiplicationResult> prevResults) {
+        List<SecureMultiplication> ms = new ArrayList<>(prevResults.size());
+        for (MultiplicationResult r : prevResults) {
+            ms.add(multiplications.get(r.getClassValue()));
+        }
+
+        List<BigInteger> values = executor.map(ms, SecureMultiplication::prepareBackwardStep);
+
+        for (SecureMultiplication m : ms) {
             multiplicationOutputShares.add(m.getOutputShare());
         }
 
-        return results;
+        return values;
+    }
+
+    protected List<MultiplicationResult> completeMultiplicationBackwardStep(List<MultiplicationResult> prevResults,
+                                                                            List<BigInteger> inverses) {
+        List<Integer> indices = new ArrayList<>(prevResults.size());
+        for (int i = 0; i < prevResults.size(); i++) {
+            indices.add(i);
+        }
+
+        return executor.map(indices, i -> {
+            MultiplicationResult r = prevResults.get(i);
+            Object classValue = r.getClassValue();
+
+            SecureMultiplication m = multiplications.get(classValue);
+            BigInteger newResult = m.completeBackwardStep(r.getResult(), inverses.get(i));
+
+            return new MultiplicationResult(classValue, newResult);
+        });
     }
 
     public AdditionResults handleAdditionForwardStep(AdditionResults data) {
         z = new SecureAddition(calculateZ(), publicKey);
         w = new SecureAddition(calculateW(), publicKey);
 
-        BigInteger zFR = z.forwardStep(data.getResultForZ());
-        BigInteger wFR = w.forwardStep(data.getResultForW());
+        List<Supplier<BigInteger>> steps = Arrays.asList(
+                () -> z.forwardStep(data.getResultForZ()),
+                () -> w.forwardStep(data.getResultForW()));
+        List<BigInteger> results = executor.map(steps, Supplier::get);
 
-        return new AdditionResults(zFR, wFR);
+        return new AdditionResults(results.get(0), results.get(1));
     }
 
     public AdditionResults handleAdditionBackwardStep(AdditionResults data) {
-        BigInteger zBR = z.backwardStep(data.getResultForZ());
-        BigInteger wBR = w.backwardStep(data.getResultForW());
+        return handleAdditionBackwardSteps(
+                Collections.singletonList(this), Collections.singletonList(data)).get(0);
+    }
+
+    /**
+     * Computes the addition backward steps of several square divisions,
+     * which use the same public key, with a single modular inversion.
+     *
+     * @param slaves The slaves of the square divisions.
+     * @param data   The results of the previous party, one per slave.
+     * @return The results of the backward steps, one per slave.
+     * @see #handleMultiplicationBackwardSteps(List, List)
+     */
+    public static List<AdditionResults> handleAdditionBackwardSteps(
+            List<? extends SecureSquareDivisionSlave> slaves, List<AdditionResults> data) {
+        List<List<BigInteger>> values = new ArrayList<>();
+        for (SecureSquareDivisionSlave slave : slaves) {
+            values.add(slave.prepareAdditionBackwardStep());
+        }
+
+        List<List<BigInteger>> inverses = invert(slaves, values);
+
+        List<AdditionResults> results = new ArrayList<>();
+        for (int i = 0; i < slaves.size(); i++) {
+            results.add(slaves.get(i).completeAdditionBackwardStep(data.get(i), inverses.get(i)));
+        }
+
+        return results;
+    }
+
+    /**
+     * Computes the additions of several square divisions for the fused
+     * protocol flow, without waiting for the ciphertexts of the master.
+     * <p>
+     * The forward steps start from the trivial encryption {@code 1} of zero,
+     * so the backward steps return {@code E(s)^k} for the input {@code s}
+     * of this party and the inverse {@code k} of its output share. The
+     * master adds its own input scaled by {@code k} in the plaintext, see
+     * {@link SecureSquareDivisionMaster#handleFusedBackwardStep(List, AdditionResults, List)}.
+     *
+     * @param slaves The slaves of the square divisions, whose
+     *               multiplications are complete.
+     * @return The results of the additions, one per slave.
+     */
+    public static List<AdditionResults> handleFusedAdditionSteps(List<? extends SecureSquareDivisionSlave> slaves) {
+        List<AdditionResults> data = new ArrayList<>(slaves.size());
+        for (SecureSquareDivisionSlave slave : slaves) {
+            data.add(slave.handleAdditionForwardStep(EMPTY_ADDITIONS));
+        }
+
+        return handleAdditionBackwardSteps(slaves, data);
+    }
+
+    /**
+     * Adds the addition results of a child in an aggregation tree to the
+     * results of this party, see
+     * {@link SquareDivisionMiddleController#setAdditionTree(
+     * de.henku.algorithm.id3_horizontal.communication.SquareDivisionReceiverAdapter, List)}.
+     *
+     * @param results      The results of this party.
+     * @param childResults The results of the child.
+     * @return The encrypted sums.
+     */
+    public AdditionResults combineAdditionResults(AdditionResults results, AdditionResults childResults) {
+        PaillierScheme scheme = new PaillierScheme(publicKey);
+
+        return new AdditionResults(
+                scheme.add(results.getResultForZ(), childResults.getResultForZ()),
+                scheme.add(results.getResultForW(), childResults.getResultForW()));
+    }
+
+    /**
+     * Generates the output shares of the additions and returns the values,
+     * that have to be inverted for the backward step.
+     */
+    protected List<BigInteger> prepareAdditionBackwardStep() {
+        return executor.map(Arrays.asList(z, w), SecureAddition::prepareBackwardStep);
+    }
+
+    protected AdditionResults completeAdditionBackwardStep(AdditionResults data, List<BigInteger> inverses) {
+        BigInteger zBR = z.completeBackwardStep(data.getResultForZ(), inverses.get(0));
+        BigInteger wBR = w.completeBackwardStep(data.getResultForW(), inverses.get(1));
 
         return new AdditionResults(zBR, wBR);
     }
 
+    private static List<List<BigInteger>> invert(List<? extends SecureSquareDivisionSlave> slaves,
+                                                 List<List<BigInteger>> values) {
+        List<BigInteger> all = new ArrayList<>();
+        for (List<BigInteger> v : values) {
+            all.addAll(v);
+        }
+
+        if (all.isEmpty()) {
+            return values;
+        }
+
+        SecureSquareDivisionSlave first = slaves.get(0);
+        PublicKey publicKey = first.publicKey;
+        for (SecureSquareDivisionSlave slave : slaves) {
+            if (!slave.publicKey.getnSquared().equals(publicKey.getnSquared())) {
+                throw new IllegalArgumentException("batched square divisions have to use the same public key");
+            }
+        }
+
+        List<BigInteger> inverses = BatchInversion.invert(all, first.context);
+
+        List<List<BigInteger>> result = new ArrayList<>();
+        int offset = 0;
+        for (List<BigInteger> v : values) {
+            result.add(inverses.subList(offset, offset + v.size()));
+            offset += v.size();
+        }
+
+        return result;
+    }
+
     private BigInteger calculateZ() {
         BigInteger result = BigInteger.ZERO;
 
@@ -142,6 +381,17 @@ public class SecureSquareDivisionSlave {
         return result;
     }
 
+    /**
+     * Returns the output shares of a party below the root of an aggregation
+     * tree. Such a party adds its inputs without a backward step, so its
+     * output shares are neutral.
+     *
+     * @return The output shares.
+     */
+    public SquareDivisionResult getAggregationOutputShares() {
+        return new SquareDivisionResult(BigInteger.ONE, BigInteger.ONE, classValue);
+    }
+
     public SquareDivisionResult getAdditionOutputShares() {
 //        if(classValueCount == 1) {
             return new SquareDivisionResult(z.getOutputShare(), w.getOutputShare(), classValue);
@@ -24,34 +24,37 @@
 
 package de.henku.algorithm.id3_horizontal;
 
-import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+import de.henku.algorithm.id3_horizontal.communication.FusedSquareDivisionPojo;
 import de.henku.algorithm.id3_horizontal.communication.SquareDivisionPojo;
 import de.henku.algorithm.id3_horizontal.communication.SquareDivisionReceiverAdapter;
 import de.henku.algorithm.id3_horizontal.communication.SquareDivisionSenderAdapter;
 import de.henku.jpaillier.PublicKey;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 public class SquareDivisionLastController implements SquareDivisionSenderAdapter {
 
-    private final DataLayer dataLayer;
     private final PublicKey publicKey;
 
     private SquareDivisionReceiverAdapter receiver;
+    private SquareDivisionReceiverAdapter additionParent;
 
-    private ConcurrentHashMap<Long, SecureSquareDivisionSlave> divisions =
-            new ConcurrentHashMap<>();
+    private final SquareDivisionSessions<SecureSquareDivisionSlave> sessions =
+            new SquareDivisionSessions<>(this::expired);
 
     private final FactoryHelper factoryHelper;
+    private final ContingencyTableCache tables;
 
     SquareDivisionLastController(
             DataLayer dataLayer,
             PublicKey publicKey,
             FactoryHelper factoryHelper) {
-        this.dataLayer = dataLayer;
+        this.tables = new ContingencyTableCache(dataLayer);
         this.publicKey = publicKey;
         this.factoryHelper = factoryHelper;
     }
@@ -62,50 +65,418 @@ public class SquareDivisionLastController implements SquareDivisionSenderAdapter
 
     @Override
     public void handleMultiplicationForwardStep(SquareDivisionPojo pojo) {
-        long id = pojo.getId();
+        List<SecureSquareDivisionSlave> created = createDivisions(Collections.singletonList(pojo));
+        if (created == null) {
+            return;
+        }
+
+        SecureSquareDivisionSlave d = created.get(0);
+
+        SquareDivisionPojo reply;
+        try {
+            List<MultiplicationResult> fr = multiplicationForwardStep(d, pojo);
+            List<MultiplicationResult> br = d.handleMultiplicationBackwardStep(fr);
+
+            if (pojo instanceof FusedSquareDivisionPojo) {
+                AdditionResults ar = SecureSquareDivisionSlave.handleFusedAdditionSteps(
+                        Collections.singletonList(d)).get(0);
+
+                reply = fusedReply(pojo, br, ar);
+            } else {
+                reply = withResults(pojo, br);
+            }
+        } catch (RuntimeException e) {
+            fail(Collections.singletonList(pojo.getId()));
+            return;
+        }
+
+        receiver.handleMultiplicationBackwardStep(reply);
+    }
+
+    /**
+     * Computes the multiplication steps of all square divisions in the batch
+     * and returns them to the receiver in a single call. The backward steps
+     * share a single modular inversion.
+     * <p>
+     * For every {@link FusedSquareDivisionPojo} in the batch, the additions
+     * are computed as well and returned in a fused reply.
+     * <p>
+     * If the cap of live square divisions is reached, the whole batch is
+     * reported as failed. A square division, whose forward step throws, is
+     * removed and reported as failed, while the other square divisions of
+     * the batch are returned. If the shared steps of the batch throw, all
+     * square divisions of the batch are reported as failed.
+     *
+     * @param pojos The forward steps of the master.
+     */
+    @Override
+    public void handleMultiplicationForwardSteps(List<SquareDivisionPojo> pojos) {
+        List<SecureSquareDivisionSlave> created = createDivisions(pojos);
+        if (created == null) {
+            return;
+        }
 
-        SecureSquareDivisionSlave d = factoryHelper.finalize(publicKey);
-        divisions.put(id, d);
+        List<SquareDivisionPojo> started = new ArrayList<>(pojos.size());
+        List<SecureSquareDivisionSlave> slaves = new ArrayList<>(pojos.size());
+        List<List<MultiplicationResult>> forwardResults = new ArrayList<>(pojos.size());
+        List<Long> failed = new ArrayList<>();
 
-        String attrName = pojo.getAttrName();
-        String attrValue = pojo.getAttrValue();
-        List<NodeValuePair> path = pojo.getPath();
-        Map<Object, Long> countPerValue = dataLayer.countPerClassValue(path, attrName, attrValue);
+        for (int i = 0; i < pojos.size(); i++) {
+            SquareDivisionPojo pojo = pojos.get(i);
+            try {
+                forwardResults.add(multiplicationForwardStep(created.get(i), pojo));
+                started.add(pojo);
+                slaves.add(created.get(i));
+            } catch (RuntimeException e) {
+                failed.add(pojo.getId());
+            }
+        }
+
+        List<SquareDivisionPojo> newPojos = new ArrayList<>(started.size());
+        try {
+            List<List<MultiplicationResult>> br = slaves.isEmpty()
+                    ? Collections.emptyList()
+                    : SecureSquareDivisionSlave.handleMultiplicationBackwardSteps(slaves, forwardResults);
+
+            List<SecureSquareDivisionSlave> fused = new ArrayList<>();
+            for (int i = 0; i < started.size(); i++) {
+                if (started.get(i) instanceof FusedSquareDivisionPojo) {
+                    fused.add(slaves.get(i));
+                }
+            }
 
-        List<MultiplicationResult> fr = d.handleMultiplicationForwardStep(countPerValue, pojo.getResults());
-        List<MultiplicationResult> br = d.handleMultiplicationBackwardStep(fr);
+            List<AdditionResults> ar = fused.isEmpty()
+                    ? Collections.emptyList()
+                    : SecureSquareDivisionSlave.handleFusedAdditionSteps(fused);
+
+            int next = 0;
+            for (int i = 0; i < started.size(); i++) {
+                SquareDivisionPojo pojo = started.get(i);
+
+                if (pojo instanceof FusedSquareDivisionPojo) {
+                    newPojos.add(fusedReply(pojo, br.get(i), ar.get(next++)));
+                } else {
+                    newPojos.add(withResults(pojo, br.get(i)));
+                }
+            }
+        } catch (RuntimeException e) {
+            failed.addAll(ids(started));
+            newPojos.clear();
+        }
 
-        SquareDivisionPojo newPojo = new SquareDivisionPojo(id, attrName, attrValue, path, br);
-        receiver.handleMultiplicationBackwardStep(newPojo);
+        if (!newPojos.isEmpty()) {
+            receiver.handleMultiplicationBackwardSteps(newPojos);
+        }
+        fail(failed);
     }
 
     @Override
     public void handleAdditionForwardStep(long squareID, AdditionResults pojo) {
-        SecureSquareDivisionSlave d = divisions.get(squareID);
+        SecureSquareDivisionSlave d = sessions.get(squareID);
+        if (d == null) {
+            return;
+        }
 
-        AdditionResults fr = d.handleAdditionForwardStep(pojo);
-        AdditionResults br = d.handleAdditionBackwardStep(fr);
+        AdditionResults fr;
+        AdditionResults br = null;
+        try {
+            fr = d.handleAdditionForwardStep(pojo);
+            if (additionParent == null) {
+                br = d.handleAdditionBackwardStep(fr);
+            }
+        } catch (RuntimeException e) {
+            fail(Collections.singletonList(squareID));
+            return;
+        }
+
+        if (additionParent != null) {
+            additionParent.handleAdditionBackwardStep(squareID, fr);
+            return;
+        }
 
         receiver.handleAdditionBackwardStep(squareID, br);
     }
 
+    /**
+     * Computes the addition steps of all square divisions in the batch and
+     * returns them to the receiver in a single call. Failed square divisions
+     * are handled like by
+     * {@link #handleMultiplicationForwardSteps(List)}.
+     *
+     * @param squareIDs The ids of the square divisions.
+     * @param results   The forward steps of the master.
+     */
+    @Override
+    public void handleAdditionForwardSteps(List<Long> squareIDs, List<AdditionResults> results) {
+        List<Long> ids = new ArrayList<>(squareIDs.size());
+        List<SecureSquareDivisionSlave> slaves = new ArrayList<>(squareIDs.size());
+        List<AdditionResults> forwardResults = new ArrayList<>(squareIDs.size());
+        List<Long> failed = new ArrayList<>();
+
+        for (int i = 0; i < squareIDs.size(); i++) {
+            SecureSquareDivisionSlave d = sessions.get(squareIDs.get(i));
+            if (d == null) {
+                continue;
+            }
+
+            try {
+                forwardResults.add(d.handleAdditionForwardStep(results.get(i)));
+                ids.add(squareIDs.get(i));
+                slaves.add(d);
+            } catch (RuntimeException e) {
+                failed.add(squareIDs.get(i));
+            }
+        }
+
+        if (additionParent != null) {
+            additionParent.handleAdditionBackwardSteps(ids, forwardResults);
+            fail(failed);
+            return;
+        }
+
+        List<AdditionResults> br;
+        try {
+            br = slaves.isEmpty()
+                    ? Collections.emptyList()
+                    : SecureSquareDivisionSlave.handleAdditionBackwardSteps(slaves, forwardResults);
+        } catch (RuntimeException e) {
+            failed.addAll(ids);
+            ids = Collections.emptyList();
+            br = Collections.emptyList();
+        }
+
+        if (!ids.isEmpty()) {
+            receiver.handleAdditionBackwardSteps(ids, br);
+        }
+        fail(failed);
+    }
+
     @Override
     public void collectOutputShares(long squareID) {
-        SecureSquareDivisionSlave d = divisions.get(squareID);
+        List<SquareDivisionResult> outputShares = outputShares(squareID);
+        if (outputShares != null) {
+            receiver.handleCollectOutputShares(squareID, outputShares);
+        }
+    }
 
-        List<SquareDivisionResult> outputShares = new ArrayList<>();
-        outputShares.add(d.getAdditionOutputShares());
+    @Override
+    public void collectOutputShares(List<Long> squareIDs) {
+        List<Long> ids = new ArrayList<>(squareIDs.size());
+        List<List<SquareDivisionResult>> outputShares = new ArrayList<>(squareIDs.size());
+        for (long squareID : squareIDs) {
+            List<SquareDivisionResult> os = outputShares(squareID);
+            if (os != null) {
+                ids.add(squareID);
+                outputShares.add(os);
+            }
+        }
 
-        receiver.handleCollectOutputShares(squareID, outputShares);
+        receiver.handleCollectOutputShares(ids, outputShares);
     }
 
     public void setReceiver(SquareDivisionReceiverAdapter receiver) {
         this.receiver = receiver;
     }
 
+    /**
+     * Sets the number of tree nodes, whose contingency tables are cached,
+     * {@value ContingencyTableCache#DEFAULT_NODES} by default. The data
+     * layer must not change while its tables are cached; setting the
+     * number drops the cached tables, {@code 0} disables the cache.
+     *
+     * @param nodes The number of tree nodes.
+     * @see DataLayer#contingencyTable(List)
+     */
+    public void setCachedNodes(int nodes) {
+        tables.setMaxNodes(nodes);
+    }
+
+    /**
+     * Makes this party a leaf of the aggregation tree of the additions: it
+     * returns the sums with its inputs to the parent without a backward
+     * step.
+     *
+     * @param parent The adapter to the parent of this party in the tree.
+     * @see SquareDivisionMiddleController#setAdditionTree(SquareDivisionReceiverAdapter, List)
+     */
+    public void setAdditionTree(SquareDivisionReceiverAdapter parent) {
+        this.additionParent = parent;
+    }
+
+    /**
+     * Expires the square divisions, that the master did not continue for
+     * the given time, e.g. after the master failed. A background thread
+     * sweeps the square divisions twice per timeout, until
+     * {@link #stopSessionSweeper()} is called or the controller is no longer
+     * referenced. Square divisions never expire by default.
+     *
+     * @param timeout The maximum idle time.
+     * @param unit    The unit of the timeout.
+     */
+    public void setSessionTimeout(long timeout, TimeUnit unit) {
+        sessions.setTimeout(timeout, unit);
+        sessions.startSweeper();
+    }
+
+    /**
+     * Stops the background sweep of the expired square divisions. Square
+     * divisions still expire when new ones arrive or by
+     * {@link #expireSessions()}.
+     */
+    public void stopSessionSweeper() {
+        sessions.stopSweeper();
+    }
+
+    /**
+     * Sets the executor, on which the background sweep reports the expired
+     * square divisions to the receiver,
+     * {@link java.util.concurrent.ForkJoinPool#commonPool()} by default. The
+     * sweeper thread itself is shared by all controllers.
+     *
+     * @param executor The executor.
+     */
+    public void setExpiryExecutor(Executor executor) {
+        sessions.setExpiryExecutor(executor);
+    }
+
+    /**
+     * Caps the number of live square divisions. A square division beyond
+     * the cap is rejected together with its batch and reported to the
+     * receiver by
+     * {@link SquareDivisionReceiverAdapter#handleFailedSquareDivisions(List)}.
+     * Expired square divisions are reported the same way.
+     *
+     * @param maxSessions The maximum number of live square divisions.
+     */
+    public void setMaxSessions(int maxSessions) {
+        sessions.setMaxSessions(maxSessions);
+    }
+
+    /**
+     * Expires all square divisions, that were idle for longer than the
+     * session timeout.
+     *
+     * @return The number of expired square divisions.
+     */
+    public int expireSessions() {
+        return sessions.expire();
+    }
+
+    /**
+     * @return The number of square divisions, whose output shares were not
+     * collected yet.
+     */
+    public int getLiveSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * @return The estimated bytes retained by the live square divisions.
+     */
+    public long getRetainedBytes() {
+        return sessions.getRetainedBytes();
+    }
+
+    /**
+     * Creates the square divisions of a batch. If the cap of live square
+     * divisions is reached, the square divisions created for the batch are
+     * removed again and the whole batch is reported as failed.
+     *
+     * @return The square divisions, {@code null} if the batch was rejected.
+     */
+    private List<SecureSquareDivisionSlave> createDivisions(List<SquareDivisionPojo> pojos) {
+        List<SecureSquareDivisionSlave> slaves = new ArrayList<>(pojos.size());
+
+        try {
+            for (SquareDivisionPojo pojo : pojos) {
+                SecureSquareDivisionSlave d = PackedSecureSquareDivisionSlave.isPacked(pojo.getResults())
+                        ? factoryHelper.finalizePacked(publicKey)
+                        : factoryHelper.finalize(publicKey);
+                sessions.create(pojo.getId(), d, SquareDivisionSessions.estimateSlaveBytes(pojo.getResults(), 0, 0));
+                slaves.add(d);
+            }
+        } catch (IllegalStateException e) {
+            for (int i = 0; i < slaves.size(); i++) {
+                sessions.complete(pojos.get(i).getId());
+            }
+
+            receiver.handleFailedSquareDivisions(ids(pojos));
+            return null;
+        }
+
+        return slaves;
+    }
+
+    /**
+     * Removes the square divisions, whose steps failed, and reports them to
+     * the receiver.
+     */
+    private void fail(List<Long> squareIDs) {
+        if (squareIDs.isEmpty()) {
+            return;
+        }
+
+        for (long squareID : squareIDs) {
+            sessions.complete(squareID);
+        }
+        receiver.handleFailedSquareDivisions(squareIDs);
+    }
+
+    private void expired(SquareDivisionSessions.Session<SecureSquareDivisionSlave> session) {
+        receiver.handleFailedSquareDivisions(Collections.singletonList(session.getId()));
+    }
+
+    private static List<Long> ids(List<SquareDivisionPojo> pojos) {
+        List<Long> ids = new ArrayList<>(pojos.size());
+        for (SquareDivisionPojo pojo : pojos) {
+            ids.add(pojo.getId());
+        }
+        return ids;
+    }
+
+    private List<MultiplicationResult> multiplicationForwardStep(SecureSquareDivisionSlave d,
+                                                                 SquareDivisionPojo pojo) {
+        Map<Object, Long> countPerValue = tables.countPerClassValue(
+                pojo.getPath(), pojo.getAttrName(), pojo.getAttrValue());
+
+        return d.handleMultiplicationForwardStep(countPerValue, pojo.getResults());
+    }
+
+    /**
+     * Returns the output shares of a square division and removes it, as
+     * the output shares are its last step.
+     */
+    private List<SquareDivisionResult> outputShares(long squareID) {
+        SecureSquareDivisionSlave d = sessions.complete(squareID);
+        if (d == null) {
+            return null;
+        }
+
+        List<SquareDivisionResult> outputShares = new ArrayList<>();
+        outputShares.add(additionParent != null
+                ? d.getAggregationOutputShares()
+                : d.getAdditionOutputShares());
+
+        return outputShares;
+    }
+
+    private static SquareDivisionPojo withResults(SquareDivisionPojo pojo, List<MultiplicationResult> results) {
+        return new SquareDivisionPojo(pojo.getId(), pojo.getAttrName(), pojo.getAttrValue(), pojo.getPath(), results);
+    }
+
+    private SquareDivisionPojo fusedReply(SquareDivisionPojo pojo, List<MultiplicationResult> results,
+                                          AdditionResults additionResults) {
+        return new FusedSquareDivisionPojo(pojo.getId(), pojo.getAttrName(), pojo.getAttrValue(), pojo.getPath(),
+                results, additionResults, outputShares(pojo.getId()));
+    }
+
     static class FactoryHelper {
         SecureSquareDivisionSlave finalize(PublicKey pk) {
             return new SecureSquareDivisionSlave(pk);
         }
+
+        SecureSquareDivisionSlave finalizePacked(PublicKey pk) {
+            return new PackedSecureSquareDivisionSlave(pk);
+        }
     }
 }
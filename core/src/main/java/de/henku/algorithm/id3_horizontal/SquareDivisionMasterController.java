@@ -24,16 +24,25 @@
 
 package de.henku.algorithm.id3_horizontal;
 
+import de.henku.algorithm.id3_horizontal.communication.FusedSquareDivisionPojo;
 import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
 import de.henku.algorithm.id3_horizontal.communication.SquareDivisionPojo;
 import de.henku.algorithm.id3_horizontal.communication.SquareDivisionReceiverAdapter;
 import de.henku.algorithm.id3_horizontal.communication.SquareDivisionSenderAdapter;
+import de.henku.computations.SlotPacking;
 import de.henku.jpaillier.KeyPair;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class SquareDivisionMasterController implements
@@ -42,20 +51,30 @@ public class SquareDivisionMasterController implements
     private AtomicLong idCounter = new AtomicLong();
     private final SquareDivisionSenderAdapter sender;
 
-    private ConcurrentHashMap<Long, SecureSquareDivisionMaster> divisions = new ConcurrentHashMap<>();
+    private final SquareDivisionSessions<SecureSquareDivisionMaster> sessions =
+            new SquareDivisionSessions<>(this::expired);
 
     private ConcurrentHashMap<Long, CompletableFuture<GiniGainResult>> futures = new ConcurrentHashMap<>();
 
     private KeyPair keyPair;
 
-    private final DataLayer dataLayer;
     private final FactoryHelper squareDivisionFactory;
+    private final ContingencyTableCache tables;
+
+    private SlotPacking packing;
+    private boolean fusedRounds;
+
+    private AimdWindow window;
+    private final ConcurrentLinkedQueue<PendingDivision> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<Long, Long> sentAt = new ConcurrentHashMap<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean drainRequested;
 
     SquareDivisionMasterController(DataLayer dataLayer,
                                    SquareDivisionSenderAdapter sender, KeyPair keyPair,
                                    FactoryHelper helper) {
 
-        this.dataLayer = dataLayer;
+        this.tables = new ContingencyTableCache(dataLayer);
         this.sender = sender;
         this.keyPair = keyPair;
         this.squareDivisionFactory = helper;
@@ -71,59 +90,568 @@ public class SquareDivisionMasterController implements
 
         long id = idCounter.getAndIncrement();
 
-        SecureSquareDivisionMaster d = squareDivisionFactory.finalize(keyPair);
-        divisions.put(id, d);
+        CompletableFuture<GiniGainResult> f = new CompletableFuture<>();
+        if (window != null) {
+            queue.add(new PendingDivision(id, attrName, attrValue, path, f));
+            drain();
+            return f;
+        }
 
-        Map<Object, Long> cpcv = dataLayer.countPerClassValue(path,
-                attrName, attrValue);
+        SquareDivisionPojo pojo = start(id, attrName, attrValue, path, f);
 
-        List<MultiplicationResult> results = d.createMultiplications(cpcv);
+        try {
+            sender.handleMultiplicationForwardStep(pojo);
+        } catch (RuntimeException e) {
+            abandon(id, e);
+            throw e;
+        }
+
+        return f;
+    }
 
-        SquareDivisionPojo pojo = new SquareDivisionPojo(id, attrName,
-                attrValue, path, results);
+    /**
+     * Starts the square divisions of several attribute values on the same
+     * path, usually all attribute values of a tree node, as one batch.
+     * <p>
+     * Every protocol round of the whole batch is sent in a single message,
+     * so the batch takes as many round trips as a single square division.
+     * With flow control, the part of the batch beyond the window is queued
+     * and sent together with the other queued divisions, once the window
+     * has room.
+     *
+     * @param attributeValues The attribute name and value of each square
+     *                        division.
+     * @param path            The path of the tree node.
+     * @return The futures of the results in the order of the attribute
+     * values.
+     */
+    public List<CompletableFuture<GiniGainResult>> computeAll(List<NodeValuePair> attributeValues,
+                                                              List<NodeValuePair> path) {
+        List<SquareDivisionPojo> pojos = new ArrayList<>(attributeValues.size());
+        List<CompletableFuture<GiniGainResult>> results = new ArrayList<>(attributeValues.size());
 
-        CompletableFuture<GiniGainResult> f = new CompletableFuture<>();
-        futures.put(id, f);
+        if (window != null) {
+            for (NodeValuePair av : attributeValues) {
+                CompletableFuture<GiniGainResult> f = new CompletableFuture<>();
+                queue.add(new PendingDivision(idCounter.getAndIncrement(), av.getNode(), av.getValue(), path, f));
+                results.add(f);
+            }
 
-        sender.handleMultiplicationForwardStep(pojo);
+            drain();
+            return results;
+        }
 
-        return f;
+        try {
+            for (NodeValuePair av : attributeValues) {
+                long id = idCounter.getAndIncrement();
+
+                CompletableFuture<GiniGainResult> f = new CompletableFuture<>();
+                pojos.add(start(id, av.getNode(), av.getValue(), path, f));
+                results.add(f);
+            }
+
+            sender.handleMultiplicationForwardSteps(pojos);
+        } catch (RuntimeException e) {
+            // the batch is not or not completely sent, so the divisions
+            // started so far are abandoned
+            for (SquareDivisionPojo pojo : pojos) {
+                abandon(pojo.getId(), e);
+            }
+            throw e;
+        }
+
+        return results;
     }
 
     public void handleMultiplicationBackwardStep(SquareDivisionPojo data) {
         long id = data.getId();
 
-        SecureSquareDivisionMaster sD = divisions.get(id);
-        AdditionResults r = sD.handleMultiplicationBackwardStep(data
-                .getResults());
+        SecureSquareDivisionMaster sD = sessions.get(id);
+        if (sD == null) {
+            return;
+        }
+
+        if (isFusedReply(data)) {
+            completeFused(sD, (FusedSquareDivisionPojo) data);
+            return;
+        }
+
+        try {
+            AdditionResults r = sD.handleMultiplicationBackwardStep(data
+                    .getResults());
+
+            sender.handleAdditionForwardStep(id, r);
+        } catch (RuntimeException e) {
+            fail(id, e);
+        }
+    }
+
+    @Override
+    public void handleMultiplicationBackwardSteps(List<SquareDivisionPojo> data) {
+        List<Long> ids = new ArrayList<>(data.size());
+        List<AdditionResults> results = new ArrayList<>(data.size());
 
-        sender.handleAdditionForwardStep(id, r);
+        for (SquareDivisionPojo pojo : data) {
+            SecureSquareDivisionMaster d = sessions.get(pojo.getId());
+            if (d == null) {
+                continue;
+            }
+
+            if (isFusedReply(pojo)) {
+                completeFused(d, (FusedSquareDivisionPojo) pojo);
+                continue;
+            }
+
+            // a failing division must not hold up the rest of the batch
+            try {
+                results.add(d.handleMultiplicationBackwardStep(pojo.getResults()));
+                ids.add(pojo.getId());
+            } catch (RuntimeException e) {
+                fail(pojo.getId(), e);
+            }
+        }
+
+        if (!ids.isEmpty()) {
+            try {
+                sender.handleAdditionForwardSteps(ids, results);
+            } catch (RuntimeException e) {
+                ids.forEach(id -> fail(id, e));
+            }
+        }
     }
 
     @Override
     public void handleAdditionBackwardStep(
             long squareID,
             AdditionResults results) {
-        SecureSquareDivisionMaster d = divisions.get(squareID);
-        d.handleAdditionBackwardStep(results);
+        SecureSquareDivisionMaster d = sessions.get(squareID);
+        if (d == null) {
+            return;
+        }
+
+        try {
+            d.handleAdditionBackwardStep(results);
 
-        sender.collectOutputShares(squareID);
+            sender.collectOutputShares(squareID);
+        } catch (RuntimeException e) {
+            fail(squareID, e);
+        }
+    }
+
+    @Override
+    public void handleAdditionBackwardSteps(List<Long> squareIDs,
+                                            List<AdditionResults> results) {
+        List<Long> ids = new ArrayList<>(squareIDs.size());
+        for (int i = 0; i < squareIDs.size(); i++) {
+            SecureSquareDivisionMaster d = sessions.get(squareIDs.get(i));
+            if (d == null) {
+                continue;
+            }
+
+            try {
+                d.handleAdditionBackwardStep(results.get(i));
+                ids.add(squareIDs.get(i));
+            } catch (RuntimeException e) {
+                fail(squareIDs.get(i), e);
+            }
+        }
+
+        if (!ids.isEmpty()) {
+            try {
+                sender.collectOutputShares(ids);
+            } catch (RuntimeException e) {
+                ids.forEach(id -> fail(id, e));
+            }
+        }
     }
 
     @Override
     public void handleCollectOutputShares(long squareID,
                                           List<SquareDivisionResult> outputShares) {
-        SecureSquareDivisionMaster d = divisions.get(squareID);
+        SecureSquareDivisionMaster d = sessions.complete(squareID);
+        if (d == null) {
+            return;
+        }
+
+        CompletableFuture<GiniGainResult> f = futures.remove(squareID);
+
+        GiniGainResult r;
+        try {
+            r = d.computeResult(outputShares);
+        } catch (RuntimeException e) {
+            if (f != null) {
+                f.completeExceptionally(e);
+            }
+            finished(squareID, true);
+            return;
+        }
+
+        if (f != null) {
+            f.complete(r);
+        }
+
+        finished(squareID, false);
+    }
+
+    @Override
+    public void handleCollectOutputShares(List<Long> squareIDs,
+                                          List<List<SquareDivisionResult>> outputShares) {
+        for (int i = 0; i < squareIDs.size(); i++) {
+            handleCollectOutputShares(squareIDs.get(i), outputShares.get(i));
+        }
+    }
+
+    /**
+     * Fails the results of square divisions, that a later party dropped.
+     *
+     * @param squareIDs The ids of the square divisions.
+     */
+    @Override
+    public void handleFailedSquareDivisions(List<Long> squareIDs) {
+        for (long squareID : squareIDs) {
+            if (sessions.complete(squareID) == null) {
+                continue;
+            }
+
+            CompletableFuture<GiniGainResult> f = futures.remove(squareID);
+            if (f != null) {
+                f.completeExceptionally(new IllegalStateException(
+                        "square division " + squareID + " failed at another party"));
+            }
+
+            finished(squareID, true);
+        }
+    }
+
+    /**
+     * Enables the packed mode, in which the counts of all class values of a
+     * square division are transferred in a single ciphertext.
+     *
+     * @param packing The slot layout or {@code null} to disable packing.
+     * @see PackedSecureSquareDivisionMaster
+     */
+    public void setPacking(SlotPacking packing) {
+        this.packing = packing;
+    }
+
+    /**
+     * Enables the fused protocol flow, in which the last party computes its
+     * additions together with the multiplications and returns them with its
+     * output shares, so a square division takes a single round trip instead
+     * of three. It requires exactly two parties.
+     *
+     * @param fusedRounds {@code true} to enable the fused flow.
+     * @see SecureSquareDivisionMaster#handleFusedBackwardStep(List, AdditionResults, List)
+     */
+    public void setFusedRounds(boolean fusedRounds) {
+        this.fusedRounds = fusedRounds;
+    }
+
+    /**
+     * Sets the number of tree nodes, whose contingency tables are cached,
+     * {@value ContingencyTableCache#DEFAULT_NODES} by default. The data
+     * layer must not change while its tables are cached; setting the
+     * number drops the cached tables, {@code 0} disables the cache.
+     *
+     * @param nodes The number of tree nodes.
+     * @see DataLayer#contingencyTable(List)
+     */
+    public void setCachedNodes(int nodes) {
+        tables.setMaxNodes(nodes);
+    }
+
+    /**
+     * Expires the square divisions, that did not receive a reply for the
+     * given time, and completes their futures with a
+     * {@link TimeoutException}. A background thread sweeps the square
+     * divisions twice per timeout, so a lost reply fails its future even if
+     * no further square division is started, until
+     * {@link #stopSessionSweeper()} is called or the controller is no longer
+     * referenced. Square divisions never expire by default.
+     *
+     * @param timeout The maximum idle time.
+     * @param unit    The unit of the timeout.
+     */
+    public void setSessionTimeout(long timeout, TimeUnit unit) {
+        sessions.setTimeout(timeout, unit);
+        sessions.startSweeper();
+    }
+
+    /**
+     * Stops the background sweep of the expired square divisions, e.g. when
+     * the controller is no longer used. Square divisions still expire when
+     * new ones are started or by {@link #expireSessions()}.
+     */
+    public void stopSessionSweeper() {
+        sessions.stopSweeper();
+    }
+
+    /**
+     * Sets the executor, on which the background sweep fails the futures of
+     * the expired square divisions and starts the queued ones,
+     * {@link java.util.concurrent.ForkJoinPool#commonPool()} by default. The
+     * sweeper thread itself is shared by all controllers.
+     *
+     * @param executor The executor.
+     */
+    public void setExpiryExecutor(Executor executor) {
+        sessions.setExpiryExecutor(executor);
+    }
+
+    /**
+     * Caps the number of live square divisions. Starting a square division
+     * beyond the cap throws an {@link IllegalStateException}.
+     *
+     * @param maxSessions The maximum number of live square divisions.
+     */
+    public void setMaxSessions(int maxSessions) {
+        sessions.setMaxSessions(maxSessions);
+    }
+
+    /**
+     * Expires all square divisions, that were idle for longer than the
+     * session timeout.
+     *
+     * @return The number of expired square divisions.
+     */
+    public int expireSessions() {
+        return sessions.expire();
+    }
+
+    /**
+     * @return The number of started square divisions without a result.
+     */
+    public int getLiveSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * @return The estimated bytes retained by the live square divisions.
+     */
+    public long getRetainedBytes() {
+        return sessions.getRetainedBytes();
+    }
+
+    /**
+     * Enables flow control: at most as many square divisions as the window
+     * allows are in flight, all others are queued without any crypto state
+     * and started as soon as the window has room. The window adapts to the
+     * round trip times of the other party, see {@link AimdWindow}.
+     * <p>
+     * Flow control has to be enabled before the first square division is
+     * started and is disabled by default.
+     *
+     * @param window The window or {@code null} to disable flow control.
+     */
+    public void setFlowControl(AimdWindow window) {
+        this.window = window;
+    }
+
+    /**
+     * @return The number of square divisions waiting for the window.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return The current size of the flow control window, {@code -1}
+     * without flow control.
+     */
+    public int getWindowSize() {
+        return window == null ? -1 : window.getWindowSize();
+    }
+
+    /**
+     * Starts queued square divisions as long as the window has room and
+     * sends them as one batch. Only one thread drains at a time; a drain
+     * requested meanwhile, e.g. by a reply completing on the sending
+     * thread, is carried out by the draining thread instead of recursing.
+     * If a batch cannot be sent, its square divisions fail and return their
+     * slots of the window.
+     */
+    private void drain() {
+        drainRequested = true;
+
+        while (drainRequested && draining.compareAndSet(false, true)) {
+            try {
+                drainRequested = false;
+
+                List<SquareDivisionPojo> batch;
+                while (!(batch = nextBatch()).isEmpty()) {
+                    try {
+                        if (batch.size() == 1) {
+                            sender.handleMultiplicationForwardStep(batch.get(0));
+                        } else {
+                            sender.handleMultiplicationForwardSteps(batch);
+                        }
+                    } catch (RuntimeException e) {
+                        for (SquareDivisionPojo pojo : batch) {
+                            abandon(pojo.getId(), e);
+                        }
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+        }
+    }
+
+    private List<SquareDivisionPojo> nextBatch() {
+        List<SquareDivisionPojo> batch = new ArrayList<>();
+
+        while (!queue.isEmpty() && window.tryAcquire()) {
+            PendingDivision p = queue.poll();
+
+            try {
+                SquareDivisionPojo pojo = start(p.id, p.attrName, p.attrValue, p.path, p.future);
+                sentAt.put(p.id, System.nanoTime());
+                batch.add(pojo);
+            } catch (RuntimeException e) {
+                abandon(p.id, e);
+                window.cancel();
+                p.future.completeExceptionally(e);
+            }
+        }
+
+        return batch;
+    }
+
+    private void finished(long id, boolean failed) {
+        Long sent = sentAt.remove(id);
+        if (sent == null) {
+            return;
+        }
 
-        GiniGainResult r = d.computeResult(outputShares);
+        window.release(sent, System.nanoTime(), failed);
+        drain();
+    }
 
-        CompletableFuture<GiniGainResult> f = futures.get(squareID);
-        f.complete(r);
+    /**
+     * Removes a square division, whose protocol step failed on this party,
+     * and fails its future.
+     */
+    private void fail(long id, RuntimeException cause) {
+        if (sessions.complete(id) == null) {
+            return;
+        }
+        sender.abandonSquareDivisions(Collections.singletonList(id));
+
+        CompletableFuture<GiniGainResult> f = futures.remove(id);
+        if (f != null) {
+            f.completeExceptionally(cause);
+        }
+
+        finished(id, true);
+    }
+
+    /**
+     * Removes a square division, that could not be started or sent, and
+     * fails its future. A slot of the window taken for it is returned
+     * without a round trip.
+     */
+    private void abandon(long id, RuntimeException cause) {
+        sessions.complete(id);
+        sender.abandonSquareDivisions(Collections.singletonList(id));
+
+        CompletableFuture<GiniGainResult> f = futures.remove(id);
+        if (f != null) {
+            f.completeExceptionally(cause);
+        }
+
+        if (sentAt.remove(id) != null) {
+            window.cancel();
+        }
+    }
+
+    private void expired(SquareDivisionSessions.Session<SecureSquareDivisionMaster> session) {
+        sender.abandonSquareDivisions(Collections.singletonList(session.getId()));
+
+        CompletableFuture<GiniGainResult> f = futures.remove(session.getId());
+        if (f != null) {
+            f.completeExceptionally(new TimeoutException("square division " + session.getId() + " expired"));
+        }
+
+        finished(session.getId(), true);
+    }
+
+    private void completeFused(SecureSquareDivisionMaster d, FusedSquareDivisionPojo reply) {
+        long id = reply.getId();
+
+        // the division may have expired or been completed by a duplicate
+        // reply since it was looked up
+        if (sessions.complete(id) == null) {
+            return;
+        }
+
+        CompletableFuture<GiniGainResult> f = futures.remove(id);
+
+        GiniGainResult r;
+        try {
+            r = d.handleFusedBackwardStep(reply.getResults(), reply.getAdditionResults(),
+                    reply.getOutputShares());
+        } catch (RuntimeException e) {
+            if (f != null) {
+                f.completeExceptionally(e);
+            }
+            finished(id, true);
+            return;
+        }
+
+        if (f != null) {
+            f.complete(r);
+        }
+
+        finished(id, false);
+    }
+
+    private static boolean isFusedReply(SquareDivisionPojo pojo) {
+        return pojo instanceof FusedSquareDivisionPojo && ((FusedSquareDivisionPojo) pojo).isReply();
+    }
+
+    private SquareDivisionPojo start(long id, String attrName, String attrValue,
+                                     List<NodeValuePair> path, CompletableFuture<GiniGainResult> f) {
+        SecureSquareDivisionMaster d = packing == null
+                ? squareDivisionFactory.finalize(keyPair)
+                : squareDivisionFactory.finalize(keyPair, packing);
+        Map<Object, Long> cpcv = tables.countPerClassValue(path,
+                attrName, attrValue);
+
+        List<MultiplicationResult> results = d.createMultiplications(cpcv);
+
+        sessions.create(id, d, SquareDivisionSessions.estimateBytes(results));
+        futures.put(id, f);
+
+        return fusedRounds
+                ? new FusedSquareDivisionPojo(id, attrName, attrValue, path, results)
+                : new SquareDivisionPojo(id, attrName, attrValue, path, results);
+    }
+
+    private static final class PendingDivision {
+
+        private final long id;
+        private final String attrName;
+        private final String attrValue;
+        private final List<NodeValuePair> path;
+        private final CompletableFuture<GiniGainResult> future;
+
+        private PendingDivision(long id, String attrName, String attrValue, List<NodeValuePair> path,
+                                CompletableFuture<GiniGainResult> future) {
+            this.id = id;
+            this.attrName = attrName;
+            this.attrValue = attrValue;
+            this.path = path;
+            this.future = future;
+        }
     }
 
     static class FactoryHelper {
         SecureSquareDivisionMaster finalize(KeyPair kp) {
             return new SecureSquareDivisionMaster(kp);
         }
+
+        SecureSquareDivisionMaster finalize(KeyPair kp, SlotPacking packing) {
+            return new PackedSecureSquareDivisionMaster(kp, packing);
+        }
     }
 }
@@ -0,0 +1,618 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import de.henku.algorithm.id3_horizontal.communication.FusedSquareDivisionPojo;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionPojo;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionReceiverAdapter;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionSenderAdapter;
+import de.henku.jpaillier.PublicKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller of a party between the master and the last party of a chain
+ * of three or more parties.
+ * <p>
+ * Forward steps flow from the master over the middle parties to the
+ * {@link SquareDivisionLastController}, backward steps and output shares
+ * flow back:
+ * <ul>
+ * <li>The multiplication forward step passes the encrypted sum of the
+ * inputs of all previous parties and this party on, so the next party
+ * multiplies its inputs with it. On the way back, this party adds its own
+ * masked products to the results of the next party.</li>
+ * <li>The additions are forwarded and inverted like by the last party.</li>
+ * <li>The output shares of this party are appended to the output shares of
+ * the next parties.</li>
+ * </ul>
+ * The controller only keeps the square divisions between their rounds, so
+ * the rounds of different square divisions occupy different parties of the
+ * chain at the same time.
+ * <p>
+ * As the additions are commutative, they can be aggregated along a tree
+ * instead of the chain, see {@link #setAdditionTree(SquareDivisionReceiverAdapter, List)}.
+ * <p>
+ * Fused and packed square divisions require exactly two parties and are
+ * rejected with an {@link IllegalArgumentException}.
+ */
+public class SquareDivisionMiddleController implements
+        SquareDivisionSenderAdapter, SquareDivisionReceiverAdapter {
+
+    private final PublicKey publicKey;
+
+    private SquareDivisionSenderAdapter sender;
+    private SquareDivisionReceiverAdapter receiver;
+
+    private boolean additionTree;
+    private SquareDivisionReceiverAdapter additionParent;
+    private List<SquareDivisionSenderAdapter> additionChildren = Collections.emptyList();
+
+    private final SquareDivisionSessions<Relay> sessions =
+            new SquareDivisionSessions<>(this::expired);
+
+    private final SquareDivisionLastController.FactoryHelper factoryHelper;
+    private final ContingencyTableCache tables;
+
+    SquareDivisionMiddleController(
+            DataLayer dataLayer,
+            PublicKey publicKey,
+            SquareDivisionLastController.FactoryHelper factoryHelper) {
+        this.tables = new ContingencyTableCache(dataLayer);
+        this.publicKey = publicKey;
+        this.factoryHelper = factoryHelper;
+    }
+
+    public SquareDivisionMiddleController(DataLayer dataLayer, PublicKey publicKey) {
+        this(dataLayer, publicKey, new SquareDivisionLastController.FactoryHelper());
+    }
+
+    @Override
+    public void handleMultiplicationForwardStep(SquareDivisionPojo pojo) {
+        List<SquareDivisionPojo> newPojos = multiplicationForwardSteps(Collections.singletonList(pojo));
+        if (newPojos != null) {
+            sender.handleMultiplicationForwardStep(newPojos.get(0));
+        }
+    }
+
+    /**
+     * Computes the multiplication forward steps of all square divisions in
+     * the batch and passes them on in a single call. If the cap of live
+     * square divisions is reached, the whole batch is reported as failed
+     * to the previous party instead.
+     *
+     * @param pojos The forward steps of the previous party.
+     */
+    @Override
+    public void handleMultiplicationForwardSteps(List<SquareDivisionPojo> pojos) {
+        List<SquareDivisionPojo> newPojos = multiplicationForwardSteps(pojos);
+        if (newPojos != null) {
+            sender.handleMultiplicationForwardSteps(newPojos);
+        }
+    }
+
+    @Override
+    public void handleMultiplicationBackwardStep(SquareDivisionPojo data) {
+        Relay r = sessions.get(data.getId());
+        if (r == null) {
+            return;
+        }
+
+        List<MultiplicationResult> br = r.slave.handleMultiplicationBackwardStep(r.products);
+
+        receiver.handleMultiplicationBackwardStep(
+                withResults(data, r.slave.combineMultiplicationResults(br, data.getResults())));
+    }
+
+    /**
+     * Computes the multiplication backward steps of all square divisions in
+     * the batch with a single modular inversion and returns them to the
+     * previous party in a single call.
+     *
+     * @param data The backward steps of the next party.
+     */
+    @Override
+    public void handleMultiplicationBackwardSteps(List<SquareDivisionPojo> data) {
+        List<SquareDivisionPojo> known = new ArrayList<>(data.size());
+        List<SecureSquareDivisionSlave> slaves = new ArrayList<>(data.size());
+        List<List<MultiplicationResult>> products = new ArrayList<>(data.size());
+
+        for (SquareDivisionPojo pojo : data) {
+            Relay r = sessions.get(pojo.getId());
+            if (r == null) {
+                continue;
+            }
+
+            known.add(pojo);
+            slaves.add(r.slave);
+            products.add(r.products);
+        }
+
+        List<List<MultiplicationResult>> br = slaves.isEmpty()
+                ? Collections.emptyList()
+                : SecureSquareDivisionSlave.handleMultiplicationBackwardSteps(slaves, products);
+
+        List<SquareDivisionPojo> newPojos = new ArrayList<>(known.size());
+        for (int i = 0; i < known.size(); i++) {
+            SquareDivisionPojo pojo = known.get(i);
+            newPojos.add(withResults(pojo,
+                    slaves.get(i).combineMultiplicationResults(br.get(i), pojo.getResults())));
+        }
+
+        receiver.handleMultiplicationBackwardSteps(newPojos);
+    }
+
+    @Override
+    public void handleAdditionForwardStep(long squareID, AdditionResults pojo) {
+        if (additionTree) {
+            handleAdditionForwardSteps(Collections.singletonList(squareID), Collections.singletonList(pojo));
+            return;
+        }
+
+        Relay r = sessions.get(squareID);
+        if (r == null) {
+            return;
+        }
+
+        sender.handleAdditionForwardStep(squareID, r.slave.handleAdditionForwardStep(pojo));
+    }
+
+    @Override
+    public void handleAdditionForwardSteps(List<Long> squareIDs, List<AdditionResults> results) {
+        List<Long> ids = new ArrayList<>(squareIDs.size());
+        List<AdditionResults> forwardResults = new ArrayList<>(squareIDs.size());
+
+        for (int i = 0; i < squareIDs.size(); i++) {
+            Relay r = sessions.get(squareIDs.get(i));
+            if (r == null) {
+                continue;
+            }
+
+            ids.add(squareIDs.get(i));
+            forwardResults.add(r.slave.handleAdditionForwardStep(results.get(i)));
+        }
+
+        if (additionTree) {
+            aggregate(ids, forwardResults);
+        } else {
+            sender.handleAdditionForwardSteps(ids, forwardResults);
+        }
+    }
+
+    @Override
+    public void handleAdditionBackwardStep(long squareID, AdditionResults results) {
+        if (additionTree) {
+            handleAdditionBackwardSteps(Collections.singletonList(squareID), Collections.singletonList(results));
+            return;
+        }
+
+        Relay r = sessions.get(squareID);
+        if (r == null) {
+            return;
+        }
+
+        receiver.handleAdditionBackwardStep(squareID, r.slave.handleAdditionBackwardStep(results));
+    }
+
+    /**
+     * Computes the addition backward steps of all square divisions in the
+     * batch with a single modular inversion and returns them to the
+     * previous party in a single call.
+     * <p>
+     * In an aggregation tree, the results are the sums of a child and are
+     * added to the sums of this party instead. Once all children replied,
+     * the sums are passed on to the parent.
+     *
+     * @param squareIDs The ids of the square divisions.
+     * @param results   The backward steps of the next party.
+     */
+    @Override
+    public void handleAdditionBackwardSteps(List<Long> squareIDs, List<AdditionResults> results) {
+        if (additionTree) {
+            aggregated(childResults(squareIDs, results));
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>(squareIDs.size());
+        List<SecureSquareDivisionSlave> slaves = new ArrayList<>(squareIDs.size());
+        List<AdditionResults> data = new ArrayList<>(squareIDs.size());
+
+        for (int i = 0; i < squareIDs.size(); i++) {
+            Relay r = sessions.get(squareIDs.get(i));
+            if (r == null) {
+                continue;
+            }
+
+            ids.add(squareIDs.get(i));
+            slaves.add(r.slave);
+            data.add(results.get(i));
+        }
+
+        receiver.handleAdditionBackwardSteps(ids, additionBackwardSteps(slaves, data));
+    }
+
+    @Override
+    public void collectOutputShares(long squareID) {
+        sender.collectOutputShares(squareID);
+    }
+
+    @Override
+    public void collectOutputShares(List<Long> squareIDs) {
+        sender.collectOutputShares(squareIDs);
+    }
+
+    @Override
+    public void handleCollectOutputShares(long squareID, List<SquareDivisionResult> outputShares) {
+        List<SquareDivisionResult> os = outputShares(squareID, outputShares);
+        if (os != null) {
+            receiver.handleCollectOutputShares(squareID, os);
+        }
+    }
+
+    @Override
+    public void handleCollectOutputShares(List<Long> squareIDs, List<List<SquareDivisionResult>> outputShares) {
+        List<Long> ids = new ArrayList<>(squareIDs.size());
+        List<List<SquareDivisionResult>> newOutputShares = new ArrayList<>(squareIDs.size());
+
+        for (int i = 0; i < squareIDs.size(); i++) {
+            List<SquareDivisionResult> os = outputShares(squareIDs.get(i), outputShares.get(i));
+            if (os != null) {
+                ids.add(squareIDs.get(i));
+                newOutputShares.add(os);
+            }
+        }
+
+        receiver.handleCollectOutputShares(ids, newOutputShares);
+    }
+
+    /**
+     * Drops square divisions, that a later party dropped, and reports them
+     * to the previous party.
+     *
+     * @param squareIDs The ids of the square divisions.
+     */
+    @Override
+    public void handleFailedSquareDivisions(List<Long> squareIDs) {
+        for (long squareID : squareIDs) {
+            sessions.complete(squareID);
+        }
+
+        receiver.handleFailedSquareDivisions(squareIDs);
+    }
+
+    /**
+     * Sets the adapter to the next party of the chain.
+     *
+     * @param sender The adapter.
+     */
+    public void setSender(SquareDivisionSenderAdapter sender) {
+        this.sender = sender;
+    }
+
+    /**
+     * Sets the adapter to the previous party of the chain.
+     *
+     * @param receiver The adapter.
+     */
+    public void setReceiver(SquareDivisionReceiverAdapter receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * Sets the number of tree nodes, whose contingency tables are cached,
+     * {@value ContingencyTableCache#DEFAULT_NODES} by default. The data
+     * layer must not change while its tables are cached; setting the
+     * number drops the cached tables, {@code 0} disables the cache.
+     *
+     * @param nodes The number of tree nodes.
+     * @see DataLayer#contingencyTable(List)
+     */
+    public void setCachedNodes(int nodes) {
+        tables.setMaxNodes(nodes);
+    }
+
+    /**
+     * Aggregates the additions along a tree of the parties instead of the
+     * chain, so they take as many sequential hops as the tree is deep.
+     * Multiplications and output shares still flow along the chain.
+     * <p>
+     * Every party adds its inputs to the sums of its children. Only the
+     * root, which has to be the first party after the master, computes a
+     * backward step on the sums of all parties; the parties below it keep
+     * neutral output shares. The master therefore only decrypts the sums
+     * of all parties, like with the chain.
+     *
+     * @param parent   The adapter to the parent of this party in the tree,
+     *                 {@code null} for the root, which replies to the
+     *                 master.
+     * @param children The adapters to the children of this party in the
+     *                 tree.
+     * @see SquareDivisionLastController#setAdditionTree(SquareDivisionReceiverAdapter)
+     */
+    public void setAdditionTree(SquareDivisionReceiverAdapter parent, List<SquareDivisionSenderAdapter> children) {
+        this.additionTree = true;
+        this.additionParent = parent;
+        this.additionChildren = new ArrayList<>(children);
+    }
+
+    /**
+     * @see SquareDivisionLastController#setSessionTimeout(long, TimeUnit)
+     */
+    public void setSessionTimeout(long timeout, TimeUnit unit) {
+        sessions.setTimeout(timeout, unit);
+        sessions.startSweeper();
+    }
+
+    /**
+     * @see SquareDivisionLastController#stopSessionSweeper()
+     */
+    public void stopSessionSweeper() {
+        sessions.stopSweeper();
+    }
+
+    /**
+     * @see SquareDivisionLastController#setExpiryExecutor(Executor)
+     */
+    public void setExpiryExecutor(Executor executor) {
+        sessions.setExpiryExecutor(executor);
+    }
+
+    /**
+     * @see SquareDivisionLastController#setMaxSessions(int)
+     */
+    public void setMaxSessions(int maxSessions) {
+        sessions.setMaxSessions(maxSessions);
+    }
+
+    /**
+     * @see SquareDivisionLastController#expireSessions()
+     */
+    public int expireSessions() {
+        return sessions.expire();
+    }
+
+    /**
+     * @return The number of square divisions, whose output shares were not
+     * collected yet.
+     */
+    public int getLiveSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * @return The estimated bytes retained by the live square divisions.
+     */
+    public long getRetainedBytes() {
+        return sessions.getRetainedBytes();
+    }
+
+    /**
+     * Computes the multiplication forward steps of a batch. If the cap of
+     * live square divisions is reached, the square divisions created for
+     * the batch are removed again and the whole batch is reported as
+     * failed.
+     *
+     * @return The forward steps for the next party, {@code null} if the
+     * batch was rejected.
+     */
+    private List<SquareDivisionPojo> multiplicationForwardSteps(List<SquareDivisionPojo> pojos) {
+        for (SquareDivisionPojo pojo : pojos) {
+            if (pojo instanceof FusedSquareDivisionPojo) {
+                throw new IllegalArgumentException("fused square divisions require exactly two parties");
+            }
+            if (PackedSecureSquareDivisionSlave.isPacked(pojo.getResults())) {
+                throw new IllegalArgumentException("packed square divisions require exactly two parties");
+            }
+        }
+
+        List<SquareDivisionPojo> newPojos = new ArrayList<>(pojos.size());
+        try {
+            for (SquareDivisionPojo pojo : pojos) {
+                newPojos.add(multiplicationForwardStep(pojo));
+            }
+        } catch (IllegalStateException e) {
+            for (int i = 0; i < newPojos.size(); i++) {
+                sessions.complete(pojos.get(i).getId());
+            }
+
+            receiver.handleFailedSquareDivisions(ids(pojos));
+            return null;
+        }
+
+        return newPojos;
+    }
+
+    private SquareDivisionPojo multiplicationForwardStep(SquareDivisionPojo pojo) {
+        Map<Object, Long> countPerValue = tables.countPerClassValue(
+                pojo.getPath(), pojo.getAttrName(), pojo.getAttrValue());
+
+        SecureSquareDivisionSlave d = factoryHelper.finalize(publicKey);
+        List<MultiplicationResult> products = d.handleMultiplicationForwardStep(countPerValue, pojo.getResults());
+        List<MultiplicationResult> sums = d.handleMultiplicationRelayStep(pojo.getResults());
+
+        // the relay keeps the products and the sums of the additions on top
+        sessions.create(pojo.getId(), new Relay(d, products),
+                SquareDivisionSessions.estimateSlaveBytes(pojo.getResults(), 1, 2));
+
+        return withResults(pojo, sums);
+    }
+
+    /**
+     * Sends the additions of the square divisions to the children in the
+     * aggregation tree, which reply with the sums of their subtrees.
+     */
+    private void aggregate(List<Long> ids, List<AdditionResults> forwardResults) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            Relay r = sessions.get(ids.get(i));
+            if (r == null) {
+                continue;
+            }
+
+            synchronized (r) {
+                r.sums = forwardResults.get(i);
+                r.pendingChildren = additionChildren.size();
+            }
+        }
+
+        if (additionChildren.isEmpty()) {
+            aggregated(ids);
+            return;
+        }
+
+        List<AdditionResults> empty = Collections.nCopies(ids.size(), SecureSquareDivisionSlave.EMPTY_ADDITIONS);
+        for (SquareDivisionSenderAdapter child : additionChildren) {
+            child.handleAdditionForwardSteps(ids, empty);
+        }
+    }
+
+    /**
+     * Adds the sums of a child and returns the ids of the square divisions,
+     * whose children all replied.
+     */
+    private List<Long> childResults(List<Long> squareIDs, List<AdditionResults> results) {
+        List<Long> complete = new ArrayList<>(squareIDs.size());
+
+        for (int i = 0; i < squareIDs.size(); i++) {
+            Relay r = sessions.get(squareIDs.get(i));
+            if (r == null) {
+                continue;
+            }
+
+            synchronized (r) {
+                if (r.pendingChildren == 0) {
+                    continue;
+                }
+
+                r.sums = r.slave.combineAdditionResults(r.sums, results.get(i));
+                if (--r.pendingChildren == 0) {
+                    complete.add(squareIDs.get(i));
+                }
+            }
+        }
+
+        return complete;
+    }
+
+    /**
+     * Passes the sums of the subtrees of this party on, the root computes
+     * the backward steps and replies to the master.
+     */
+    private void aggregated(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        List<Long> known = new ArrayList<>(ids.size());
+        List<SecureSquareDivisionSlave> slaves = new ArrayList<>(ids.size());
+        List<AdditionResults> sums = new ArrayList<>(ids.size());
+        for (long id : ids) {
+            Relay r = sessions.get(id);
+            if (r == null) {
+                continue;
+            }
+
+            synchronized (r) {
+                known.add(id);
+                slaves.add(r.slave);
+                sums.add(r.sums);
+            }
+        }
+
+        if (additionParent == null) {
+            receiver.handleAdditionBackwardSteps(known, additionBackwardSteps(slaves, sums));
+        } else {
+            additionParent.handleAdditionBackwardSteps(known, sums);
+        }
+    }
+
+    private static List<AdditionResults> additionBackwardSteps(List<SecureSquareDivisionSlave> slaves,
+                                                               List<AdditionResults> data) {
+        return slaves.isEmpty()
+                ? Collections.emptyList()
+                : SecureSquareDivisionSlave.handleAdditionBackwardSteps(slaves, data);
+    }
+
+    /**
+     * Appends the output shares of this party to the output shares of the
+     * next parties and removes the square division.
+     */
+    private List<SquareDivisionResult> outputShares(long squareID, List<SquareDivisionResult> next) {
+        Relay r = sessions.complete(squareID);
+        if (r == null) {
+            return null;
+        }
+
+        List<SquareDivisionResult> outputShares = new ArrayList<>(next);
+        outputShares.add(additionTree && additionParent != null
+                ? r.slave.getAggregationOutputShares()
+                : r.slave.getAdditionOutputShares());
+
+        return outputShares;
+    }
+
+    private void expired(SquareDivisionSessions.Session<Relay> session) {
+        receiver.handleFailedSquareDivisions(Collections.singletonList(session.getId()));
+    }
+
+    private static List<Long> ids(List<SquareDivisionPojo> pojos) {
+        List<Long> ids = new ArrayList<>(pojos.size());
+        for (SquareDivisionPojo pojo : pojos) {
+            ids.add(pojo.getId());
+        }
+        return ids;
+    }
+
+    private static SquareDivisionPojo withResults(SquareDivisionPojo pojo, List<MultiplicationResult> results) {
+        return new SquareDivisionPojo(pojo.getId(), pojo.getAttrName(), pojo.getAttrValue(), pojo.getPath(), results);
+    }
+
+    /**
+     * A square division of this party together with the products of its
+     * forward step, which are masked on the way back, and the sums of the
+     * additions in an aggregation tree.
+     */
+    private static final class Relay {
+
+        private final SecureSquareDivisionSlave slave;
+        private final List<MultiplicationResult> products;
+
+        private AdditionResults sums;
+        private int pendingChildren;
+
+        private Relay(SecureSquareDivisionSlave slave, List<MultiplicationResult> products) {
+            this.slave = slave;
+            this.products = products;
+        }
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import java.lang.ref.WeakReference;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Registry of the live square divisions of a controller.
+ * <p>
+ * A session is {@link State#CREATED} when the square division is
+ * registered, {@link State#IN_FLIGHT} once a protocol step looked it up and
+ * leaves the registry either by {@link #complete(long)} or if it was idle
+ * for longer than the timeout. Expired sessions are handed to the expiry
+ * listener, so the controller can fail the waiting futures.
+ * <p>
+ * Once {@link #startSweeper()} was called, idle sessions are swept by a
+ * background thread twice per timeout, so they expire even if no further
+ * session is ever created, until {@link #stopSweeper()} is called or the
+ * registry is no longer referenced. The background sweep hands the expired
+ * sessions to the expiry executor, so the listeners of one registry do not
+ * delay the sweeps of the others. Idle sessions are also swept when new
+ * sessions are created, at most twice per timeout, and explicitly by
+ * {@link #expire()}, which both call the listener directly. The number of
+ * live sessions can be
+ * capped; {@link #create(long, Object, long)} throws an
+ * {@link IllegalStateException}, if the cap is reached after the sweep.
+ *
+ * @param <S> The type of the square divisions.
+ */
+class SquareDivisionSessions<S> {
+
+    enum State {
+        CREATED,
+        IN_FLIGHT
+    }
+
+    static final class Session<S> {
+
+        private final long id;
+        private final S division;
+        private final long retainedBytes;
+
+        private volatile State state = State.CREATED;
+        private volatile long lastActivity;
+
+        private Session(long id, S division, long retainedBytes, long now) {
+            this.id = id;
+            this.division = division;
+            this.retainedBytes = retainedBytes;
+            this.lastActivity = now;
+        }
+
+        long getId() {
+            return id;
+        }
+
+        S getDivision() {
+            return division;
+        }
+
+        State getState() {
+            return state;
+        }
+    }
+
+    /**
+     * Sweeps the sessions of all controllers. Its single thread is a
+     * daemon, so it does not keep the JVM alive.
+     */
+    private static final ScheduledThreadPoolExecutor SWEEPER = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "square-division-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        SWEEPER.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * The periodic sweep of a registry. It only holds the registry weakly,
+     * so a registry, whose sweeper was never stopped, can still be
+     * collected, and cancels itself afterwards.
+     */
+    private static final class Sweep implements Runnable {
+
+        private final WeakReference<SquareDivisionSessions<?>> sessions;
+        private volatile ScheduledFuture<?> future;
+
+        private Sweep(SquareDivisionSessions<?> sessions) {
+            this.sessions = new WeakReference<>(sessions);
+        }
+
+        @Override
+        public void run() {
+            SquareDivisionSessions<?> s = sessions.get();
+            if (s != null) {
+                s.sweep();
+                return;
+            }
+
+            ScheduledFuture<?> f = future;
+            if (f != null) {
+                f.cancel(false);
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<Long, Session<S>> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final Consumer<Session<S>> expiryListener;
+
+    private volatile long timeoutNanos = Long.MAX_VALUE;
+    private volatile int maxSessions = Integer.MAX_VALUE;
+    private volatile long lastSweep = System.nanoTime();
+    private volatile Executor expiryExecutor = ForkJoinPool.commonPool();
+
+    private ScheduledFuture<?> sweep;
+
+    SquareDivisionSessions(Consumer<Session<S>> expiryListener) {
+        this.expiryListener = expiryListener;
+    }
+
+    /**
+     * Bytes of the object headers and references of a value kept by a
+     * session, on top of the magnitude of the value.
+     */
+    static final int OBJECT_BYTES = 48;
+
+    /**
+     * Estimates the bytes retained by the square division of a slave
+     * between its rounds from the multiplication forward step of the
+     * master, whose ciphertexts are about twice the size of {@code n}.
+     * <p>
+     * Per class value the slave keeps its multiplication with the count and
+     * an output share of the size of {@code n}. The additions of Z and W
+     * keep an input and an output share each.
+     *
+     * @param results                  The multiplication forward step.
+     * @param ciphertextsPerClassValue The number of ciphertexts the party
+     *                                 keeps per class value on top.
+     * @param ciphertexts              The number of further ciphertexts the
+     *                                 party keeps.
+     * @return The estimated bytes.
+     */
+    static long estimateSlaveBytes(List<MultiplicationResult> results, int ciphertextsPerClassValue,
+                                   int ciphertexts) {
+        long ciphertextBytes = 0;
+        for (MultiplicationResult r : results) {
+            BigInteger c = r.getResult();
+            if (c != null) {
+                ciphertextBytes = Math.max(ciphertextBytes, (c.bitLength() >>> 3) + 1);
+            }
+        }
+
+        long ciphertext = ciphertextBytes + OBJECT_BYTES;
+        long share = ciphertextBytes / 2 + OBJECT_BYTES;
+
+        // the multiplication, its count and the entries of its map and lists
+        long perClassValue = 3 * OBJECT_BYTES + share + ciphertextsPerClassValue * ciphertext;
+        long additions = 2 * (OBJECT_BYTES + 2 * share);
+
+        return OBJECT_BYTES + results.size() * perClassValue + additions + ciphertexts * ciphertext;
+    }
+
+    /**
+     * Estimates the bytes retained by a square division from the
+     * ciphertexts of its multiplications: per class value a division keeps
+     * about two values of the size of a ciphertext.
+     */
+    static long estimateBytes(List<MultiplicationResult> results) {
+        long bytes = 0;
+        for (MultiplicationResult r : results) {
+            BigInteger c = r.getResult();
+            if (c != null) {
+                bytes += 2 * ((c.bitLength() >>> 3) + 1);
+            }
+        }
+        return bytes;
+    }
+
+    synchronized void setTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout has to be positive");
+        }
+        this.timeoutNanos = unit.toNanos(timeout);
+
+        if (sweep != null) {
+            startSweeper();
+        }
+    }
+
+    /**
+     * Starts sweeping the idle sessions in the background twice per
+     * timeout. A running sweep is rescheduled to the current timeout.
+     *
+     * @throws IllegalStateException If no timeout is set.
+     */
+    synchronized void startSweeper() {
+        long timeout = timeoutNanos;
+        if (timeout == Long.MAX_VALUE) {
+            throw new IllegalStateException("sessions without timeout never expire");
+        }
+
+        if (sweep != null) {
+            sweep.cancel(false);
+        }
+
+        long period = Math.max(timeout / 2, 1);
+        Sweep task = new Sweep(this);
+        sweep = SWEEPER.scheduleWithFixedDelay(task, period, period, TimeUnit.NANOSECONDS);
+        task.future = sweep;
+    }
+
+    /**
+     * Stops sweeping the idle sessions in the background. Sessions still
+     * expire when new sessions are created or by {@link #expire()}.
+     */
+    synchronized void stopSweeper() {
+        if (sweep != null) {
+            sweep.cancel(false);
+            sweep = null;
+        }
+    }
+
+    /**
+     * Sets the executor, on which the background sweep calls the expiry
+     * listener, {@link ForkJoinPool#commonPool()} by default.
+     *
+     * @param expiryExecutor The executor.
+     */
+    void setExpiryExecutor(Executor expiryExecutor) {
+        this.expiryExecutor = expiryExecutor;
+    }
+
+    private void sweep() {
+        Executor executor = expiryExecutor;
+        try {
+            expire(s -> {
+                try {
+                    executor.execute(() -> expiryListener.accept(s));
+                } catch (RejectedExecutionException e) {
+                    expiryListener.accept(s);
+                }
+            });
+        } catch (RuntimeException e) {
+            // a failing expiry listener must not cancel the periodic sweep;
+            // the sessions are removed before the listener is called
+        }
+    }
+
+    void setMaxSessions(int maxSessions) {
+        if (maxSessions < 1) {
+            throw new IllegalArgumentException("at least one session has to be allowed");
+        }
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Registers a new square division.
+     *
+     * @param id            The id of the square division.
+     * @param division      The square division.
+     * @param retainedBytes The estimated size of the square division.
+     * @throws IllegalStateException If the cap of live sessions is reached.
+     */
+    void create(long id, S division, long retainedBytes) {
+        long now = System.nanoTime();
+        if (timeoutNanos != Long.MAX_VALUE && now - lastSweep >= timeoutNanos / 2) {
+            expire();
+        }
+
+        if (sessions.size() >= maxSessions) {
+            throw new IllegalStateException("too many live square divisions: " + sessions.size());
+        }
+
+        Session<S> previous = sessions.put(id, new Session<>(id, division, retainedBytes, now));
+        this.retainedBytes.addAndGet(retainedBytes);
+        if (previous != null) {
+            this.retainedBytes.addAndGet(-previous.retainedBytes);
+        }
+    }
+
+    /**
+     * Looks up a live square division and marks it as in flight.
+     *
+     * @param id The id of the square division.
+     * @return The square division, {@code null} if it is unknown, completed
+     * or expired.
+     */
+    S get(long id) {
+        Session<S> s = sessions.get(id);
+        if (s == null) {
+            return null;
+        }
+
+        s.state = State.IN_FLIGHT;
+        s.lastActivity = System.nanoTime();
+
+        return s.division;
+    }
+
+    /**
+     * Removes a square division, whose result is known.
+     *
+     * @param id The id of the square division.
+     * @return The square division, {@code null} if it is unknown or expired.
+     */
+    S complete(long id) {
+        Session<S> s = sessions.remove(id);
+        if (s == null) {
+            return null;
+        }
+
+        retainedBytes.addAndGet(-s.retainedBytes);
+
+        return s.division;
+    }
+
+    /**
+     * Removes all sessions, that were idle for longer than the timeout, and
+     * hands them to the expiry listener. If the listener throws for a
+     * session, the remaining sessions are still handed over and the first
+     * exception is rethrown afterwards.
+     *
+     * @return The number of expired sessions.
+     */
+    int expire() {
+        return expire(expiryListener);
+    }
+
+    private int expire(Consumer<Session<S>> listener) {
+        long now = System.nanoTime();
+        lastSweep = now;
+
+        long timeout = timeoutNanos;
+        if (timeout == Long.MAX_VALUE) {
+            return 0;
+        }
+
+        List<Session<S>> expired = new ArrayList<>();
+        for (Session<S> s : sessions.values()) {
+            if (now - s.lastActivity > timeout && sessions.remove(s.id, s)) {
+                retainedBytes.addAndGet(-s.retainedBytes);
+                expired.add(s);
+            }
+        }
+
+        RuntimeException failure = null;
+        for (Session<S> s : expired) {
+            try {
+                listener.accept(s);
+            } catch (RuntimeException e) {
+                // the other expired sessions still have to be handed over
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        return expired.size();
+    }
+
+    State getState(long id) {
+        Session<S> s = sessions.get(id);
+        return s == null ? null : s.state;
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+}
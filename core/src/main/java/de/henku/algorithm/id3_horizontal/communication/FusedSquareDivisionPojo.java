@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal.communication;
+
+import de.henku.algorithm.id3_horizontal.AdditionResults;
+import de.henku.algorithm.id3_horizontal.MultiplicationResult;
+import de.henku.algorithm.id3_horizontal.SquareDivisionResult;
+
+import java.util.List;
+
+/**
+ * Square division pojo of the fused protocol flow, in which a square division
+ * takes a single round trip.
+ * <p>
+ * The master sends it instead of a {@link SquareDivisionPojo} to start the
+ * multiplications. The last party answers with a reply, that carries the
+ * results of its additions and its output shares along with the results of
+ * the multiplications, so neither the addition round nor the collection of
+ * the output shares is sent separately.
+ */
+public class FusedSquareDivisionPojo extends SquareDivisionPojo {
+
+    private AdditionResults additionResults;
+    private List<SquareDivisionResult> outputShares;
+
+    public FusedSquareDivisionPojo(
+            long id,
+            String attrName,
+            String attrValue,
+            List<NodeValuePair> path,
+            List<MultiplicationResult> results) {
+
+        this(id, attrName, attrValue, path, results, null, null);
+    }
+
+    public FusedSquareDivisionPojo(
+            long id,
+            String attrName,
+            String attrValue,
+            List<NodeValuePair> path,
+            List<MultiplicationResult> results,
+            AdditionResults additionResults,
+            List<SquareDivisionResult> outputShares) {
+
+        super(id, attrName, attrValue, path, results);
+        this.additionResults = additionResults;
+        this.outputShares = outputShares;
+    }
+
+    /**
+     * @return {@code true} for the answer of the last party, which carries
+     * the addition results and the output shares.
+     */
+    public boolean isReply() {
+        return additionResults != null;
+    }
+
+    public AdditionResults getAdditionResults() {
+        return additionResults;
+    }
+
+    public List<SquareDivisionResult> getOutputShares() {
+        return outputShares;
+    }
+}
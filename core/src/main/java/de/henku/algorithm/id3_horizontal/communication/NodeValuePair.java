@@ -24,6 +24,8 @@
 
 package de.henku.algorithm.id3_horizontal.communication;
 
+import java.util.Objects;
+
 public class NodeValuePair {
     private String node;
     private String value;
@@ -41,6 +43,21 @@ public class NodeValuePair {
         return value;
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof NodeValuePair) {
+            NodeValuePair other = (NodeValuePair) obj;
+            return Objects.equals(node, other.node)
+                    && Objects.equals(value, other.value);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(node, value);
+    }
+
     @Override
     public String toString() {
         return "{ " + node + ", " + value + " }";
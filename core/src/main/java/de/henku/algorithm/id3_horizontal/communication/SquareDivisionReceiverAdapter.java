@@ -37,4 +37,63 @@ public interface SquareDivisionReceiverAdapter {
 
     void handleCollectOutputShares(long squareID,
                                    List<SquareDivisionResult> outputShares);
+
+    /**
+     * Returns the multiplication backward steps of several square divisions
+     * in a single message.
+     * <p>
+     * The default implementation returns them one by one.
+     *
+     * @param data The backward steps.
+     * @see SquareDivisionSenderAdapter#handleMultiplicationForwardSteps(List)
+     */
+    default void handleMultiplicationBackwardSteps(List<SquareDivisionPojo> data) {
+        for (SquareDivisionPojo pojo : data) {
+            handleMultiplicationBackwardStep(pojo);
+        }
+    }
+
+    /**
+     * Returns the addition backward steps of several square divisions in a
+     * single message.
+     * <p>
+     * The default implementation returns them one by one.
+     *
+     * @param squareIDs The ids of the square divisions.
+     * @param results   The backward steps in the order of the ids.
+     */
+    default void handleAdditionBackwardSteps(List<Long> squareIDs,
+                                             List<AdditionResults> results) {
+        for (int i = 0; i < squareIDs.size(); i++) {
+            handleAdditionBackwardStep(squareIDs.get(i), results.get(i));
+        }
+    }
+
+    /**
+     * Returns the output shares of several square divisions in a single
+     * message.
+     * <p>
+     * The default implementation returns them one by one.
+     *
+     * @param squareIDs    The ids of the square divisions.
+     * @param outputShares The output shares in the order of the ids.
+     */
+    default void handleCollectOutputShares(List<Long> squareIDs,
+                                           List<List<SquareDivisionResult>> outputShares) {
+        for (int i = 0; i < squareIDs.size(); i++) {
+            handleCollectOutputShares(squareIDs.get(i), outputShares.get(i));
+        }
+    }
+
+    /**
+     * Reports square divisions, that a later party dropped, because they
+     * expired or were rejected, so that the previous parties can drop them
+     * as well and the master can fail their results.
+     * <p>
+     * The default implementation ignores the report.
+     *
+     * @param squareIDs The ids of the square divisions.
+     */
+    default void handleFailedSquareDivisions(List<Long> squareIDs) {
+    }
 }
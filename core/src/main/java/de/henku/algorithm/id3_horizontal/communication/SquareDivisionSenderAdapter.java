@@ -26,6 +26,8 @@ package de.henku.algorithm.id3_horizontal.communication;
 
 import de.henku.algorithm.id3_horizontal.AdditionResults;
 
+import java.util.List;
+
 
 public interface SquareDivisionSenderAdapter {
     void handleMultiplicationForwardStep(SquareDivisionPojo pojo);
@@ -33,4 +35,59 @@ public interface SquareDivisionSenderAdapter {
     void handleAdditionForwardStep(long squareID, AdditionResults pojo);
 
     void collectOutputShares(long squareID);
+
+    /**
+     * Sends the multiplication forward steps of several square divisions,
+     * usually all square divisions of a tree node, in a single message.
+     * <p>
+     * The default implementation sends them one by one.
+     *
+     * @param pojos The forward steps.
+     */
+    default void handleMultiplicationForwardSteps(List<SquareDivisionPojo> pojos) {
+        for (SquareDivisionPojo pojo : pojos) {
+            handleMultiplicationForwardStep(pojo);
+        }
+    }
+
+    /**
+     * Sends the addition forward steps of several square divisions in a
+     * single message.
+     * <p>
+     * The default implementation sends them one by one.
+     *
+     * @param squareIDs The ids of the square divisions.
+     * @param results   The forward steps in the order of the ids.
+     */
+    default void handleAdditionForwardSteps(List<Long> squareIDs, List<AdditionResults> results) {
+        for (int i = 0; i < squareIDs.size(); i++) {
+            handleAdditionForwardStep(squareIDs.get(i), results.get(i));
+        }
+    }
+
+    /**
+     * Requests the output shares of several square divisions in a single
+     * message.
+     * <p>
+     * The default implementation requests them one by one.
+     *
+     * @param squareIDs The ids of the square divisions.
+     */
+    default void collectOutputShares(List<Long> squareIDs) {
+        for (long squareID : squareIDs) {
+            collectOutputShares(squareID);
+        }
+    }
+
+    /**
+     * Tells the sender, that the master gave up on square divisions, e.g.
+     * because they failed or expired on the master, so it can drop what it
+     * keeps for them. No further reply is expected for them.
+     * <p>
+     * The default implementation does nothing.
+     *
+     * @param squareIDs The ids of the square divisions.
+     */
+    default void abandonSquareDivisions(List<Long> squareIDs) {
+    }
 }
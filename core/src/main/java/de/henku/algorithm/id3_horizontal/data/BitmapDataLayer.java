@@ -0,0 +1,245 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal.data;
+
+import de.henku.algorithm.id3_horizontal.ContingencyTable;
+import de.henku.algorithm.id3_horizontal.DataLayer;
+import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+import de.henku.utils.LruMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link DataLayer}, which represents every attribute value and every
+ * class value as a bitmap over the rows.
+ * <p>
+ * A count intersects the bitmap of the tree node with the bitmaps of the
+ * attribute value and of each class value and counts the set bits, 64 rows
+ * per word with {@link Long#bitCount(long)}. The bitmap of a tree node is
+ * the intersection of the bitmaps of its path; it is derived from the
+ * bitmap of its parent and the bitmaps of the most recently used nodes are
+ * cached for their children.
+ * <p>
+ * The bitmaps are built once from the columns of a
+ * {@link ColumnarDataLayer}:
+ * <pre>
+ * DataLayer data = new BitmapDataLayer(new ColumnarDataLayer.Builder(classAttribute)
+ *         .addRows(transactions)
+ *         .build());
+ * </pre>
+ */
+public class BitmapDataLayer implements DataLayer {
+
+    public static final int DEFAULT_CACHED_PATHS = 256;
+
+    private final int words;
+    private final int rows;
+    private final long[] allRows;
+
+    private final List<String> classValues;
+    private final long[][] classBitmaps;
+    private final Map<String, Map<String, long[]>> bitmaps = new HashMap<>();
+
+    private volatile int cachedPaths = DEFAULT_CACHED_PATHS;
+
+    private final LruMap<List<NodeValuePair>, long[]> paths = new LruMap<>(DEFAULT_CACHED_PATHS);
+
+    /**
+     * Builds the bitmaps of all values of the columns.
+     *
+     * @param data The columns.
+     */
+    public BitmapDataLayer(ColumnarDataLayer data) {
+        this.rows = data.getRowCount();
+        this.words = (rows + 63) >>> 6;
+        this.allRows = all();
+
+        ColumnarDataLayer.Column classColumn = data.classColumn();
+        this.classValues = classColumn.values();
+        this.classBitmaps = bitmaps(classColumn);
+
+        for (ColumnarDataLayer.Column column : data.columns()) {
+            long[][] columnBitmaps = bitmaps(column);
+
+            Map<String, long[]> byValue = new HashMap<>();
+            for (int v = 0; v < column.size(); v++) {
+                byValue.put(column.value(v), columnBitmaps[v]);
+            }
+            bitmaps.put(column.getName(), byValue);
+        }
+    }
+
+    /**
+     * @return The number of rows.
+     */
+    public int getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Sets the number of tree nodes, whose bitmaps are cached for their
+     * children, {@value #DEFAULT_CACHED_PATHS} by default. The cached
+     * bitmaps are dropped.
+     *
+     * @param cachedPaths The number of tree nodes.
+     */
+    public void setCachedPaths(int cachedPaths) {
+        if (cachedPaths < 0) {
+            throw new IllegalArgumentException("the number of cached paths must not be negative");
+        }
+
+        synchronized (paths) {
+            this.cachedPaths = cachedPaths;
+            paths.clear();
+            paths.setMaxSize(cachedPaths);
+        }
+    }
+
+    @Override
+    public Map<Object, Long> countPerClassValue(List<NodeValuePair> path, String attrName, String attrValue) {
+        long[] counts = new long[classValues.size()];
+
+        long[] node = bitmap(path);
+        long[] value = bitmaps.getOrDefault(attrName, new HashMap<>()).get(attrValue);
+        if (node != null && value != null) {
+            count(node, value, counts);
+        }
+
+        Map<Object, Long> result = new LinkedHashMap<>();
+        for (int c = 0; c < counts.length; c++) {
+            result.put(classValues.get(c), counts[c]);
+        }
+
+        return result;
+    }
+
+    @Override
+    public ContingencyTable contingencyTable(List<NodeValuePair> path) {
+        ContingencyTable table = new ContingencyTable(classValues);
+
+        long[] node = bitmap(path);
+        if (node == null) {
+            return table;
+        }
+
+        long[] counts = new long[classValues.size()];
+        for (Map.Entry<String, Map<String, long[]>> attribute : bitmaps.entrySet()) {
+            for (Map.Entry<String, long[]> value : attribute.getValue().entrySet()) {
+                Arrays.fill(counts, 0L);
+                count(node, value.getValue(), counts);
+
+                for (int c = 0; c < counts.length; c++) {
+                    if (counts[c] != 0) {
+                        table.add(attribute.getKey(), value.getKey(), classValues.get(c), counts[c]);
+                    }
+                }
+            }
+        }
+
+        return table;
+    }
+
+    int cachedPaths() {
+        synchronized (paths) {
+            return paths.size();
+        }
+    }
+
+    /**
+     * Adds the number of rows in the node and value bitmaps per class value
+     * to {@code counts}.
+     */
+    private void count(long[] node, long[] value, long[] counts) {
+        for (int i = 0; i < words; i++) {
+            long w = node[i] & value[i];
+            if (w == 0) {
+                continue;
+            }
+
+            for (int c = 0; c < classBitmaps.length; c++) {
+                counts[c] += Long.bitCount(w & classBitmaps[c][i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the bitmap of the rows on the path, {@code null} if a value
+     * of the path is unknown.
+     */
+    private long[] bitmap(List<NodeValuePair> path) {
+        if (path.isEmpty()) {
+            return allRows;
+        }
+
+        synchronized (paths) {
+            long[] cached = paths.get(path);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        NodeValuePair last = path.get(path.size() - 1);
+        long[] value = bitmaps.getOrDefault(last.getNode(), new HashMap<>()).get(last.getValue());
+        long[] parent = bitmap(path.subList(0, path.size() - 1));
+        if (value == null || parent == null) {
+            return null;
+        }
+
+        long[] node = new long[words];
+        for (int i = 0; i < words; i++) {
+            node[i] = parent[i] & value[i];
+        }
+
+        synchronized (paths) {
+            if (cachedPaths > 0) {
+                paths.put(new ArrayList<>(path), node);
+            }
+        }
+
+        return node;
+    }
+
+    private long[] all() {
+        long[] all = new long[words];
+        Arrays.fill(all, -1L);
+        if ((rows & 63) != 0) {
+            all[words - 1] = (1L << (rows & 63)) - 1;
+        }
+        return all;
+    }
+
+    private long[][] bitmaps(ColumnarDataLayer.Column column) {
+        long[][] result = new long[column.size()][words];
+        for (int r = 0; r < rows; r++) {
+            result[column.get(r)][r >>> 6] |= 1L << r;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,516 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal.data;
+
+import de.henku.algorithm.id3_horizontal.Attribute;
+import de.henku.algorithm.id3_horizontal.ContingencyTable;
+import de.henku.algorithm.id3_horizontal.DataLayer;
+import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link DataLayer}, which stores the rows column by column.
+ * <p>
+ * Every value of a column is replaced by its code in the dictionary of the
+ * column. Columns with up to 256 distinct values keep a byte per row,
+ * larger ones an int. Counting resolves the values of the path to their
+ * codes once and then compares codes in plain loops over the columns.
+ * <p>
+ * The rows are ingested by a {@link Builder}:
+ * <pre>
+ * DataLayer data = new ColumnarDataLayer.Builder(classAttribute)
+ *         .addRows(transactions)
+ *         .build();
+ * </pre>
+ * <p>
+ * By default every count selects the rows of the path from all rows. With
+ * {@link Builder#partitioned(boolean)}, the layer keeps the rows ordered
+ * such that the rows of every requested tree node form a contiguous range,
+ * see {@link RowPartitions}. A count then only reads the rows of its node.
+ */
+public class ColumnarDataLayer implements DataLayer {
+
+    private final Column classColumn;
+    private final Map<String, Column> columns;
+    private final int rows;
+
+    private final RowPartitions partitions;
+
+    private ColumnarDataLayer(Column classColumn, Map<String, Column> columns, int rows, boolean partitioned) {
+        this.classColumn = classColumn;
+        this.columns = columns;
+        this.rows = rows;
+        this.partitions = partitioned ? new RowPartitions(rows, columns::get) : null;
+    }
+
+    /**
+     * @return The number of rows.
+     */
+    public int getRowCount() {
+        return rows;
+    }
+
+    Column classColumn() {
+        return classColumn;
+    }
+
+    Collection<Column> columns() {
+        return columns.values();
+    }
+
+    RowPartitions partitions() {
+        return partitions;
+    }
+
+    Column column(String name) {
+        return name.equals(classColumn.name) ? classColumn : columns.get(name);
+    }
+
+    @Override
+    public Map<Object, Long> countPerClassValue(List<NodeValuePair> path, String attrName, String attrValue) {
+        long[] counts = new long[classColumn.size()];
+
+        if (partitions != null) {
+            Column column = columns.get(attrName);
+            int code = column == null ? -1 : column.code(attrValue);
+
+            if (code >= 0) {
+                partitions.read(path, range ->
+                        column.countMatching(range.rows, range.from, range.to, code, classColumn, counts));
+            }
+        } else {
+            List<NodeValuePair> conditions = new ArrayList<>(path.size() + 1);
+            conditions.add(new NodeValuePair(attrName, attrValue));
+            conditions.addAll(path);
+
+            Selection selection = select(conditions);
+            if (selection != null) {
+                classColumn.count(selection.rows, 0, selection.size, counts);
+            }
+        }
+
+        Map<Object, Long> result = new LinkedHashMap<>();
+        for (int c = 0; c < counts.length; c++) {
+            result.put(classColumn.value(c), counts[c]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Counts all attribute values of the rows on the path with a single
+     * selection of the rows.
+     */
+    @Override
+    public ContingencyTable contingencyTable(List<NodeValuePair> path) {
+        ContingencyTable table = new ContingencyTable(classColumn.values());
+
+        int classes = classColumn.size();
+        Map<Column, long[]> counts = new HashMap<>();
+        for (Column column : columns.values()) {
+            counts.put(column, new long[column.size() * classes]);
+        }
+
+        if (partitions != null) {
+            partitions.read(path, range -> {
+                for (Column column : columns.values()) {
+                    column.countPairs(range.rows, range.from, range.to, classColumn, counts.get(column));
+                }
+            });
+        } else {
+            Selection selection = select(path);
+            if (selection == null) {
+                return table;
+            }
+
+            for (Column column : columns.values()) {
+                column.countPairs(selection.rows, 0, selection.size, classColumn, counts.get(column));
+            }
+        }
+
+        for (Column column : columns.values()) {
+
+            for (int v = 0; v < column.size(); v++) {
+                for (int c = 0; c < classes; c++) {
+                    long count = counts.get(column)[v * classes + c];
+                    if (count != 0) {
+                        table.add(column.name, column.value(v), classColumn.value(c), count);
+                    }
+                }
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * Selects the rows, which match all conditions.
+     *
+     * @return The selected rows, {@code null} if a condition matches no
+     * row.
+     */
+    private Selection select(List<NodeValuePair> conditions) {
+        int[] selected = null;
+        int size = rows;
+
+        for (NodeValuePair condition : conditions) {
+            Column column = columns.get(condition.getNode());
+            int code = column == null ? -1 : column.code(condition.getValue());
+            if (code < 0) {
+                return null;
+            }
+
+            if (selected == null) {
+                selected = new int[rows];
+                size = column.select(code, selected);
+            } else {
+                size = column.filter(selected, size, code);
+            }
+        }
+
+        if (selected == null) {
+            selected = new int[rows];
+            for (int r = 0; r < rows; r++) {
+                selected[r] = r;
+            }
+        }
+
+        return new Selection(selected, size);
+    }
+
+    private static final class Selection {
+
+        private final int[] rows;
+        private final int size;
+
+        private Selection(int[] rows, int size) {
+            this.rows = rows;
+            this.size = size;
+        }
+    }
+
+    /**
+     * A dictionary encoded column.
+     */
+    static final class Column {
+
+        private final String name;
+        private final List<String> values;
+        private final Map<String, Integer> codes;
+
+        private final byte[] bytes;
+        private final int[] ints;
+
+        private Column(String name, List<String> values, Map<String, Integer> codes, int[] encoded, int rows) {
+            this.name = name;
+            this.values = values;
+            this.codes = codes;
+
+            if (values.size() <= 256) {
+                bytes = new byte[rows];
+                for (int r = 0; r < rows; r++) {
+                    bytes[r] = (byte) encoded[r];
+                }
+                ints = null;
+            } else {
+                bytes = null;
+                ints = Arrays.copyOf(encoded, rows);
+            }
+        }
+
+        String getName() {
+            return name;
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        String value(int code) {
+            return values.get(code);
+        }
+
+        List<String> values() {
+            return values;
+        }
+
+        int code(String value) {
+            Integer code = codes.get(value);
+            return code == null ? -1 : code;
+        }
+
+        boolean isCompact() {
+            return bytes != null;
+        }
+
+        /**
+         * Writes the rows with the code into {@code selected} and returns
+         * their number.
+         */
+        int select(int code, int[] selected) {
+            int size = 0;
+            if (bytes != null) {
+                byte b = (byte) code;
+                for (int r = 0; r < bytes.length; r++) {
+                    if (bytes[r] == b) {
+                        selected[size++] = r;
+                    }
+                }
+            } else {
+                for (int r = 0; r < ints.length; r++) {
+                    if (ints[r] == code) {
+                        selected[size++] = r;
+                    }
+                }
+            }
+            return size;
+        }
+
+        /**
+         * Keeps the selected rows with the code in place and returns their
+         * number.
+         */
+        int filter(int[] selected, int size, int code) {
+            int kept = 0;
+            if (bytes != null) {
+                byte b = (byte) code;
+                for (int i = 0; i < size; i++) {
+                    int r = selected[i];
+                    if (bytes[r] == b) {
+                        selected[kept++] = r;
+                    }
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    int r = selected[i];
+                    if (ints[r] == code) {
+                        selected[kept++] = r;
+                    }
+                }
+            }
+            return kept;
+        }
+
+        int get(int row) {
+            return bytes != null ? bytes[row] & 0xFF : ints[row];
+        }
+
+        /**
+         * Adds the number of the rows in {@code selected[from, to)} per code
+         * to {@code counts}.
+         */
+        void count(int[] selected, int from, int to, long[] counts) {
+            if (bytes != null) {
+                for (int i = from; i < to; i++) {
+                    counts[bytes[selected[i]] & 0xFF]++;
+                }
+            } else {
+                for (int i = from; i < to; i++) {
+                    counts[ints[selected[i]]]++;
+                }
+            }
+        }
+
+        /**
+         * Adds the number of the rows in {@code selected[from, to)}, which
+         * have the code in this column, per code of the class column to
+         * {@code counts}.
+         */
+        void countMatching(int[] selected, int from, int to, int code, Column classColumn, long[] counts) {
+            if (bytes != null) {
+                byte b = (byte) code;
+                for (int i = from; i < to; i++) {
+                    int r = selected[i];
+                    if (bytes[r] == b) {
+                        counts[classColumn.get(r)]++;
+                    }
+                }
+            } else {
+                for (int i = from; i < to; i++) {
+                    int r = selected[i];
+                    if (ints[r] == code) {
+                        counts[classColumn.get(r)]++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds the number of the rows in {@code selected[from, to)} per code
+         * of this column and code of the class column to {@code counts},
+         * indexed by {@code code * classes + classCode}.
+         */
+        void countPairs(int[] selected, int from, int to, Column classColumn, long[] counts) {
+            int classes = classColumn.size();
+            for (int i = from; i < to; i++) {
+                int r = selected[i];
+                int code = bytes != null ? bytes[r] & 0xFF : ints[r];
+                int classCode = classColumn.bytes != null ? classColumn.bytes[r] & 0xFF : classColumn.ints[r];
+
+                counts[code * classes + classCode]++;
+            }
+        }
+    }
+
+    /**
+     * Encodes the rows into columns.
+     * <p>
+     * The attributes are taken from the first row, every further row has to
+     * contain the same attributes.
+     */
+    public static class Builder {
+
+        private final String className;
+        private final ColumnBuilder classColumn;
+        private final Map<String, ColumnBuilder> columns = new LinkedHashMap<>();
+        private int rows;
+        private boolean partitioned;
+
+        /**
+         * @param classAttribute The class attribute, whose values are counted
+         *                       even if they do not occur in the rows.
+         */
+        public Builder(Attribute classAttribute) {
+            this.className = classAttribute.getName();
+            this.classColumn = new ColumnBuilder(className, classAttribute.getValues());
+        }
+
+        /**
+         * Adds a row.
+         *
+         * @param row The values of the row by attribute name.
+         * @return This builder.
+         * @throws IllegalArgumentException If the row lacks an attribute of
+         *                                  the first row or the class
+         *                                  attribute.
+         */
+        public Builder addRow(Map<String, String> row) {
+            if (rows == 0) {
+                for (String name : row.keySet()) {
+                    if (!name.equals(className)) {
+                        columns.put(name, new ColumnBuilder(name, Collections.emptyList()));
+                    }
+                }
+            }
+
+            classColumn.add(value(row, className));
+            for (ColumnBuilder column : columns.values()) {
+                column.add(value(row, column.name));
+            }
+
+            rows++;
+            return this;
+        }
+
+        /**
+         * Adds several rows.
+         *
+         * @param rows The rows.
+         * @return This builder.
+         * @see #addRow(Map)
+         */
+        public Builder addRows(Collection<? extends Map<String, String>> rows) {
+            for (Map<String, String> row : rows) {
+                addRow(row);
+            }
+            return this;
+        }
+
+        /**
+         * Keeps the rows partitioned by the requested tree nodes, so the
+         * counts of a node only read its rows, {@code false} by default.
+         *
+         * @param partitioned Whether the rows are partitioned.
+         * @return This builder.
+         * @see RowPartitions
+         */
+        public Builder partitioned(boolean partitioned) {
+            this.partitioned = partitioned;
+            return this;
+        }
+
+        public ColumnarDataLayer build() {
+            Map<String, Column> built = new HashMap<>();
+            for (ColumnBuilder column : columns.values()) {
+                built.put(column.name, column.build(rows));
+            }
+
+            return new ColumnarDataLayer(classColumn.build(rows), built, rows, partitioned);
+        }
+
+        private static String value(Map<String, String> row, String name) {
+            String value = row.get(name);
+            if (value == null) {
+                throw new IllegalArgumentException("row has no value for " + name);
+            }
+            return value;
+        }
+    }
+
+    private static final class ColumnBuilder {
+
+        private final String name;
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+        private int[] encoded = new int[16];
+        private int size;
+
+        private ColumnBuilder(String name, List<String> values) {
+            this.name = name;
+            for (String value : values) {
+                code(value);
+            }
+        }
+
+        private void add(String value) {
+            if (size == encoded.length) {
+                encoded = Arrays.copyOf(encoded, 2 * size);
+            }
+            encoded[size++] = code(value);
+        }
+
+        private int code(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        private Column build(int rows) {
+            return new Column(name, values, codes, encoded, rows);
+        }
+    }
+}
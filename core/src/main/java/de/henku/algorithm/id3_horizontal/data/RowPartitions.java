@@ -0,0 +1,209 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal.data;
+
+import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A permutation of the row indices, in which the rows of every requested
+ * tree node form a contiguous range, like in the classic decision tree
+ * builders.
+ * <p>
+ * The range of a node is created from the range of its parent, the path
+ * without its last element: the first child requested splits the parent
+ * range in place into the ranges of all values of the attribute with a
+ * single pass over the parent range. A count at a node therefore reads
+ * the rows of the node instead of all rows.
+ * <p>
+ * If a parent was already split by another attribute, which does not
+ * happen when the paths are built by ID3, the rows of the child are
+ * copied into a range of their own.
+ * <p>
+ * Splitting reorders the rows of the parent range, so reads share a lock,
+ * which splits take exclusively.
+ */
+final class RowPartitions {
+
+    private final Function<String, ColumnarDataLayer.Column> columns;
+
+    private final Map<List<NodeValuePair>, Range> ranges = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    RowPartitions(int rows, Function<String, ColumnarDataLayer.Column> columns) {
+        this.columns = columns;
+
+        int[] all = new int[rows];
+        for (int r = 0; r < rows; r++) {
+            all[r] = r;
+        }
+        ranges.put(new ArrayList<>(), new Range(all, 0, rows));
+    }
+
+    /**
+     * Passes the range of the tree node to the reader, while no split can
+     * reorder it.
+     *
+     * @param path   The path of the tree node.
+     * @param reader The reader of the range.
+     */
+    void read(List<NodeValuePair> path, Consumer<Range> reader) {
+        lock.readLock().lock();
+        try {
+            Range range = ranges.get(path);
+            if (range != null) {
+                reader.accept(range);
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            Range range = range(path);
+
+            // downgrade, so other reads continue while this one counts
+            lock.readLock().lock();
+            lock.writeLock().unlock();
+            try {
+                reader.accept(range);
+            } finally {
+                lock.readLock().unlock();
+            }
+        } finally {
+            if (lock.isWriteLockedByCurrentThread()) {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return ranges.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the range of the path, splitting the ranges of its ancestors
+     * as required. Requires the write lock.
+     */
+    private Range range(List<NodeValuePair> path) {
+        Range range = ranges.get(path);
+        if (range != null) {
+            return range;
+        }
+
+        List<NodeValuePair> parentPath = new ArrayList<>(path.subList(0, path.size() - 1));
+        NodeValuePair last = path.get(path.size() - 1);
+        Range parent = range(parentPath);
+
+        ColumnarDataLayer.Column column = columns.apply(last.getNode());
+        int code = column == null ? -1 : column.code(last.getValue());
+        if (code < 0) {
+            range = new Range(parent.rows, parent.from, parent.from);
+        } else if (parent.splitBy == null) {
+            split(parentPath, parent, column);
+            range = ranges.get(path);
+        } else {
+            range = copy(parent, column, code);
+        }
+
+        ranges.put(new ArrayList<>(path), range);
+        return range;
+    }
+
+    /**
+     * Orders the rows of the parent range by their code in the column and
+     * registers the ranges of all codes.
+     */
+    private void split(List<NodeValuePair> parentPath, Range parent, ColumnarDataLayer.Column column) {
+        int[] offsets = new int[column.size() + 1];
+        for (int i = parent.from; i < parent.to; i++) {
+            offsets[column.get(parent.rows[i]) + 1]++;
+        }
+        for (int c = 0; c < column.size(); c++) {
+            offsets[c + 1] += offsets[c];
+        }
+
+        int[] sorted = new int[parent.to - parent.from];
+        int[] next = offsets.clone();
+        for (int i = parent.from; i < parent.to; i++) {
+            int r = parent.rows[i];
+            sorted[next[column.get(r)]++] = r;
+        }
+        System.arraycopy(sorted, 0, parent.rows, parent.from, sorted.length);
+
+        parent.splitBy = column;
+        for (int c = 0; c < column.size(); c++) {
+            List<NodeValuePair> childPath = new ArrayList<>(parentPath);
+            childPath.add(new NodeValuePair(column.getName(), column.value(c)));
+
+            ranges.putIfAbsent(childPath, new Range(parent.rows,
+                    parent.from + offsets[c], parent.from + offsets[c + 1]));
+        }
+    }
+
+    private static Range copy(Range parent, ColumnarDataLayer.Column column, int code) {
+        int[] rows = new int[parent.to - parent.from];
+        int size = 0;
+        for (int i = parent.from; i < parent.to; i++) {
+            int r = parent.rows[i];
+            if (column.get(r) == code) {
+                rows[size++] = r;
+            }
+        }
+
+        return new Range(rows, 0, size);
+    }
+
+    /**
+     * The rows {@code rows[from, to)} of a tree node.
+     */
+    static final class Range {
+
+        final int[] rows;
+        final int from;
+        final int to;
+
+        private ColumnarDataLayer.Column splitBy;
+
+        private Range(int[] rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
@@ -1,50 +1,90 @@
-/*
- * The MIT License (MIT)
- *
- * Copyright (c) 2015 Hendrik Kunert
- *
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- *
- * The above copyright notice and this permission notice shall be included in all
- * copies or substantial portions of the Software.
- *
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
- * SOFTWARE.
- */
-
-package de.henku.computations;
-
-import de.henku.jpaillier.PublicKey;
-
-import java.math.BigInteger;
-
-public abstract class AbstractSecureComputation {
-
-    protected final BigInteger privateInput;
-    protected BigInteger outputShare;
-
-
-    public AbstractSecureComputation(BigInteger privateInput) {
-        this.privateInput = privateInput;
-    }
-
-    public BigInteger getPrivateInput() {
-        return privateInput;
-    }
-
-    public BigInteger getOutputShare() {
-        return outputShare;
-    }
-
-    public abstract PublicKey getPublicKey();
-}
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations;
+
+import de.henku.computations.paillier.BlindingFactorPool;
+import de.henku.computations.paillier.EncryptionEngine;
+import de.henku.computations.paillier.ModularContext;
+import de.henku.computations.scheme.PaillierScheme;
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+
+public abstract class AbstractSecureComputation {
+
+    protected final BigInteger privateInput;
+    protected BigInteger outputShare;
+    private PaillierScheme scheme;
+
+
+    public AbstractSecureComputation(BigInteger privateInput) {
+        this.privateInput = privateInput;
+    }
+
+    public BigInteger getPrivateInput() {
+        return privateInput;
+    }
+
+    public BigInteger getOutputShare() {
+        return outputShare;
+    }
+
+    public abstract PublicKey getPublicKey();
+
+    /**
+     * Returns the homomorphic operations on ciphertexts under the public key
+     * of this computation.
+     * <p>
+     * The computations rely on decrypting uniformly distributed plaintexts
+     * modulo {@code n} and on inverses modulo {@code n^2}, so they are bound
+     * to Paillier. Ciphertext arithmetic is computed by the
+     * {@link ModularContext} of the scheme.
+     * <p>
+     * The scheme is created on the first call and reused afterwards.
+     *
+     * @return The scheme.
+     */
+    protected PaillierScheme scheme() {
+        if (scheme == null) {
+            scheme = new PaillierScheme(getPublicKey());
+        }
+        return scheme;
+    }
+
+    /**
+     * Encrypts the plaintext with the public key of this computation.
+     * <p>
+     * Delegates to {@link PaillierScheme#encrypt(BigInteger)}, which uses the
+     * shared {@link EncryptionEngine#forKey(PublicKey) engine} of the key.
+     * The engine takes the blinding factors from the
+     * {@link BlindingFactorPool} registered for the key, if there is one.
+     *
+     * @param plaintext The plaintext to encrypt.
+     * @return The ciphertext.
+     */
+    protected BigInteger encrypt(BigInteger plaintext) {
+        return scheme().encrypt(plaintext);
+    }
+}
@@ -24,10 +24,10 @@
 
 package de.henku.computations;
 
+import de.henku.computations.random.RandomnessProvider;
 import de.henku.jpaillier.PublicKey;
 
 import java.math.BigInteger;
-import java.security.SecureRandom;
 
 /**
  * Abstract class for secure computation slave instances.
@@ -37,21 +37,39 @@ import java.security.SecureRandom;
  */
 public abstract class AbstractSecureComputationSlave extends AbstractSecureComputation {
     protected PublicKey publicKey;
+    protected final RandomnessProvider randomness;
 
     /**
      * Creates a new instance with the input, that has to be kept private and
      * the public key for the encryption.
+     * <p>
+     * The output share is generated by the default
+     * {@link RandomnessProvider}.
      *
      * @param privateInput The input that should be kept private.
      * @param publicKey    The public key for the encryption.
      */
     public AbstractSecureComputationSlave(BigInteger privateInput, PublicKey publicKey) {
+        this(privateInput, publicKey, RandomnessProvider.getDefault());
+    }
+
+    /**
+     * Creates a new instance with the input, that has to be kept private,
+     * the public key for the encryption and the source of the output share.
+     *
+     * @param privateInput The input that should be kept private.
+     * @param publicKey    The public key for the encryption.
+     * @param randomness   The randomness provider for the output share.
+     */
+    public AbstractSecureComputationSlave(BigInteger privateInput, PublicKey publicKey,
+                                          RandomnessProvider randomness) {
         super(privateInput);
         this.publicKey = publicKey;
+        this.randomness = randomness;
     }
 
     protected BigInteger generateOutputShare() {
-        BigInteger os = new BigInteger(512, new SecureRandom());
+        BigInteger os = randomness.nextShare(publicKey);
 
         BigInteger nSquared = publicKey.getnSquared();
         return os.mod(nSquared);
@@ -90,5 +108,34 @@ public abstract class AbstractSecureComputationSlave extends AbstractSecureCompu
      * @see SecureMultiplication
      * @see SecureComputationMaster
      */
-    public abstract BigInteger backwardStep(BigInteger previousPartyResult);
+    public BigInteger backwardStep(BigInteger previousPartyResult) {
+        BigInteger nSquared = publicKey.getnSquared();
+        BigInteger inverse = prepareBackwardStep().modInverse(nSquared);
+
+        return completeBackwardStep(previousPartyResult, inverse);
+    }
+
+    /**
+     * First half of {@link #backwardStep(BigInteger)}, which generates the
+     * output share and returns the value, whose inverse modulo {@code n^2}
+     * is needed to complete the backward step.
+     * <p>
+     * Splitting the backward step allows to invert the values of several
+     * computations at once with {@link BatchInversion}.
+     *
+     * @return The value to invert modulo {@code n^2}.
+     * @see #completeBackwardStep(BigInteger, BigInteger)
+     */
+    public abstract BigInteger prepareBackwardStep();
+
+    /**
+     * Second half of {@link #backwardStep(BigInteger)}.
+     *
+     * @param previousPartyResult The intermediate result computed by the
+     *                            previous party.
+     * @param inverse             The inverse modulo {@code n^2} of the value
+     *                            returned by {@link #prepareBackwardStep()}.
+     * @return The next computed intermediate result.
+     */
+    public abstract BigInteger completeBackwardStep(BigInteger previousPartyResult, BigInteger inverse);
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations;
+
+import de.henku.computations.concurrent.CryptoExecutor;
+import de.henku.computations.scheme.PaillierScheme;
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Vector counterpart of {@link AbstractSecureComputation}: every party holds
+ * a vector of private inputs and all elements are processed in one pass of
+ * the protocol, e.g. all cells of a contingency table or all bins of a
+ * histogram.
+ * <p>
+ * Element {@code i} of the result only depends on element {@code i} of the
+ * inputs of all parties, so the elements are processed in parallel by the
+ * {@link #setExecutor(CryptoExecutor) executor}.
+ */
+public abstract class AbstractSecureVectorComputation {
+
+    protected final BigInteger[] privateInputs;
+    protected BigInteger[] outputShares;
+    private CryptoExecutor executor = CryptoExecutor.getDefault();
+    private PaillierScheme scheme;
+
+    public AbstractSecureVectorComputation(BigInteger[] privateInputs) {
+        this.privateInputs = privateInputs.clone();
+    }
+
+    public AbstractSecureVectorComputation(long[] privateInputs) {
+        this(toBigIntegers(privateInputs));
+    }
+
+    public BigInteger[] getPrivateInputs() {
+        return privateInputs.clone();
+    }
+
+    public BigInteger[] getOutputShares() {
+        return outputShares == null ? null : outputShares.clone();
+    }
+
+    /**
+     * @return The number of elements of the vector.
+     */
+    public int size() {
+        return privateInputs.length;
+    }
+
+    /**
+     * Sets the executor for the encryptions, multiplications and
+     * decryptions of the elements, {@link CryptoExecutor#getDefault()} by
+     * default.
+     *
+     * @param executor The executor.
+     */
+    public void setExecutor(CryptoExecutor executor) {
+        this.executor = executor;
+    }
+
+    public abstract PublicKey getPublicKey();
+
+    /**
+     * @return The homomorphic operations on ciphertexts under the public key
+     * of this computation.
+     * @see AbstractSecureComputation#scheme()
+     */
+    protected PaillierScheme scheme() {
+        if (scheme == null) {
+            scheme = new PaillierScheme(getPublicKey());
+        }
+        return scheme;
+    }
+
+    /**
+     * Applies the function to every element index on the executor.
+     *
+     * @param function The operation, which computes the value of an element.
+     * @return The values of all elements.
+     */
+    protected BigInteger[] mapElements(IntFunction<BigInteger> function) {
+        List<Integer> indices = IntStream.range(0, size()).boxed().collect(Collectors.toList());
+        return executor.map(indices, function::apply).toArray(new BigInteger[0]);
+    }
+
+    /**
+     * Checks that an intermediate result from another party matches the
+     * size of the private inputs.
+     *
+     * @param values The intermediate result.
+     */
+    protected void checkSize(BigInteger[] values) {
+        if (values.length != size()) {
+            throw new IllegalArgumentException("expected " + size() + " elements, got " + values.length);
+        }
+    }
+
+    protected static BigInteger[] toBigIntegers(long[] values) {
+        BigInteger[] result = new BigInteger[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = BigInteger.valueOf(values[i]);
+        }
+        return result;
+    }
+}
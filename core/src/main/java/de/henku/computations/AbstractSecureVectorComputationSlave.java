@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations;
+
+import de.henku.computations.paillier.ModularContext;
+import de.henku.computations.random.RandomnessProvider;
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Abstract class for secure vector computation slave instances.
+ * <p>
+ * The backward step draws the random bytes of all output shares at once
+ * and inverts all values with a single modular inversion
+ * ({@link BatchInversion}).
+ *
+ * @see SecureVectorAddition
+ * @see SecureVectorMultiplication
+ */
+public abstract class AbstractSecureVectorComputationSlave extends AbstractSecureVectorComputation {
+    protected final PublicKey publicKey;
+    private final ModularContext context;
+    protected final RandomnessProvider randomness;
+
+    /**
+     * Creates a new instance with the inputs, that have to be kept private,
+     * the public key for the encryption and the source of the output shares.
+     *
+     * @param privateInputs The inputs that should be kept private.
+     * @param publicKey     The public key for the encryption.
+     * @param randomness    The randomness provider for the output shares.
+     */
+    public AbstractSecureVectorComputationSlave(BigInteger[] privateInputs, PublicKey publicKey,
+                                                RandomnessProvider randomness) {
+        super(privateInputs);
+        this.publicKey = publicKey;
+        this.context = new ModularContext(publicKey);
+        this.randomness = randomness;
+    }
+
+    @Override
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    /**
+     * Computes the forward step for all elements.
+     *
+     * @param previousPartyResults The intermediate results computed by the
+     *                             previous party.
+     * @return The next computed intermediate results.
+     * @see AbstractSecureComputationSlave#forwardStep(BigInteger)
+     */
+    public BigInteger[] forwardStep(BigInteger[] previousPartyResults) {
+        checkSize(previousPartyResults);
+
+        return mapElements(i -> forwardStep(i, previousPartyResults[i]));
+    }
+
+    /**
+     * Computes the backward step for all elements.
+     *
+     * @param previousPartyResults The intermediate results computed by the
+     *                             previous party.
+     * @return The next computed intermediate results.
+     * @see AbstractSecureComputationSlave#backwardStep(BigInteger)
+     */
+    public BigInteger[] backwardStep(BigInteger[] previousPartyResults) {
+        checkSize(previousPartyResults);
+
+        BigInteger nSquared = publicKey.getnSquared();
+        BigInteger[] shares = new BigInteger[size()];
+        randomness.nextShares(publicKey, shares);
+        for (int i = 0; i < shares.length; i++) {
+            shares[i] = shares[i].mod(nSquared);
+        }
+        outputShares = shares;
+
+        BigInteger[] values = mapElements(this::prepareBackwardStep);
+
+        List<BigInteger> inverses = BatchInversion.invert(Arrays.asList(values), context);
+
+        return mapElements(i -> completeBackwardStep(previousPartyResults[i], inverses.get(i)));
+    }
+
+    /**
+     * Computes the forward step of a single element.
+     *
+     * @param index               The index of the element.
+     * @param previousPartyResult The intermediate result of the element.
+     * @return The next intermediate result of the element.
+     */
+    protected abstract BigInteger forwardStep(int index, BigInteger previousPartyResult);
+
+    /**
+     * Returns the value of an element, whose inverse modulo {@code n^2} is
+     * needed to complete its backward step. The output shares are already
+     * generated.
+     *
+     * @param index The index of the element.
+     * @return The value to invert modulo {@code n^2}.
+     * @see AbstractSecureComputationSlave#prepareBackwardStep()
+     */
+    protected abstract BigInteger prepareBackwardStep(int index);
+
+    /**
+     * Completes the backward step of a single element.
+     *
+     * @param previousPartyResult The intermediate result of the element.
+     * @param inverse             The inverse of the value returned by
+     *                            {@link #prepareBackwardStep(int)}.
+     * @return The next intermediate result of the element.
+     * @see AbstractSecureComputationSlave#completeBackwardStep(BigInteger, BigInteger)
+     */
+    protected abstract BigInteger completeBackwardStep(BigInteger previousPartyResult, BigInteger inverse);
+}
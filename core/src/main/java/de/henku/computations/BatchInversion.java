@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations;
+
+import de.henku.computations.paillier.ModularContext;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Inverts several values modulo the same modulus with a single modular
+ * inversion (Montgomery's trick).
+ * <p>
+ * For values {@code a_0, ..., a_(k-1)} the prefix products
+ * {@code p_i = a_0 * ... * a_i} are computed first. The inverse of
+ * {@code p_(k-1)} is then unwound from the back:
+ * {@code a_i^-1 = p_(i-1) * p_i^-1} and {@code p_(i-1)^-1 = a_i * p_i^-1}.
+ * This needs one inversion and {@code 3(k-1)} multiplications instead of
+ * {@code k} inversions.
+ */
+public class BatchInversion {
+
+    private BatchInversion() {
+    }
+
+    /**
+     * Computes the inverses of all values modulo the modulus of the context.
+     *
+     * @param values  The values to invert.
+     * @param context The arithmetic context of the modulus.
+     * @return The inverses in the order of the values.
+     * @throws ArithmeticException If one of the values is not invertible.
+     */
+    public static List<BigInteger> invert(List<BigInteger> values, ModularContext context) {
+        int k = values.size();
+        if (k == 0) {
+            return new ArrayList<>();
+        }
+
+        BigInteger[] prefix = new BigInteger[k];
+        prefix[0] = values.get(0);
+        for (int i = 1; i < k; i++) {
+            prefix[i] = context.multiply(prefix[i - 1], values.get(i));
+        }
+
+        BigInteger inverse = prefix[k - 1].modInverse(context.getModulus());
+
+        BigInteger[] inverses = new BigInteger[k];
+        for (int i = k - 1; i > 0; i--) {
+            inverses[i] = context.multiply(inverse, prefix[i - 1]);
+            inverse = context.multiply(inverse, values.get(i));
+        }
+        inverses[0] = inverse;
+
+        return Arrays.asList(inverses);
+    }
+}
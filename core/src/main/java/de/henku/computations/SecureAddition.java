@@ -24,6 +24,7 @@
 
 package de.henku.computations;
 
+import de.henku.computations.random.RandomnessProvider;
 import de.henku.jpaillier.PublicKey;
 
 import java.math.BigInteger;
@@ -68,30 +69,46 @@ public class SecureAddition extends AbstractSecureComputationSlave {
         super(privateInput, publicKey);
     }
 
+    /**
+     * Creates a new instance with the input, that has to be kept private,
+     * the public key for the encryption and the source of the output share.
+     *
+     * @param privateInput The input that should be kept private.
+     * @param publicKey    The public key for the encryption.
+     * @param randomness   The randomness provider for the output share.
+     * @see AbstractSecureComputationSlave
+     */
+    public SecureAddition(BigInteger privateInput, PublicKey publicKey, RandomnessProvider randomness) {
+        super(privateInput, publicKey, randomness);
+    }
+
     @Override
     public BigInteger forwardStep(BigInteger previousPartyResult) {
-        BigInteger e = publicKey.encrypt(privateInput);
+        BigInteger e = encrypt(privateInput);
 
-        BigInteger nSquared = publicKey.getnSquared();
-        return e.multiply(previousPartyResult).mod(nSquared);
+        return scheme().add(e, previousPartyResult);
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * It also generates the random output share, which is later used to compute
-     * the final result of the addition.
+     * Generates the random output share, which is later used to compute the
+     * final result of the addition, and returns it for inversion.
      */
     @Override
-    public BigInteger backwardStep(BigInteger previousPartyResult) {
+    public BigInteger prepareBackwardStep() {
         outputShare = generateOutputShare();
 
-        BigInteger inverse = outputShare.modInverse(this.publicKey
-                .getnSquared());
-
-        BigInteger result = previousPartyResult.modPow(inverse,
-                this.publicKey.getnSquared());
+        return outputShare;
+    }
 
-        return result;
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Raises the previous result to the inverse of the output share.
+     */
+    @Override
+    public BigInteger completeBackwardStep(BigInteger previousPartyResult, BigInteger inverse) {
+        return scheme().multiply(previousPartyResult, inverse);
     }
 }
\ No newline at end of file
@@ -24,10 +24,15 @@
 
 package de.henku.computations;
 
+import de.henku.computations.paillier.CrtDecryptor;
+import de.henku.computations.paillier.PrivateKeyShare;
+import de.henku.computations.paillier.ThresholdDecryptor;
 import de.henku.jpaillier.KeyPair;
 import de.henku.jpaillier.PublicKey;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A class for securely computing the sum or product of the input from two or
@@ -93,6 +98,22 @@ import java.math.BigInteger;
  * ----------------------------------------------------------------------------
  * sum = (masterOS + multiplicationOS_1 + ... + multiplicationOS_N) mod n
  * </pre>
+ * <p>
+ * <h3> Threshold Mode</h3>
+ * With more than two parties nobody should be able to decrypt the
+ * intermediate results on its own. Instead of a {@link KeyPair}, the master
+ * is then created with its {@link PrivateKeyShare} of a
+ * {@link de.henku.computations.paillier.ThresholdKeyPair}, while the other
+ * parties use its public key. In step (4) every other party computes
+ * {@link PrivateKeyShare#partialDecrypt(BigInteger)} of the ciphertext and
+ * the master combines them with its own partial decryption in
+ * {@link #decryptAndSetOutputShare(BigInteger, List)}.
+ * <p>
+ * The threshold mode is a primitive only. No message of the secure
+ * computations or the square division carries partial decryptions, so the
+ * caller collects them from the other parties on its own. The square
+ * division and the ID3 do not use it; their chains of three or more parties
+ * run under the single key pair of the master.
  *
  * @see SecureAddition
  * @see SecureMultiplication
@@ -100,6 +121,9 @@ import java.math.BigInteger;
 public class SecureComputationMaster extends AbstractSecureComputation {
 
     private final KeyPair keyPair;
+    private final PrivateKeyShare keyShare;
+    private CrtDecryptor decryptor;
+    private ThresholdDecryptor thresholdDecryptor;
 
     /**
      * Creates a new instance with the input, that has to be kept private and
@@ -111,6 +135,7 @@ public class SecureComputationMaster extends AbstractSecureComputation {
     public SecureComputationMaster(long privateInput, KeyPair keyPair) {
         super(BigInteger.valueOf(privateInput));
         this.keyPair = keyPair;
+        this.keyShare = null;
     }
 
     /**
@@ -123,6 +148,25 @@ public class SecureComputationMaster extends AbstractSecureComputation {
     public SecureComputationMaster(BigInteger privateInput, KeyPair keyPair) {
         super(privateInput);
         this.keyPair = keyPair;
+        this.keyShare = null;
+    }
+
+    /**
+     * Creates a new instance in threshold mode with the input, that has to
+     * be kept private and the key share of the master.
+     *
+     * @param privateInput The input that should be kept private.
+     * @param keyShare     The key share of the master.
+     */
+    public SecureComputationMaster(BigInteger privateInput, PrivateKeyShare keyShare) {
+        super(privateInput);
+        this.keyPair = null;
+        this.keyShare = keyShare;
+    }
+
+    SecureComputationMaster(BigInteger privateInput, KeyPair keyPair, CrtDecryptor decryptor) {
+        this(privateInput, keyPair);
+        this.decryptor = decryptor;
     }
 
     /**
@@ -131,23 +175,81 @@ public class SecureComputationMaster extends AbstractSecureComputation {
      * @return The encrypted private input.
      */
     public BigInteger startEncryptedComputation() {
-        PublicKey publicKey = keyPair.getPublicKey();
-        return publicKey.encrypt(privateInput);
+        return encrypt(privateInput);
     }
 
     /**
      * Decrypts the passed in parameter using the key pair and saves the result
      * as {@code outputShare} of this instance.
+     * <p>
+     * The decryption is done by the {@link CrtDecryptor} of the key pair, so
+     * the output share is in the range {@code [0, n)}.
      *
      * @param ciphertext The intermediate result from a previous party.
+     * @throws IllegalArgumentException If the key pair has an upper bound,
+     *                                  see {@link CrtDecryptor#forKeyPair(KeyPair)}.
      */
     public void decryptAndSetOutputShare(BigInteger ciphertext) {
-        outputShare = keyPair.decrypt(ciphertext);
+        if (keyShare != null) {
+            throw new IllegalStateException("threshold mode needs the partial decryptions of the other parties");
+        }
+        outputShare = getDecryptor().decrypt(ciphertext);
+    }
+
+    /**
+     * Combines the partial decryptions of the other parties with the own
+     * partial decryption of the passed in parameter and saves the result as
+     * {@code outputShare} of this instance.
+     * <p>
+     * Only available in threshold mode.
+     *
+     * @param ciphertext         The intermediate result from a previous
+     *                           party.
+     * @param partialDecryptions The partial decryptions of the ciphertext by
+     *                           all other parties.
+     */
+    public void decryptAndSetOutputShare(BigInteger ciphertext, List<BigInteger> partialDecryptions) {
+        if (keyShare == null) {
+            throw new IllegalStateException("partial decryptions are only used in threshold mode");
+        }
+
+        List<BigInteger> partials = new ArrayList<>(partialDecryptions.size() + 1);
+        partials.add(keyShare.partialDecrypt(ciphertext));
+        partials.addAll(partialDecryptions);
+
+        outputShare = getThresholdDecryptor().combine(partials);
+    }
+
+    /**
+     * Saves an already decrypted intermediate result as {@code outputShare}
+     * of this instance.
+     * <p>
+     * Used if the results of several computations are decrypted together
+     * with {@link CrtDecryptor#decryptAll(java.util.List, de.henku.computations.concurrent.CryptoExecutor)}.
+     *
+     * @param plaintext The decrypted intermediate result from a previous party.
+     */
+    public void setDecryptedOutputShare(BigInteger plaintext) {
+        outputShare = plaintext;
+    }
+
+    private CrtDecryptor getDecryptor() {
+        if (decryptor == null) {
+            decryptor = CrtDecryptor.forKeyPair(keyPair);
+        }
+        return decryptor;
+    }
+
+    private ThresholdDecryptor getThresholdDecryptor() {
+        if (thresholdDecryptor == null) {
+            thresholdDecryptor = new ThresholdDecryptor(keyShare.getPublicKey(), keyShare.getParties());
+        }
+        return thresholdDecryptor;
     }
 
     @Override
     public PublicKey getPublicKey() {
-        return keyPair.getPublicKey();
+        return keyPair != null ? keyPair.getPublicKey() : keyShare.getPublicKey();
     }
 
 }
\ No newline at end of file
@@ -24,6 +24,7 @@
 
 package de.henku.computations;
 
+import de.henku.computations.random.RandomnessProvider;
 import de.henku.jpaillier.PublicKey;
 
 import java.math.BigInteger;
@@ -68,27 +69,46 @@ public class SecureMultiplication extends AbstractSecureComputationSlave {
         super(privateInput, publicKey);
     }
 
+    /**
+     * Creates a new instance with the input, that has to be kept private,
+     * the public key for the encryption and the source of the output share.
+     *
+     * @param privateInput The input that should be kept private.
+     * @param publicKey    The public key for the encryption.
+     * @param randomness   The randomness provider for the output share.
+     * @see AbstractSecureComputationSlave
+     */
+    public SecureMultiplication(BigInteger privateInput, PublicKey publicKey, RandomnessProvider randomness) {
+        super(privateInput, publicKey, randomness);
+    }
+
     @Override
     public BigInteger forwardStep(BigInteger previousPartyResult) {
-        BigInteger nSquared = publicKey.getnSquared();
-
-        return previousPartyResult.modPow(privateInput, nSquared);
+        return scheme().multiply(previousPartyResult, privateInput);
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * It also generates the random output share, which is later used to compute
-     * the final result of the multiplication.
+     * Generates the random output share, which is later used to compute the
+     * final result of the multiplication, and returns its encryption for
+     * inversion.
      */
     @Override
-    public BigInteger backwardStep(BigInteger previousPartyResult) {
+    public BigInteger prepareBackwardStep() {
         outputShare = generateOutputShare();
 
-        BigInteger nSquared = publicKey.getnSquared();
-        BigInteger eos = publicKey.encrypt(outputShare);
-        BigInteger ieos = eos.modInverse(nSquared);
-        BigInteger result = previousPartyResult.multiply(ieos);
-        return result.mod(nSquared);
+        return encrypt(outputShare);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Multiplies the previous result with the inverse of the encrypted
+     * output share.
+     */
+    @Override
+    public BigInteger completeBackwardStep(BigInteger previousPartyResult, BigInteger inverse) {
+        return scheme().add(previousPartyResult, inverse);
     }
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations;
+
+import de.henku.computations.paillier.CrtDecryptor;
+import de.henku.computations.paillier.PrivateKeyShare;
+import de.henku.computations.paillier.ThresholdDecryptor;
+import de.henku.jpaillier.KeyPair;
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A class for securely computing the element-wise sums or products of
+ * vectors of inputs from two or more parties.
+ * <p>
+ * The flow is the same as for the {@link SecureComputationMaster}, with
+ * {@link SecureVectorAddition} or {@link SecureVectorMultiplication} as
+ * slaves and vectors of ciphertexts as intermediate results:
+ * <ol>
+ * <li> startEncryptedComputation is called </li>
+ * <li> forwardStep is called with the result of startEncryptedComputation </li>
+ * <li> backwardStep is called with the result of forwardStep </li>
+ * <li> decryptAndSetOutputShares is called with the result of backwardStep </li>
+ * </ol>
+ * Element {@code i} of the result is computed from element {@code i} of the
+ * output shares of all parties, as described in
+ * {@link SecureComputationMaster}. Like the scalar master, the vector master
+ * supports a {@link PrivateKeyShare} of a threshold key pair.
+ *
+ * @see SecureVectorAddition
+ * @see SecureVectorMultiplication
+ */
+public class SecureVectorComputationMaster extends AbstractSecureVectorComputation {
+
+    private final KeyPair keyPair;
+    private final PrivateKeyShare keyShare;
+
+    /**
+     * Creates a new instance with the inputs, that have to be kept private
+     * and the key pair for the encryption and decryption.
+     *
+     * @param privateInputs The inputs that should be kept private.
+     * @param keyPair       The key pair for the encryption and decryption.
+     */
+    public SecureVectorComputationMaster(long[] privateInputs, KeyPair keyPair) {
+        super(privateInputs);
+        this.keyPair = keyPair;
+        this.keyShare = null;
+    }
+
+    /**
+     * Creates a new instance with the inputs, that have to be kept private
+     * and the key pair for the encryption and decryption.
+     *
+     * @param privateInputs The inputs that should be kept private.
+     * @param keyPair       The key pair for the encryption and decryption.
+     */
+    public SecureVectorComputationMaster(BigInteger[] privateInputs, KeyPair keyPair) {
+        super(privateInputs);
+        this.keyPair = keyPair;
+        this.keyShare = null;
+    }
+
+    /**
+     * Creates a new instance in threshold mode with the inputs, that have to
+     * be kept private and the key share of the master.
+     *
+     * @param privateInputs The inputs that should be kept private.
+     * @param keyShare      The key share of the master.
+     */
+    public SecureVectorComputationMaster(BigInteger[] privateInputs, PrivateKeyShare keyShare) {
+        super(privateInputs);
+        this.keyPair = null;
+        this.keyShare = keyShare;
+    }
+
+    /**
+     * Encrypts the private inputs using the public key.
+     *
+     * @return The encrypted private inputs.
+     */
+    public BigInteger[] startEncryptedComputation() {
+        return mapElements(i -> scheme().encrypt(privateInputs[i]));
+    }
+
+    /**
+     * Decrypts the passed in ciphertexts using the key pair and saves the
+     * results as {@code outputShares} of this instance.
+     *
+     * @param ciphertexts The intermediate results from a previous party.
+     */
+    public void decryptAndSetOutputShares(BigInteger[] ciphertexts) {
+        if (keyShare != null) {
+            throw new IllegalStateException("threshold mode needs the partial decryptions of the other parties");
+        }
+        checkSize(ciphertexts);
+
+        CrtDecryptor decryptor = CrtDecryptor.forKeyPair(keyPair);
+        BigInteger[] plaintexts = mapElements(i -> decryptor.decrypt(ciphertexts[i]));
+
+        outputShares = plaintexts;
+    }
+
+    /**
+     * Combines the partial decryptions of the other parties with the own
+     * partial decryptions of the passed in ciphertexts and saves the results
+     * as {@code outputShares} of this instance.
+     * <p>
+     * Only available in threshold mode.
+     *
+     * @param ciphertexts        The intermediate results from a previous
+     *                           party.
+     * @param partialDecryptions For every other party the partial
+     *                           decryptions of all ciphertexts.
+     */
+    public void decryptAndSetOutputShares(BigInteger[] ciphertexts, List<BigInteger[]> partialDecryptions) {
+        if (keyShare == null) {
+            throw new IllegalStateException("partial decryptions are only used in threshold mode");
+        }
+        checkSize(ciphertexts);
+
+        BigInteger[] own = mapElements(i -> keyShare.partialDecrypt(ciphertexts[i]));
+
+        List<List<BigInteger>> partialsPerParty = new ArrayList<>(partialDecryptions.size() + 1);
+        partialsPerParty.add(Arrays.asList(own));
+        for (BigInteger[] partials : partialDecryptions) {
+            checkSize(partials);
+            partialsPerParty.add(Arrays.asList(partials));
+        }
+
+        ThresholdDecryptor decryptor = new ThresholdDecryptor(keyShare.getPublicKey(), keyShare.getParties());
+        outputShares = decryptor.combineAll(partialsPerParty).toArray(new BigInteger[size()]);
+    }
+
+    @Override
+    public PublicKey getPublicKey() {
+        return keyPair != null ? keyPair.getPublicKey() : keyShare.getPublicKey();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations;
+
+import de.henku.computations.random.RandomnessProvider;
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+
+/**
+ * A class for securely computing the element-wise product of vectors of inputs
+ * from two or more parties.
+ * <p>
+ * Every element is computed exactly like by a {@link SecureMultiplication}. For
+ * detailed usage instructions see {@link SecureVectorComputationMaster}.
+ *
+ * @see AbstractSecureVectorComputationSlave
+ */
+public class SecureVectorMultiplication extends AbstractSecureVectorComputationSlave {
+
+    /**
+     * Creates a new instance with the inputs, that have to be kept private
+     * and the public key for the encryption.
+     *
+     * @param privateInputs The inputs that should be kept private.
+     * @param publicKey     The public key for the encryption.
+     */
+    public SecureVectorMultiplication(long[] privateInputs, PublicKey publicKey) {
+        this(toBigIntegers(privateInputs), publicKey);
+    }
+
+    /**
+     * Creates a new instance with the inputs, that have to be kept private
+     * and the public key for the encryption.
+     *
+     * @param privateInputs The inputs that should be kept private.
+     * @param publicKey     The public key for the encryption.
+     */
+    public SecureVectorMultiplication(BigInteger[] privateInputs, PublicKey publicKey) {
+        this(privateInputs, publicKey, RandomnessProvider.getDefault());
+    }
+
+    /**
+     * Creates a new instance with the inputs, that have to be kept private,
+     * the public key for the encryption and the source of the output shares.
+     *
+     * @param privateInputs The inputs that should be kept private.
+     * @param publicKey     The public key for the encryption.
+     * @param randomness    The randomness provider for the output shares.
+     */
+    public SecureVectorMultiplication(BigInteger[] privateInputs, PublicKey publicKey, RandomnessProvider randomness) {
+        super(privateInputs, publicKey, randomness);
+    }
+
+    @Override
+    protected BigInteger forwardStep(int index, BigInteger previousPartyResult) {
+        return scheme().multiply(previousPartyResult, privateInputs[index]);
+    }
+
+    @Override
+    protected BigInteger prepareBackwardStep(int index) {
+        return scheme().encrypt(outputShares[index]);
+    }
+
+    @Override
+    protected BigInteger completeBackwardStep(BigInteger previousPartyResult, BigInteger inverse) {
+        return scheme().add(previousPartyResult, inverse);
+    }
+}
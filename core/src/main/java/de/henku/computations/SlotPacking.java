@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations;
+
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Layout of several small, non-negative integers in fixed-width slots of a
+ * single plaintext.
+ * <p>
+ * The value of slot {@code i} is stored in the bits
+ * {@code [i * slotBits, (i + 1) * slotBits)} of the packed plaintext. Slots
+ * never carry into each other as long as every slot value is smaller than
+ * {@code 2^slotBits}.
+ * <p>
+ * The slot width is derived from the maximum bit length of the packed counts
+ * and a statistical security parameter, so that a slot can hold the sum of
+ * products of two counts masked with a random value.
+ */
+public class SlotPacking {
+
+    public static final int DEFAULT_COUNT_BITS = 32;
+    public static final int DEFAULT_STATISTICAL_SECURITY = 40;
+
+    private final int countBits;
+    private final int statisticalSecurity;
+
+    /**
+     * Creates a new instance for counts smaller than
+     * {@code 2^DEFAULT_COUNT_BITS} and a statistical security of
+     * {@code DEFAULT_STATISTICAL_SECURITY} bits.
+     */
+    public SlotPacking() {
+        this(DEFAULT_COUNT_BITS, DEFAULT_STATISTICAL_SECURITY);
+    }
+
+    /**
+     * @param countBits           The maximum bit length of a single count.
+     * @param statisticalSecurity The number of bits by which random masks
+     *                            exceed the masked values.
+     */
+    public SlotPacking(int countBits, int statisticalSecurity) {
+        this.countBits = countBits;
+        this.statisticalSecurity = statisticalSecurity;
+    }
+
+    public int getCountBits() {
+        return countBits;
+    }
+
+    public int getStatisticalSecurity() {
+        return statisticalSecurity;
+    }
+
+    /**
+     * Returns the number of bits of the random masks for a sum of
+     * {@code terms} products of two counts.
+     *
+     * @param terms The number of summed products.
+     * @return The mask length in bits.
+     */
+    public int maskBits(int terms) {
+        return 2 * countBits + bitLength(terms) + statisticalSecurity;
+    }
+
+    /**
+     * Returns the slot width needed to hold a masked sum of {@code terms}
+     * products of two counts without overflowing into the next slot.
+     *
+     * @param terms The number of summed products.
+     * @return The slot width in bits.
+     */
+    public int slotBits(int terms) {
+        return maskBits(terms) + 1;
+    }
+
+    /**
+     * Checks that {@code slots} slots of {@code slotBits} bits fit into the
+     * plaintext space of the public key.
+     *
+     * @throws IllegalArgumentException If the slots do not fit.
+     */
+    public static void checkCapacity(PublicKey publicKey, int slots, int slotBits) {
+        int available = publicKey.getN().bitLength() - 1;
+
+        if ((long) slots * slotBits > available) {
+            throw new IllegalArgumentException(slots + " slots of " + slotBits
+                    + " bits do not fit into a plaintext of " + available + " bits");
+        }
+    }
+
+    /**
+     * Packs the values into consecutive slots, starting with slot 0.
+     *
+     * @param values   The non-negative slot values.
+     * @param slotBits The slot width in bits.
+     * @return The packed plaintext.
+     */
+    public static BigInteger pack(List<BigInteger> values, int slotBits) {
+        BigInteger packed = BigInteger.ZERO;
+
+        for (int i = values.size() - 1; i >= 0; i--) {
+            packed = packed.shiftLeft(slotBits).add(values.get(i));
+        }
+
+        return packed;
+    }
+
+    /**
+     * Extracts the value of a single slot.
+     *
+     * @param packed   The packed plaintext.
+     * @param index    The slot index.
+     * @param slotBits The slot width in bits.
+     * @return The slot value.
+     */
+    public static BigInteger slot(BigInteger packed, int index, int slotBits) {
+        BigInteger mask = BigInteger.ONE.shiftLeft(slotBits).subtract(BigInteger.ONE);
+
+        return packed.shiftRight(index * slotBits).and(mask);
+    }
+
+    private static int bitLength(int value) {
+        return 32 - Integer.numberOfLeadingZeros(value);
+    }
+}
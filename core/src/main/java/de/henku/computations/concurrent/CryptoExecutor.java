@@ -0,0 +1,169 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Executes independent cryptographic operations, e.g. the encryptions and
+ * exponentiations of all class values of a square division, in parallel.
+ * <p>
+ * {@link #map(List, Function)} fans the operations out to the executor and
+ * joins the results in the order of the inputs, so callers see the same
+ * results as with a sequential loop. The operations must not modify shared
+ * state; bookkeeping stays on the calling thread.
+ * <p>
+ * The executor used by the square divisions can be replaced with
+ * {@link #setDefault(CryptoExecutor)}. The default is a work-stealing pool
+ * with one thread per core. Use {@link #sequential()} together with a
+ * {@link de.henku.computations.random.DeterministicRandomnessProvider} for
+ * reproducible runs, as the order in which parallel operations draw random
+ * values is not fixed.
+ */
+public class CryptoExecutor {
+
+    private static volatile CryptoExecutor defaultExecutor = workStealing();
+
+    private final ExecutorService executor;
+
+    /**
+     * Creates a new instance, which runs the operations on the executor.
+     * <p>
+     * If the executor has a fixed number of threads, {@link #map(List, Function)}
+     * must not be called from one of them, as the calling thread blocks until
+     * all operations are done. A {@link ForkJoinPool} has no such
+     * restriction, its threads help with the pending operations.
+     *
+     * @param executor The executor or {@code null} to run all operations on
+     *                 the calling thread.
+     */
+    public CryptoExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return An executor, which runs all operations on the calling thread.
+     */
+    public static CryptoExecutor sequential() {
+        return new CryptoExecutor(null);
+    }
+
+    /**
+     * @return An executor backed by a work-stealing pool with one thread per
+     * available processor.
+     */
+    public static CryptoExecutor workStealing() {
+        return workStealing(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism The number of threads of the pool.
+     * @return An executor backed by a work-stealing pool.
+     */
+    public static CryptoExecutor workStealing(int parallelism) {
+        return new CryptoExecutor(new ForkJoinPool(parallelism,
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true));
+    }
+
+    public static CryptoExecutor getDefault() {
+        return defaultExecutor;
+    }
+
+    public static void setDefault(CryptoExecutor executor) {
+        defaultExecutor = executor;
+    }
+
+    /**
+     * @return Whether the operations are run on the calling thread.
+     */
+    public boolean isSequential() {
+        return executor == null;
+    }
+
+    /**
+     * Applies the function to all items.
+     *
+     * @param items    The items.
+     * @param function The operation, which is applied to every item.
+     * @param <T>      The type of the items.
+     * @param <R>      The type of the results.
+     * @return The results in the order of the items.
+     */
+    public <T, R> List<R> map(List<T> items, Function<? super T, ? extends R> function) {
+        List<R> results = new ArrayList<>(items.size());
+
+        if (executor == null || items.size() < 2) {
+            for (T item : items) {
+                results.add(function.apply(item));
+            }
+            return results;
+        }
+
+        List<Future<? extends R>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(executor.submit(() -> function.apply(item)));
+        }
+
+        for (Future<? extends R> future : futures) {
+            results.add(join(future));
+        }
+
+        return results;
+    }
+
+    /**
+     * Stops the threads of the executor after all pending operations are
+     * done.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static <R> R join(Future<? extends R> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a cryptographic operation", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
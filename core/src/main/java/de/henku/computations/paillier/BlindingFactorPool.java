@@ -0,0 +1,317 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of precomputed Paillier blinding factors {@code r^n mod n^2}
+ * for a single {@link PublicKey}.
+ * <p>
+ * The blinding factor is the most expensive part of a Paillier encryption,
+ * but it does not depend on the plaintext. The factors are computed by the
+ * {@link EncryptionEngine} of the key. A pool moves
+ * this work off the critical path: background refill threads keep the pool
+ * filled and {@link #encrypt(BigInteger)} only has to combine a pooled factor
+ * with {@code g^m}.
+ * <p>
+ * A pool is created with a {@link BlindingFactorPoolBuilder} and has to be
+ * registered with {@link #register(BlindingFactorPool)} to be used by the
+ * classes of the {@code de.henku.computations} package. Pools are looked up
+ * by the modulus {@code n} of the public key, so all computations using an
+ * equal key share the same pool.
+ * <pre>
+ * BlindingFactorPool pool = new BlindingFactorPoolBuilder()
+ *         .size(1024)
+ *         .refillThreads(2)
+ *         .build(publicKey);
+ * BlindingFactorPool.register(pool);
+ * ...
+ * pool.close();
+ * </pre>
+ *
+ * @see BlindingFactorPoolBuilder
+ */
+public class BlindingFactorPool implements AutoCloseable {
+
+    /**
+     * Defines what happens if a blinding factor is requested from an empty
+     * pool.
+     */
+    public enum ExhaustionPolicy {
+        /**
+         * Waits until a refill thread provides the next factor. The request
+         * fails with an {@link IllegalStateException}, if the pool is
+         * closed, all refill threads died or no factor arrived within the
+         * block timeout of the {@link BlindingFactorPoolBuilder}.
+         */
+        BLOCK,
+        /**
+         * Computes the factor on the calling thread.
+         */
+        COMPUTE
+    }
+
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final ConcurrentHashMap<BigInteger, BlindingFactorPool> POOLS =
+            new ConcurrentHashMap<>();
+
+    private final PublicKey publicKey;
+    private final ModularContext context;
+    private final BlockingQueue<BigInteger> factors;
+    private final ExhaustionPolicy exhaustionPolicy;
+    private final long blockTimeoutNanos;
+    private final List<Thread> refillers = new ArrayList<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refills = new AtomicLong();
+    private final long startedAt;
+
+    private volatile boolean running = true;
+    private volatile RuntimeException refillFailure;
+
+    BlindingFactorPool(BlindingFactorPoolBuilder b, PublicKey publicKey) {
+        this.publicKey = publicKey;
+        this.context = new ModularContext(publicKey);
+        this.factors = new ArrayBlockingQueue<>(b.size());
+        this.exhaustionPolicy = b.exhaustionPolicy();
+        this.blockTimeoutNanos = b.blockTimeoutNanos();
+
+        for (int i = 0; i < b.refillThreads(); i++) {
+            Thread t = new Thread(this::refill, "blinding-factor-refill-" + i);
+            t.setDaemon(true);
+            refillers.add(t);
+        }
+
+        startedAt = System.nanoTime();
+        refillers.forEach(Thread::start);
+    }
+
+    /**
+     * Registers the pool, so that it is used for all encryptions under its
+     * public key. A previously registered pool for the same key is replaced,
+     * but not closed.
+     *
+     * @param pool The pool to register.
+     */
+    public static void register(BlindingFactorPool pool) {
+        POOLS.put(pool.publicKey.getN(), pool);
+    }
+
+    /**
+     * Returns the registered pool for the given public key.
+     *
+     * @param publicKey The public key.
+     * @return The registered pool or {@code null} if there is none.
+     */
+    public static BlindingFactorPool forKey(PublicKey publicKey) {
+        if (POOLS.isEmpty()) {
+            return null;
+        }
+
+        BigInteger n = publicKey.getN();
+        return n == null ? null : POOLS.get(n);
+    }
+
+    /**
+     * Encrypts the plaintext using a blinding factor from this pool.
+     * <p>
+     * The result decrypts like {@code g^m * r^n mod n^2}, as computed by
+     * {@link PublicKey#encrypt(BigInteger)}.
+     *
+     * @param plaintext The plaintext {@code m}.
+     * @return The ciphertext.
+     */
+    public BigInteger encrypt(BigInteger plaintext) {
+        BigInteger gm = EncryptionEngine.forKey(publicKey).plaintextFactor(plaintext);
+
+        return context.multiply(gm, take());
+    }
+
+    /**
+     * Takes a blinding factor {@code r^n mod n^2} from the pool.
+     * <p>
+     * If the pool is empty the factor is either computed on the calling
+     * thread or awaited from the refill threads, depending on the
+     * {@link ExhaustionPolicy}. A closed pool serves no factors, not even
+     * those pooled before it was closed.
+     *
+     * @return A fresh blinding factor.
+     * @throws IllegalStateException If the pool is closed or the factor
+     *                               cannot be awaited, see
+     *                               {@link ExhaustionPolicy#BLOCK}.
+     */
+    public BigInteger take() {
+        if (!running) {
+            throw new IllegalStateException("blinding factor pool is closed");
+        }
+
+        BigInteger factor = factors.poll();
+        if (factor != null) {
+            hits.incrementAndGet();
+            return factor;
+        }
+
+        misses.incrementAndGet();
+
+        if (exhaustionPolicy == ExhaustionPolicy.BLOCK && !refillers.isEmpty()) {
+            try {
+                return await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return computeFactor();
+    }
+
+    private BigInteger await() throws InterruptedException {
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            BigInteger factor = factors.poll(Math.max(0, Math.min(remaining, POLL_NANOS)), TimeUnit.NANOSECONDS);
+            if (factor != null) {
+                return factor;
+            }
+
+            if (!running) {
+                throw new IllegalStateException("blinding factor pool is closed");
+            }
+            if (refillers.stream().noneMatch(Thread::isAlive)) {
+                throw new IllegalStateException("all refill threads of the blinding factor pool died",
+                        refillFailure);
+            }
+            if (remaining <= 0) {
+                throw new IllegalStateException("no blinding factor within "
+                        + TimeUnit.NANOSECONDS.toMillis(blockTimeoutNanos) + " ms");
+            }
+        }
+    }
+
+    private void refill() {
+        try {
+            while (running) {
+                BigInteger factor = computeFactor();
+                if (!offer(factor)) {
+                    return;
+                }
+                refills.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            // pool was closed
+        } catch (RuntimeException e) {
+            refillFailure = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for room in the pool as long as it is open, so a refill thread
+     * never stays blocked on a closed pool, even if it missed the interrupt
+     * of {@link #close()} while computing a factor. A factor, that got in
+     * after {@link #close()} dropped the pooled ones, is dropped here.
+     */
+    private boolean offer(BigInteger factor) throws InterruptedException {
+        while (running) {
+            if (factors.offer(factor, POLL_NANOS, TimeUnit.NANOSECONDS)) {
+                if (!running) {
+                    factors.clear();
+                    return false;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BigInteger computeFactor() {
+        return EncryptionEngine.forKey(publicKey).blindingFactor();
+    }
+
+    /**
+     * Stops the refill threads, drops the pooled factors and removes the
+     * pool from the registry. Afterwards {@link #take()} fails.
+     */
+    @Override
+    public void close() {
+        running = false;
+        POOLS.remove(publicKey.getN(), this);
+        refillers.forEach(Thread::interrupt);
+        factors.clear();
+    }
+
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    /**
+     * @return The number of currently available blinding factors.
+     */
+    public int available() {
+        return factors.size();
+    }
+
+    /**
+     * @return The number of requests served directly from the pool.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of requests that found the pool empty.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of factors produced by the refill threads.
+     */
+    public long getRefills() {
+        return refills.get();
+    }
+
+    /**
+     * @return The average number of factors produced per second since the
+     * pool was created.
+     */
+    public double getRefillRate() {
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        return seconds > 0 ? refills.get() / seconds : 0d;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.computations.paillier.BlindingFactorPool.ExhaustionPolicy;
+import de.henku.jpaillier.PublicKey;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builder for {@link BlindingFactorPool} instances.
+ * <p>
+ * Defaults to a pool of 256 factors, one refill thread and the
+ * {@link ExhaustionPolicy#COMPUTE} policy. With the
+ * {@link ExhaustionPolicy#BLOCK} policy, a request waits at most 10 seconds
+ * for a factor by default.
+ */
+public class BlindingFactorPoolBuilder {
+
+    private int size = 256;
+    private int refillThreads = 1;
+    private ExhaustionPolicy exhaustionPolicy = ExhaustionPolicy.COMPUTE;
+    private long blockTimeoutNanos = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * @param size The maximum number of precomputed factors.
+     * @return This builder.
+     */
+    public BlindingFactorPoolBuilder size(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * @param refillThreads The number of background threads filling the pool.
+     * @return This builder.
+     */
+    public BlindingFactorPoolBuilder refillThreads(int refillThreads) {
+        if (refillThreads < 0) {
+            throw new IllegalArgumentException("refillThreads must not be negative");
+        }
+        this.refillThreads = refillThreads;
+        return this;
+    }
+
+    /**
+     * @param exhaustionPolicy The policy used when the pool runs dry.
+     * @return This builder.
+     */
+    public BlindingFactorPoolBuilder exhaustionPolicy(ExhaustionPolicy exhaustionPolicy) {
+        this.exhaustionPolicy = exhaustionPolicy;
+        return this;
+    }
+
+    /**
+     * @param timeout The maximum time a request waits for a factor with the
+     *                {@link ExhaustionPolicy#BLOCK} policy.
+     * @param unit    The unit of the timeout.
+     * @return This builder.
+     */
+    public BlindingFactorPoolBuilder blockTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.blockTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int refillThreads() {
+        return refillThreads;
+    }
+
+    public ExhaustionPolicy exhaustionPolicy() {
+        return exhaustionPolicy;
+    }
+
+    public long blockTimeoutNanos() {
+        return blockTimeoutNanos;
+    }
+
+    /**
+     * Creates the pool and starts its refill threads.
+     *
+     * @param publicKey The public key the factors are computed for.
+     * @return The new pool.
+     */
+    public BlindingFactorPool build(PublicKey publicKey) {
+        return new BlindingFactorPool(this, publicKey);
+    }
+}
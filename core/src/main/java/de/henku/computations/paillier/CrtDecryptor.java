@@ -0,0 +1,227 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.computations.concurrent.CryptoExecutor;
+import de.henku.jpaillier.KeyPair;
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Paillier decryption using the Chinese remainder theorem.
+ * <p>
+ * Instead of computing {@code c^lambda mod n^2}, the plaintext is computed
+ * separately modulo {@code p} and {@code q} with exponents of half the size
+ * and moduli {@code p^2} and {@code q^2}, and recombined afterwards. All
+ * values that only depend on the key are computed once per key pair.
+ * <p>
+ * As {@link KeyPair} does not expose the prime factors of {@code n}, they are
+ * recovered from {@code lambda} when the decryptor is created. Use
+ * {@link #CrtDecryptor(PublicKey, BigInteger, BigInteger)} if the factors are
+ * known.
+ * <p>
+ * The decrypted values are always returned in the range {@code [0, n)}.
+ * {@link KeyPair#decrypt(BigInteger)} returns values above the upper bound
+ * of the key pair as negative numbers instead, which the decryptor cannot
+ * reproduce, as the bound is not exposed. {@link #forKeyPair(KeyPair)}
+ * therefore rejects key pairs with an upper bound.
+ */
+public class CrtDecryptor {
+
+    private static final Map<KeyPair, CrtDecryptor> DECRYPTORS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final BigInteger p;
+    private final BigInteger q;
+    private final BigInteger pSquared;
+    private final BigInteger qSquared;
+    private final BigInteger pMinusOne;
+    private final BigInteger qMinusOne;
+    private final BigInteger hp;
+    private final BigInteger hq;
+    private final BigInteger pInverse;
+
+    /**
+     * Creates a new instance for the public key and the prime factors of its
+     * modulus.
+     *
+     * @param publicKey The public key.
+     * @param p         The first prime factor of {@code n}.
+     * @param q         The second prime factor of {@code n}.
+     */
+    public CrtDecryptor(PublicKey publicKey, BigInteger p, BigInteger q) {
+        if (!p.multiply(q).equals(publicKey.getN())) {
+            throw new IllegalArgumentException("p * q does not match the modulus of the public key");
+        }
+
+        this.p = p;
+        this.q = q;
+        this.pSquared = p.multiply(p);
+        this.qSquared = q.multiply(q);
+        this.pMinusOne = p.subtract(BigInteger.ONE);
+        this.qMinusOne = q.subtract(BigInteger.ONE);
+
+        BigInteger g = publicKey.getG();
+        this.hp = l(g.modPow(pMinusOne, pSquared), p).modInverse(p);
+        this.hq = l(g.modPow(qMinusOne, qSquared), q).modInverse(q);
+        this.pInverse = p.modInverse(q);
+    }
+
+    /**
+     * Returns the decryptor for the key pair, creating it on first use.
+     *
+     * @param keyPair The key pair.
+     * @return The decryptor.
+     * @throws IllegalArgumentException If the key pair has an upper bound
+     *                                  below {@code n - 1}.
+     */
+    public static CrtDecryptor forKeyPair(KeyPair keyPair) {
+        synchronized (DECRYPTORS) {
+            return DECRYPTORS.computeIfAbsent(keyPair, CrtDecryptor::fromKeyPair);
+        }
+    }
+
+    private static CrtDecryptor fromKeyPair(KeyPair keyPair) {
+        PublicKey publicKey = keyPair.getPublicKey();
+        BigInteger n = publicKey.getN();
+
+        // g^(n-1) encrypts the largest plaintext, which only decrypts to a
+        // negative number if the key pair has an upper bound
+        BigInteger largest = publicKey.getG().modPow(n.subtract(BigInteger.ONE), publicKey.getnSquared());
+        if (keyPair.decrypt(largest).signum() < 0) {
+            throw new IllegalArgumentException("key pairs with an upper bound are not supported, "
+                    + "decrypted values are returned in the range [0, n)");
+        }
+
+        BigInteger p = factor(n, keyPair.getPrivateKey().getLambda());
+
+        return new CrtDecryptor(publicKey, p, n.divide(p));
+    }
+
+    /**
+     * Finds a non-trivial factor of {@code n} given a multiple of the
+     * Carmichael function {@code lambda(n)}.
+     */
+    static BigInteger factor(BigInteger n, BigInteger lambda) {
+        int s = lambda.getLowestSetBit();
+        BigInteger t = lambda.shiftRight(s);
+        BigInteger nMinusOne = n.subtract(BigInteger.ONE);
+        SecureRandom random = new SecureRandom();
+
+        while (true) {
+            BigInteger a = new BigInteger(n.bitLength() - 1, random);
+            if (a.compareTo(BigInteger.ONE) <= 0) {
+                continue;
+            }
+
+            BigInteger gcd = a.gcd(n);
+            if (!gcd.equals(BigInteger.ONE)) {
+                return gcd;
+            }
+
+            BigInteger x = a.modPow(t, n);
+            for (int i = 0; i < s; i++) {
+                if (x.equals(BigInteger.ONE) || x.equals(nMinusOne)) {
+                    break;
+                }
+
+                BigInteger y = x.multiply(x).mod(n);
+                if (y.equals(BigInteger.ONE)) {
+                    return x.subtract(BigInteger.ONE).gcd(n);
+                }
+                x = y;
+            }
+        }
+    }
+
+    /**
+     * Decrypts a single ciphertext.
+     *
+     * @param ciphertext The ciphertext.
+     * @return The plaintext in the range {@code [0, n)}.
+     */
+    public BigInteger decrypt(BigInteger ciphertext) {
+        return recombine(decryptModP(ciphertext), decryptModQ(ciphertext));
+    }
+
+    /**
+     * Decrypts all ciphertexts of one computation step, e.g. all results of
+     * one square division, in parallel.
+     * <p>
+     * The halves modulo {@code p^2} and {@code q^2} of a decryption are
+     * independent, so the {@code k} ciphertexts are split into {@code 2k}
+     * exponentiations of half the size. Even a step with only the two
+     * ciphertexts of Z and W keeps four threads busy.
+     *
+     * @param ciphertexts The ciphertexts.
+     * @param executor    The executor for the decryptions.
+     * @return The plaintexts in the order of the ciphertexts.
+     */
+    public List<BigInteger> decryptAll(List<BigInteger> ciphertexts, CryptoExecutor executor) {
+        int k = ciphertexts.size();
+
+        List<Integer> halves = new ArrayList<>(2 * k);
+        for (int i = 0; i < 2 * k; i++) {
+            halves.add(i);
+        }
+
+        List<BigInteger> residues = executor.map(halves,
+                i -> i < k ? decryptModP(ciphertexts.get(i)) : decryptModQ(ciphertexts.get(i - k)));
+
+        List<BigInteger> plaintexts = new ArrayList<>(k);
+        for (int i = 0; i < k; i++) {
+            plaintexts.add(recombine(residues.get(i), residues.get(k + i)));
+        }
+
+        return plaintexts;
+    }
+
+    private BigInteger decryptModP(BigInteger ciphertext) {
+        return l(ciphertext.mod(pSquared).modPow(pMinusOne, pSquared), p).multiply(hp).mod(p);
+    }
+
+    private BigInteger decryptModQ(BigInteger ciphertext) {
+        return l(ciphertext.mod(qSquared).modPow(qMinusOne, qSquared), q).multiply(hq).mod(q);
+    }
+
+    /**
+     * Garner's recombination: {@code m = mp + p * ((mq - mp) * p^-1 mod q)}.
+     */
+    private BigInteger recombine(BigInteger mp, BigInteger mq) {
+        BigInteger h = mq.subtract(mp).multiply(pInverse).mod(q);
+        return mp.add(h.multiply(p));
+    }
+
+    private static BigInteger l(BigInteger u, BigInteger prime) {
+        return u.subtract(BigInteger.ONE).divide(prime);
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.computations.random.RandomnessProvider;
+import de.henku.jpaillier.PublicKey;
+import de.henku.utils.LruMap;
+
+import java.math.BigInteger;
+
+/**
+ * Paillier encryption {@code g^m * r^n mod n^2}.
+ * <p>
+ * <ul>
+ * <li>If the key uses {@code g = n + 1}, {@code g^m} is replaced by
+ * {@code 1 + (m mod n) * n}. For other generators, like the ones of the
+ * jpaillier key generator, it is computed with
+ * {@link ModularContext#modPow(BigInteger, BigInteger)}, which makes an
+ * encryption about as expensive as {@link PublicKey#encrypt(BigInteger)}.
+ * Keys with {@code g = n + 1} are created by
+ * {@link PaillierKeyPairBuilder} and {@link ThresholdKeyPairBuilder}.</li>
+ * <li>By default the blinding factor is {@code r^n} for a random unit
+ * {@code r}, like in the original scheme.</li>
+ * <li>Engines created with
+ * {@link #EncryptionEngine(PublicKey, int, int)} replace {@code r^n} by
+ * {@code h_n^a}, where {@code h_n = (-x^2)^n mod n^2} is fixed per key and
+ * {@code a} is a short random exponent (Damgard, Jurik and Nielsen). As
+ * {@code h_n} is an {@code n}-th residue, decryption is unchanged for every
+ * generator. The power is computed with a precomputed
+ * {@link FixedBaseComb}. Such blinding factors are only indistinguishable
+ * from random {@code n}-th residues under the additional small exponent
+ * assumption of the DJN scheme, with exponents of at least half the length
+ * of {@code n}. The security of the original scheme only relies on the
+ * decisional composite residuosity assumption, so this mode is opt-in and
+ * has to be registered with {@link #register(EncryptionEngine)}.</li>
+ * </ul>
+ * <p>
+ * {@link #forKey(PublicKey)} returns a shared engine per key, which is used
+ * by all classes of {@code de.henku.computations}. If a
+ * {@link BlindingFactorPool} is registered for the key, its factors are
+ * used instead of computing them on the calling thread. At most
+ * {@value #MAX_ENGINES} engines are kept, the least recently used one is
+ * dropped beyond that, and a default engine is created again for its key on
+ * the next use. Register engines again after they were dropped.
+ */
+public class EncryptionEngine {
+
+    public static final int DEFAULT_TEETH = 10;
+
+    public static final int MAX_ENGINES = 16;
+
+    private static final LruMap<BigInteger, EncryptionEngine> ENGINES = new LruMap<>(MAX_ENGINES);
+
+    private final PublicKey publicKey;
+    private final ModularContext context;
+    private final boolean generatorShortcut;
+    private final int exponentBits;
+    private final FixedBaseComb comb;
+
+    /**
+     * Creates a new engine with blinding factors {@code r^n}.
+     *
+     * @param publicKey The public key.
+     */
+    public EncryptionEngine(PublicKey publicKey) {
+        this.publicKey = publicKey;
+        this.context = new ModularContext(publicKey);
+        this.generatorShortcut = publicKey.getG().equals(publicKey.getN().add(BigInteger.ONE));
+        this.exponentBits = 0;
+        this.comb = null;
+    }
+
+    /**
+     * Creates a new engine with short exponent blinding factors
+     * {@code h_n^a}, see the class description for the assumption this
+     * relies on.
+     *
+     * @param publicKey    The public key.
+     * @param exponentBits The length of the random exponents of the
+     *                     blinding factors, at least half the length of
+     *                     {@code n}.
+     * @param teeth        The number of teeth of the comb, the table holds
+     *                     {@code 2^teeth} values modulo {@code n^2},
+     *                     {@value #DEFAULT_TEETH} is a good default.
+     */
+    public EncryptionEngine(PublicKey publicKey, int exponentBits, int teeth) {
+        BigInteger n = publicKey.getN();
+        if (exponentBits < n.bitLength() / 2) {
+            throw new IllegalArgumentException("exponents need at least half the length of n");
+        }
+
+        this.publicKey = publicKey;
+        this.context = new ModularContext(publicKey);
+        this.generatorShortcut = publicKey.getG().equals(n.add(BigInteger.ONE));
+        this.exponentBits = exponentBits;
+
+        BigInteger nSquared = publicKey.getnSquared();
+        BigInteger x = randomUnit(n);
+        BigInteger h = n.subtract(x.multiply(x).mod(n));
+        this.comb = new FixedBaseComb(nSquared, h.modPow(n, nSquared), exponentBits, teeth);
+    }
+
+    /**
+     * Returns the engine for the public key, creating one with blinding
+     * factors {@code r^n} on first use.
+     *
+     * @param publicKey The public key.
+     * @return The engine or {@code null} if the key has no modulus.
+     */
+    public static EncryptionEngine forKey(PublicKey publicKey) {
+        BigInteger n = publicKey.getN();
+        if (n == null) {
+            return null;
+        }
+        synchronized (ENGINES) {
+            return ENGINES.computeIfAbsent(n, key -> new EncryptionEngine(publicKey));
+        }
+    }
+
+    /**
+     * Registers the engine, so that it is used for all encryptions under its
+     * public key. A previously registered engine is replaced.
+     *
+     * @param engine The engine to register.
+     */
+    public static void register(EncryptionEngine engine) {
+        synchronized (ENGINES) {
+            ENGINES.put(engine.publicKey.getN(), engine);
+        }
+    }
+
+    /**
+     * Removes the engine for the public key, so that a default engine is
+     * created again on the next encryption.
+     *
+     * @param publicKey The public key.
+     */
+    public static void unregister(PublicKey publicKey) {
+        synchronized (ENGINES) {
+            ENGINES.remove(publicKey.getN());
+        }
+    }
+
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    /**
+     * @return Whether {@code g^m} is computed as {@code 1 + m * n}.
+     */
+    public boolean usesGeneratorShortcut() {
+        return generatorShortcut;
+    }
+
+    /**
+     * @return Whether the blinding factors are short exponent powers
+     * {@code h_n^a} instead of {@code r^n}.
+     */
+    public boolean usesShortExponents() {
+        return comb != null;
+    }
+
+    /**
+     * @return The length of the short exponents, {@code 0} for blinding
+     * factors {@code r^n}.
+     */
+    public int getExponentBits() {
+        return exponentBits;
+    }
+
+    /**
+     * Encrypts the plaintext.
+     *
+     * @param plaintext The plaintext {@code m}, negative values are
+     *                  encrypted modulo {@code n}.
+     * @return The ciphertext.
+     */
+    public BigInteger encrypt(BigInteger plaintext) {
+        BlindingFactorPool pool = BlindingFactorPool.forKey(publicKey);
+        BigInteger blinding = pool != null ? pool.take() : blindingFactor();
+
+        return context.multiply(plaintextFactor(plaintext), blinding);
+    }
+
+    /**
+     * Computes {@code g^m mod n^2}.
+     *
+     * @param plaintext The plaintext {@code m}.
+     * @return The plaintext factor of the ciphertext.
+     */
+    public BigInteger plaintextFactor(BigInteger plaintext) {
+        if (generatorShortcut) {
+            BigInteger n = publicKey.getN();
+            return plaintext.mod(n).multiply(n).add(BigInteger.ONE);
+        }
+
+        return context.modPow(publicKey.getG(), plaintext);
+    }
+
+    /**
+     * Computes a fresh blinding factor, {@code r^n mod n^2} for a random
+     * unit {@code r} or {@code h_n^a mod n^2} with a random short exponent
+     * {@code a}.
+     *
+     * @return The blinding factor.
+     */
+    public BigInteger blindingFactor() {
+        if (comb == null) {
+            BigInteger n = publicKey.getN();
+            return context.modPow(randomUnit(n), n);
+        }
+
+        BigInteger a = RandomnessProvider.getDefault().nextBits(exponentBits);
+
+        return comb.pow(a);
+    }
+
+    /**
+     * Chooses a random unit modulo {@code n}.
+     */
+    private static BigInteger randomUnit(BigInteger n) {
+        RandomnessProvider randomness = RandomnessProvider.getDefault();
+
+        BigInteger x;
+        do {
+            x = randomness.nextBits(n.bitLength());
+        } while (x.signum() == 0 || x.compareTo(n) >= 0 || !x.gcd(n).equals(BigInteger.ONE));
+
+        return x;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import java.math.BigInteger;
+
+/**
+ * Lim-Lee comb for exponentiations of a fixed base with exponents of a
+ * bounded length.
+ * <p>
+ * An exponent of {@code t} bits is split into {@code h} rows ("teeth") of
+ * {@code d = ceil(t / h)} bits. Entry {@code b} of the table is the product
+ * of {@code base^(2^(j*d))} over all bits {@code j} set in {@code b}, so that
+ * column {@code i} of the exponent selects a single table entry. An
+ * exponentiation takes {@code d} squarings and at most {@code d}
+ * multiplications instead of {@code t} squarings and about {@code t / 5}
+ * multiplications for a sliding window.
+ * <p>
+ * The table and all intermediate values are kept in Montgomery form with
+ * {@code R = 2^bitLength(m)}. A reduction only needs two multiplications,
+ * masks and a shift, which is considerably cheaper than the division of
+ * {@link BigInteger#mod(BigInteger)}.
+ */
+final class FixedBaseComb {
+
+    private final BigInteger modulus;
+    private final int shift;
+    private final BigInteger mask;
+    private final BigInteger mPrime;
+
+    private final int teeth;
+    private final int columns;
+    private final BigInteger[] table;
+
+    /**
+     * @param modulus      The odd modulus {@code m}.
+     * @param base         The fixed base.
+     * @param exponentBits The maximal length of the exponents.
+     * @param teeth        The number of rows, the table has {@code 2^teeth}
+     *                     entries.
+     */
+    FixedBaseComb(BigInteger modulus, BigInteger base, int exponentBits, int teeth) {
+        if (teeth < 1 || teeth > 16) {
+            throw new IllegalArgumentException("teeth must be between 1 and 16");
+        }
+        if (!modulus.testBit(0)) {
+            throw new IllegalArgumentException("modulus has to be odd");
+        }
+
+        this.modulus = modulus;
+        this.shift = modulus.bitLength();
+        BigInteger r = BigInteger.ONE.shiftLeft(shift);
+        this.mask = r.subtract(BigInteger.ONE);
+        this.mPrime = modulus.negate().modInverse(r);
+
+        this.teeth = teeth;
+        this.columns = Math.max(1, (exponentBits + teeth - 1) / teeth);
+        this.table = new BigInteger[1 << teeth];
+
+        BigInteger[] powers = new BigInteger[teeth];
+        powers[0] = base.shiftLeft(shift).mod(modulus);
+        for (int j = 1; j < teeth; j++) {
+            BigInteger p = powers[j - 1];
+            for (int i = 0; i < columns; i++) {
+                p = multiply(p, p);
+            }
+            powers[j] = p;
+        }
+
+        table[0] = r.mod(modulus);
+        for (int b = 1; b < table.length; b++) {
+            int high = 31 - Integer.numberOfLeadingZeros(b);
+            table[b] = multiply(table[b ^ (1 << high)], powers[high]);
+        }
+    }
+
+    /**
+     * @return The maximal length of the exponents.
+     */
+    int exponentBits() {
+        return teeth * columns;
+    }
+
+    /**
+     * Computes {@code base^exponent mod m}.
+     *
+     * @param exponent The non-negative exponent of at most
+     *                 {@link #exponentBits()} bits.
+     * @return The power.
+     */
+    BigInteger pow(BigInteger exponent) {
+        if (exponent.signum() < 0 || exponent.bitLength() > exponentBits()) {
+            throw new IllegalArgumentException("exponent out of range of the comb");
+        }
+
+        BigInteger result = table[0];
+        for (int i = columns - 1; i >= 0; i--) {
+            result = multiply(result, result);
+
+            int index = 0;
+            for (int j = 0; j < teeth; j++) {
+                if (exponent.testBit(j * columns + i)) {
+                    index |= 1 << j;
+                }
+            }
+
+            if (index != 0) {
+                result = multiply(result, table[index]);
+            }
+        }
+
+        return reduce(result);
+    }
+
+    private BigInteger multiply(BigInteger a, BigInteger b) {
+        return reduce(a.multiply(b));
+    }
+
+    /**
+     * Montgomery reduction {@code t * R^-1 mod m} for {@code t < m * R}.
+     */
+    private BigInteger reduce(BigInteger t) {
+        BigInteger u = t.and(mask).multiply(mPrime).and(mask);
+        BigInteger result = t.add(u.multiply(modulus)).shiftRight(shift);
+
+        return result.compareTo(modulus) >= 0 ? result.subtract(modulus) : result;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+
+/**
+ * Modular arithmetic for a fixed modulus, usually {@code n^2} of a Paillier
+ * public key.
+ * <p>
+ * The context holds no precomputation: it delegates to
+ * {@link BigInteger#modPow(BigInteger, BigInteger)}, which already uses
+ * Montgomery multiplication for odd moduli, and to
+ * {@link BigInteger#multiply(BigInteger)} followed by a reduction. It only
+ * keeps the modulus, so callers create it once per key and hold it in a
+ * field.
+ */
+public class ModularContext {
+
+    private final BigInteger modulus;
+
+    /**
+     * Creates a new context for a modulus.
+     *
+     * @param modulus The modulus.
+     */
+    public ModularContext(BigInteger modulus) {
+        this.modulus = modulus;
+    }
+
+    /**
+     * Creates a new context for {@code n^2} of the public key.
+     *
+     * @param publicKey The public key.
+     */
+    public ModularContext(PublicKey publicKey) {
+        this(publicKey.getnSquared());
+    }
+
+    public BigInteger getModulus() {
+        return modulus;
+    }
+
+    /**
+     * Computes {@code base^exponent mod m}.
+     * <p>
+     * Negative exponents are computed with the modular inverse of the base.
+     *
+     * @param base     The base.
+     * @param exponent The exponent.
+     * @return The result in the range {@code [0, m)}.
+     */
+    public BigInteger modPow(BigInteger base, BigInteger exponent) {
+        return base.modPow(exponent, modulus);
+    }
+
+    /**
+     * Computes {@code a * b mod m}.
+     *
+     * @param a The first factor.
+     * @param b The second factor.
+     * @return The product in the range {@code [0, m)}.
+     */
+    public BigInteger multiply(BigInteger a, BigInteger b) {
+        return a.multiply(b).mod(modulus);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.jpaillier.KeyPair;
+import de.henku.jpaillier.PrivateKey;
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * Builder for jpaillier {@link KeyPair} instances with the generator
+ * {@code g = n + 1}.
+ * <p>
+ * The key pairs are drop-in replacements for the ones of jpaillier's
+ * {@code KeyPairBuilder}, which picks a random generator. With
+ * {@code g = n + 1} the {@link EncryptionEngine} computes {@code g^m} as
+ * {@code 1 + m * n} instead of a full exponentiation, which saves about a
+ * third of the cost of every encryption in the computations package. The security
+ * of the scheme does not depend on the choice of the generator.
+ * <p>
+ * Defaults to a 1024 bit key.
+ */
+public class PaillierKeyPairBuilder {
+
+    private int bits = 1024;
+    private BigInteger upperBound;
+    private Random random;
+
+    /**
+     * @param bits The length of the modulus {@code n} in bits.
+     * @return This builder.
+     */
+    public PaillierKeyPairBuilder bits(int bits) {
+        if (bits < 16) {
+            throw new IllegalArgumentException("bits must be at least 16");
+        }
+        this.bits = bits;
+        return this;
+    }
+
+    /**
+     * @param upperBound The largest positive plaintext, larger decrypted
+     *                   values are returned as negative numbers, see
+     *                   {@link KeyPair#decrypt(BigInteger)}. Such key
+     *                   pairs are rejected by {@link CrtDecryptor}, and so
+     *                   by the secure computations.
+     * @return This builder.
+     */
+    public PaillierKeyPairBuilder upperBound(BigInteger upperBound) {
+        this.upperBound = upperBound;
+        return this;
+    }
+
+    /**
+     * @param random The random number generator for the primes, a
+     *               {@link SecureRandom} by default.
+     * @return This builder.
+     */
+    public PaillierKeyPairBuilder randomNumberGenerator(Random random) {
+        this.random = random;
+        return this;
+    }
+
+    /**
+     * Generates the key pair.
+     *
+     * @return The new key pair.
+     */
+    public KeyPair generateKeyPair() {
+        Random rng = random != null ? random : new SecureRandom();
+
+        BigInteger p;
+        BigInteger q;
+        BigInteger n;
+        do {
+            p = BigInteger.probablePrime(bits / 2, rng);
+            q = BigInteger.probablePrime(bits - bits / 2, rng);
+            n = p.multiply(q);
+        } while (p.equals(q) || n.bitLength() != bits);
+
+        BigInteger pMinusOne = p.subtract(BigInteger.ONE);
+        BigInteger qMinusOne = q.subtract(BigInteger.ONE);
+        BigInteger lambda = pMinusOne.multiply(qMinusOne).divide(pMinusOne.gcd(qMinusOne));
+
+        // L(g^lambda mod n^2) = lambda mod n for g = n + 1
+        BigInteger mu = lambda.modInverse(n);
+
+        PublicKey publicKey = new PublicKey(n, n.multiply(n), n.add(BigInteger.ONE), bits);
+
+        return new KeyPair(new PrivateKey(lambda, mu), publicKey, upperBound);
+    }
+}
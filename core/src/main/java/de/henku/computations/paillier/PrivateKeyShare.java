@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The share of a threshold Paillier decryption key held by one party.
+ * <p>
+ * A partial decryption of a ciphertext {@code c} is {@code c^d_i mod n^2},
+ * where {@code d_i} is the share of the decryption exponent. It reveals
+ * nothing about the plaintext on its own.
+ *
+ * @see ThresholdKeyPairBuilder
+ * @see ThresholdDecryptor
+ */
+public class PrivateKeyShare {
+
+    private final int index;
+    private final int parties;
+    private final BigInteger exponent;
+    private final PublicKey publicKey;
+    private final ModularContext context;
+
+    PrivateKeyShare(int index, int parties, BigInteger exponent, PublicKey publicKey) {
+        this.index = index;
+        this.parties = parties;
+        this.exponent = exponent;
+        this.publicKey = publicKey;
+        this.context = new ModularContext(publicKey);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The number of parties, whose partial decryptions are needed
+     * for a decryption.
+     */
+    public int getParties() {
+        return parties;
+    }
+
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    BigInteger getExponent() {
+        return exponent;
+    }
+
+    /**
+     * Computes the partial decryption of a ciphertext.
+     *
+     * @param ciphertext The ciphertext.
+     * @return The partial decryption.
+     */
+    public BigInteger partialDecrypt(BigInteger ciphertext) {
+        // the last share is usually negative, which modPow handles with the inverse of the ciphertext
+        return context.modPow(ciphertext, exponent);
+    }
+
+    /**
+     * Computes the partial decryptions of all ciphertexts of one
+     * computation step.
+     *
+     * @param ciphertexts The ciphertexts.
+     * @return The partial decryptions in the order of the ciphertexts.
+     */
+    public List<BigInteger> partialDecryptAll(List<BigInteger> ciphertexts) {
+        List<BigInteger> partials = new ArrayList<>(ciphertexts.size());
+
+        for (BigInteger c : ciphertexts) {
+            partials.add(partialDecrypt(c));
+        }
+
+        return partials;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Combines the partial decryptions of all parties of a
+ * {@link ThresholdKeyPair}.
+ * <p>
+ * The product of all partial decryptions of a ciphertext is
+ * {@code c^d = 1 + m * n mod n^2}, so the plaintext is
+ * {@code (c^d - 1) / n}. The combination needs no secret and can be done by
+ * any party.
+ * <p>
+ * The decrypted values are always returned in the range {@code [0, n)}.
+ */
+public class ThresholdDecryptor {
+
+    private final PublicKey publicKey;
+    private final ModularContext context;
+    private final int parties;
+
+    /**
+     * @param publicKey The public key of the threshold key pair.
+     * @param parties   The number of key shares.
+     */
+    public ThresholdDecryptor(PublicKey publicKey, int parties) {
+        if (!publicKey.getG().equals(publicKey.getN().add(BigInteger.ONE))) {
+            throw new IllegalArgumentException("threshold decryption requires g = n + 1");
+        }
+
+        this.publicKey = publicKey;
+        this.context = new ModularContext(publicKey);
+        this.parties = parties;
+    }
+
+    public int getParties() {
+        return parties;
+    }
+
+    /**
+     * Combines the partial decryptions of one ciphertext.
+     *
+     * @param partials One partial decryption per party, in any order.
+     * @return The plaintext in the range {@code [0, n)}.
+     */
+    public BigInteger combine(List<BigInteger> partials) {
+        if (partials.size() != parties) {
+            throw new IllegalArgumentException("expected " + parties
+                    + " partial decryptions, got " + partials.size());
+        }
+
+        BigInteger product = BigInteger.ONE;
+        for (BigInteger partial : partials) {
+            product = context.multiply(product, partial);
+        }
+
+        BigInteger n = publicKey.getN();
+        if (!product.mod(n).equals(BigInteger.ONE)) {
+            throw new IllegalArgumentException("partial decryptions do not belong to the same ciphertext");
+        }
+
+        return product.subtract(BigInteger.ONE).divide(n);
+    }
+
+    /**
+     * Combines the partial decryptions of all ciphertexts of one
+     * computation step.
+     *
+     * @param partialsPerParty For every party the result of
+     *                         {@link PrivateKeyShare#partialDecryptAll(List)}
+     *                         for the same ciphertexts.
+     * @return The plaintexts in the order of the ciphertexts.
+     */
+    public List<BigInteger> combineAll(List<List<BigInteger>> partialsPerParty) {
+        if (partialsPerParty.size() != parties) {
+            throw new IllegalArgumentException("expected " + parties
+                    + " partial decryptions, got " + partialsPerParty.size());
+        }
+
+        int size = partialsPerParty.get(0).size();
+        List<BigInteger> plaintexts = new ArrayList<>(size);
+        List<BigInteger> partials = new ArrayList<>(parties);
+
+        for (int i = 0; i < size; i++) {
+            partials.clear();
+            for (List<BigInteger> party : partialsPerParty) {
+                partials.add(party.get(i));
+            }
+            plaintexts.add(combine(partials));
+        }
+
+        return plaintexts;
+    }
+}
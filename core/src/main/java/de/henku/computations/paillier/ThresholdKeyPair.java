@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.jpaillier.PublicKey;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A Paillier public key together with the shares of its decryption key,
+ * as created by {@link ThresholdKeyPairBuilder}.
+ * <p>
+ * Every party receives the public key and exactly one
+ * {@link PrivateKeyShare}. A ciphertext can only be decrypted if all
+ * parties contribute a partial decryption, which are combined with a
+ * {@link ThresholdDecryptor}.
+ */
+public class ThresholdKeyPair {
+
+    private final PublicKey publicKey;
+    private final List<PrivateKeyShare> shares;
+
+    ThresholdKeyPair(PublicKey publicKey, List<PrivateKeyShare> shares) {
+        this.publicKey = publicKey;
+        this.shares = Collections.unmodifiableList(shares);
+    }
+
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    public int getParties() {
+        return shares.size();
+    }
+
+    /**
+     * @param index The index of the party, starting with {@code 0}.
+     * @return The key share of the party.
+     */
+    public PrivateKeyShare getShare(int index) {
+        return shares.get(index);
+    }
+
+    public List<PrivateKeyShare> getShares() {
+        return shares;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.computations.random.RandomnessProvider;
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builder for {@link ThresholdKeyPair} instances, whose decryption key is
+ * split among all parties.
+ * <p>
+ * The public key uses {@code g = n + 1}. The decryption exponent
+ * {@code d} satisfies {@code d = 0 mod lambda} and {@code d = 1 mod n}, so
+ * that {@code c^d = 1 + m * n mod n^2} for every ciphertext {@code c} of
+ * {@code m}. It is split into additive shares over the integers: all but
+ * the last share are chosen uniformly with
+ * {@code bitLength(d) + statisticalSecurity} bits, the last share is
+ * {@code d} minus their sum. A single share, or any set of fewer than all
+ * shares, is therefore statistically independent of {@code d}.
+ * <p>
+ * The key pair should be generated by a trusted dealer, which forgets the
+ * factorization of {@code n} after handing out the shares.
+ * <p>
+ * The keys are only used by the threshold mode of
+ * {@link de.henku.computations.SecureComputationMaster}, which leaves the
+ * exchange of the partial decryptions to the caller. The square division
+ * and the ID3, also with a
+ * {@link de.henku.algorithm.id3_horizontal.SquareDivisionMiddleController}
+ * chain, need the single key pair of the master.
+ * <p>
+ * Defaults to a 1024 bit key and two parties.
+ */
+public class ThresholdKeyPairBuilder {
+
+    private int bits = 1024;
+    private int parties = 2;
+    private int statisticalSecurity = RandomnessProvider.DEFAULT_STATISTICAL_SECURITY;
+    private Random random;
+
+    /**
+     * @param bits The length of the modulus {@code n} in bits.
+     * @return This builder.
+     */
+    public ThresholdKeyPairBuilder bits(int bits) {
+        if (bits < 16) {
+            throw new IllegalArgumentException("bits must be at least 16");
+        }
+        this.bits = bits;
+        return this;
+    }
+
+    /**
+     * @param parties The number of key shares, i.e. of parties, which all
+     *                have to take part in a decryption.
+     * @return This builder.
+     */
+    public ThresholdKeyPairBuilder parties(int parties) {
+        if (parties < 1) {
+            throw new IllegalArgumentException("parties must be positive");
+        }
+        this.parties = parties;
+        return this;
+    }
+
+    /**
+     * @param statisticalSecurity The number of bits by which the random
+     *                            key shares exceed the decryption exponent.
+     * @return This builder.
+     */
+    public ThresholdKeyPairBuilder statisticalSecurity(int statisticalSecurity) {
+        if (statisticalSecurity < 0) {
+            throw new IllegalArgumentException("statisticalSecurity must not be negative");
+        }
+        this.statisticalSecurity = statisticalSecurity;
+        return this;
+    }
+
+    /**
+     * @param random The random number generator for the primes and the key
+     *               shares, a {@link SecureRandom} by default.
+     * @return This builder.
+     */
+    public ThresholdKeyPairBuilder randomNumberGenerator(Random random) {
+        this.random = random;
+        return this;
+    }
+
+    /**
+     * Generates the public key and one key share per party.
+     *
+     * @return The new key pair.
+     */
+    public ThresholdKeyPair generateKeyPair() {
+        Random rng = random != null ? random : new SecureRandom();
+
+        BigInteger p;
+        BigInteger q;
+        BigInteger n;
+        do {
+            p = BigInteger.probablePrime(bits / 2, rng);
+            q = BigInteger.probablePrime(bits - bits / 2, rng);
+            n = p.multiply(q);
+        } while (p.equals(q) || n.bitLength() != bits);
+
+        BigInteger pMinusOne = p.subtract(BigInteger.ONE);
+        BigInteger qMinusOne = q.subtract(BigInteger.ONE);
+        BigInteger lambda = pMinusOne.multiply(qMinusOne).divide(pMinusOne.gcd(qMinusOne));
+
+        // d = 0 mod lambda, d = 1 mod n
+        BigInteger d = lambda.multiply(lambda.modInverse(n));
+
+        BigInteger nSquared = n.multiply(n);
+        PublicKey publicKey = new PublicKey(n, nSquared, n.add(BigInteger.ONE), bits);
+
+        int shareBits = d.bitLength() + statisticalSecurity;
+        List<PrivateKeyShare> shares = new ArrayList<>(parties);
+        BigInteger rest = d;
+        for (int i = 0; i < parties - 1; i++) {
+            BigInteger share = new BigInteger(shareBits, rng);
+            shares.add(new PrivateKeyShare(i, parties, share, publicKey));
+            rest = rest.subtract(share);
+        }
+        shares.add(new PrivateKeyShare(parties - 1, parties, rest, publicKey));
+
+        return new ThresholdKeyPair(publicKey, shares);
+    }
+}
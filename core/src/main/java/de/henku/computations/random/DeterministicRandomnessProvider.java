@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.random;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+
+/**
+ * Randomness provider, which generates the same sequence of values for the
+ * same seed.
+ * <p>
+ * All threads share a single generator, so the sequence is only
+ * reproducible if the values are requested in the same order, e.g. by a
+ * single thread. This mode is meant for reproducible benchmarks and tests
+ * and must not be used to protect real data.
+ */
+public class DeterministicRandomnessProvider extends RandomnessProvider {
+
+    private final SecureRandom generator;
+
+    /**
+     * @param seed The seed of the generated sequence.
+     */
+    public DeterministicRandomnessProvider(long seed) {
+        this(seed, DEFAULT_STATISTICAL_SECURITY);
+    }
+
+    /**
+     * @param seed                The seed of the generated sequence.
+     * @param statisticalSecurity The number of bits by which output shares
+     *                            exceed the modulus {@code n}.
+     */
+    public DeterministicRandomnessProvider(long seed, int statisticalSecurity) {
+        super(statisticalSecurity);
+        this.generator = ThreadLocalRandomnessProvider.seeded(
+                ByteBuffer.allocate(8).putLong(seed).array());
+    }
+
+    @Override
+    protected SecureRandom generator() {
+        return generator;
+    }
+}
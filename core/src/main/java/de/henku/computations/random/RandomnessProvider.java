@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.random;
+
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+/**
+ * Source of the random output shares and masks of the secure computations.
+ * <p>
+ * The length of an output share is derived from the public key: a share has
+ * {@code bitLength(n) + statisticalSecurity} bits, so that it is
+ * statistically indistinguishable from a uniformly chosen value modulo
+ * {@code n}.
+ * <p>
+ * Random bytes are drawn in bulk: {@link #nextBits(int, BigInteger[])} fills
+ * a per-thread buffer with a single call to the generator and slices the
+ * values out of it.
+ * <p>
+ * The provider used by computations, that were not created with an explicit
+ * provider, can be replaced with {@link #setDefault(RandomnessProvider)},
+ * e.g. with a {@link DeterministicRandomnessProvider} for reproducible
+ * benchmarks.
+ *
+ * @see ThreadLocalRandomnessProvider
+ * @see DeterministicRandomnessProvider
+ */
+public abstract class RandomnessProvider {
+
+    public static final int DEFAULT_STATISTICAL_SECURITY = 40;
+
+    private static volatile RandomnessProvider defaultProvider = new ThreadLocalRandomnessProvider();
+
+    private final ThreadLocal<byte[]> buffers = new ThreadLocal<>();
+
+    private final int statisticalSecurity;
+
+    /**
+     * @param statisticalSecurity The number of bits by which output shares
+     *                            exceed the modulus {@code n}.
+     */
+    protected RandomnessProvider(int statisticalSecurity) {
+        this.statisticalSecurity = statisticalSecurity;
+    }
+
+    public static RandomnessProvider getDefault() {
+        return defaultProvider;
+    }
+
+    public static void setDefault(RandomnessProvider provider) {
+        defaultProvider = provider;
+    }
+
+    public int getStatisticalSecurity() {
+        return statisticalSecurity;
+    }
+
+    /**
+     * Returns the length of the output shares for the public key.
+     *
+     * @param publicKey The public key.
+     * @return The share length in bits.
+     */
+    public int shareBits(PublicKey publicKey) {
+        return publicKey.getN().bitLength() + statisticalSecurity;
+    }
+
+    /**
+     * Generates a single output share for the public key.
+     *
+     * @param publicKey The public key.
+     * @return A non-negative random share of {@link #shareBits(PublicKey)}
+     * bits.
+     */
+    public BigInteger nextShare(PublicKey publicKey) {
+        return nextBits(shareBits(publicKey));
+    }
+
+    /**
+     * Fills the array with output shares for the public key.
+     *
+     * @param publicKey The public key.
+     * @param shares    The array, which receives the shares.
+     */
+    public void nextShares(PublicKey publicKey, BigInteger[] shares) {
+        nextBits(shareBits(publicKey), shares);
+    }
+
+    /**
+     * Generates a non-negative random value smaller than {@code 2^bits}.
+     *
+     * @param bits The number of random bits.
+     * @return The random value.
+     */
+    public BigInteger nextBits(int bits) {
+        BigInteger[] values = new BigInteger[1];
+        nextBits(bits, values);
+
+        return values[0];
+    }
+
+    /**
+     * Fills the array with non-negative random values smaller than
+     * {@code 2^bits}, drawing the random bytes of all values at once.
+     *
+     * @param bits   The number of random bits per value.
+     * @param values The array, which receives the values.
+     */
+    public void nextBits(int bits, BigInteger[] values) {
+        int bytesPerValue = (bits + 7) >>> 3;
+        int length = bytesPerValue * values.length;
+
+        // the buffer is reused as long as the calling thread asks for values of the same size
+        byte[] buffer = buffers.get();
+        if (buffer == null || buffer.length != length) {
+            buffer = new byte[length];
+            buffers.set(buffer);
+        }
+
+        generator().nextBytes(buffer);
+
+        int excessBits = 8 * bytesPerValue - bits;
+        for (int i = 0; i < values.length; i++) {
+            byte[] magnitude = new byte[bytesPerValue];
+            System.arraycopy(buffer, i * bytesPerValue, magnitude, 0, bytesPerValue);
+
+            if (bytesPerValue > 0) {
+                magnitude[0] &= (byte) (0xFF >>> excessBits);
+            }
+
+            values[i] = new BigInteger(1, magnitude);
+        }
+    }
+
+    /**
+     * Returns the generator for the calling thread.
+     *
+     * @return The generator.
+     */
+    protected abstract SecureRandom generator();
+}
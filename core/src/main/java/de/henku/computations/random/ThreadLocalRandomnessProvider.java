@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.random;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Randomness provider with one deterministic random bit generator per
+ * thread.
+ * <p>
+ * Each generator is a {@code SHA1PRNG} instance, which is seeded once from
+ * the platform's {@link SecureRandom} when a thread draws its first random
+ * bytes. Later requests do not touch the entropy source of the operating
+ * system, in contrast to creating a new {@link SecureRandom} for every
+ * share.
+ */
+public class ThreadLocalRandomnessProvider extends RandomnessProvider {
+
+    private static final String ALGORITHM = "SHA1PRNG";
+    private static final int SEED_BYTES = 32;
+
+    private static final SecureRandom SEEDS = new SecureRandom();
+
+    private final ThreadLocal<SecureRandom> generators = new ThreadLocal<SecureRandom>() {
+        @Override
+        protected SecureRandom initialValue() {
+            byte[] seed = new byte[SEED_BYTES];
+            SEEDS.nextBytes(seed);
+
+            return seeded(seed);
+        }
+    };
+
+    public ThreadLocalRandomnessProvider() {
+        this(DEFAULT_STATISTICAL_SECURITY);
+    }
+
+    /**
+     * @param statisticalSecurity The number of bits by which output shares
+     *                            exceed the modulus {@code n}.
+     */
+    public ThreadLocalRandomnessProvider(int statisticalSecurity) {
+        super(statisticalSecurity);
+    }
+
+    @Override
+    protected SecureRandom generator() {
+        return generators.get();
+    }
+
+    /**
+     * Creates a {@code SHA1PRNG} generator, whose output only depends on the
+     * seed.
+     *
+     * @param seed The seed.
+     * @return The generator.
+     */
+    static SecureRandom seeded(byte[] seed) {
+        try {
+            SecureRandom random = SecureRandom.getInstance(ALGORITHM);
+            // seeding before the first output replaces the self-seeding
+            random.setSeed(seed);
+
+            return random;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+}
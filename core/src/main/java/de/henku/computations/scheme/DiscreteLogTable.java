@@ -0,0 +1,180 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.scheme;
+
+import de.henku.computations.BatchInversion;
+import de.henku.computations.paillier.ModularContext;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Baby-step giant-step table for recovering small {@code m} from
+ * {@code m * G}.
+ * <p>
+ * The table stores the x-coordinates of the baby steps {@code j * G} for
+ * {@code j = 1..babySteps} in an open addressing hash table, keyed by their
+ * lowest 64 bits, together with the parity of their y-coordinates. As
+ * {@code j * G} and {@code -j * G} share the x-coordinate, one lookup
+ * covers both signs. A point is solved by subtracting giant steps of
+ * {@code babySteps * G} until it hits the table, so values in the range
+ * {@code [-babySteps^2, babySteps^2]} can be recovered.
+ * <p>
+ * Building the table needs {@code babySteps} point additions and a single
+ * batched inversion; tables are shared per curve and size.
+ */
+public class DiscreteLogTable {
+
+    public static final int DEFAULT_BABY_STEPS = 1 << 16;
+
+    private static final ConcurrentHashMap<String, DiscreteLogTable> TABLES = new ConcurrentHashMap<>();
+
+    private final EcCurve curve;
+    private final int babySteps;
+
+    private final long[] keys;
+    private final int[] values;
+    private final BitSet parities;
+    private final EcPoint giantStep;
+
+    DiscreteLogTable(EcCurve curve, int babySteps) {
+        this.curve = curve;
+        this.babySteps = babySteps;
+
+        int capacity = Integer.highestOneBit(babySteps) << 2;
+        keys = new long[capacity];
+        values = new int[capacity];
+        parities = new BitSet(babySteps + 1);
+
+        BigInteger[] g = curve.toJacobian(curve.getGenerator());
+        List<BigInteger[]> steps = new ArrayList<>(babySteps);
+        List<BigInteger> zs = new ArrayList<>(babySteps);
+
+        BigInteger[] current = g;
+        for (int j = 1; j <= babySteps; j++) {
+            steps.add(current);
+            zs.add(current[2]);
+            if (j < babySteps) {
+                current = curve.add(current, g);
+            }
+        }
+
+        List<BigInteger> inverses = BatchInversion.invert(zs, new ModularContext(curve.getP()));
+
+        for (int j = 1; j <= babySteps; j++) {
+            EcPoint step = curve.toAffine(steps.get(j - 1), inverses.get(j - 1));
+            insert(step.getX().longValue(), j);
+            parities.set(j, step.getY().testBit(0));
+        }
+
+        giantStep = curve.negate(curve.toAffine(current, inverses.get(babySteps - 1)));
+    }
+
+    /**
+     * Returns the shared table for the curve and number of baby steps.
+     */
+    public static DiscreteLogTable forCurve(EcCurve curve, int babySteps) {
+        return TABLES.computeIfAbsent(curve.getName() + ":" + babySteps,
+                k -> new DiscreteLogTable(curve, babySteps));
+    }
+
+    public int getBabySteps() {
+        return babySteps;
+    }
+
+    /**
+     * Solves {@code point = m * G} for {@code m}.
+     *
+     * @param point The point.
+     * @return The signed value {@code m}.
+     * @throws ArithmeticException If {@code |m| > babySteps^2}.
+     */
+    public BigInteger solve(EcPoint point) {
+        Long m = search(point);
+        if (m != null) {
+            return BigInteger.valueOf(m);
+        }
+
+        m = search(curve.negate(point));
+        if (m != null) {
+            return BigInteger.valueOf(-m);
+        }
+
+        throw new ArithmeticException("value is out of the range of the discrete log table");
+    }
+
+    private Long search(EcPoint point) {
+        EcPoint current = point;
+
+        for (long i = 0; i < babySteps; i++) {
+            if (current.isInfinity()) {
+                return i * babySteps;
+            }
+
+            int j = lookup(current.getX().longValue());
+            if (j != 0 && curve.multiplyGenerator(BigInteger.valueOf(j)).getX().equals(current.getX())) {
+                boolean positive = parities.get(j) == current.getY().testBit(0);
+                return i * babySteps + (positive ? j : -j);
+            }
+
+            current = curve.add(current, giantStep);
+        }
+
+        return null;
+    }
+
+    private void insert(long key, int value) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (values[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    private int lookup(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return 0;
+    }
+
+    private static int hash(long key) {
+        return (int) (key ^ (key >>> 32));
+    }
+}
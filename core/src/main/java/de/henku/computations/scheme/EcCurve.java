@@ -0,0 +1,343 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.scheme;
+
+import java.math.BigInteger;
+
+/**
+ * Elliptic curve {@code y^2 = x^3 + ax + b} over a prime field, with a
+ * generator of prime order.
+ * <p>
+ * Points are exposed as affine {@link EcPoint}s. Internally additions and
+ * doublings are computed in Jacobian coordinates {@code (X, Y, Z)} with
+ * {@code x = X / Z^2} and {@code y = Y / Z^3}, so that only the conversion
+ * back to affine coordinates needs a modular inversion. Scalar
+ * multiplications use a fixed window of four bits; multiples of the
+ * generator use a precomputed {@link FixedBaseTable}.
+ */
+public final class EcCurve {
+
+    /**
+     * NIST P-256 (secp256r1).
+     */
+    public static final EcCurve P256 = new EcCurve(
+            "P-256",
+            new BigInteger("ffffffff00000001000000000000000000000000ffffffffffffffffffffffff", 16),
+            new BigInteger("ffffffff00000001000000000000000000000000fffffffffffffffffffffffc", 16),
+            new BigInteger("5ac635d8aa3a93e7b3ebbd55769886bc651d06b0cc53b0f63bce3c3e27d2604b", 16),
+            new BigInteger("6b17d1f2e12c4247f8bce6e563a440f277037d812deb33a0f4a13945d898c296", 16),
+            new BigInteger("4fe342e2fe1a7f9b8ee7eb4a7c0f9e162bce33576b315ececbb6406837bf51f5", 16),
+            new BigInteger("ffffffff00000000ffffffffffffffffbce6faada7179e84f3b9cac2fc632551", 16));
+
+    private static final int WINDOW = 4;
+    private static final BigInteger THREE = BigInteger.valueOf(3);
+    private static final BigInteger EIGHT = BigInteger.valueOf(8);
+
+    private final String name;
+    private final BigInteger p;
+    private final BigInteger a;
+    private final BigInteger b;
+    private final BigInteger order;
+    private final EcPoint generator;
+    private final int fieldBytes;
+
+    private volatile FixedBaseTable generatorTable;
+
+    /**
+     * @param name  The name of the curve.
+     * @param p     The field prime, which has to be {@code 3 mod 4}.
+     * @param a     The coefficient {@code a}.
+     * @param b     The coefficient {@code b}.
+     * @param gx    The x-coordinate of the generator.
+     * @param gy    The y-coordinate of the generator.
+     * @param order The prime order of the generator.
+     */
+    public EcCurve(String name, BigInteger p, BigInteger a, BigInteger b,
+                   BigInteger gx, BigInteger gy, BigInteger order) {
+        if (!p.testBit(0) || !p.testBit(1)) {
+            throw new IllegalArgumentException("field prime has to be 3 mod 4");
+        }
+
+        this.name = name;
+        this.p = p;
+        this.a = a;
+        this.b = b;
+        this.order = order;
+        this.fieldBytes = (p.bitLength() + 7) / 8;
+        this.generator = point(gx, gy);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BigInteger getOrder() {
+        return order;
+    }
+
+    public EcPoint getGenerator() {
+        return generator;
+    }
+
+    /**
+     * Creates a point from affine coordinates.
+     *
+     * @throws IllegalArgumentException If the point is not on the curve.
+     */
+    public EcPoint point(BigInteger x, BigInteger y) {
+        if (!y.multiply(y).subtract(rightHandSide(x)).mod(p).equals(BigInteger.ZERO)) {
+            throw new IllegalArgumentException("point is not on curve " + name);
+        }
+
+        return new EcPoint(x.mod(p), y.mod(p));
+    }
+
+    public EcPoint add(EcPoint q, EcPoint r) {
+        return toAffine(add(toJacobian(q), toJacobian(r)));
+    }
+
+    public EcPoint negate(EcPoint q) {
+        return q.isInfinity() ? q : new EcPoint(q.getX(), p.subtract(q.getY()).mod(p));
+    }
+
+    /**
+     * Computes {@code k * q}.
+     *
+     * @param q The point.
+     * @param k The scalar, which is taken modulo the order.
+     * @return The product.
+     */
+    public EcPoint multiply(EcPoint q, BigInteger k) {
+        k = k.mod(order);
+        if (q.isInfinity() || k.signum() == 0) {
+            return EcPoint.INFINITY;
+        }
+
+        BigInteger[][] multiples = new BigInteger[1 << WINDOW][];
+        multiples[1] = toJacobian(q);
+        for (int i = 2; i < multiples.length; i++) {
+            multiples[i] = add(multiples[i - 1], multiples[1]);
+        }
+
+        BigInteger[] result = infinity();
+        for (int i = (k.bitLength() + WINDOW - 1) / WINDOW - 1; i >= 0; i--) {
+            for (int j = 0; j < WINDOW; j++) {
+                result = twice(result);
+            }
+
+            int digit = digit(k, i);
+            if (digit != 0) {
+                result = add(result, multiples[digit]);
+            }
+        }
+
+        return toAffine(result);
+    }
+
+    /**
+     * Computes {@code k * G} for the generator {@code G}.
+     */
+    public EcPoint multiplyGenerator(BigInteger k) {
+        FixedBaseTable table = generatorTable;
+        if (table == null) {
+            table = new FixedBaseTable(this, generator);
+            generatorTable = table;
+        }
+
+        return table.multiply(k);
+    }
+
+    /**
+     * Encodes the point compressed as in SEC 1: a prefix byte {@code 0x02}
+     * or {@code 0x03} for the parity of y, followed by x. The point at
+     * infinity is encoded with zeros.
+     */
+    public byte[] encode(EcPoint q) {
+        byte[] encoded = new byte[1 + fieldBytes];
+        if (q.isInfinity()) {
+            return encoded;
+        }
+
+        encoded[0] = (byte) (q.getY().testBit(0) ? 0x03 : 0x02);
+        byte[] x = q.getX().toByteArray();
+        int copy = Math.min(x.length, fieldBytes);
+        System.arraycopy(x, x.length - copy, encoded, encoded.length - copy, copy);
+
+        return encoded;
+    }
+
+    /**
+     * Decodes a point encoded by {@link #encode(EcPoint)}, starting at the
+     * offset.
+     *
+     * @throws IllegalArgumentException If the bytes are no valid point.
+     */
+    public EcPoint decode(byte[] bytes, int offset) {
+        if (bytes.length < offset + encodedLength()) {
+            throw new IllegalArgumentException("not enough bytes for a point");
+        }
+
+        byte[] xBytes = new byte[fieldBytes];
+        System.arraycopy(bytes, offset + 1, xBytes, 0, fieldBytes);
+        BigInteger x = new BigInteger(1, xBytes);
+
+        int prefix = bytes[offset];
+        if (prefix == 0 && x.signum() == 0) {
+            return EcPoint.INFINITY;
+        }
+        if ((prefix != 0x02 && prefix != 0x03) || x.compareTo(p) >= 0) {
+            throw new IllegalArgumentException("invalid point encoding");
+        }
+
+        // p = 3 mod 4, so a square root is rhs^((p + 1) / 4)
+        BigInteger rhs = rightHandSide(x);
+        BigInteger y = rhs.modPow(p.add(BigInteger.ONE).shiftRight(2), p);
+        if (!y.multiply(y).mod(p).equals(rhs)) {
+            throw new IllegalArgumentException("point is not on curve " + name);
+        }
+
+        if (y.testBit(0) != (prefix == 0x03)) {
+            y = p.subtract(y);
+        }
+
+        return new EcPoint(x, y);
+    }
+
+    /**
+     * @return The length of an encoded point in bytes.
+     */
+    public int encodedLength() {
+        return 1 + fieldBytes;
+    }
+
+    private BigInteger rightHandSide(BigInteger x) {
+        return x.multiply(x).add(a).multiply(x).add(b).mod(p);
+    }
+
+    static int digit(BigInteger k, int index) {
+        int digit = 0;
+        for (int j = WINDOW - 1; j >= 0; j--) {
+            digit = (digit << 1) | (k.testBit(index * WINDOW + j) ? 1 : 0);
+        }
+        return digit;
+    }
+
+    static int window() {
+        return WINDOW;
+    }
+
+    /*
+     * Jacobian arithmetic, a point is {X, Y, Z} and infinity has Z = 0.
+     */
+
+    static BigInteger[] infinity() {
+        return new BigInteger[]{BigInteger.ONE, BigInteger.ONE, BigInteger.ZERO};
+    }
+
+    BigInteger[] toJacobian(EcPoint q) {
+        return q.isInfinity() ? infinity() : new BigInteger[]{q.getX(), q.getY(), BigInteger.ONE};
+    }
+
+    EcPoint toAffine(BigInteger[] q) {
+        if (q[2].signum() == 0) {
+            return EcPoint.INFINITY;
+        }
+
+        return toAffine(q, q[2].modInverse(p));
+    }
+
+    /**
+     * Converts with a precomputed inverse of Z, e.g. from a batch inversion.
+     */
+    EcPoint toAffine(BigInteger[] q, BigInteger zInverse) {
+        BigInteger zInverse2 = zInverse.multiply(zInverse).mod(p);
+        BigInteger x = q[0].multiply(zInverse2).mod(p);
+        BigInteger y = q[1].multiply(zInverse2).mod(p).multiply(zInverse).mod(p);
+
+        return new EcPoint(x, y);
+    }
+
+    BigInteger getP() {
+        return p;
+    }
+
+    // dbl-2007-bl
+    BigInteger[] twice(BigInteger[] q) {
+        if (q[2].signum() == 0 || q[1].signum() == 0) {
+            return infinity();
+        }
+
+        BigInteger xx = q[0].multiply(q[0]).mod(p);
+        BigInteger yy = q[1].multiply(q[1]).mod(p);
+        BigInteger yyyy = yy.multiply(yy).mod(p);
+        BigInteger zz = q[2].multiply(q[2]).mod(p);
+
+        BigInteger xPlusYy = q[0].add(yy);
+        BigInteger s = xPlusYy.multiply(xPlusYy).subtract(xx).subtract(yyyy).shiftLeft(1).mod(p);
+        BigInteger m = xx.multiply(THREE).add(a.multiply(zz).mod(p).multiply(zz)).mod(p);
+        BigInteger t = m.multiply(m).subtract(s.shiftLeft(1)).mod(p);
+
+        BigInteger y3 = m.multiply(s.subtract(t)).subtract(yyyy.multiply(EIGHT)).mod(p);
+        BigInteger yPlusZ = q[1].add(q[2]);
+        BigInteger z3 = yPlusZ.multiply(yPlusZ).subtract(yy).subtract(zz).mod(p);
+
+        return new BigInteger[]{t, y3, z3};
+    }
+
+    // add-2007-bl
+    BigInteger[] add(BigInteger[] q, BigInteger[] r) {
+        if (q[2].signum() == 0) {
+            return r;
+        }
+        if (r[2].signum() == 0) {
+            return q;
+        }
+
+        BigInteger z1z1 = q[2].multiply(q[2]).mod(p);
+        BigInteger z2z2 = r[2].multiply(r[2]).mod(p);
+        BigInteger u1 = q[0].multiply(z2z2).mod(p);
+        BigInteger u2 = r[0].multiply(z1z1).mod(p);
+        BigInteger s1 = q[1].multiply(r[2]).mod(p).multiply(z2z2).mod(p);
+        BigInteger s2 = r[1].multiply(q[2]).mod(p).multiply(z1z1).mod(p);
+
+        BigInteger h = u2.subtract(u1).mod(p);
+        BigInteger rr = s2.subtract(s1).shiftLeft(1).mod(p);
+
+        if (h.signum() == 0) {
+            return rr.signum() == 0 ? twice(q) : infinity();
+        }
+
+        BigInteger i = h.shiftLeft(1).pow(2).mod(p);
+        BigInteger j = h.multiply(i).mod(p);
+        BigInteger v = u1.multiply(i).mod(p);
+
+        BigInteger x3 = rr.multiply(rr).subtract(j).subtract(v.shiftLeft(1)).mod(p);
+        BigInteger y3 = rr.multiply(v.subtract(x3)).subtract(s1.multiply(j).shiftLeft(1)).mod(p);
+        BigInteger zSum = q[2].add(r[2]);
+        BigInteger z3 = zSum.multiply(zSum).subtract(z1z1).subtract(z2z2).mod(p).multiply(h).mod(p);
+
+        return new BigInteger[]{x3, y3, z3};
+    }
+}
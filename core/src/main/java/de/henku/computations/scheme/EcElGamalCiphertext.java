@@ -0,0 +1,61 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.scheme;
+
+/**
+ * Exponential ElGamal ciphertext {@code (r * G, m * G + r * H)}.
+ */
+public final class EcElGamalCiphertext {
+
+    private final EcPoint c1;
+    private final EcPoint c2;
+
+    public EcElGamalCiphertext(EcPoint c1, EcPoint c2) {
+        this.c1 = c1;
+        this.c2 = c2;
+    }
+
+    public EcPoint getC1() {
+        return c1;
+    }
+
+    public EcPoint getC2() {
+        return c2;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof EcElGamalCiphertext) {
+            EcElGamalCiphertext other = (EcElGamalCiphertext) obj;
+            return c1.equals(other.c1) && c2.equals(other.c2);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return c1.hashCode() * 31 + c2.hashCode();
+    }
+}
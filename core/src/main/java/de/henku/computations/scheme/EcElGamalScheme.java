@@ -0,0 +1,191 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.scheme;
+
+import de.henku.computations.random.RandomnessProvider;
+
+import java.math.BigInteger;
+
+/**
+ * Additively homomorphic exponential ElGamal on an elliptic curve.
+ * <p>
+ * A plaintext {@code m} is encrypted as {@code (r * G, m * G + r * H)} with
+ * the public key {@code H = x * G}. Decryption computes
+ * {@code m * G = c2 - x * c1} and recovers {@code m} with a
+ * {@link DiscreteLogTable}, so only small plaintexts, such as counts and
+ * sums of squared counts, can be decrypted. Values outside of
+ * {@code [-babySteps^2, babySteps^2]} cause an {@link ArithmeticException}.
+ * <p>
+ * A ciphertext consists of two compressed points, 66 bytes on P-256,
+ * compared to {@code 2 * bitLength(n) / 8} bytes of a Paillier ciphertext.
+ */
+public class EcElGamalScheme implements HomomorphicScheme<EcElGamalCiphertext> {
+
+    private final EcCurve curve;
+    private final EcPoint publicKey;
+    private final BigInteger privateKey;
+    private final int babySteps;
+
+    private final FixedBaseTable publicKeyTable;
+
+    /**
+     * Creates a scheme, which can only encrypt.
+     *
+     * @param curve     The curve.
+     * @param publicKey The public key {@code H}.
+     */
+    public EcElGamalScheme(EcCurve curve, EcPoint publicKey) {
+        this(curve, publicKey, null, DiscreteLogTable.DEFAULT_BABY_STEPS);
+    }
+
+    EcElGamalScheme(EcCurve curve, EcPoint publicKey, BigInteger privateKey, int babySteps) {
+        this.curve = curve;
+        this.publicKey = publicKey;
+        this.privateKey = privateKey;
+        this.babySteps = babySteps;
+        this.publicKeyTable = new FixedBaseTable(curve, publicKey);
+    }
+
+    /**
+     * Generates a new key pair and returns a scheme, which can encrypt and
+     * decrypt.
+     *
+     * @param curve The curve.
+     * @return The scheme.
+     */
+    public static EcElGamalScheme generate(EcCurve curve) {
+        return generate(curve, DiscreteLogTable.DEFAULT_BABY_STEPS);
+    }
+
+    /**
+     * Generates a new key pair and returns a scheme, which can encrypt and
+     * decrypt plaintexts in {@code [-babySteps^2, babySteps^2]}.
+     *
+     * @param curve     The curve.
+     * @param babySteps The size of the discrete log table.
+     * @return The scheme.
+     */
+    public static EcElGamalScheme generate(EcCurve curve, int babySteps) {
+        BigInteger x = randomScalar(curve);
+
+        return new EcElGamalScheme(curve, curve.multiplyGenerator(x), x, babySteps);
+    }
+
+    /**
+     * @return A scheme with the public key of this scheme only, e.g. to be
+     * handed to other parties.
+     */
+    public EcElGamalScheme publicScheme() {
+        return new EcElGamalScheme(curve, publicKey);
+    }
+
+    public EcCurve getCurve() {
+        return curve;
+    }
+
+    public EcPoint getPublicKey() {
+        return publicKey;
+    }
+
+    @Override
+    public BigInteger getPlaintextModulus() {
+        return curve.getOrder();
+    }
+
+    @Override
+    public EcElGamalCiphertext encrypt(BigInteger plaintext) {
+        BigInteger r = randomScalar(curve);
+
+        EcPoint c1 = curve.multiplyGenerator(r);
+        EcPoint c2 = curve.add(curve.multiplyGenerator(plaintext), publicKeyTable.multiply(r));
+
+        return new EcElGamalCiphertext(c1, c2);
+    }
+
+    @Override
+    public EcElGamalCiphertext add(EcElGamalCiphertext a, EcElGamalCiphertext b) {
+        return new EcElGamalCiphertext(
+                curve.add(a.getC1(), b.getC1()),
+                curve.add(a.getC2(), b.getC2()));
+    }
+
+    @Override
+    public EcElGamalCiphertext multiply(EcElGamalCiphertext ciphertext, BigInteger scalar) {
+        return new EcElGamalCiphertext(
+                curve.multiply(ciphertext.getC1(), scalar),
+                curve.multiply(ciphertext.getC2(), scalar));
+    }
+
+    @Override
+    public EcElGamalCiphertext negate(EcElGamalCiphertext ciphertext) {
+        return new EcElGamalCiphertext(
+                curve.negate(ciphertext.getC1()),
+                curve.negate(ciphertext.getC2()));
+    }
+
+    @Override
+    public BigInteger decrypt(EcElGamalCiphertext ciphertext) {
+        if (privateKey == null) {
+            throw new IllegalStateException("scheme has no private key");
+        }
+
+        EcPoint m = curve.add(ciphertext.getC2(),
+                curve.negate(curve.multiply(ciphertext.getC1(), privateKey)));
+
+        return DiscreteLogTable.forCurve(curve, babySteps).solve(m);
+    }
+
+    @Override
+    public byte[] encode(EcElGamalCiphertext ciphertext) {
+        int length = curve.encodedLength();
+
+        byte[] encoded = new byte[2 * length];
+        System.arraycopy(curve.encode(ciphertext.getC1()), 0, encoded, 0, length);
+        System.arraycopy(curve.encode(ciphertext.getC2()), 0, encoded, length, length);
+
+        return encoded;
+    }
+
+    @Override
+    public EcElGamalCiphertext decode(byte[] bytes) {
+        if (bytes.length != 2 * curve.encodedLength()) {
+            throw new IllegalArgumentException("invalid ciphertext length " + bytes.length);
+        }
+
+        return new EcElGamalCiphertext(curve.decode(bytes, 0), curve.decode(bytes, curve.encodedLength()));
+    }
+
+    private static BigInteger randomScalar(EcCurve curve) {
+        BigInteger order = curve.getOrder();
+        RandomnessProvider randomness = RandomnessProvider.getDefault();
+
+        BigInteger r;
+        do {
+            r = randomness.nextBits(order.bitLength() + RandomnessProvider.DEFAULT_STATISTICAL_SECURITY).mod(order);
+        } while (r.signum() == 0);
+
+        return r;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.scheme;
+
+import java.math.BigInteger;
+
+/**
+ * Immutable point of an {@link EcCurve} in affine coordinates.
+ */
+public final class EcPoint {
+
+    public static final EcPoint INFINITY = new EcPoint(null, null);
+
+    private final BigInteger x;
+    private final BigInteger y;
+
+    EcPoint(BigInteger x, BigInteger y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public boolean isInfinity() {
+        return x == null;
+    }
+
+    public BigInteger getX() {
+        return x;
+    }
+
+    public BigInteger getY() {
+        return y;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof EcPoint)) {
+            return false;
+        }
+
+        EcPoint other = (EcPoint) obj;
+        if (isInfinity() || other.isInfinity()) {
+            return isInfinity() == other.isInfinity();
+        }
+
+        return x.equals(other.x) && y.equals(other.y);
+    }
+
+    @Override
+    public int hashCode() {
+        return isInfinity() ? 0 : x.hashCode() * 31 + y.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return isInfinity() ? "(infinity)" : "(" + x.toString(16) + ", " + y.toString(16) + ")";
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.scheme;
+
+import java.math.BigInteger;
+
+/**
+ * Precomputed multiples of a fixed point for fast scalar multiplications.
+ * <p>
+ * Row {@code i} holds {@code j * 16^i * B} for {@code j = 1..15}, so that
+ * {@code k * B} is the sum of one entry per four-bit digit of {@code k} and
+ * needs no doublings at all.
+ */
+public class FixedBaseTable {
+
+    private final EcCurve curve;
+    private final BigInteger[][][] rows;
+
+    /**
+     * @param curve The curve of the point.
+     * @param base  The fixed point {@code B}.
+     */
+    public FixedBaseTable(EcCurve curve, EcPoint base) {
+        this.curve = curve;
+
+        int window = EcCurve.window();
+        int digits = (curve.getOrder().bitLength() + window - 1) / window;
+        rows = new BigInteger[digits][1 << window][];
+
+        BigInteger[] rowBase = curve.toJacobian(base);
+        for (int i = 0; i < digits; i++) {
+            rows[i][1] = rowBase;
+            for (int j = 2; j < rows[i].length; j++) {
+                rows[i][j] = curve.add(rows[i][j - 1], rowBase);
+            }
+
+            rowBase = curve.add(rows[i][rows[i].length - 1], rowBase);
+        }
+    }
+
+    /**
+     * Computes {@code k * B}.
+     *
+     * @param k The scalar, which is taken modulo the order of the curve.
+     * @return The product.
+     */
+    public EcPoint multiply(BigInteger k) {
+        k = k.mod(curve.getOrder());
+
+        BigInteger[] result = EcCurve.infinity();
+        for (int i = 0; i < rows.length; i++) {
+            int digit = EcCurve.digit(k, i);
+            if (digit != 0) {
+                result = curve.add(result, rows[i][digit]);
+            }
+        }
+
+        return curve.toAffine(result);
+    }
+}
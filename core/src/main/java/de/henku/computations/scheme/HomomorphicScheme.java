@@ -0,0 +1,109 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.scheme;
+
+import java.math.BigInteger;
+
+/**
+ * Additively homomorphic public key encryption scheme.
+ * <p>
+ * Plaintexts are integers modulo {@link #getPlaintextModulus()}. Adding two
+ * ciphertexts yields an encryption of the sum of their plaintexts and
+ * multiplying a ciphertext with a scalar yields an encryption of the
+ * product of the plaintext and the scalar.
+ * <p>
+ * An instance, that was created without the private key, can encrypt and
+ * combine ciphertexts, but throws an {@link IllegalStateException} on
+ * {@link #decrypt(Object)}.
+ *
+ * @param <C> The ciphertext type.
+ * @see PaillierScheme
+ * @see EcElGamalScheme
+ */
+public interface HomomorphicScheme<C> {
+
+    /**
+     * @return The modulus of the plaintext space.
+     */
+    BigInteger getPlaintextModulus();
+
+    /**
+     * Encrypts the plaintext with fresh randomness.
+     *
+     * @param plaintext The plaintext, negative values are taken modulo the
+     *                  plaintext modulus.
+     * @return The ciphertext.
+     */
+    C encrypt(BigInteger plaintext);
+
+    /**
+     * @return An encryption of the sum of the plaintexts of both ciphertexts.
+     */
+    C add(C a, C b);
+
+    /**
+     * @return An encryption of the product of the plaintext and the scalar.
+     */
+    C multiply(C ciphertext, BigInteger scalar);
+
+    /**
+     * @return An encryption of the negated plaintext.
+     */
+    C negate(C ciphertext);
+
+    /**
+     * Decrypts the ciphertext.
+     *
+     * @param ciphertext The ciphertext.
+     * @return The plaintext.
+     * @throws IllegalStateException If the scheme has no private key.
+     */
+    BigInteger decrypt(C ciphertext);
+
+    /**
+     * Encodes the ciphertext into its wire format.
+     *
+     * @param ciphertext The ciphertext.
+     * @return The encoded ciphertext, whose length only depends on the key.
+     */
+    byte[] encode(C ciphertext);
+
+    /**
+     * Decodes a ciphertext from its wire format.
+     *
+     * @param bytes The encoded ciphertext.
+     * @return The ciphertext.
+     * @throws IllegalArgumentException If the bytes are no valid ciphertext.
+     */
+    C decode(byte[] bytes);
+
+    /**
+     * @return A new ciphertext of the same plaintext, which cannot be linked
+     * to the given ciphertext.
+     */
+    default C rerandomize(C ciphertext) {
+        return add(ciphertext, encrypt(BigInteger.ZERO));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.scheme;
+
+import de.henku.computations.paillier.BlindingFactorPool;
+import de.henku.computations.paillier.CrtDecryptor;
+import de.henku.computations.paillier.EncryptionEngine;
+import de.henku.computations.paillier.ModularContext;
+import de.henku.jpaillier.KeyPair;
+import de.henku.jpaillier.PublicKey;
+
+import java.math.BigInteger;
+
+/**
+ * The Paillier cryptosystem as {@link HomomorphicScheme}.
+ * <p>
+ * Ciphertexts are {@link BigInteger}s modulo {@code n^2}. Addition of
+ * plaintexts is a multiplication of ciphertexts, multiplication with a
+ * scalar an exponentiation; both are computed by a {@link ModularContext},
+ * which the scheme keeps for its key. Encryptions use the
+ * {@link EncryptionEngine} of the key, which takes its blinding factors from
+ * a registered {@link BlindingFactorPool}, and decryptions the
+ * {@link CrtDecryptor} of the key pair.
+ */
+public class PaillierScheme implements HomomorphicScheme<BigInteger> {
+
+    private final PublicKey publicKey;
+    private final ModularContext context;
+    private final KeyPair keyPair;
+
+    /**
+     * Creates a scheme, which can only encrypt.
+     *
+     * @param publicKey The public key.
+     */
+    public PaillierScheme(PublicKey publicKey) {
+        this.publicKey = publicKey;
+        this.context = new ModularContext(publicKey);
+        this.keyPair = null;
+    }
+
+    /**
+     * Creates a scheme, which can encrypt and decrypt.
+     *
+     * @param keyPair The key pair.
+     */
+    public PaillierScheme(KeyPair keyPair) {
+        this.publicKey = keyPair.getPublicKey();
+        this.context = new ModularContext(publicKey);
+        this.keyPair = keyPair;
+    }
+
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    @Override
+    public BigInteger getPlaintextModulus() {
+        return publicKey.getN();
+    }
+
+    @Override
+    public BigInteger encrypt(BigInteger plaintext) {
+        EncryptionEngine engine = EncryptionEngine.forKey(publicKey);
+        if (engine != null) {
+            return engine.encrypt(plaintext);
+        }
+
+        return publicKey.encrypt(plaintext);
+    }
+
+    @Override
+    public BigInteger add(BigInteger a, BigInteger b) {
+        return context.multiply(a, b);
+    }
+
+    @Override
+    public BigInteger multiply(BigInteger ciphertext, BigInteger scalar) {
+        return context.modPow(ciphertext, scalar);
+    }
+
+    @Override
+    public BigInteger negate(BigInteger ciphertext) {
+        return ciphertext.modInverse(publicKey.getnSquared());
+    }
+
+    @Override
+    public BigInteger decrypt(BigInteger ciphertext) {
+        if (keyPair == null) {
+            throw new IllegalStateException("scheme has no private key");
+        }
+
+        return CrtDecryptor.forKeyPair(keyPair).decrypt(ciphertext);
+    }
+
+    @Override
+    public byte[] encode(BigInteger ciphertext) {
+        int length = (publicKey.getnSquared().bitLength() + 7) / 8;
+        byte[] bytes = ciphertext.toByteArray();
+
+        // strip the sign byte or pad with leading zeros to the fixed length
+        byte[] encoded = new byte[length];
+        int copy = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - copy, encoded, length - copy, copy);
+
+        return encoded;
+    }
+
+    @Override
+    public BigInteger decode(byte[] bytes) {
+        BigInteger ciphertext = new BigInteger(1, bytes);
+
+        if (ciphertext.compareTo(publicKey.getnSquared()) >= 0) {
+            throw new IllegalArgumentException("ciphertext is not smaller than n^2");
+        }
+
+        return ciphertext;
+    }
+}
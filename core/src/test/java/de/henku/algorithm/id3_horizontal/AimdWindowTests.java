@@ -0,0 +1,135 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AimdWindowTests {
+
+    private AimdWindow subject;
+
+    @Before
+    public void beforeEach() {
+        subject = new AimdWindow(4, 1, 8);
+    }
+
+    @Test
+    public void tryAcquire_isLimitedByWindow() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(subject.tryAcquire());
+        }
+        assertFalse(subject.tryAcquire());
+        assertEquals(4, subject.getInFlight());
+
+        subject.cancel();
+        assertTrue(subject.tryAcquire());
+    }
+
+    @Test
+    public void release_growsWindowByAboutOnePerRoundTrip() {
+        // a window of 4 grows by 1 / window per reply
+        for (int i = 0; i < 5; i++) {
+            subject.tryAcquire();
+            subject.release(0, 100, false);
+        }
+
+        assertEquals(5, subject.getWindowSize());
+        assertEquals(0, subject.getInFlight());
+    }
+
+    @Test
+    public void release_shrinksWindowOnceForBurstOfSlowReplies() {
+        subject.tryAcquire();
+        subject.release(0, 100, false);
+
+        // sent before the first slow reply arrived
+        for (int i = 0; i < 3; i++) {
+            subject.tryAcquire();
+            subject.release(1000, 1500, false);
+        }
+        assertEquals(2, subject.getWindowSize());
+
+        subject.tryAcquire();
+        subject.release(2000, 2500, false);
+        assertEquals(1, subject.getWindowSize());
+    }
+
+    @Test
+    public void release_followsIncreasedBaseRoundTripTime() {
+        subject.setRttSamples(4);
+        subject.tryAcquire();
+        subject.release(0, 100, false);
+
+        // every reply takes five times as long from now on
+        long t = 1000;
+        for (int i = 0; i < 4; i++) {
+            subject.tryAcquire();
+            subject.release(t, t + 500, false);
+            t += 1000;
+        }
+        int shrunk = subject.getWindowSize();
+
+        for (int i = 0; i < 8; i++) {
+            subject.tryAcquire();
+            subject.release(t, t + 500, false);
+            t += 1000;
+        }
+
+        assertTrue(subject.getWindowSize() > shrunk);
+    }
+
+    @Test
+    public void release_shrinksWindowOnFailure() {
+        subject.tryAcquire();
+        subject.release(0, 10, true);
+
+        assertEquals(2, subject.getWindowSize());
+    }
+
+    @Test
+    public void window_staysWithinBounds() {
+        for (int i = 0; i < 100; i++) {
+            subject.tryAcquire();
+            subject.release(0, 10, false);
+        }
+        assertEquals(8, subject.getWindowSize());
+
+        for (long t = 100; t < 1000; t += 100) {
+            subject.tryAcquire();
+            subject.release(t, t + 1, true);
+        }
+        assertEquals(1, subject.getWindowSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsInvalidBounds() {
+        new AimdWindow(8, 1, 4);
+    }
+}
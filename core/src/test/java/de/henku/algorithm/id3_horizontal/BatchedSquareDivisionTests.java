@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import de.henku.computations.SlotPacking;
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
+import de.henku.jpaillier.KeyPair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class BatchedSquareDivisionTests {
+
+    private KeyPair keyPair;
+
+    @Before
+    public void beforeEach() {
+        keyPair = new PaillierKeyPairBuilder().generateKeyPair();
+    }
+
+    @Test
+    public void backwardSteps_computeResultsOfAllSquareDivisions() {
+        List<SecureSquareDivisionMaster> masters = Arrays.asList(
+                new SecureSquareDivisionMaster(keyPair),
+                new SecureSquareDivisionMaster(keyPair),
+                new PackedSecureSquareDivisionMaster(keyPair, new SlotPacking()));
+        List<SecureSquareDivisionSlave> slaves = Arrays.asList(
+                new SecureSquareDivisionSlave(keyPair.getPublicKey()),
+                new SecureSquareDivisionSlave(keyPair.getPublicKey()),
+                new PackedSecureSquareDivisionSlave(keyPair.getPublicKey()));
+
+        List<Map<Object, Long>> masterCounts = Arrays.asList(counts(3, 0, 5), counts(1, 1, 1), counts(0, 4, 2));
+        List<Map<Object, Long>> slaveCounts = Arrays.asList(counts(2, 4, 0), counts(0, 0, 6), counts(1, 0, 3));
+
+        List<List<MultiplicationResult>> mrs = new ArrayList<>();
+        for (int i = 0; i < masters.size(); i++) {
+            List<MultiplicationResult> mr = masters.get(i).createMultiplications(masterCounts.get(i));
+            mrs.add(slaves.get(i).handleMultiplicationForwardStep(slaveCounts.get(i), mr));
+        }
+        mrs = SecureSquareDivisionSlave.handleMultiplicationBackwardSteps(slaves, mrs);
+
+        List<AdditionResults> ars = new ArrayList<>();
+        for (int i = 0; i < masters.size(); i++) {
+            AdditionResults ar = masters.get(i).handleMultiplicationBackwardStep(mrs.get(i));
+            ars.add(slaves.get(i).handleAdditionForwardStep(ar));
+        }
+        ars = SecureSquareDivisionSlave.handleAdditionBackwardSteps(slaves, ars);
+
+        double[] expected = {
+                (25d + 16d + 25d) / 14d,
+                (1d + 1d + 49d) / 9d,
+                (1d + 16d + 25d) / 10d
+        };
+        for (int i = 0; i < masters.size(); i++) {
+            masters.get(i).handleAdditionBackwardStep(ars.get(i));
+            GiniGainResult r = masters.get(i).computeResult(
+                    Collections.singletonList(slaves.get(i).getAdditionOutputShares()));
+
+            assertEquals(expected[i], r.result, 1e-9);
+        }
+    }
+
+    @Test
+    public void fusedSteps_computeResultsOfAllSquareDivisions() {
+        List<SecureSquareDivisionMaster> masters = Arrays.asList(
+                new SecureSquareDivisionMaster(keyPair),
+                new PackedSecureSquareDivisionMaster(keyPair, new SlotPacking()));
+        List<SecureSquareDivisionSlave> slaves = Arrays.asList(
+                new SecureSquareDivisionSlave(keyPair.getPublicKey()),
+                new PackedSecureSquareDivisionSlave(keyPair.getPublicKey()));
+
+        List<Map<Object, Long>> masterCounts = Arrays.asList(counts(3, 0, 5), counts(0, 4, 2));
+        List<Map<Object, Long>> slaveCounts = Arrays.asList(counts(2, 4, 0), counts(1, 0, 3));
+
+        List<List<MultiplicationResult>> mrs = new ArrayList<>();
+        for (int i = 0; i < masters.size(); i++) {
+            List<MultiplicationResult> mr = masters.get(i).createMultiplications(masterCounts.get(i));
+            mrs.add(slaves.get(i).handleMultiplicationForwardStep(slaveCounts.get(i), mr));
+        }
+        mrs = SecureSquareDivisionSlave.handleMultiplicationBackwardSteps(slaves, mrs);
+        List<AdditionResults> ars = SecureSquareDivisionSlave.handleFusedAdditionSteps(slaves);
+
+        double[] expected = {
+                (25d + 16d + 25d) / 14d,
+                (1d + 16d + 25d) / 10d
+        };
+        for (int i = 0; i < masters.size(); i++) {
+            GiniGainResult r = masters.get(i).handleFusedBackwardStep(mrs.get(i), ars.get(i),
+                    Collections.singletonList(slaves.get(i).getAdditionOutputShares()));
+
+            assertEquals(expected[i], r.result, 1e-9);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void backwardSteps_rejectDifferentPublicKeys() {
+        KeyPair other = new PaillierKeyPairBuilder().generateKeyPair();
+
+        List<SecureSquareDivisionMaster> masters = Arrays.asList(
+                new SecureSquareDivisionMaster(keyPair), new SecureSquareDivisionMaster(other));
+        List<SecureSquareDivisionSlave> slaves = Arrays.asList(
+                new SecureSquareDivisionSlave(keyPair.getPublicKey()),
+                new SecureSquareDivisionSlave(other.getPublicKey()));
+
+        List<List<MultiplicationResult>> mrs = new ArrayList<>();
+        for (int i = 0; i < masters.size(); i++) {
+            List<MultiplicationResult> mr = masters.get(i).createMultiplications(counts(1, 2));
+            mrs.add(slaves.get(i).handleMultiplicationForwardStep(counts(3, 4), mr));
+        }
+
+        SecureSquareDivisionSlave.handleMultiplicationBackwardSteps(slaves, mrs);
+    }
+
+    private static Map<Object, Long> counts(long... values) {
+        Map<Object, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            counts.put("cv" + (i + 1), values[i]);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class ContingencyTableCacheTests {
+
+    private static final List<NodeValuePair> ROOT = Collections.emptyList();
+    private static final List<NodeValuePair> SUNNY =
+            Collections.singletonList(new NodeValuePair("outlook", "sunny"));
+
+    private List<List<NodeValuePair>> scans;
+    private int singleCounts;
+    private ContingencyTableCache subject;
+
+    @Before
+    public void beforeEach() {
+        scans = new ArrayList<>();
+        singleCounts = 0;
+
+        subject = new ContingencyTableCache(new DataLayer() {
+            @Override
+            public Map<Object, Long> countPerClassValue(List<NodeValuePair> path, String attrName,
+                                                        String attrValue) {
+                singleCounts++;
+                return table().countPerClassValue(attrName, attrValue);
+            }
+
+            @Override
+            public ContingencyTable contingencyTable(List<NodeValuePair> path) {
+                scans.add(path);
+                return table();
+            }
+        });
+    }
+
+    @Test
+    public void countPerClassValue_scansNodeOnce() {
+        assertEquals(counts(2, 1), subject.countPerClassValue(ROOT, "outlook", "sunny"));
+        assertEquals(counts(1, 0), subject.countPerClassValue(ROOT, "outlook", "rain"));
+        assertEquals(counts(1, 1), subject.countPerClassValue(ROOT, "temperature", "hot"));
+        subject.countPerClassValue(new ArrayList<>(SUNNY), "temperature", "hot");
+        subject.countPerClassValue(SUNNY, "temperature", "mild");
+
+        assertEquals(Arrays.asList(ROOT, SUNNY), scans);
+        assertEquals(0, singleCounts);
+    }
+
+    @Test
+    public void countPerClassValue_fillsMissingValuesWithZero() {
+        assertEquals(counts(0, 0), subject.countPerClassValue(ROOT, "outlook", "overcast"));
+        assertEquals(counts(0, 0), subject.countPerClassValue(ROOT, "wind", "strong"));
+    }
+
+    @Test
+    public void countPerClassValue_countsSingleValuesWithoutTable() {
+        subject = new ContingencyTableCache((path, attrName, attrValue) -> {
+            singleCounts++;
+            return counts(1, 1);
+        });
+
+        subject.countPerClassValue(ROOT, "outlook", "sunny");
+        subject.countPerClassValue(ROOT, "outlook", "rain");
+
+        assertEquals(2, singleCounts);
+        assertEquals(1, subject.size());
+    }
+
+    @Test
+    public void countPerClassValue_evictsLeastRecentlyUsedNode() {
+        subject.setMaxNodes(1);
+
+        subject.countPerClassValue(ROOT, "outlook", "sunny");
+        subject.countPerClassValue(SUNNY, "temperature", "hot");
+        subject.countPerClassValue(ROOT, "outlook", "rain");
+
+        assertEquals(Arrays.asList(ROOT, SUNNY, ROOT), scans);
+        assertEquals(1, subject.size());
+    }
+
+    @Test
+    public void setMaxNodes_zeroDisablesCache() {
+        subject.setMaxNodes(0);
+
+        subject.countPerClassValue(ROOT, "outlook", "sunny");
+        subject.countPerClassValue(ROOT, "outlook", "rain");
+
+        assertEquals(0, scans.size());
+        assertEquals(2, singleCounts);
+    }
+
+    private static ContingencyTable table() {
+        ContingencyTable table = new ContingencyTable(Arrays.asList("yes", "no"));
+        table.increment("outlook", "sunny", "yes");
+        table.increment("outlook", "sunny", "yes");
+        table.increment("outlook", "sunny", "no");
+        table.increment("outlook", "rain", "yes");
+        table.increment("temperature", "hot", "yes");
+        table.increment("temperature", "hot", "no");
+        return table;
+    }
+
+    private static Map<Object, Long> counts(long yes, long no) {
+        ContingencyTable table = new ContingencyTable(Arrays.asList("yes", "no"));
+        for (int i = 0; i < yes; i++) {
+            table.increment("a", "v", "yes");
+        }
+        for (int i = 0; i < no; i++) {
+            table.increment("a", "v", "no");
+        }
+        return table.countPerClassValue("a", "v");
+    }
+}
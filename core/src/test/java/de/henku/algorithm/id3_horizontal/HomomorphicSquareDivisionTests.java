@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
+import de.henku.computations.scheme.EcCurve;
+import de.henku.computations.scheme.EcElGamalScheme;
+import de.henku.computations.scheme.HomomorphicScheme;
+import de.henku.computations.scheme.PaillierScheme;
+import de.henku.jpaillier.KeyPair;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class HomomorphicSquareDivisionTests {
+
+    @Test
+    public void squareDivision_computesSumOfSquaresDividedBySumWithPaillier() {
+        KeyPair keyPair = new PaillierKeyPairBuilder().generateKeyPair();
+
+        assertSquareDivisions(new PaillierScheme(keyPair), new PaillierScheme(keyPair.getPublicKey()));
+    }
+
+    @Test
+    public void squareDivision_computesSumOfSquaresDividedBySumWithEcElGamal() {
+        EcElGamalScheme scheme = EcElGamalScheme.generate(EcCurve.P256, 256);
+
+        assertSquareDivisions(scheme, scheme.publicScheme());
+    }
+
+    private <C> void assertSquareDivisions(HomomorphicScheme<C> masterScheme, HomomorphicScheme<C> slaveScheme) {
+        // (5^2 + 4^2 + 5^2 + 8^2) / (5 + 4 + 5 + 8)
+        GiniGainResult r = run(masterScheme, slaveScheme, counts(3, 0, 5, 1), counts(2, 4, 0, 7));
+        assertEquals(130d / 22d, r.result, 1e-9);
+
+        r = run(masterScheme, slaveScheme, counts(0, 0, 0, 0), counts(0, 0, 0, 0));
+        assertEquals(0d, r.result, 0d);
+
+        r = run(masterScheme, slaveScheme, counts(0, 4, 0, 0), counts(0, 2, 0, 0));
+        assertEquals(6d, r.result, 1e-9);
+        assertEquals("cv2", r.classValue);
+    }
+
+    private static <C> GiniGainResult run(HomomorphicScheme<C> masterScheme, HomomorphicScheme<C> slaveScheme,
+                                          Map<Object, Long> masterCounts, Map<Object, Long> slaveCounts) {
+        HomomorphicSquareDivisionMaster<C> master = new HomomorphicSquareDivisionMaster<>(masterScheme);
+        HomomorphicSquareDivisionSlave<C> slave = new HomomorphicSquareDivisionSlave<>(slaveScheme);
+
+        EncryptedCounts<C> counts = master.encryptCounts(masterCounts);
+
+        return master.computeResult(slave.addCounts(slaveCounts, counts));
+    }
+
+    private static Map<Object, Long> counts(long... values) {
+        Map<Object, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            counts.put("cv" + (i + 1), values[i]);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import de.henku.computations.SlotPacking;
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
+import de.henku.jpaillier.KeyPair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PackedSquareDivisionTests {
+
+    private KeyPair keyPair;
+    private PackedSecureSquareDivisionMaster master;
+    private PackedSecureSquareDivisionSlave slave;
+
+    @Before
+    public void beforeEach() {
+        keyPair = new PaillierKeyPairBuilder().generateKeyPair();
+        master = new PackedSecureSquareDivisionMaster(keyPair, new SlotPacking());
+        slave = new PackedSecureSquareDivisionSlave(keyPair.getPublicKey());
+    }
+
+    @Test
+    public void createMultiplications_createsSinglePackedResult() {
+        Map<Object, Long> counts = counts(3, 0, 5, 1);
+
+        List<MultiplicationResult> results = master.createMultiplications(counts);
+
+        assertEquals(1, results.size());
+        assertTrue(PackedSecureSquareDivisionSlave.isPacked(results));
+    }
+
+    @Test
+    public void squareDivision_computesSumOfSquaresDividedBySum() {
+        Map<Object, Long> masterCounts = counts(3, 0, 5, 1);
+        Map<Object, Long> slaveCounts = counts(2, 4, 0, 7);
+
+        GiniGainResult r = run(masterCounts, slaveCounts);
+
+        // (5^2 + 4^2 + 5^2 + 8^2) / (5 + 4 + 5 + 8)
+        assertEquals(130d / 22d, r.result, 1e-9);
+    }
+
+    @Test
+    public void squareDivision_returnsZeroForEmptyValue() {
+        GiniGainResult r = run(counts(0, 0, 0, 0), counts(0, 0, 0, 0));
+
+        assertEquals(0d, r.result, 0d);
+    }
+
+    @Test
+    public void squareDivision_detectsPureValue() {
+        GiniGainResult r = run(counts(0, 4, 0, 0), counts(0, 2, 0, 0));
+
+        assertEquals(6d, r.result, 1e-9);
+        assertEquals("cv2", r.classValue);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createMultiplications_rejectsTooManySlotsForKey() {
+        master = new PackedSecureSquareDivisionMaster(keyPair, new SlotPacking(256, 40));
+
+        master.createMultiplications(counts(1, 2, 3, 4));
+    }
+
+    private GiniGainResult run(Map<Object, Long> masterCounts, Map<Object, Long> slaveCounts) {
+        List<MultiplicationResult> mr = master.createMultiplications(masterCounts);
+        mr = slave.handleMultiplicationForwardStep(slaveCounts, mr);
+        mr = slave.handleMultiplicationBackwardStep(mr);
+
+        AdditionResults ar = master.handleMultiplicationBackwardStep(mr);
+        ar = slave.handleAdditionForwardStep(ar);
+        ar = slave.handleAdditionBackwardStep(ar);
+        master.handleAdditionBackwardStep(ar);
+
+        return master.computeResult(Collections.singletonList(slave.getAdditionOutputShares()));
+    }
+
+    private static Map<Object, Long> counts(long... values) {
+        Map<Object, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            counts.put("cv" + (i + 1), values[i]);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionPojo;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionSenderAdapter;
+import de.henku.algorithm.id3_horizontal.tree.ID3Node;
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
+import de.henku.jpaillier.KeyPair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SecureID3Tests {
+
+    private static final List<String[]> ROWS = Arrays.asList(
+            new String[]{"sunny", "hot", "no"},
+            new String[]{"sunny", "mild", "no"},
+            new String[]{"sunny", "cool", "yes"},
+            new String[]{"overcast", "hot", "yes"},
+            new String[]{"overcast", "cool", "yes"},
+            new String[]{"rain", "mild", "yes"},
+            new String[]{"rain", "cool", "no"},
+            new String[]{"rain", "hot", "no"},
+            new String[]{"sunny", "cool", "yes"},
+            new String[]{"rain", "mild", "yes"});
+
+    private static final List<String> NAMES = Arrays.asList("outlook", "temperature");
+
+    private KeyPair keyPair;
+    private List<Attribute> attributes;
+
+    @Before
+    public void beforeEach() {
+        keyPair = new PaillierKeyPairBuilder().generateKeyPair();
+        attributes = Arrays.asList(
+                attribute("outlook", "sunny", "overcast", "rain"),
+                attribute("temperature", "hot", "mild", "cool"));
+    }
+
+    @Test
+    public void run_limitsSquareDivisionsInFlight() {
+        List<Integer> unlimited = new ArrayList<>();
+        ID3Node expected = train(Integer.MAX_VALUE, 1, unlimited);
+
+        List<Integer> limited = new ArrayList<>();
+        ID3Node actual = train(2, 1, limited);
+
+        assertEquals(6, (int) unlimited.get(0));
+        for (int size : limited) {
+            assertTrue(size <= 2);
+        }
+        assertSameTree(expected, actual);
+    }
+
+    @Test
+    public void run_buildsSameTreeInParallel() {
+        ID3Node expected = train(Integer.MAX_VALUE, 1, new ArrayList<>());
+        ID3Node actual = train(Integer.MAX_VALUE, 4, new CopyOnWriteArrayList<>());
+
+        assertTrue(expected.getChildren().size() > 1);
+        assertSameTree(expected, actual);
+    }
+
+    @Test
+    public void run_withFlowControlBuildsSameTree() {
+        ID3Node expected = train(Integer.MAX_VALUE, 1, new ArrayList<>());
+
+        List<Integer> batchSizes = new ArrayList<>();
+        ID3Node actual = train(Integer.MAX_VALUE, 1, batchSizes, new AimdWindow(2, 1, 2));
+
+        for (int size : batchSizes) {
+            assertTrue(size <= 2);
+        }
+        assertSameTree(expected, actual);
+    }
+
+    @Test
+    public void run_limitedStartsNextDivisionWhenOneIsComplete() {
+        List<Integer> batchSizes = new ArrayList<>();
+        train(2, 1, batchSizes);
+
+        assertEquals(2, (int) batchSizes.get(0));
+        assertEquals(1, (int) batchSizes.get(1));
+    }
+
+    @Test
+    public void run_limitedFailsIfDivisionIsRejected() {
+        try {
+            train(2, 1, new ArrayList<>(), null, 3);
+            fail("expected the rejected square division to fail the run");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setMaxInFlight_rejectsZero() {
+        new SecureID3(dataLayer(0), null, keyPair).setMaxInFlight(0);
+    }
+
+    private ID3Node train(int maxInFlight, int parallelism, List<Integer> batchSizes) {
+        return train(maxInFlight, parallelism, batchSizes, null);
+    }
+
+    private ID3Node train(int maxInFlight, int parallelism, List<Integer> batchSizes, AimdWindow window) {
+        return train(maxInFlight, parallelism, batchSizes, window, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Trains a tree of two parties, the sender rejects the batch with the
+     * number {@code rejectedBatch} and all after it.
+     */
+    private ID3Node train(int maxInFlight, int parallelism, List<Integer> batchSizes, AimdWindow window,
+                          int rejectedBatch) {
+        SquareDivisionLastController last = new SquareDivisionLastController(dataLayer(1), keyPair.getPublicKey());
+        SquareDivisionSenderAdapter sender = new SquareDivisionSenderAdapter() {
+            @Override
+            public void handleMultiplicationForwardStep(SquareDivisionPojo pojo) {
+                batchSizes.add(1);
+                reject();
+                last.handleMultiplicationForwardStep(pojo);
+            }
+
+            @Override
+            public void handleMultiplicationForwardSteps(List<SquareDivisionPojo> pojos) {
+                batchSizes.add(pojos.size());
+                reject();
+                last.handleMultiplicationForwardSteps(pojos);
+            }
+
+            @Override
+            public void handleAdditionForwardStep(long squareID, AdditionResults pojo) {
+                last.handleAdditionForwardStep(squareID, pojo);
+            }
+
+            @Override
+            public void collectOutputShares(long squareID) {
+                last.collectOutputShares(squareID);
+            }
+
+            private void reject() {
+                if (batchSizes.size() >= rejectedBatch) {
+                    throw new IllegalStateException("too many open sessions");
+                }
+            }
+        };
+
+        SecureID3 id3 = new SecureID3(dataLayer(0), sender, keyPair);
+        id3.setMaxInFlight(maxInFlight);
+        id3.setParallelism(parallelism);
+        id3.getController().setFlowControl(window);
+        last.setReceiver(id3.getController());
+
+        return id3.run(attributes, Collections.emptyList());
+    }
+
+    private static void assertSameTree(ID3Node expected, ID3Node actual) {
+        assertEquals(expected.getLabel(), actual.getLabel());
+        assertEquals(expected.getEdges(), actual.getEdges());
+
+        for (Object edge : expected.getEdges()) {
+            assertSameTree(expected.getChild(edge), actual.getChild(edge));
+        }
+    }
+
+    /**
+     * Counts the rows of one party, every party holds every second row.
+     */
+    private static DataLayer dataLayer(int party) {
+        return (path, attrName, attrValue) -> {
+            Map<Object, Long> counts = new HashMap<>();
+            counts.put("yes", 0L);
+            counts.put("no", 0L);
+
+            for (int i = party; i < ROWS.size(); i += 2) {
+                String[] row = ROWS.get(i);
+                boolean matches = row[NAMES.indexOf(attrName)].equals(attrValue);
+                for (NodeValuePair nvp : path) {
+                    matches &= row[NAMES.indexOf(nvp.getNode())].equals(nvp.getValue());
+                }
+
+                if (matches) {
+                    counts.merge(row[2], 1L, Long::sum);
+                }
+            }
+
+            return counts;
+        };
+    }
+
+    private static Attribute attribute(String name, String... values) {
+        return new Attribute(new AttributeBuilder(name) {
+        }.values(Arrays.asList(values)));
+    }
+}
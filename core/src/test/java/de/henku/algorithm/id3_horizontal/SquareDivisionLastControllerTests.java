@@ -24,6 +24,7 @@
 
 package de.henku.algorithm.id3_horizontal;
 
+import de.henku.algorithm.id3_horizontal.communication.FusedSquareDivisionPojo;
 import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
 import de.henku.algorithm.id3_horizontal.communication.SquareDivisionPojo;
 import de.henku.algorithm.id3_horizontal.communication.SquareDivisionReceiverAdapter;
@@ -32,10 +33,14 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.eq;
@@ -78,6 +83,22 @@ public class SquareDivisionLastControllerTests {
         verify(factoryHelperMock).finalize(publicKeyMock);
     }
 
+    @Test
+    public void multiplicationForwardStep_createsPackedSlaveForPackedResults() {
+        List<NodeValuePair> path = new ArrayList<>();
+
+        List<MultiplicationResult> results = new ArrayList<>();
+        results.add(new PackedMultiplicationResult(
+                Collections.<Object>singletonList("cv"), 8, mock(BigInteger.class)));
+        SquareDivisionPojo pojo = new SquareDivisionPojo(0, "attrName", "attrValue", path, results);
+
+        when(factoryHelperMock.finalizePacked(publicKeyMock)).thenReturn(compMock1);
+        subject.handleMultiplicationForwardStep(pojo);
+
+        verify(factoryHelperMock).finalizePacked(publicKeyMock);
+        verify(factoryHelperMock, never()).finalize(publicKeyMock);
+    }
+
     @Test
     public void multiplicationForwardStep_computesForwardStepOnCreatedInstance() {
         List<NodeValuePair> path = new ArrayList<>();
@@ -249,4 +270,191 @@ public class SquareDivisionLastControllerTests {
         SquareDivisionResult a2 = argument.getValue().get(0);
         assertEquals(e2, a2);
     }
+
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void multiplicationForwardSteps_callsRecieverOnceForBatch() {
+        List<NodeValuePair> path = new ArrayList<>();
+
+        List<MultiplicationResult> mr = new ArrayList<>();
+        SquareDivisionPojo pojo1 = new SquareDivisionPojo(0, "attrName", "v1", path, mr);
+        SquareDivisionPojo pojo2 = new SquareDivisionPojo(1, "attrName", "v2", path, mr);
+
+        Map<Object, Long> counts = new ConcurrentHashMap<>();
+        when(dataLayerMock.countPerClassValue(path, "attrName", "v1")).thenReturn(counts);
+
+        subject.handleMultiplicationForwardSteps(Arrays.asList(pojo1, pojo2));
+
+        verify(factoryHelperMock, times(2)).finalize(publicKeyMock);
+        verify(compMock1).handleMultiplicationForwardStep(counts, mr);
+        verify(recieverMock, never()).handleMultiplicationBackwardStep(any(SquareDivisionPojo.class));
+
+        ArgumentCaptor<List<SquareDivisionPojo>> captor = ArgumentCaptor.forClass((Class) List.class);
+        verify(recieverMock).handleMultiplicationBackwardSteps(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        assertEquals(0, captor.getValue().get(0).getId());
+        assertEquals("v2", captor.getValue().get(1).getAttrValue());
+    }
+
+    @Test
+    public void additionForwardSteps_callsRecieverOnceForBatch() {
+        List<NodeValuePair> path = new ArrayList<>();
+
+        List<MultiplicationResult> mr = new ArrayList<>();
+        subject.handleMultiplicationForwardStep(new SquareDivisionPojo(0, "attrName", "v1", path, mr));
+        subject.handleMultiplicationForwardStep(new SquareDivisionPojo(1, "attrName", "v2", path, mr));
+
+        AdditionResults results1 = mock(AdditionResults.class);
+        AdditionResults results2 = mock(AdditionResults.class);
+        subject.handleAdditionForwardSteps(Arrays.asList(0L, 1L), Arrays.asList(results1, results2));
+
+        verify(compMock1).handleAdditionForwardStep(results1);
+        verify(compMock2).handleAdditionForwardStep(results2);
+        verify(recieverMock, never()).handleAdditionBackwardStep(anyLong(), any(AdditionResults.class));
+        verify(recieverMock).handleAdditionBackwardSteps(eq(Arrays.asList(0L, 1L)), anyListOf(AdditionResults.class));
+    }
+
+    @Test
+    public void collectOutputSharesOfBatch_callsRecieverOnce() {
+        List<NodeValuePair> path = new ArrayList<>();
+
+        List<MultiplicationResult> mr = new ArrayList<>();
+        subject.handleMultiplicationForwardStep(new SquareDivisionPojo(0, "attrName", "v1", path, mr));
+        subject.handleMultiplicationForwardStep(new SquareDivisionPojo(1, "attrName", "v2", path, mr));
+
+        SquareDivisionResult e1 = mock(SquareDivisionResult.class);
+        SquareDivisionResult e2 = mock(SquareDivisionResult.class);
+        when(compMock1.getAdditionOutputShares()).thenReturn(e1);
+        when(compMock2.getAdditionOutputShares()).thenReturn(e2);
+
+        subject.collectOutputShares(Arrays.asList(0L, 1L));
+
+        verify(recieverMock).handleCollectOutputShares(Arrays.asList(0L, 1L),
+                Arrays.asList(Collections.singletonList(e1), Collections.singletonList(e2)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void fusedMultiplicationForwardStep_repliesWithAdditionsAndOutputShares() {
+        List<NodeValuePair> path = new ArrayList<>();
+        List<MultiplicationResult> results = new ArrayList<>();
+
+        List<MultiplicationResult> backResults = new ArrayList<>();
+        when(compMock1.handleMultiplicationBackwardStep(anyListOf(MultiplicationResult.class))).thenReturn(backResults);
+
+        AdditionResults ar = mock(AdditionResults.class);
+        when(compMock1.completeAdditionBackwardStep(any(AdditionResults.class), anyList())).thenReturn(ar);
+
+        SquareDivisionResult sr = mock(SquareDivisionResult.class);
+        when(compMock1.getAdditionOutputShares()).thenReturn(sr);
+
+        subject.handleMultiplicationForwardStep(new FusedSquareDivisionPojo(0, "attrName", "attrValue", path, results));
+
+        ArgumentCaptor<SquareDivisionPojo> captor = ArgumentCaptor.forClass(SquareDivisionPojo.class);
+        verify(recieverMock).handleMultiplicationBackwardStep(captor.capture());
+
+        FusedSquareDivisionPojo reply = (FusedSquareDivisionPojo) captor.getValue();
+        assertEquals(backResults, reply.getResults());
+        assertEquals(ar, reply.getAdditionResults());
+        assertEquals(Collections.singletonList(sr), reply.getOutputShares());
+    }
+
+    @Test
+    public void additionForwardStep_returnsSumsToParentInAdditionTree() {
+        SquareDivisionReceiverAdapter parentMock = mock(SquareDivisionReceiverAdapter.class);
+        subject.setAdditionTree(parentMock);
+
+        List<MultiplicationResult> mr = new ArrayList<>();
+        subject.handleMultiplicationForwardStep(new SquareDivisionPojo(0, "attrName", "v1", new ArrayList<>(), mr));
+
+        AdditionResults results = mock(AdditionResults.class);
+        AdditionResults frMock = mock(AdditionResults.class);
+        when(compMock1.handleAdditionForwardStep(results)).thenReturn(frMock);
+
+        subject.handleAdditionForwardStep(0, results);
+
+        verify(parentMock).handleAdditionBackwardStep(0, frMock);
+        verify(compMock1, never()).handleAdditionBackwardStep(frMock);
+        verify(recieverMock, never()).handleAdditionBackwardStep(eq(0L), any(AdditionResults.class));
+    }
+
+    @Test
+    public void multiplicationForwardSteps_reportsBatchBeyondSessionCap() {
+        subject.setMaxSessions(1);
+        List<MultiplicationResult> mr = new ArrayList<>();
+        List<NodeValuePair> path = new ArrayList<>();
+
+        subject.handleMultiplicationForwardSteps(Arrays.asList(
+                new SquareDivisionPojo(0, "attrName", "v1", path, mr),
+                new SquareDivisionPojo(1, "attrName", "v2", path, mr)));
+
+        assertEquals(0, subject.getLiveSessions());
+        assertEquals(0, subject.getRetainedBytes());
+        verify(recieverMock).handleFailedSquareDivisions(Arrays.asList(0L, 1L));
+        verify(recieverMock, never()).handleMultiplicationBackwardSteps(anyListOf(SquareDivisionPojo.class));
+    }
+
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void multiplicationForwardSteps_failsOnlyTheThrowingDivision() {
+        List<MultiplicationResult> mr = new ArrayList<>();
+        List<NodeValuePair> path = new ArrayList<>();
+        when(dataLayerMock.countPerClassValue(path, "attrName", "v1")).thenThrow(new IllegalArgumentException());
+
+        subject.handleMultiplicationForwardSteps(Arrays.asList(
+                new SquareDivisionPojo(0, "attrName", "v1", path, mr),
+                new SquareDivisionPojo(1, "attrName", "v2", path, mr)));
+
+        assertEquals(1, subject.getLiveSessions());
+        verify(recieverMock).handleFailedSquareDivisions(Collections.singletonList(0L));
+
+        ArgumentCaptor<List<SquareDivisionPojo>> captor = ArgumentCaptor.forClass((Class) List.class);
+        verify(recieverMock).handleMultiplicationBackwardSteps(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals(1, captor.getValue().get(0).getId());
+    }
+
+    @Test
+    public void additionForwardSteps_failsOnlyTheThrowingDivision() {
+        List<MultiplicationResult> mr = new ArrayList<>();
+        subject.handleMultiplicationForwardStep(new SquareDivisionPojo(0, "attrName", "v1", new ArrayList<>(), mr));
+        subject.handleMultiplicationForwardStep(new SquareDivisionPojo(1, "attrName", "v2", new ArrayList<>(), mr));
+
+        AdditionResults results1 = mock(AdditionResults.class);
+        AdditionResults results2 = mock(AdditionResults.class);
+        when(compMock1.handleAdditionForwardStep(results1)).thenThrow(new ArithmeticException());
+
+        subject.handleAdditionForwardSteps(Arrays.asList(0L, 1L), Arrays.asList(results1, results2));
+
+        assertEquals(1, subject.getLiveSessions());
+        verify(recieverMock).handleFailedSquareDivisions(Collections.singletonList(0L));
+        verify(recieverMock).handleAdditionBackwardSteps(eq(Collections.singletonList(1L)),
+                anyListOf(AdditionResults.class));
+    }
+
+    @Test
+    public void expireSessions_reportsExpiredDivision() throws InterruptedException {
+        subject.setSessionTimeout(1, TimeUnit.MILLISECONDS);
+        subject.stopSessionSweeper();
+        subject.handleMultiplicationForwardStep(
+                new SquareDivisionPojo(0, "attrName", "v1", new ArrayList<>(), new ArrayList<>()));
+        Thread.sleep(5);
+
+        assertEquals(1, subject.expireSessions());
+
+        verify(recieverMock).handleFailedSquareDivisions(Collections.singletonList(0L));
+    }
+
+    @Test
+    public void collectOutputShares_removesSession() {
+        List<MultiplicationResult> mr = new ArrayList<>();
+        subject.handleMultiplicationForwardStep(new SquareDivisionPojo(0, "attrName", "v1", new ArrayList<>(), mr));
+        assertEquals(1, subject.getLiveSessions());
+
+        subject.collectOutputShares(0);
+        subject.collectOutputShares(0);
+
+        assertEquals(0, subject.getLiveSessions());
+        verify(recieverMock, times(1)).handleCollectOutputShares(eq(0L), anyListOf(SquareDivisionResult.class));
+    }
 }
@@ -24,21 +24,27 @@
 
 package de.henku.algorithm.id3_horizontal;
 
+import de.henku.algorithm.id3_horizontal.communication.FusedSquareDivisionPojo;
 import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
 import de.henku.algorithm.id3_horizontal.communication.SquareDivisionPojo;
 import de.henku.algorithm.id3_horizontal.communication.SquareDivisionSenderAdapter;
+import de.henku.computations.SlotPacking;
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
 import de.henku.jpaillier.KeyPair;
-import de.henku.jpaillier.KeyPairBuilder;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -51,17 +57,18 @@ public class SquareDivisionMasterControllerTests {
     private DataLayer dataLayerMock;
     private SquareDivisionSenderAdapter senderMock;
     private SecureSquareDivisionMaster squareDivisionMock;
+    private SecureSquareDivisionMaster sdMock2;
 
     @Before
     public void beforeEach() {
         dataLayerMock = mock(DataLayer.class);
         senderMock = mock(SquareDivisionSenderAdapter.class);
 
-        keyPair = new KeyPairBuilder().generateKeyPair();
+        keyPair = new PaillierKeyPairBuilder().generateKeyPair();
         factoryHelper = mock(SquareDivisionMasterController.FactoryHelper.class);
 
         squareDivisionMock = mock(SecureSquareDivisionMaster.class);
-        SecureSquareDivisionMaster sdMock2 = mock(SecureSquareDivisionMaster.class);
+        sdMock2 = mock(SecureSquareDivisionMaster.class);
         when(factoryHelper.finalize(keyPair)).thenReturn(squareDivisionMock, sdMock2);
 
         subject = new SquareDivisionMasterController(dataLayerMock, senderMock,
@@ -76,6 +83,19 @@ public class SquareDivisionMasterControllerTests {
         verify(factoryHelper).finalize(keyPair);
     }
 
+    @Test
+    public void compute_createsPackedSquareDivisionIfPackingIsSet() {
+        SlotPacking packing = new SlotPacking();
+        when(factoryHelper.finalize(keyPair, packing)).thenReturn(squareDivisionMock);
+        subject.setPacking(packing);
+
+        List<NodeValuePair> path = new ArrayList<NodeValuePair>();
+        subject.compute("attrName", "attrValue", path);
+
+        verify(factoryHelper).finalize(keyPair, packing);
+        verify(factoryHelper, never()).finalize(keyPair);
+    }
+
     @Test
     public void compute_createsMultiplications() {
         List<NodeValuePair> path = new ArrayList<NodeValuePair>();
@@ -199,4 +219,346 @@ public class SquareDivisionMasterControllerTests {
 
         assertEquals(e, f.get());
     }
+
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void computeAll_sendsSingleBatch() {
+        List<NodeValuePair> path = new ArrayList<NodeValuePair>();
+        List<NodeValuePair> attributeValues = Arrays.asList(
+                new NodeValuePair("a", "x"), new NodeValuePair("b", "y"));
+
+        List<CompletableFuture<GiniGainResult>> futures = subject.computeAll(attributeValues, path);
+
+        assertEquals(2, futures.size());
+        verify(senderMock, never()).handleMultiplicationForwardStep(any(SquareDivisionPojo.class));
+
+        ArgumentCaptor<List<SquareDivisionPojo>> captor = ArgumentCaptor.forClass((Class) List.class);
+        verify(senderMock).handleMultiplicationForwardSteps(captor.capture());
+
+        List<SquareDivisionPojo> pojos = captor.getValue();
+        assertEquals(2, pojos.size());
+        assertEquals(0, pojos.get(0).getId());
+        assertEquals("a", pojos.get(0).getAttrName());
+        assertEquals(1, pojos.get(1).getId());
+        assertEquals("y", pojos.get(1).getAttrValue());
+    }
+
+    @Test
+    public void multiplicationBackwardSteps_sendsAdditionBatch() {
+        List<NodeValuePair> path = new ArrayList<NodeValuePair>();
+        subject.computeAll(Arrays.asList(new NodeValuePair("a", "x"), new NodeValuePair("a", "y")), path);
+
+        List<MultiplicationResult> mr1 = new ArrayList<MultiplicationResult>();
+        List<MultiplicationResult> mr2 = new ArrayList<MultiplicationResult>();
+        AdditionResults ar1 = mock(AdditionResults.class);
+        AdditionResults ar2 = mock(AdditionResults.class);
+        when(squareDivisionMock.handleMultiplicationBackwardStep(mr1)).thenReturn(ar1);
+        when(sdMock2.handleMultiplicationBackwardStep(mr2)).thenReturn(ar2);
+
+        subject.handleMultiplicationBackwardSteps(Arrays.asList(
+                new SquareDivisionPojo(1, "a", "y", path, mr2),
+                new SquareDivisionPojo(0, "a", "x", path, mr1)));
+
+        verify(senderMock).handleAdditionForwardSteps(Arrays.asList(1L, 0L), Arrays.asList(ar2, ar1));
+    }
+
+    @Test
+    public void multiplicationBackwardSteps_failsOnlyTheThrowingDivision() throws InterruptedException, ExecutionException {
+        List<NodeValuePair> path = new ArrayList<NodeValuePair>();
+        List<CompletableFuture<GiniGainResult>> futures =
+                subject.computeAll(Arrays.asList(new NodeValuePair("a", "x"), new NodeValuePair("a", "y")), path);
+
+        List<MultiplicationResult> mr1 = new ArrayList<MultiplicationResult>();
+        List<MultiplicationResult> mr2 = new ArrayList<MultiplicationResult>();
+        AdditionResults ar2 = mock(AdditionResults.class);
+        when(squareDivisionMock.handleMultiplicationBackwardStep(mr1)).thenThrow(new ArithmeticException("not invertible"));
+        when(sdMock2.handleMultiplicationBackwardStep(mr2)).thenReturn(ar2);
+
+        subject.handleMultiplicationBackwardSteps(Arrays.asList(
+                new SquareDivisionPojo(0, "a", "x", path, mr1),
+                new SquareDivisionPojo(1, "a", "y", path, mr2)));
+
+        assertTrue(futures.get(0).isCompletedExceptionally());
+        assertFalse(futures.get(1).isDone());
+        assertEquals(1, subject.getLiveSessions());
+        verify(senderMock).handleAdditionForwardSteps(Arrays.asList(1L), Arrays.asList(ar2));
+    }
+
+    @Test
+    public void additionBackwardSteps_collectsOutputSharesOfBatch() {
+        List<NodeValuePair> path = new ArrayList<NodeValuePair>();
+        subject.computeAll(Arrays.asList(new NodeValuePair("a", "x"), new NodeValuePair("a", "y")), path);
+
+        AdditionResults ar1 = mock(AdditionResults.class);
+        AdditionResults ar2 = mock(AdditionResults.class);
+        subject.handleAdditionBackwardSteps(Arrays.asList(0L, 1L), Arrays.asList(ar1, ar2));
+
+        verify(squareDivisionMock).handleAdditionBackwardStep(ar1);
+        verify(sdMock2).handleAdditionBackwardStep(ar2);
+        verify(senderMock).collectOutputShares(Arrays.asList(0L, 1L));
+    }
+
+    @Test
+    public void collectOutputSharesOfBatch_completesAllFutures() throws InterruptedException, ExecutionException {
+        List<NodeValuePair> path = new ArrayList<NodeValuePair>();
+        List<CompletableFuture<GiniGainResult>> futures =
+                subject.computeAll(Arrays.asList(new NodeValuePair("a", "x"), new NodeValuePair("a", "y")), path);
+
+        List<SquareDivisionResult> sr1 = new ArrayList<>();
+        List<SquareDivisionResult> sr2 = new ArrayList<>();
+        GiniGainResult e1 = new GiniGainResult("x", 0.1);
+        GiniGainResult e2 = new GiniGainResult("y", 0.2);
+        when(squareDivisionMock.computeResult(sr1)).thenReturn(e1);
+        when(sdMock2.computeResult(sr2)).thenReturn(e2);
+
+        subject.handleCollectOutputShares(Arrays.asList(0L, 1L), Arrays.asList(sr1, sr2));
+
+        assertEquals(e1, futures.get(0).get());
+        assertEquals(e2, futures.get(1).get());
+    }
+
+    @Test
+    public void compute_sendsFusedPojoIfFusedRoundsAreEnabled() {
+        subject.setFusedRounds(true);
+        subject.compute("attrName", "attrValue", new ArrayList<NodeValuePair>());
+
+        ArgumentCaptor<SquareDivisionPojo> captor = ArgumentCaptor.forClass(SquareDivisionPojo.class);
+        verify(senderMock).handleMultiplicationForwardStep(captor.capture());
+
+        assertTrue(captor.getValue() instanceof FusedSquareDivisionPojo);
+        assertFalse(((FusedSquareDivisionPojo) captor.getValue()).isReply());
+    }
+
+    @Test
+    public void fusedReply_completesFutureWithoutAdditionRound() throws InterruptedException, ExecutionException {
+        List<NodeValuePair> path = new ArrayList<NodeValuePair>();
+        subject.setFusedRounds(true);
+        List<CompletableFuture<GiniGainResult>> futures =
+                subject.computeAll(Arrays.asList(new NodeValuePair("a", "x"), new NodeValuePair("a", "y")), path);
+
+        List<MultiplicationResult> mr = new ArrayList<MultiplicationResult>();
+        AdditionResults ar = mock(AdditionResults.class);
+        List<SquareDivisionResult> sr = new ArrayList<>();
+        GiniGainResult e = new GiniGainResult("y", 0.2);
+        when(sdMock2.handleFusedBackwardStep(mr, ar, sr)).thenReturn(e);
+
+        subject.handleMultiplicationBackwardSteps(Arrays.<SquareDivisionPojo>asList(
+                new FusedSquareDivisionPojo(1, "a", "y", path, mr, ar, sr)));
+
+        assertEquals(e, futures.get(1).get());
+        assertFalse(futures.get(0).isDone());
+        verify(senderMock, never()).handleAdditionForwardSteps(anyListOf(Long.class), anyListOf(AdditionResults.class));
+    }
+
+    @Test
+    public void fusedReply_ignoresDuplicateReplyDeliveredMeanwhile() throws InterruptedException, ExecutionException {
+        List<NodeValuePair> path = new ArrayList<NodeValuePair>();
+        subject.setFusedRounds(true);
+        List<CompletableFuture<GiniGainResult>> futures =
+                subject.computeAll(Arrays.asList(new NodeValuePair("a", "x"), new NodeValuePair("a", "y")), path);
+
+        List<MultiplicationResult> mr = new ArrayList<MultiplicationResult>();
+        AdditionResults ar = mock(AdditionResults.class);
+        List<SquareDivisionResult> sr = new ArrayList<>();
+        FusedSquareDivisionPojo reply = new FusedSquareDivisionPojo(0, "a", "x", path, mr, ar, sr);
+        GiniGainResult x = new GiniGainResult("x", 0.1);
+        GiniGainResult y = new GiniGainResult("y", 0.2);
+        when(squareDivisionMock.handleFusedBackwardStep(mr, ar, sr)).thenAnswer(invocation -> {
+            // a duplicate of the reply arrives while the first one is handled
+            subject.handleMultiplicationBackwardStep(reply);
+            return x;
+        });
+        when(sdMock2.handleFusedBackwardStep(mr, ar, sr)).thenReturn(y);
+
+        subject.handleMultiplicationBackwardSteps(Arrays.<SquareDivisionPojo>asList(
+                reply, new FusedSquareDivisionPojo(1, "a", "y", path, mr, ar, sr)));
+
+        assertEquals(x, futures.get(0).get());
+        assertEquals(y, futures.get(1).get());
+        assertEquals(0, subject.getLiveSessions());
+    }
+
+    @Test
+    public void collectOutputShares_removesCompletedSession() {
+        subject.compute("attrName", "attrValue", new ArrayList<NodeValuePair>());
+        assertEquals(1, subject.getLiveSessions());
+
+        subject.handleCollectOutputShares(0, new ArrayList<SquareDivisionResult>());
+
+        assertEquals(0, subject.getLiveSessions());
+        assertEquals(0, subject.getRetainedBytes());
+
+        // a late reply for the completed division is ignored
+        subject.handleAdditionBackwardStep(0, mock(AdditionResults.class));
+        verify(senderMock, never()).collectOutputShares(0);
+    }
+
+    @Test
+    public void expireSessions_failsFutureOfAbandonedDivision() throws InterruptedException {
+        subject.setSessionTimeout(1, TimeUnit.MILLISECONDS);
+        subject.stopSessionSweeper();
+        CompletableFuture<GiniGainResult> f = subject.compute("attrName", "attrValue", new ArrayList<NodeValuePair>());
+        Thread.sleep(5);
+
+        assertEquals(1, subject.expireSessions());
+
+        assertTrue(f.isCompletedExceptionally());
+        assertEquals(0, subject.getLiveSessions());
+        try {
+            f.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void setSessionTimeout_failsFutureOfDroppedReplyWithoutFurtherCompute() throws Exception {
+        subject.setSessionTimeout(20, TimeUnit.MILLISECONDS);
+        CompletableFuture<GiniGainResult> f = subject.compute("attrName", "attrValue", new ArrayList<NodeValuePair>());
+
+        // the reply is never delivered and no further division is started
+        try {
+            f.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        } finally {
+            subject.stopSessionSweeper();
+        }
+
+        assertEquals(0, subject.getLiveSessions());
+    }
+
+    @Test
+    public void handleFailedSquareDivisions_failsFuture() throws InterruptedException {
+        CompletableFuture<GiniGainResult> f = subject.compute("attrName", "attrValue", new ArrayList<NodeValuePair>());
+
+        subject.handleFailedSquareDivisions(Arrays.asList(0L, 7L));
+
+        assertTrue(f.isCompletedExceptionally());
+        assertEquals(0, subject.getLiveSessions());
+        try {
+            f.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void computeAll_abandonsBatchBeyondSessionCap() {
+        subject.setMaxSessions(1);
+
+        try {
+            subject.computeAll(Arrays.asList(new NodeValuePair("a", "x"), new NodeValuePair("a", "y")),
+                    new ArrayList<NodeValuePair>());
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertEquals(0, subject.getLiveSessions());
+        verify(senderMock, never()).handleMultiplicationForwardSteps(anyListOf(SquareDivisionPojo.class));
+    }
+
+    @Test
+    public void computeAll_abandonsBatchThatCannotBeSent() {
+        doThrow(new IllegalStateException("connection lost"))
+                .when(senderMock).handleMultiplicationForwardSteps(anyListOf(SquareDivisionPojo.class));
+
+        try {
+            subject.computeAll(Arrays.asList(new NodeValuePair("a", "x"), new NodeValuePair("a", "y")),
+                    new ArrayList<NodeValuePair>());
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertEquals(0, subject.getLiveSessions());
+        assertEquals(0, subject.getRetainedBytes());
+    }
+
+    @Test
+    public void computeAll_abandonsBatchIfDivisionCannotBeStarted() {
+        when(sdMock2.createMultiplications(anyMapOf(Object.class, Long.class)))
+                .thenThrow(new IllegalArgumentException("broken counts"));
+
+        try {
+            subject.computeAll(Arrays.asList(new NodeValuePair("a", "x"), new NodeValuePair("a", "y")),
+                    new ArrayList<NodeValuePair>());
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        assertEquals(0, subject.getLiveSessions());
+        verify(senderMock, never()).handleMultiplicationForwardSteps(anyListOf(SquareDivisionPojo.class));
+    }
+
+    @Test
+    public void flowControl_queuesDivisionsBeyondWindow() {
+        subject.setFlowControl(new AimdWindow(2, 1, 2));
+        List<NodeValuePair> path = new ArrayList<NodeValuePair>();
+
+        List<CompletableFuture<GiniGainResult>> futures = subject.computeAll(Arrays.asList(
+                new NodeValuePair("a", "x"), new NodeValuePair("a", "y"), new NodeValuePair("a", "z")), path);
+
+        assertEquals(3, futures.size());
+        assertEquals(1, subject.getQueueDepth());
+        assertEquals(2, subject.getWindowSize());
+        verify(senderMock).handleMultiplicationForwardSteps(anyListOf(SquareDivisionPojo.class));
+        verify(senderMock, never()).handleMultiplicationForwardStep(any(SquareDivisionPojo.class));
+
+        subject.handleCollectOutputShares(0, new ArrayList<SquareDivisionResult>());
+
+        assertTrue(futures.get(0).isDone());
+        assertEquals(0, subject.getQueueDepth());
+
+        ArgumentCaptor<SquareDivisionPojo> captor = ArgumentCaptor.forClass(SquareDivisionPojo.class);
+        verify(senderMock).handleMultiplicationForwardStep(captor.capture());
+        assertEquals(2, captor.getValue().getId());
+        assertEquals("z", captor.getValue().getAttrValue());
+    }
+
+    @Test
+    public void flowControl_failsDivisionThatCannotBeStartedAndReturnsItsSlot() {
+        subject.setFlowControl(new AimdWindow(1, 1, 1));
+        when(squareDivisionMock.createMultiplications(anyMapOf(Object.class, Long.class)))
+                .thenThrow(new IllegalArgumentException("broken counts"));
+
+        CompletableFuture<GiniGainResult> failed = subject.compute("a", "x", new ArrayList<NodeValuePair>());
+        subject.compute("a", "y", new ArrayList<NodeValuePair>());
+
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(1, subject.getLiveSessions());
+        assertEquals(0, subject.getQueueDepth());
+        verify(senderMock).handleMultiplicationForwardStep(any(SquareDivisionPojo.class));
+    }
+
+    @Test
+    public void flowControl_failsBatchThatCannotBeSentAndReturnsItsSlots() {
+        subject.setFlowControl(new AimdWindow(2, 1, 2));
+        doThrow(new IllegalStateException("connection lost"))
+                .when(senderMock).handleMultiplicationForwardSteps(anyListOf(SquareDivisionPojo.class));
+        List<NodeValuePair> path = new ArrayList<NodeValuePair>();
+
+        List<CompletableFuture<GiniGainResult>> futures = subject.computeAll(Arrays.asList(
+                new NodeValuePair("a", "x"), new NodeValuePair("a", "y")), path);
+
+        assertTrue(futures.get(0).isCompletedExceptionally());
+        assertTrue(futures.get(1).isCompletedExceptionally());
+        assertEquals(0, subject.getLiveSessions());
+
+        // the window has room again
+        subject.compute("a", "z", path);
+        verify(senderMock).handleMultiplicationForwardStep(any(SquareDivisionPojo.class));
+        assertEquals(0, subject.getQueueDepth());
+    }
+
+    @Test
+    public void flowControl_isDisabledByDefault() {
+        assertEquals(-1, subject.getWindowSize());
+        assertEquals(0, subject.getQueueDepth());
+    }
 }
@@ -25,13 +25,16 @@
 package de.henku.algorithm.id3_horizontal;
 
 import de.henku.computations.SecureComputationMaster;
+import de.henku.computations.concurrent.CryptoExecutor;
+import de.henku.computations.paillier.CrtDecryptor;
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
 import de.henku.jpaillier.KeyPair;
-import de.henku.jpaillier.KeyPairBuilder;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -40,6 +43,7 @@ import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -53,10 +57,11 @@ public class SquareDivisionMasterTests {
     private SecureSquareDivisionMaster.FactoryHelper factoryHelper;
     private SecureComputationMaster compMock2;
     private SecureComputationMaster compMock1;
+    private CrtDecryptor decryptorMock;
 
     @Before
     public void beforeEach() {
-        keyPair = new KeyPairBuilder().generateKeyPair();
+        keyPair = new PaillierKeyPairBuilder().generateKeyPair();
         factoryHelper = mock(SecureSquareDivisionMaster.FactoryHelper.class);
 
         compMock1 = mock(SecureComputationMaster.class);
@@ -68,6 +73,11 @@ public class SquareDivisionMasterTests {
         when(compMock1.getPrivateInput()).thenReturn(BigInteger.valueOf(INPUT_1));
         when(compMock2.getPrivateInput()).thenReturn(BigInteger.valueOf(INPUT_2));
 
+        decryptorMock = mock(CrtDecryptor.class);
+        when(factoryHelper.decryptor(keyPair)).thenReturn(decryptorMock);
+        when(decryptorMock.decryptAll(anyListOf(BigInteger.class), any(CryptoExecutor.class))).thenAnswer(
+                invocation -> new ArrayList<>((List<?>) invocation.getArguments()[0]));
+
         subject = new SecureSquareDivisionMaster(keyPair, factoryHelper);
     }
 
@@ -142,8 +152,9 @@ public class SquareDivisionMasterTests {
 
         subject.handleMultiplicationBackwardStep(results);
 
-        verify(compMock1).decryptAndSetOutputShare(r1);
-        verify(compMock2).decryptAndSetOutputShare(r2);
+        verify(decryptorMock).decryptAll(eq(Arrays.asList(r1, r2)), any(CryptoExecutor.class));
+        verify(compMock1).setDecryptedOutputShare(r1);
+        verify(compMock2).setDecryptedOutputShare(r2);
     }
 
     @Test
@@ -263,7 +274,8 @@ public class SquareDivisionMasterTests {
         AdditionResults addResults = new AdditionResults(zr, wr);
         subject.handleAdditionBackwardStep(addResults);
 
-        verify(zMock).decryptAndSetOutputShare(zr);
-        verify(wMock).decryptAndSetOutputShare(wr);
+        verify(decryptorMock).decryptAll(eq(Arrays.asList(zr, wr)), any(CryptoExecutor.class));
+        verify(zMock).setDecryptedOutputShare(zr);
+        verify(wMock).setDecryptedOutputShare(wr);
     }
 }
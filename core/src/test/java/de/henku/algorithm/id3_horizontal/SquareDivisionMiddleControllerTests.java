@@ -0,0 +1,223 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import de.henku.algorithm.id3_horizontal.communication.FusedSquareDivisionPojo;
+import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionReceiverAdapter;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionSenderAdapter;
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
+import de.henku.jpaillier.KeyPair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class SquareDivisionMiddleControllerTests {
+
+    private static final List<NodeValuePair> ROOT = Collections.emptyList();
+
+    private KeyPair keyPair;
+    private SquareDivisionLastController last;
+
+    @Before
+    public void beforeEach() {
+        keyPair = new PaillierKeyPairBuilder().generateKeyPair();
+    }
+
+    @Test
+    public void compute_withThreeParties() throws Exception {
+        List<Map<Object, Long>> counts = Arrays.asList(
+                counts(3, 1), counts(0, 4), counts(2, 2));
+
+        SquareDivisionMasterController master = chain(counts, new ArrayList<>());
+
+        assertEquals(expected(counts), master.compute("a", "v", ROOT).get().getResult(), 1e-9);
+    }
+
+    @Test
+    public void computeAll_withFivePartiesInBatches() throws Exception {
+        List<Map<Object, Long>> counts = Arrays.asList(
+                counts(3, 1), counts(0, 4), counts(2, 2), counts(7, 0), counts(1, 5));
+
+        List<SquareDivisionMiddleController> middles = new ArrayList<>();
+        SquareDivisionMasterController master = chain(counts, middles);
+
+        List<CompletableFuture<GiniGainResult>> results = master.computeAll(
+                Arrays.asList(new NodeValuePair("a", "v"), new NodeValuePair("a", "w")), ROOT);
+
+        for (CompletableFuture<GiniGainResult> f : results) {
+            assertEquals(expected(counts), f.get().getResult(), 1e-9);
+        }
+        for (SquareDivisionMiddleController m : middles) {
+            assertEquals(0, m.getLiveSessions());
+        }
+    }
+
+    @Test
+    public void computeAll_withAdditionTree() throws Exception {
+        List<Map<Object, Long>> counts = Arrays.asList(
+                counts(3, 1), counts(0, 4), counts(2, 2), counts(7, 0), counts(1, 5));
+
+        List<SquareDivisionMiddleController> middles = new ArrayList<>();
+        SquareDivisionMasterController master = chain(counts, middles);
+
+        // the root P2 aggregates P3 and P4, P3 aggregates the last party P5
+        SquareDivisionMiddleController p2 = middles.get(2);
+        SquareDivisionMiddleController p3 = middles.get(1);
+        SquareDivisionMiddleController p4 = middles.get(0);
+        p2.setAdditionTree(null, Arrays.asList(p3, p4));
+        p3.setAdditionTree(p2, Collections.singletonList(last));
+        p4.setAdditionTree(p2, Collections.emptyList());
+        last.setAdditionTree(p3);
+
+        List<CompletableFuture<GiniGainResult>> results = master.computeAll(
+                Arrays.asList(new NodeValuePair("a", "v"), new NodeValuePair("a", "w")), ROOT);
+        results.add(master.compute("a", "x", ROOT));
+
+        for (CompletableFuture<GiniGainResult> f : results) {
+            assertEquals(expected(counts), f.get().getResult(), 1e-9);
+        }
+        for (SquareDivisionMiddleController m : middles) {
+            assertEquals(0, m.getLiveSessions());
+        }
+    }
+
+    @Test
+    public void computeAll_failsBatchRejectedByLastParty() {
+        List<Map<Object, Long>> counts = Arrays.asList(counts(3, 1), counts(0, 4), counts(2, 2));
+
+        List<SquareDivisionMiddleController> middles = new ArrayList<>();
+        SquareDivisionMasterController master = chain(counts, middles);
+        last.setMaxSessions(1);
+
+        List<CompletableFuture<GiniGainResult>> results = master.computeAll(
+                Arrays.asList(new NodeValuePair("a", "v"), new NodeValuePair("a", "w")), ROOT);
+
+        for (CompletableFuture<GiniGainResult> f : results) {
+            assertTrue(f.isCompletedExceptionally());
+        }
+        assertEquals(0, middles.get(0).getLiveSessions());
+        assertEquals(0, middles.get(0).getRetainedBytes());
+        assertEquals(0, master.getLiveSessions());
+    }
+
+    @Test
+    public void handleCollectOutputShares_ignoresUnknownSquareDivision() {
+        SquareDivisionMiddleController subject = new SquareDivisionMiddleController(
+                mock(DataLayer.class), keyPair.getPublicKey());
+        SquareDivisionReceiverAdapter receiver = mock(SquareDivisionReceiverAdapter.class);
+        subject.setReceiver(receiver);
+
+        subject.handleCollectOutputShares(42, new ArrayList<>());
+
+        verifyZeroInteractions(receiver);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void handleMultiplicationForwardStep_rejectsFusedSquareDivision() {
+        SquareDivisionMiddleController subject = new SquareDivisionMiddleController(
+                mock(DataLayer.class), keyPair.getPublicKey());
+        subject.setSender(mock(SquareDivisionSenderAdapter.class));
+
+        subject.handleMultiplicationForwardStep(
+                new FusedSquareDivisionPojo(0, "a", "v", ROOT, new ArrayList<>()));
+    }
+
+    /**
+     * Connects a master, a middle party per inner element of the counts and
+     * a last party.
+     */
+    private SquareDivisionMasterController chain(List<Map<Object, Long>> counts,
+                                                 List<SquareDivisionMiddleController> middles) {
+        last = new SquareDivisionLastController(
+                dataLayer(counts.get(counts.size() - 1)), keyPair.getPublicKey());
+
+        SquareDivisionSenderAdapter next = last;
+        SquareDivisionMiddleController previous = null;
+        for (int i = counts.size() - 2; i > 0; i--) {
+            SquareDivisionMiddleController m = new SquareDivisionMiddleController(
+                    dataLayer(counts.get(i)), keyPair.getPublicKey());
+            m.setSender(next);
+            if (previous == null) {
+                last.setReceiver(m);
+            } else {
+                previous.setReceiver(m);
+            }
+
+            middles.add(m);
+            previous = m;
+            next = m;
+        }
+
+        SquareDivisionMasterController master = new SquareDivisionMasterController(
+                dataLayer(counts.get(0)), next, keyPair);
+        if (previous == null) {
+            last.setReceiver(master);
+        } else {
+            previous.setReceiver(master);
+        }
+
+        return master;
+    }
+
+    private static double expected(List<Map<Object, Long>> counts) {
+        Map<Object, Long> sums = new HashMap<>();
+        for (Map<Object, Long> c : counts) {
+            c.forEach((cv, count) -> sums.merge(cv, count, Long::sum));
+        }
+
+        long z = 0;
+        long w = 0;
+        for (long sum : sums.values()) {
+            z += sum * sum;
+            w += sum;
+        }
+
+        return (double) z / w;
+    }
+
+    private static Map<Object, Long> counts(long yes, long no) {
+        Map<Object, Long> counts = new HashMap<>();
+        counts.put("yes", yes);
+        counts.put("no", no);
+        return counts;
+    }
+
+    private static DataLayer dataLayer(Map<Object, Long> counts) {
+        return (path, attrName, attrValue) -> counts;
+    }
+}
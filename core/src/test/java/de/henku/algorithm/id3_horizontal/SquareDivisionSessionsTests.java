@@ -0,0 +1,199 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SquareDivisionSessionsTests {
+
+    private List<SquareDivisionSessions.Session<String>> expired;
+    private SquareDivisionSessions<String> subject;
+
+    @Before
+    public void beforeEach() {
+        expired = new ArrayList<>();
+        subject = new SquareDivisionSessions<>(expired::add);
+    }
+
+    @Test
+    public void lifecycle_movesFromCreatedToCompleted() {
+        subject.create(1, "division", 100);
+        assertEquals(SquareDivisionSessions.State.CREATED, subject.getState(1));
+        assertEquals(1, subject.size());
+        assertEquals(100, subject.getRetainedBytes());
+
+        assertSame("division", subject.get(1));
+        assertEquals(SquareDivisionSessions.State.IN_FLIGHT, subject.getState(1));
+
+        assertSame("division", subject.complete(1));
+        assertNull(subject.getState(1));
+        assertNull(subject.get(1));
+        assertEquals(0, subject.size());
+        assertEquals(0, subject.getRetainedBytes());
+    }
+
+    @Test
+    public void expire_removesIdleSessions() throws InterruptedException {
+        subject.setTimeout(1, TimeUnit.MILLISECONDS);
+        subject.create(1, "idle", 10);
+        Thread.sleep(5);
+
+        subject.setTimeout(1, TimeUnit.MINUTES);
+        subject.create(2, "fresh", 20);
+        subject.setTimeout(1, TimeUnit.MILLISECONDS);
+        subject.get(2);
+
+        assertEquals(1, subject.expire());
+        assertEquals(1, expired.size());
+        assertEquals(1, expired.get(0).getId());
+        assertEquals("idle", expired.get(0).getDivision());
+        assertNull(subject.complete(1));
+        assertEquals(20, subject.getRetainedBytes());
+    }
+
+    @Test
+    public void expire_keepsSessionsWithoutTimeout() throws InterruptedException {
+        subject.create(1, "division", 10);
+        Thread.sleep(2);
+
+        assertEquals(0, subject.expire());
+        assertEquals(1, subject.size());
+    }
+
+    @Test
+    public void startSweeper_expiresIdleSessionsInBackground() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        SquareDivisionSessions<String> swept = new SquareDivisionSessions<>(s -> latch.countDown());
+        swept.setTimeout(10, TimeUnit.MILLISECONDS);
+        swept.create(1, "idle", 10);
+
+        swept.startSweeper();
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            swept.stopSweeper();
+        }
+
+        assertEquals(0, swept.size());
+        assertEquals(0, swept.getRetainedBytes());
+    }
+
+    @Test
+    public void startSweeper_callsListenerOnExpiryExecutor() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "expiry"));
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<String> thread = new AtomicReference<>();
+        SquareDivisionSessions<String> swept = new SquareDivisionSessions<>(s -> {
+            thread.set(Thread.currentThread().getName());
+            latch.countDown();
+        });
+        swept.setExpiryExecutor(executor);
+        swept.setTimeout(10, TimeUnit.MILLISECONDS);
+        swept.create(1, "idle", 10);
+
+        swept.startSweeper();
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            swept.stopSweeper();
+            executor.shutdown();
+        }
+
+        assertEquals("expiry", thread.get());
+    }
+
+    @Test
+    public void startSweeper_doesNotKeepRegistryAlive() throws InterruptedException {
+        SquareDivisionSessions<String> swept = new SquareDivisionSessions<>(s -> {
+        });
+        swept.setTimeout(1, TimeUnit.MINUTES);
+        swept.startSweeper();
+
+        WeakReference<SquareDivisionSessions<String>> reference = new WeakReference<>(swept);
+        swept = null;
+
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertNull(reference.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void startSweeper_requiresTimeout() {
+        subject.startSweeper();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void create_rejectsSessionsBeyondCap() {
+        subject.setMaxSessions(2);
+        subject.create(1, "a", 0);
+        subject.create(2, "b", 0);
+        subject.create(3, "c", 0);
+    }
+
+    @Test
+    public void estimateSlaveBytes_countsSharesAndKeptCiphertexts() {
+        List<MultiplicationResult> results = Arrays.asList(
+                new MultiplicationResult("a", BigInteger.ONE.shiftLeft(1023)),
+                new MultiplicationResult("b", BigInteger.ONE.shiftLeft(1023)));
+
+        long ciphertext = 129 + SquareDivisionSessions.OBJECT_BYTES;
+        long share = 64 + SquareDivisionSessions.OBJECT_BYTES;
+        long perClassValue = 3 * SquareDivisionSessions.OBJECT_BYTES + share;
+        long slave = SquareDivisionSessions.OBJECT_BYTES + 2 * perClassValue
+                + 2 * (SquareDivisionSessions.OBJECT_BYTES + 2 * share);
+
+        assertEquals(slave, SquareDivisionSessions.estimateSlaveBytes(results, 0, 0));
+        assertEquals(slave + 4 * ciphertext, SquareDivisionSessions.estimateSlaveBytes(results, 1, 2));
+    }
+
+    @Test
+    public void estimateBytes_countsCiphertexts() {
+        List<MultiplicationResult> results = Arrays.asList(
+                new MultiplicationResult("a", BigInteger.ONE.shiftLeft(1023)),
+                new MultiplicationResult("b", BigInteger.ONE.shiftLeft(1023)));
+
+        assertEquals(2 * 2 * 129, SquareDivisionSessions.estimateBytes(results));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal.data;
+
+import de.henku.algorithm.id3_horizontal.Attribute;
+import de.henku.algorithm.id3_horizontal.AttributeBuilder;
+import de.henku.algorithm.id3_horizontal.ContingencyTable;
+import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class BitmapDataLayerTests {
+
+    private static final List<String> CLASS_VALUES = Arrays.asList("win", "loss", "draw");
+    private static final List<String> NAMES = Arrays.asList("top-left", "center", "bottom-right");
+    private static final List<String> VALUES = Arrays.asList("x", "o", "b");
+
+    private ColumnarDataLayer columns;
+    private BitmapDataLayer subject;
+
+    @Before
+    public void beforeEach() {
+        Random random = new Random(7);
+        List<Map<String, String>> rows = new ArrayList<>();
+        // not a multiple of 64, so the last word is partly used
+        for (int i = 0; i < 1000; i++) {
+            Map<String, String> row = new HashMap<>();
+            for (String name : NAMES) {
+                row.put(name, VALUES.get(random.nextInt(VALUES.size())));
+            }
+            row.put("class", CLASS_VALUES.get(random.nextInt(CLASS_VALUES.size())));
+            rows.add(row);
+        }
+
+        Attribute classAttribute = new Attribute(new AttributeBuilder("class") {
+        }.values(CLASS_VALUES));
+        columns = new ColumnarDataLayer.Builder(classAttribute).addRows(rows).build();
+        subject = new BitmapDataLayer(columns);
+    }
+
+    @Test
+    public void countPerClassValue_matchesColumnarCounts() {
+        for (List<NodeValuePair> path : paths()) {
+            for (String name : NAMES) {
+                for (String value : VALUES) {
+                    assertEquals(columns.countPerClassValue(path, name, value),
+                            subject.countPerClassValue(path, name, value));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void countPerClassValue_countsUnknownValuesAsZero() {
+        assertEquals(columns.countPerClassValue(Collections.emptyList(), "center", "?"),
+                subject.countPerClassValue(Collections.emptyList(), "center", "?"));
+        assertEquals(columns.countPerClassValue(Collections.singletonList(new NodeValuePair("?", "x")), "center", "x"),
+                subject.countPerClassValue(Collections.singletonList(new NodeValuePair("?", "x")), "center", "x"));
+    }
+
+    @Test
+    public void contingencyTable_matchesCountPerClassValue() {
+        List<NodeValuePair> path = Arrays.asList(new NodeValuePair("center", "x"), new NodeValuePair("top-left", "o"));
+        ContingencyTable table = subject.contingencyTable(path);
+
+        for (String name : NAMES) {
+            for (String value : VALUES) {
+                assertEquals(columns.countPerClassValue(path, name, value), table.countPerClassValue(name, value));
+            }
+        }
+    }
+
+    @Test
+    public void countPerClassValue_cachesBitmapsOfPaths() {
+        List<NodeValuePair> path = Arrays.asList(new NodeValuePair("center", "x"), new NodeValuePair("top-left", "o"));
+        subject.countPerClassValue(path, "bottom-right", "b");
+
+        // the node and its parent
+        assertEquals(2, subject.cachedPaths());
+
+        subject.setCachedPaths(1);
+        subject.countPerClassValue(path, "bottom-right", "b");
+        assertEquals(1, subject.cachedPaths());
+
+        subject.setCachedPaths(0);
+        subject.countPerClassValue(path, "bottom-right", "b");
+        assertEquals(0, subject.cachedPaths());
+    }
+
+    private static List<List<NodeValuePair>> paths() {
+        List<List<NodeValuePair>> paths = new ArrayList<>();
+        paths.add(Collections.emptyList());
+        for (String value : VALUES) {
+            paths.add(Collections.singletonList(new NodeValuePair("center", value)));
+            paths.add(Arrays.asList(new NodeValuePair("center", value), new NodeValuePair("top-left", "x")));
+        }
+        return paths;
+    }
+}
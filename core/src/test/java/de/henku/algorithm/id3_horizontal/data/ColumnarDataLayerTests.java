@@ -0,0 +1,189 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.algorithm.id3_horizontal.data;
+
+import de.henku.algorithm.id3_horizontal.Attribute;
+import de.henku.algorithm.id3_horizontal.AttributeBuilder;
+import de.henku.algorithm.id3_horizontal.ContingencyTable;
+import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnarDataLayerTests {
+
+    private static final List<String> CLASS_VALUES = Arrays.asList("unacc", "acc", "good");
+    private static final List<String> NAMES = Arrays.asList("buying", "doors", "safety");
+    private static final List<String> VALUES = Arrays.asList("low", "med", "high");
+
+    private List<Map<String, String>> rows;
+    private ColumnarDataLayer subject;
+
+    @Before
+    public void beforeEach() {
+        Random random = new Random(42);
+        rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Map<String, String> row = new HashMap<>();
+            for (String name : NAMES) {
+                row.put(name, VALUES.get(random.nextInt(VALUES.size())));
+            }
+            // the last class value never occurs
+            row.put("class", CLASS_VALUES.get(random.nextInt(2)));
+            rows.add(row);
+        }
+
+        subject = new ColumnarDataLayer.Builder(classAttribute()).addRows(rows).build();
+    }
+
+    @Test
+    public void countPerClassValue_matchesRowCounts() {
+        List<NodeValuePair> path = new ArrayList<>();
+        assertCounts(path, "buying", "low");
+
+        path.add(new NodeValuePair("buying", "low"));
+        assertCounts(path, "doors", "med");
+        assertCounts(path, "safety", "high");
+
+        path.add(new NodeValuePair("doors", "high"));
+        assertCounts(path, "safety", "low");
+        assertCounts(path, "buying", "med");
+    }
+
+    @Test
+    public void countPerClassValue_countsUnknownValuesAsZero() {
+        Map<Object, Long> zeros = new LinkedHashMap<>();
+        for (String cv : CLASS_VALUES) {
+            zeros.put(cv, 0L);
+        }
+
+        assertEquals(zeros, subject.countPerClassValue(Collections.emptyList(), "buying", "vhigh"));
+        assertEquals(zeros, subject.countPerClassValue(
+                Collections.singletonList(new NodeValuePair("lugboot", "big")), "buying", "low"));
+    }
+
+    @Test
+    public void contingencyTable_matchesCountPerClassValue() {
+        List<NodeValuePair> path = Collections.singletonList(new NodeValuePair("safety", "med"));
+        ContingencyTable table = subject.contingencyTable(path);
+
+        for (String name : NAMES) {
+            for (String value : VALUES) {
+                assertEquals(subject.countPerClassValue(path, name, value), table.countPerClassValue(name, value));
+            }
+        }
+    }
+
+    @Test
+    public void build_widensColumnsWithManyValues() {
+        List<Map<String, String>> wide = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Map<String, String> row = new HashMap<>();
+            row.put("id", Integer.toString(i));
+            row.put("buying", VALUES.get(i % 3));
+            row.put("class", CLASS_VALUES.get(i % 2));
+            wide.add(row);
+        }
+
+        ColumnarDataLayer data = new ColumnarDataLayer.Builder(classAttribute()).addRows(wide).build();
+
+        assertFalse(data.column("id").isCompact());
+        assertTrue(data.column("buying").isCompact());
+        assertEquals(Long.valueOf(1), data.countPerClassValue(
+                Collections.singletonList(new NodeValuePair("buying", "high")), "id", "299").get("acc"));
+    }
+
+    @Test
+    public void partitioned_matchesRowCounts() {
+        subject = new ColumnarDataLayer.Builder(classAttribute()).addRows(rows).partitioned(true).build();
+
+        countPerClassValue_matchesRowCounts();
+        contingencyTable_matchesCountPerClassValue();
+
+        // the parent was split by "doors" above, so this child gets a copy of its rows
+        List<NodeValuePair> path = new ArrayList<>();
+        path.add(new NodeValuePair("buying", "low"));
+        path.add(new NodeValuePair("safety", "high"));
+        assertCounts(path, "doors", "low");
+
+        path.add(new NodeValuePair("doors", "med"));
+        assertCounts(path, "doors", "med");
+        assertCounts(path, "buying", "low");
+    }
+
+    @Test
+    public void partitioned_splitsNodeIntoRangesOfAllValues() {
+        subject = new ColumnarDataLayer.Builder(classAttribute()).addRows(rows).partitioned(true).build();
+
+        subject.countPerClassValue(Collections.singletonList(new NodeValuePair("buying", "low")), "doors", "low");
+
+        // the root and one range per value of "buying"
+        assertEquals(1 + VALUES.size(), subject.partitions().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addRow_rejectsMissingAttribute() {
+        Map<String, String> row = new HashMap<>(rows.get(0));
+        row.remove("doors");
+
+        new ColumnarDataLayer.Builder(classAttribute()).addRow(rows.get(0)).addRow(row);
+    }
+
+    private void assertCounts(List<NodeValuePair> path, String attrName, String attrValue) {
+        Map<Object, Long> expected = new LinkedHashMap<>();
+        for (String cv : CLASS_VALUES) {
+            expected.put(cv, 0L);
+        }
+
+        for (Map<String, String> row : rows) {
+            boolean matches = row.get(attrName).equals(attrValue);
+            for (NodeValuePair nvp : path) {
+                matches &= row.get(nvp.getNode()).equals(nvp.getValue());
+            }
+            if (matches) {
+                expected.merge(row.get("class"), 1L, Long::sum);
+            }
+        }
+
+        assertEquals(expected, subject.countPerClassValue(path, attrName, attrValue));
+    }
+
+    private static Attribute classAttribute() {
+        return new Attribute(new AttributeBuilder("class") {
+        }.values(CLASS_VALUES));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations;
+
+import de.henku.computations.paillier.ModularContext;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchInversionTests {
+
+    private final BigInteger modulus = BigInteger.valueOf(1009 * 1013).pow(2);
+    private final ModularContext context = new ModularContext(modulus);
+
+    @Test
+    public void invert_matchesSingleInversions() {
+        List<BigInteger> values = Arrays.asList(
+                BigInteger.valueOf(2), BigInteger.valueOf(12345), BigInteger.valueOf(7777777), BigInteger.ONE);
+
+        List<BigInteger> inverses = BatchInversion.invert(values, context);
+
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(values.get(i).modInverse(modulus), inverses.get(i));
+        }
+    }
+
+    @Test
+    public void invert_handlesSingleAndNoValue() {
+        BigInteger value = BigInteger.valueOf(99);
+
+        assertEquals(Collections.singletonList(value.modInverse(modulus)),
+                BatchInversion.invert(Collections.singletonList(value), context));
+        assertTrue(BatchInversion.invert(Collections.<BigInteger>emptyList(), context).isEmpty());
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void invert_rejectsNonInvertibleValue() {
+        BatchInversion.invert(Arrays.asList(BigInteger.valueOf(3), BigInteger.valueOf(1009)), context);
+    }
+}
@@ -24,8 +24,8 @@
 
 package de.henku.computations;
 
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
 import de.henku.jpaillier.KeyPair;
-import de.henku.jpaillier.KeyPairBuilder;
 import de.henku.jpaillier.PublicKey;
 import de.henku.utils.IntegrationTest;
 import org.junit.Before;
@@ -55,7 +55,7 @@ public class SecureAdditionIT {
 
     @Before
     public void init() {
-        KeyPairBuilder factory = new KeyPairBuilder();
+        PaillierKeyPairBuilder factory = new PaillierKeyPairBuilder();
         this.keyPair = factory.generateKeyPair();
         this.publicKey = keyPair.getPublicKey();
     }
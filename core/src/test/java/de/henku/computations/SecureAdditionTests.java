@@ -24,6 +24,7 @@
 
 package de.henku.computations;
 
+import de.henku.computations.random.RandomnessProvider;
 import de.henku.jpaillier.PublicKey;
 import org.junit.Before;
 import org.junit.Test;
@@ -33,7 +34,6 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.math.BigInteger;
-import java.security.SecureRandom;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
@@ -44,6 +44,7 @@ public class SecureAdditionTests {
 
     private SecureAddition subject;
     private PublicKey publicKey;
+    private RandomnessProvider randomness;
     private BigInteger nSquared;
     private BigInteger ciphertext;
     private BigInteger privateInput;
@@ -59,7 +60,9 @@ public class SecureAdditionTests {
         previousPartyResult = mock(BigInteger.class);
         product = mock(BigInteger.class);
 
-        subject = new SecureAddition(privateInput, publicKey);
+        randomness = mock(RandomnessProvider.class);
+
+        subject = new SecureAddition(privateInput, publicKey, randomness);
 
         when(publicKey.getnSquared()).thenReturn(nSquared);
         when(publicKey.encrypt(privateInput)).thenReturn(ciphertext);
@@ -103,14 +106,9 @@ public class SecureAdditionTests {
     @Test
     public void backwardAdditionGeneratesOutputShare() throws Exception {
         BigInteger expected = mock(BigInteger.class);
-        SecureRandom secureRand = mock(SecureRandom.class);
         BigInteger outputShare = mock(BigInteger.class);
 
-        PowerMockito.whenNew(SecureRandom.class).withNoArguments()
-                .thenReturn(secureRand);
-
-        PowerMockito.whenNew(BigInteger.class).withAnyArguments()
-                .thenReturn(outputShare);
+        when(randomness.nextShare(publicKey)).thenReturn(outputShare);
 
         when(outputShare.mod(nSquared)).thenReturn(expected);
 
@@ -124,12 +122,8 @@ public class SecureAdditionTests {
     public void backwardAdditionComputesOutputShareModNSquare()
             throws Exception {
         BigInteger outputShare = mock(BigInteger.class);
-        SecureRandom secureRand = mock(SecureRandom.class);
 
-        PowerMockito.whenNew(SecureRandom.class).withNoArguments()
-                .thenReturn(secureRand);
-        PowerMockito.whenNew(BigInteger.class).withAnyArguments()
-                .thenReturn(outputShare);
+        when(randomness.nextShare(publicKey)).thenReturn(outputShare);
 
         when(outputShare.mod(nSquared)).thenReturn(outputShare);
 
@@ -142,12 +136,8 @@ public class SecureAdditionTests {
     public void backwardAdditionComputesTheInverseOfOutoutShare()
             throws Exception {
         BigInteger outputShare = mock(BigInteger.class);
-        SecureRandom secureRand = mock(SecureRandom.class);
 
-        PowerMockito.whenNew(SecureRandom.class).withNoArguments()
-                .thenReturn(secureRand);
-        PowerMockito.whenNew(BigInteger.class).withAnyArguments()
-                .thenReturn(outputShare);
+        when(randomness.nextShare(publicKey)).thenReturn(outputShare);
         when(outputShare.mod(nSquared)).thenReturn(outputShare);
 
         subject.backwardStep(previousPartyResult);
@@ -160,12 +150,8 @@ public class SecureAdditionTests {
             throws Exception {
         BigInteger outputShare = mock(BigInteger.class);
         BigInteger inverseShare = mock(BigInteger.class);
-        SecureRandom secureRand = mock(SecureRandom.class);
 
-        PowerMockito.whenNew(SecureRandom.class).withNoArguments()
-                .thenReturn(secureRand);
-        PowerMockito.whenNew(BigInteger.class).withAnyArguments()
-                .thenReturn(outputShare);
+        when(randomness.nextShare(publicKey)).thenReturn(outputShare);
         when(outputShare.mod(nSquared)).thenReturn(outputShare);
         when(outputShare.modInverse(nSquared)).thenReturn(inverseShare);
 
@@ -179,13 +165,9 @@ public class SecureAdditionTests {
             throws Exception {
         BigInteger outputShare = mock(BigInteger.class);
         BigInteger inverseShare = mock(BigInteger.class);
-        SecureRandom secureRand = mock(SecureRandom.class);
         BigInteger expected = mock(BigInteger.class);
 
-        PowerMockito.whenNew(SecureRandom.class).withNoArguments()
-                .thenReturn(secureRand);
-        PowerMockito.whenNew(BigInteger.class).withAnyArguments()
-                .thenReturn(outputShare);
+        when(randomness.nextShare(publicKey)).thenReturn(outputShare);
         when(outputShare.mod(nSquared)).thenReturn(outputShare);
         when(outputShare.modInverse(nSquared)).thenReturn(inverseShare);
         when(previousPartyResult.modPow(inverseShare, nSquared)).thenReturn(
@@ -24,6 +24,10 @@
 
 package de.henku.computations;
 
+import de.henku.computations.paillier.CrtDecryptor;
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
+import de.henku.computations.paillier.ThresholdKeyPair;
+import de.henku.computations.paillier.ThresholdKeyPairBuilder;
 import de.henku.jpaillier.KeyPair;
 import de.henku.jpaillier.PublicKey;
 import org.junit.Before;
@@ -34,6 +38,7 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.math.BigInteger;
+import java.util.Collections;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
@@ -46,6 +51,7 @@ public class SecureComputationMasterTests {
     private PublicKey publicKey;
     private KeyPair keyPair;
     private BigInteger privateInput;
+    private CrtDecryptor decryptor;
 
     @Before
     public void init() {
@@ -55,7 +61,8 @@ public class SecureComputationMasterTests {
         when(keyPair.getPublicKey()).thenReturn(publicKey);
 
         privateInput = mock(BigInteger.class);
-        subject = new SecureComputationMaster(privateInput, keyPair);
+        decryptor = mock(CrtDecryptor.class);
+        subject = new SecureComputationMaster(privateInput, keyPair, decryptor);
     }
 
     @Test
@@ -75,11 +82,11 @@ public class SecureComputationMasterTests {
         BigInteger ciphertext = mock(BigInteger.class);
         BigInteger plaintext = mock(BigInteger.class);
 
-        PowerMockito.when(keyPair.decrypt(ciphertext)).thenReturn(plaintext);
+        when(decryptor.decrypt(ciphertext)).thenReturn(plaintext);
 
         subject.decryptAndSetOutputShare(ciphertext);
 
-        verify(keyPair).decrypt(ciphertext);
+        verify(decryptor).decrypt(ciphertext);
     }
 
     @Test
@@ -87,11 +94,48 @@ public class SecureComputationMasterTests {
         BigInteger ciphertext = mock(BigInteger.class);
         BigInteger decryptedOutputShare = mock(BigInteger.class);
 
-        PowerMockito.when(keyPair.decrypt(ciphertext)).thenReturn(
-                decryptedOutputShare);
+        when(decryptor.decrypt(ciphertext)).thenReturn(decryptedOutputShare);
 
         subject.decryptAndSetOutputShare(ciphertext);
 
         assertEquals(decryptedOutputShare, subject.getOutputShare());
     }
+
+    @Test
+    public void testSetDecryptedOutputShareSetsOutputShare() {
+        BigInteger plaintext = mock(BigInteger.class);
+
+        subject.setDecryptedOutputShare(plaintext);
+
+        assertEquals(plaintext, subject.getOutputShare());
+        verifyZeroInteractions(decryptor);
+    }
+
+    @Test
+    public void testDecryptAndSetOutputShareCombinesPartialDecryptions() {
+        ThresholdKeyPair thresholdKeyPair = new ThresholdKeyPairBuilder().bits(512).generateKeyPair();
+        PublicKey thresholdPublicKey = thresholdKeyPair.getPublicKey();
+        SecureComputationMaster master = new SecureComputationMaster(BigInteger.ONE,
+                thresholdKeyPair.getShare(0));
+
+        BigInteger ciphertext = thresholdPublicKey.encrypt(BigInteger.valueOf(42));
+        BigInteger partial = thresholdKeyPair.getShare(1).partialDecrypt(ciphertext);
+
+        master.decryptAndSetOutputShare(ciphertext, Collections.singletonList(partial));
+
+        assertEquals(BigInteger.valueOf(42), master.getOutputShare());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecryptAndSetOutputShareRejectsKeyPairWithUpperBound() {
+        KeyPair bounded = new PaillierKeyPairBuilder().bits(512).upperBound(BigInteger.valueOf(1000)).generateKeyPair();
+        SecureComputationMaster master = new SecureComputationMaster(BigInteger.ONE, bounded);
+
+        master.decryptAndSetOutputShare(bounded.getPublicKey().encrypt(BigInteger.valueOf(-5)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDecryptAndSetOutputShareRejectsPartialDecryptionsWithKeyPair() {
+        subject.decryptAndSetOutputShare(mock(BigInteger.class), Collections.<BigInteger>emptyList());
+    }
 }
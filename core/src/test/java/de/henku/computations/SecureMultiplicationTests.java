@@ -24,6 +24,7 @@
 
 package de.henku.computations;
 
+import de.henku.computations.random.RandomnessProvider;
 import de.henku.jpaillier.PublicKey;
 import org.junit.Before;
 import org.junit.Test;
@@ -34,7 +35,6 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.math.BigInteger;
-import java.security.SecureRandom;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
@@ -45,6 +45,7 @@ public class SecureMultiplicationTests {
 
     private SecureMultiplication subject;
     private PublicKey publicKey;
+    private RandomnessProvider randomness;
     private BigInteger privateInput;
     private BigInteger previousPartyResult;
     private BigInteger nSquared;
@@ -59,7 +60,9 @@ public class SecureMultiplicationTests {
         privateInput = mock(BigInteger.class);
         previousPartyResult = mock(BigInteger.class);
 
-        subject = new SecureMultiplication(privateInput, publicKey);
+        randomness = mock(RandomnessProvider.class);
+
+        subject = new SecureMultiplication(privateInput, publicKey, randomness);
     }
 
     @Test
@@ -86,16 +89,12 @@ public class SecureMultiplicationTests {
 
     @Test
     public void backwardStepGeneratesOutputShare() throws Exception {
-        SecureRandom secureRand = mock(SecureRandom.class);
         BigInteger expected = mock(BigInteger.class);
         BigInteger outputShare = mock(BigInteger.class);
         BigInteger encryptedOutputShare = mock(BigInteger.class);
         BigInteger inverseOutputShare = mock(BigInteger.class);
 
-        PowerMockito.whenNew(SecureRandom.class).withNoArguments()
-                .thenReturn(secureRand);
-        PowerMockito.whenNew(BigInteger.class).withAnyArguments()
-                .thenReturn(outputShare);
+        Mockito.when(randomness.nextShare(publicKey)).thenReturn(outputShare);
 
         Mockito.when(outputShare.mod(nSquared)).thenReturn(outputShare);
         PowerMockito.when(publicKey.encrypt(outputShare)).thenReturn(
@@ -108,7 +107,7 @@ public class SecureMultiplicationTests {
         subject.backwardStep(previousPartyResult);
         BigInteger actual = subject.getOutputShare();
 
-        PowerMockito.verifyNew(BigInteger.class).withArguments(512, secureRand);
+        Mockito.verify(randomness).nextShare(publicKey);
 
         assertEquals(outputShare, actual);
         Mockito.verify(outputShare).mod(nSquared);
@@ -116,16 +115,12 @@ public class SecureMultiplicationTests {
 
     @Test
     public void backwardStepEncryptsOutputShare() throws Exception {
-        SecureRandom secureRand = mock(SecureRandom.class);
         BigInteger expected = mock(BigInteger.class);
         BigInteger inverseOutputShare = mock(BigInteger.class);
         BigInteger outputShare = mock(BigInteger.class);
         BigInteger encryptedOutputShare = mock(BigInteger.class);
 
-        PowerMockito.whenNew(SecureRandom.class).withNoArguments()
-                .thenReturn(secureRand);
-        PowerMockito.whenNew(BigInteger.class).withAnyArguments()
-                .thenReturn(outputShare);
+        Mockito.when(randomness.nextShare(publicKey)).thenReturn(outputShare);
 
         Mockito.when(outputShare.mod(nSquared)).thenReturn(outputShare);
         PowerMockito.when(publicKey.encrypt(outputShare)).thenReturn(
@@ -144,16 +139,12 @@ public class SecureMultiplicationTests {
     @Test
     public void backwardStepComputesInverseOfEncryptsOutputShare()
             throws Exception {
-        SecureRandom secureRand = mock(SecureRandom.class);
         BigInteger inverseOutputShare = mock(BigInteger.class);
         BigInteger expected = mock(BigInteger.class);
         BigInteger outputShare = mock(BigInteger.class);
         BigInteger encryptedOutputShare = mock(BigInteger.class);
 
-        PowerMockito.whenNew(SecureRandom.class).withNoArguments()
-                .thenReturn(secureRand);
-        PowerMockito.whenNew(BigInteger.class).withAnyArguments()
-                .thenReturn(outputShare);
+        Mockito.when(randomness.nextShare(publicKey)).thenReturn(outputShare);
 
         Mockito.when(outputShare.mod(nSquared)).thenReturn(outputShare);
         PowerMockito.when(publicKey.encrypt(outputShare)).thenReturn(
@@ -171,16 +162,12 @@ public class SecureMultiplicationTests {
     @Test
     public void backwardStepMultipliesInverseWithPreviousPartyResult()
             throws Exception {
-        SecureRandom secureRand = mock(SecureRandom.class);
         BigInteger inverseOutputShare = mock(BigInteger.class);
         BigInteger expected = mock(BigInteger.class);
         BigInteger outputShare = mock(BigInteger.class);
         BigInteger encryptedOutputShare = mock(BigInteger.class);
 
-        PowerMockito.whenNew(SecureRandom.class).withNoArguments()
-                .thenReturn(secureRand);
-        PowerMockito.whenNew(BigInteger.class).withAnyArguments()
-                .thenReturn(outputShare);
+        Mockito.when(randomness.nextShare(publicKey)).thenReturn(outputShare);
 
         Mockito.when(outputShare.mod(nSquared)).thenReturn(outputShare);
         PowerMockito.when(publicKey.encrypt(outputShare)).thenReturn(
@@ -197,16 +184,12 @@ public class SecureMultiplicationTests {
 
     @Test
     public void backwardStepComputesResultInModnSquared() throws Exception {
-        SecureRandom secureRand = mock(SecureRandom.class);
         BigInteger inverseOutputShare = mock(BigInteger.class);
         BigInteger expected = mock(BigInteger.class);
         BigInteger outputShare = mock(BigInteger.class);
         BigInteger encryptedOutputShare = mock(BigInteger.class);
 
-        PowerMockito.whenNew(SecureRandom.class).withNoArguments()
-                .thenReturn(secureRand);
-        PowerMockito.whenNew(BigInteger.class).withAnyArguments()
-                .thenReturn(outputShare);
+        Mockito.when(randomness.nextShare(publicKey)).thenReturn(outputShare);
 
         Mockito.when(outputShare.mod(nSquared)).thenReturn(outputShare);
         PowerMockito.when(publicKey.encrypt(outputShare)).thenReturn(
@@ -223,16 +206,12 @@ public class SecureMultiplicationTests {
 
     @Test
     public void backwardStepReturnsCorrectResult() throws Exception {
-        SecureRandom secureRand = mock(SecureRandom.class);
         BigInteger inverseOutputShare = mock(BigInteger.class);
         BigInteger expected = mock(BigInteger.class);
         BigInteger outputShare = mock(BigInteger.class);
         BigInteger encryptedOutputShare = mock(BigInteger.class);
 
-        PowerMockito.whenNew(SecureRandom.class).withNoArguments()
-                .thenReturn(secureRand);
-        PowerMockito.whenNew(BigInteger.class).withAnyArguments()
-                .thenReturn(outputShare);
+        Mockito.when(randomness.nextShare(publicKey)).thenReturn(outputShare);
 
         Mockito.when(outputShare.mod(nSquared)).thenReturn(outputShare);
         PowerMockito.when(publicKey.encrypt(outputShare)).thenReturn(
@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations;
+
+import de.henku.computations.concurrent.CryptoExecutor;
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
+import de.henku.jpaillier.KeyPair;
+import de.henku.jpaillier.PublicKey;
+import de.henku.utils.IntegrationTest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@Category(IntegrationTest.class)
+@RunWith(Parameterized.class)
+public class SecureVectorComputationIT {
+
+    private static final long[][] INPUTS = {
+            {10, 0, 3, 7, 1},
+            {5, 2, 0, 1, 9},
+            {12, 4, 8, 2, 3}
+    };
+
+    private final boolean parallel;
+    private KeyPair keyPair;
+    private PublicKey publicKey;
+
+    public SecureVectorComputationIT(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parallelism() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    @Before
+    public void init() {
+        keyPair = new PaillierKeyPairBuilder().generateKeyPair();
+        publicKey = keyPair.getPublicKey();
+    }
+
+    @Test
+    public void additionChecker() {
+        List<AbstractSecureVectorComputationSlave> slaves = new ArrayList<>();
+        for (long[] inputs : Arrays.asList(INPUTS).subList(1, INPUTS.length)) {
+            slaves.add(new SecureVectorAddition(inputs, publicKey));
+        }
+
+        BigInteger[] actual = run(slaves);
+
+        BigInteger n = publicKey.getN();
+        for (int i = 0; i < actual.length; i++) {
+            for (AbstractSecureVectorComputationSlave slave : slaves) {
+                actual[i] = actual[i].multiply(slave.getOutputShares()[i]).mod(n);
+            }
+            assertEquals(INPUTS[0][i] + INPUTS[1][i] + INPUTS[2][i], actual[i].longValue());
+        }
+    }
+
+    @Test
+    public void multiplicationChecker() {
+        List<AbstractSecureVectorComputationSlave> slaves = new ArrayList<>();
+        for (long[] inputs : Arrays.asList(INPUTS).subList(1, INPUTS.length)) {
+            slaves.add(new SecureVectorMultiplication(inputs, publicKey));
+        }
+
+        BigInteger[] actual = run(slaves);
+
+        BigInteger n = publicKey.getN();
+        for (int i = 0; i < actual.length; i++) {
+            for (AbstractSecureVectorComputationSlave slave : slaves) {
+                actual[i] = actual[i].add(slave.getOutputShares()[i]).mod(n);
+            }
+            assertEquals(INPUTS[0][i] * INPUTS[1][i] * INPUTS[2][i], actual[i].longValue());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void forwardStep_rejectsVectorOfDifferentSize() {
+        SecureVectorAddition slave = new SecureVectorAddition(new long[]{1, 2}, publicKey);
+
+        slave.forwardStep(new BigInteger[]{BigInteger.ONE});
+    }
+
+    private BigInteger[] run(List<AbstractSecureVectorComputationSlave> slaves) {
+        SecureVectorComputationMaster master = new SecureVectorComputationMaster(INPUTS[0], keyPair);
+        master.setExecutor(executor());
+
+        BigInteger[] helper = master.startEncryptedComputation();
+        for (AbstractSecureVectorComputationSlave slave : slaves) {
+            slave.setExecutor(executor());
+            helper = slave.forwardStep(helper);
+        }
+        for (AbstractSecureVectorComputationSlave slave : slaves) {
+            helper = slave.backwardStep(helper);
+        }
+
+        master.decryptAndSetOutputShares(helper);
+
+        return master.getOutputShares();
+    }
+
+    private CryptoExecutor executor() {
+        return parallel ? CryptoExecutor.getDefault() : CryptoExecutor.sequential();
+    }
+}
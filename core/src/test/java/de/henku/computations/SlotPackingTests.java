@@ -0,0 +1,57 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SlotPackingTests {
+
+    @Test
+    public void slotBits_growsWithCountBitsAndTerms() {
+        SlotPacking subject = new SlotPacking(16, 40);
+
+        assertEquals(2 * 16 + 3 + 40 + 1, subject.slotBits(4));
+        assertEquals(2 * 16 + 1 + 40 + 1, subject.slotBits(1));
+    }
+
+    @Test
+    public void slot_returnsPackedValues() {
+        List<BigInteger> values = Arrays.asList(
+                BigInteger.valueOf(7), BigInteger.ZERO, BigInteger.valueOf(255));
+
+        BigInteger packed = SlotPacking.pack(values, 8);
+
+        assertEquals(BigInteger.valueOf(7 + (255 << 16)), packed);
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(values.get(i), SlotPacking.slot(packed, i, 8));
+        }
+    }
+}
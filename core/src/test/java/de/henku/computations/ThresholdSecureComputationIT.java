@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations;
+
+import de.henku.computations.paillier.ThresholdKeyPair;
+import de.henku.computations.paillier.ThresholdKeyPairBuilder;
+import de.henku.jpaillier.PublicKey;
+import de.henku.utils.IntegrationTest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@Category(IntegrationTest.class)
+public class ThresholdSecureComputationIT {
+
+    private static final long[] INPUTS = {10, 5, 12, 4, 3, 7};
+
+    private ThresholdKeyPair keyPair;
+    private PublicKey publicKey;
+
+    @Before
+    public void init() {
+        keyPair = new ThresholdKeyPairBuilder().parties(INPUTS.length).generateKeyPair();
+        publicKey = keyPair.getPublicKey();
+    }
+
+    @Test
+    public void multiplicationChecker() {
+        SecureComputationMaster master = new SecureComputationMaster(BigInteger.valueOf(INPUTS[0]),
+                keyPair.getShare(0));
+        List<SecureMultiplication> slaves = new ArrayList<>();
+
+        BigInteger helper = master.startEncryptedComputation();
+        for (int i = 1; i < INPUTS.length; i++) {
+            SecureMultiplication slave = new SecureMultiplication(BigInteger.valueOf(INPUTS[i]), publicKey);
+            slaves.add(slave);
+            helper = slave.forwardStep(helper);
+        }
+        for (SecureMultiplication slave : slaves) {
+            helper = slave.backwardStep(helper);
+        }
+
+        master.decryptAndSetOutputShare(helper, partialDecryptions(helper));
+
+        BigInteger actual = master.getOutputShare();
+        for (SecureMultiplication slave : slaves) {
+            actual = actual.add(slave.getOutputShare()).mod(publicKey.getN());
+        }
+
+        long expected = 1;
+        for (long input : INPUTS) {
+            expected *= input;
+        }
+        assertEquals(expected, actual.longValue());
+    }
+
+    @Test
+    public void additionChecker() {
+        SecureComputationMaster master = new SecureComputationMaster(BigInteger.valueOf(INPUTS[0]),
+                keyPair.getShare(0));
+        List<SecureAddition> slaves = new ArrayList<>();
+
+        BigInteger helper = master.startEncryptedComputation();
+        for (int i = 1; i < INPUTS.length; i++) {
+            SecureAddition slave = new SecureAddition(BigInteger.valueOf(INPUTS[i]), publicKey);
+            slaves.add(slave);
+            helper = slave.forwardStep(helper);
+        }
+        for (SecureAddition slave : slaves) {
+            helper = slave.backwardStep(helper);
+        }
+
+        master.decryptAndSetOutputShare(helper, partialDecryptions(helper));
+
+        BigInteger actual = master.getOutputShare();
+        for (SecureAddition slave : slaves) {
+            actual = actual.multiply(slave.getOutputShare()).mod(publicKey.getN());
+        }
+
+        long expected = 0;
+        for (long input : INPUTS) {
+            expected += input;
+        }
+        assertEquals(expected, actual.longValue());
+    }
+
+    private List<BigInteger> partialDecryptions(BigInteger ciphertext) {
+        List<BigInteger> partials = new ArrayList<>();
+        for (int i = 1; i < keyPair.getParties(); i++) {
+            partials.add(keyPair.getShare(i).partialDecrypt(ciphertext));
+        }
+        return partials;
+    }
+}
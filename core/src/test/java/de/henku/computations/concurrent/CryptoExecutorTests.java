@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CryptoExecutorTests {
+
+    private CryptoExecutor subject;
+
+    @Before
+    public void beforeEach() {
+        subject = CryptoExecutor.workStealing(4);
+    }
+
+    @After
+    public void afterEach() {
+        subject.shutdown();
+    }
+
+    @Test
+    public void map_keepsOrderOfItems() {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add(i);
+        }
+
+        List<Integer> results = subject.map(items, i -> {
+            // later items finish first
+            sleep((100 - i) / 10);
+            return i * i;
+        });
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i * i), results.get(i));
+        }
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void map_rethrowsExceptionOfOperation() {
+        subject.map(Arrays.asList(1, 0, 2), i -> 1 / i);
+    }
+
+    @Test
+    public void sequential_runsOnCallingThread() {
+        Thread caller = Thread.currentThread();
+
+        List<Boolean> results = CryptoExecutor.sequential().map(Arrays.asList(1, 2, 3),
+                i -> Thread.currentThread() == caller);
+
+        assertTrue(CryptoExecutor.sequential().isSequential());
+        assertEquals(Arrays.asList(true, true, true), results);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
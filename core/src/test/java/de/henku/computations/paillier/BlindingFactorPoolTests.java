@@ -0,0 +1,203 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.computations.SecureComputationMaster;
+import de.henku.computations.paillier.BlindingFactorPool.ExhaustionPolicy;
+import de.henku.jpaillier.KeyPair;
+import de.henku.jpaillier.KeyPairBuilder;
+import de.henku.jpaillier.PublicKey;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BlindingFactorPoolTests {
+
+    private KeyPair keyPair;
+    private BlindingFactorPool subject;
+
+    @Before
+    public void beforeEach() {
+        keyPair = new KeyPairBuilder().bits(512).generateKeyPair();
+    }
+
+    @After
+    public void afterEach() {
+        if (subject != null) {
+            subject.close();
+        }
+    }
+
+    @Test
+    public void encrypt_producesDecryptableCiphertext() {
+        subject = new BlindingFactorPoolBuilder()
+                .size(4)
+                .build(keyPair.getPublicKey());
+
+        BigInteger c = subject.encrypt(BigInteger.valueOf(42));
+
+        assertEquals(BigInteger.valueOf(42), keyPair.decrypt(c));
+    }
+
+    @Test
+    public void take_countsMissWithoutRefillThreads() {
+        subject = new BlindingFactorPoolBuilder()
+                .refillThreads(0)
+                .build(keyPair.getPublicKey());
+
+        subject.take();
+        subject.take();
+
+        assertEquals(0, subject.getHits());
+        assertEquals(2, subject.getMisses());
+    }
+
+    @Test
+    public void take_countsHitsOnceFilled() throws InterruptedException {
+        subject = new BlindingFactorPoolBuilder()
+                .size(2)
+                .exhaustionPolicy(ExhaustionPolicy.BLOCK)
+                .build(keyPair.getPublicKey());
+
+        while (subject.available() < 2) {
+            Thread.sleep(5);
+        }
+        subject.take();
+
+        assertEquals(1, subject.getHits());
+        assertTrue(subject.getRefills() >= 2);
+    }
+
+    @Test
+    public void take_blockingFailsIfRefillThreadsDied() {
+        // the engine cannot be created without a generator
+        PublicKey publicKey = mock(PublicKey.class);
+        when(publicKey.getN()).thenReturn(BigInteger.valueOf(35));
+
+        subject = new BlindingFactorPoolBuilder()
+                .exhaustionPolicy(ExhaustionPolicy.BLOCK)
+                .build(publicKey);
+
+        try {
+            subject.take();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof NullPointerException);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void take_blockingFailsAfterTimeout() {
+        PublicKey publicKey = mock(PublicKey.class);
+        when(publicKey.getN()).thenReturn(BigInteger.valueOf(77));
+        when(publicKey.getG()).thenAnswer(invocation -> {
+            Thread.sleep(10000);
+            return null;
+        });
+
+        subject = new BlindingFactorPoolBuilder()
+                .exhaustionPolicy(ExhaustionPolicy.BLOCK)
+                .blockTimeout(20, TimeUnit.MILLISECONDS)
+                .build(publicKey);
+
+        subject.take();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void take_blockingFailsOnClosedPool() {
+        subject = new BlindingFactorPoolBuilder()
+                .size(1)
+                .exhaustionPolicy(ExhaustionPolicy.BLOCK)
+                .build(keyPair.getPublicKey());
+        subject.close();
+
+        // factors pooled before the pool was closed are not served
+        subject.take();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void take_computingFailsOnClosedPool() {
+        subject = new BlindingFactorPoolBuilder()
+                .refillThreads(0)
+                .exhaustionPolicy(ExhaustionPolicy.COMPUTE)
+                .build(keyPair.getPublicKey());
+        subject.close();
+
+        subject.take();
+    }
+
+    @Test
+    public void close_dropsPooledFactorsAndStopsRefills() throws InterruptedException {
+        subject = new BlindingFactorPoolBuilder()
+                .size(1)
+                .build(keyPair.getPublicKey());
+        while (subject.available() == 0) {
+            Thread.sleep(1);
+        }
+
+        subject.close();
+        Thread.sleep(20);
+        long refills = subject.getRefills();
+        Thread.sleep(50);
+
+        assertEquals(0, subject.available());
+        assertEquals(refills, subject.getRefills());
+    }
+
+    @Test
+    public void register_makesPoolAvailableForKey() {
+        subject = new BlindingFactorPoolBuilder()
+                .refillThreads(0)
+                .build(keyPair.getPublicKey());
+        BlindingFactorPool.register(subject);
+
+        assertSame(subject, BlindingFactorPool.forKey(keyPair.getPublicKey()));
+
+        SecureComputationMaster m = new SecureComputationMaster(7, keyPair);
+        m.decryptAndSetOutputShare(m.startEncryptedComputation());
+
+        assertEquals(BigInteger.valueOf(7), m.getOutputShare());
+        assertEquals(1, subject.getMisses());
+    }
+
+    @Test
+    public void close_removesPoolFromRegistry() {
+        subject = new BlindingFactorPoolBuilder()
+                .refillThreads(0)
+                .build(keyPair.getPublicKey());
+        BlindingFactorPool.register(subject);
+
+        subject.close();
+
+        assertNull(BlindingFactorPool.forKey(keyPair.getPublicKey()));
+    }
+}
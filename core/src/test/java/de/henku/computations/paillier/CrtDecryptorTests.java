@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.computations.concurrent.CryptoExecutor;
+import de.henku.jpaillier.KeyPair;
+import de.henku.jpaillier.KeyPairBuilder;
+import de.henku.jpaillier.PublicKey;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CrtDecryptorTests {
+
+    private KeyPair keyPair;
+    private PublicKey publicKey;
+    private CrtDecryptor subject;
+
+    @Before
+    public void beforeEach() {
+        keyPair = new KeyPairBuilder().generateKeyPair();
+        publicKey = keyPair.getPublicKey();
+        subject = CrtDecryptor.forKeyPair(keyPair);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void forKeyPair_rejectsKeyPairWithUpperBound() {
+        CrtDecryptor.forKeyPair(new PaillierKeyPairBuilder().bits(512)
+                .upperBound(BigInteger.valueOf(1000)).generateKeyPair());
+    }
+
+    @Test
+    public void forKeyPair_acceptsUpperBoundAboveAllPlaintexts() {
+        KeyPair bounded = new PaillierKeyPairBuilder().bits(512)
+                .upperBound(BigInteger.ONE.shiftLeft(1024)).generateKeyPair();
+        BigInteger c = bounded.getPublicKey().encrypt(BigInteger.valueOf(42));
+
+        assertEquals(BigInteger.valueOf(42), CrtDecryptor.forKeyPair(bounded).decrypt(c));
+    }
+
+    @Test
+    public void factor_findsFactorOfModulus() {
+        BigInteger n = publicKey.getN();
+        BigInteger p = CrtDecryptor.factor(n, keyPair.getPrivateKey().getLambda());
+
+        assertEquals(BigInteger.ZERO, n.mod(p));
+    }
+
+    @Test
+    public void forKeyPair_returnsSameInstanceForSameKeyPair() {
+        assertSame(subject, CrtDecryptor.forKeyPair(keyPair));
+    }
+
+    @Test
+    public void decrypt_matchesKeyPairDecryption() {
+        BigInteger m = BigInteger.valueOf(1234567);
+        BigInteger c = publicKey.encrypt(m);
+
+        assertEquals(m, subject.decrypt(c));
+        assertEquals(keyPair.decrypt(c), subject.decrypt(c));
+    }
+
+    @Test
+    public void decrypt_returnsNegativeValuesModuloN() {
+        BigInteger c = publicKey.encrypt(BigInteger.valueOf(-5));
+
+        assertEquals(publicKey.getN().subtract(BigInteger.valueOf(5)), subject.decrypt(c));
+    }
+
+    @Test
+    public void decryptAll_keepsOrderOfCiphertexts() {
+        List<BigInteger> ciphertexts = Arrays.asList(
+                publicKey.encrypt(BigInteger.valueOf(3)),
+                publicKey.encrypt(BigInteger.valueOf(1)),
+                publicKey.encrypt(BigInteger.valueOf(2)));
+
+        List<BigInteger> plaintexts = subject.decryptAll(ciphertexts, CryptoExecutor.sequential());
+
+        assertEquals(Arrays.asList(BigInteger.valueOf(3), BigInteger.ONE, BigInteger.valueOf(2)), plaintexts);
+    }
+
+    @Test
+    public void decryptAll_withExecutorMatchesSequentialDecryption() {
+        List<BigInteger> ciphertexts = Arrays.asList(
+                publicKey.encrypt(BigInteger.valueOf(3)),
+                publicKey.encrypt(BigInteger.valueOf(1)),
+                publicKey.encrypt(BigInteger.valueOf(2)));
+
+        List<BigInteger> expected = new ArrayList<>();
+        for (BigInteger c : ciphertexts) {
+            expected.add(subject.decrypt(c));
+        }
+
+        CryptoExecutor executor = CryptoExecutor.workStealing(2);
+        try {
+            assertEquals(expected, subject.decryptAll(ciphertexts, executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.jpaillier.KeyPair;
+import de.henku.jpaillier.KeyPairBuilder;
+import de.henku.jpaillier.PublicKey;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EncryptionEngineTests {
+
+    private KeyPair keyPair;
+    private PublicKey publicKey;
+
+    @Before
+    public void beforeEach() {
+        keyPair = new KeyPairBuilder().generateKeyPair();
+        publicKey = keyPair.getPublicKey();
+    }
+
+    @Test
+    public void encrypt_fallsBackToGeneratorExponentiation() {
+        EncryptionEngine subject = new EncryptionEngine(publicKey);
+
+        assertFalse(subject.usesGeneratorShortcut());
+        assertEquals(BigInteger.valueOf(1234567), keyPair.decrypt(subject.encrypt(BigInteger.valueOf(1234567))));
+    }
+
+    @Test
+    public void encrypt_usesShortcutForGeneratorNPlusOne() {
+        ThresholdKeyPair thresholdKeyPair = new ThresholdKeyPairBuilder().bits(512).parties(1).generateKeyPair();
+        PublicKey key = thresholdKeyPair.getPublicKey();
+        PrivateKeyShare share = thresholdKeyPair.getShare(0);
+        ThresholdDecryptor decryptor = new ThresholdDecryptor(key, 1);
+
+        EncryptionEngine subject = new EncryptionEngine(key);
+        assertTrue(subject.usesGeneratorShortcut());
+
+        BigInteger c = subject.encrypt(BigInteger.valueOf(-5));
+        assertEquals(key.getN().subtract(BigInteger.valueOf(5)),
+                decryptor.combine(Collections.singletonList(share.partialDecrypt(c))));
+
+        BigInteger large = key.getN().add(BigInteger.TEN);
+        c = subject.encrypt(large);
+        assertEquals(BigInteger.TEN, decryptor.combine(Collections.singletonList(share.partialDecrypt(c))));
+    }
+
+    @Test
+    public void blindingFactor_isFreshEncryptionOfZero() {
+        EncryptionEngine subject = new EncryptionEngine(publicKey);
+        assertFalse(subject.usesShortExponents());
+
+        BigInteger first = subject.blindingFactor();
+        BigInteger second = subject.blindingFactor();
+
+        assertNotEquals(first, second);
+        assertEquals(BigInteger.ZERO, keyPair.decrypt(first));
+        assertEquals(BigInteger.ZERO, keyPair.decrypt(second));
+    }
+
+    @Test
+    public void blindingFactor_withShortExponentsIsFreshEncryptionOfZero() {
+        EncryptionEngine subject = new EncryptionEngine(publicKey, publicKey.getN().bitLength() / 2, 4);
+        assertTrue(subject.usesShortExponents());
+
+        BigInteger first = subject.blindingFactor();
+        BigInteger second = subject.blindingFactor();
+
+        assertNotEquals(first, second);
+        assertEquals(BigInteger.ZERO, keyPair.decrypt(first));
+        assertEquals(BigInteger.valueOf(42), keyPair.decrypt(subject.encrypt(BigInteger.valueOf(42))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsTooShortExponents() {
+        new EncryptionEngine(publicKey, 64, 4);
+    }
+
+    @Test
+    public void comb_matchesModPow() {
+        Random random = new Random(42);
+        BigInteger base = new BigInteger(publicKey.getnSquared().bitLength() - 1, random);
+
+        for (int teeth : new int[]{1, 3, 8}) {
+            FixedBaseComb comb = new FixedBaseComb(publicKey.getnSquared(), base, 300, teeth);
+
+            for (int bits : new int[]{0, 1, 17, 300}) {
+                BigInteger exponent = new BigInteger(bits, random);
+                assertEquals(base.modPow(exponent, publicKey.getnSquared()), comb.pow(exponent));
+            }
+        }
+    }
+
+    @Test
+    public void forKey_returnsSameEngineForSameKey() {
+        EncryptionEngine engine = EncryptionEngine.forKey(publicKey);
+
+        assertSame(engine, EncryptionEngine.forKey(publicKey));
+
+        assertFalse(engine.usesShortExponents());
+
+        EncryptionEngine custom = new EncryptionEngine(publicKey, publicKey.getN().bitLength() / 2, 4);
+        EncryptionEngine.register(custom);
+        try {
+            assertSame(custom, EncryptionEngine.forKey(publicKey));
+        } finally {
+            EncryptionEngine.unregister(publicKey);
+        }
+    }
+
+    @Test
+    public void forKey_dropsLeastRecentlyUsedEngine() {
+        EncryptionEngine first = EncryptionEngine.forKey(publicKey);
+
+        for (int i = 0; i < EncryptionEngine.MAX_ENGINES; i++) {
+            BigInteger n = BigInteger.valueOf(1001 + 2 * i);
+            EncryptionEngine.forKey(new PublicKey(n, n.multiply(n), n.add(BigInteger.ONE), n.bitLength()));
+        }
+
+        assertNotSame(first, EncryptionEngine.forKey(publicKey));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.jpaillier.KeyPairBuilder;
+import de.henku.jpaillier.PublicKey;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ModularContextTests {
+
+    private PublicKey publicKey;
+    private BigInteger nSquared;
+    private ModularContext subject;
+    private Random random;
+
+    @Before
+    public void beforeEach() {
+        publicKey = new KeyPairBuilder().generateKeyPair().getPublicKey();
+        nSquared = publicKey.getnSquared();
+        subject = new ModularContext(publicKey);
+        random = new Random(42);
+    }
+
+    @Test
+    public void modPow_matchesBigInteger() {
+        for (int bits : new int[]{1, 7, 40, 200, 512, nSquared.bitLength()}) {
+            BigInteger base = new BigInteger(nSquared.bitLength() + 8, random);
+            BigInteger exponent = new BigInteger(bits, random);
+
+            assertEquals(base.modPow(exponent, nSquared), subject.modPow(base, exponent));
+        }
+    }
+
+    @Test
+    public void modPow_usesInverseForNegativeExponent() {
+        BigInteger base = publicKey.encrypt(BigInteger.TEN);
+        BigInteger exponent = BigInteger.valueOf(-12345);
+
+        assertEquals(base.modInverse(nSquared).modPow(exponent.negate(), nSquared), subject.modPow(base, exponent));
+    }
+
+    @Test
+    public void multiply_matchesBigInteger() {
+        BigInteger a = new BigInteger(nSquared.bitLength(), random);
+        BigInteger b = new BigInteger(nSquared.bitLength(), random);
+
+        assertEquals(a.multiply(b).mod(nSquared), subject.multiply(a, b));
+    }
+
+    @Test
+    public void constructor_usesSquareOfN() {
+        assertEquals(nSquared, subject.getModulus());
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.jpaillier.KeyPair;
+import de.henku.jpaillier.PublicKey;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PaillierKeyPairBuilderTests {
+
+    private KeyPair keyPair;
+    private PublicKey publicKey;
+
+    @Before
+    public void beforeEach() {
+        keyPair = new PaillierKeyPairBuilder().bits(512).generateKeyPair();
+        publicKey = keyPair.getPublicKey();
+    }
+
+    @Test
+    public void generateKeyPair_usesNPlusOneAsGenerator() {
+        assertEquals(512, publicKey.getN().bitLength());
+        assertEquals(publicKey.getN().add(BigInteger.ONE), publicKey.getG());
+        assertTrue(new EncryptionEngine(publicKey).usesGeneratorShortcut());
+    }
+
+    @Test
+    public void decrypt_recoversPlaintextOfEngineAndJpaillier() {
+        BigInteger m = BigInteger.valueOf(1234567);
+
+        assertEquals(m, keyPair.decrypt(new EncryptionEngine(publicKey).encrypt(m)));
+        assertEquals(m, keyPair.decrypt(publicKey.encrypt(m)));
+    }
+
+    @Test
+    public void decrypt_worksWithCrtDecryptor() {
+        BigInteger m = BigInteger.valueOf(42);
+
+        assertEquals(m, CrtDecryptor.forKeyPair(keyPair).decrypt(publicKey.encrypt(m)));
+    }
+
+    @Test
+    public void decrypt_returnsNegativeValuesAboveUpperBound() {
+        KeyPair bounded = new PaillierKeyPairBuilder().bits(512).upperBound(BigInteger.valueOf(1000)).generateKeyPair();
+
+        BigInteger c = bounded.getPublicKey().encrypt(BigInteger.valueOf(-5));
+
+        assertEquals(BigInteger.valueOf(-5), bounded.decrypt(c));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.paillier;
+
+import de.henku.jpaillier.KeyPairBuilder;
+import de.henku.jpaillier.PublicKey;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ThresholdDecryptorTests {
+
+    private ThresholdKeyPair keyPair;
+    private PublicKey publicKey;
+    private ThresholdDecryptor subject;
+
+    @Before
+    public void beforeEach() {
+        keyPair = new ThresholdKeyPairBuilder().bits(512).parties(4).generateKeyPair();
+        publicKey = keyPair.getPublicKey();
+        subject = new ThresholdDecryptor(publicKey, keyPair.getParties());
+    }
+
+    @Test
+    public void generateKeyPair_createsShareForEveryParty() {
+        assertEquals(4, keyPair.getShares().size());
+        assertEquals(512, publicKey.getN().bitLength());
+        assertEquals(publicKey.getN().add(BigInteger.ONE), publicKey.getG());
+
+        for (int i = 0; i < keyPair.getParties(); i++) {
+            assertEquals(i, keyPair.getShare(i).getIndex());
+            assertEquals(4, keyPair.getShare(i).getParties());
+        }
+    }
+
+    @Test
+    public void combine_decryptsWithAllShares() {
+        BigInteger m = BigInteger.valueOf(1234567);
+        BigInteger c = publicKey.encrypt(m);
+
+        assertEquals(m, subject.combine(partialDecryptions(c)));
+    }
+
+    @Test
+    public void combine_returnsNegativeValuesModuloN() {
+        BigInteger c = publicKey.encrypt(BigInteger.valueOf(-5));
+
+        assertEquals(publicKey.getN().subtract(BigInteger.valueOf(5)), subject.combine(partialDecryptions(c)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void combine_rejectsMissingShare() {
+        BigInteger c = publicKey.encrypt(BigInteger.TEN);
+
+        subject.combine(partialDecryptions(c).subList(1, 4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void combine_rejectsPartialDecryptionsOfDifferentCiphertexts() {
+        List<BigInteger> partials = partialDecryptions(publicKey.encrypt(BigInteger.TEN));
+        partials.set(0, keyPair.getShare(0).partialDecrypt(publicKey.encrypt(BigInteger.ONE)));
+
+        subject.combine(partials);
+    }
+
+    @Test
+    public void combineAll_keepsOrderOfCiphertexts() {
+        List<BigInteger> ciphertexts = Arrays.asList(
+                publicKey.encrypt(BigInteger.valueOf(3)),
+                publicKey.encrypt(BigInteger.valueOf(1)),
+                publicKey.encrypt(BigInteger.valueOf(2)));
+
+        List<List<BigInteger>> partialsPerParty = new ArrayList<>();
+        for (PrivateKeyShare share : keyPair.getShares()) {
+            partialsPerParty.add(share.partialDecryptAll(ciphertexts));
+        }
+
+        assertEquals(Arrays.asList(BigInteger.valueOf(3), BigInteger.ONE, BigInteger.valueOf(2)),
+                subject.combineAll(partialsPerParty));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsKeyWithRandomGenerator() {
+        new ThresholdDecryptor(new KeyPairBuilder().generateKeyPair().getPublicKey(), 2);
+    }
+
+    private List<BigInteger> partialDecryptions(BigInteger ciphertext) {
+        List<BigInteger> partials = new ArrayList<>();
+        for (PrivateKeyShare share : keyPair.getShares()) {
+            partials.add(share.partialDecrypt(ciphertext));
+        }
+        return partials;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.random;
+
+import de.henku.jpaillier.KeyPairBuilder;
+import de.henku.jpaillier.PublicKey;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class RandomnessProviderTests {
+
+    @Test
+    public void shareBits_exceedsModulusByStatisticalSecurity() {
+        PublicKey publicKey = new KeyPairBuilder().generateKeyPair().getPublicKey();
+        RandomnessProvider subject = new ThreadLocalRandomnessProvider(30);
+
+        assertEquals(publicKey.getN().bitLength() + 30, subject.shareBits(publicKey));
+        assertTrue(subject.nextShare(publicKey).bitLength() <= subject.shareBits(publicKey));
+    }
+
+    @Test
+    public void nextBits_fillsArrayWithValuesBelowBound() {
+        RandomnessProvider subject = new ThreadLocalRandomnessProvider();
+        BigInteger[] values = new BigInteger[100];
+
+        subject.nextBits(13, values);
+
+        for (BigInteger value : values) {
+            assertNotNull(value);
+            assertTrue(value.signum() >= 0);
+            assertTrue(value.bitLength() <= 13);
+        }
+    }
+
+    @Test
+    public void deterministicProvider_repeatsSequenceForSameSeed() {
+        BigInteger[] first = new BigInteger[10];
+        BigInteger[] second = new BigInteger[10];
+
+        new DeterministicRandomnessProvider(42).nextBits(100, first);
+        new DeterministicRandomnessProvider(42).nextBits(100, second);
+
+        assertArrayEquals(first, second);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.scheme;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EcCurveTests {
+
+    private final EcCurve curve = EcCurve.P256;
+    private final EcPoint g = curve.getGenerator();
+
+    @Test
+    public void multiply_matchesRepeatedAddition() {
+        EcPoint sum = EcPoint.INFINITY;
+        for (int k = 1; k <= 20; k++) {
+            sum = curve.add(sum, g);
+
+            assertEquals(sum, curve.multiply(g, BigInteger.valueOf(k)));
+            assertEquals(sum, curve.multiplyGenerator(BigInteger.valueOf(k)));
+        }
+    }
+
+    @Test
+    public void multiply_withOrderGivesInfinity() {
+        assertTrue(curve.multiply(g, curve.getOrder()).isInfinity());
+        assertEquals(curve.negate(g), curve.multiplyGenerator(curve.getOrder().subtract(BigInteger.ONE)));
+    }
+
+    @Test
+    public void multiply_isCompatibleWithFixedBase() {
+        BigInteger k = new BigInteger("123456789abcdef0123456789abcdef", 16);
+        EcPoint h = curve.multiply(g, BigInteger.valueOf(987654321));
+
+        assertEquals(curve.multiply(h, k), new FixedBaseTable(curve, h).multiply(k));
+    }
+
+    @Test
+    public void decode_restoresEncodedPoint() {
+        EcPoint point = curve.multiplyGenerator(BigInteger.valueOf(42));
+        EcPoint negated = curve.negate(point);
+
+        assertEquals(point, curve.decode(curve.encode(point), 0));
+        assertEquals(negated, curve.decode(curve.encode(negated), 0));
+        assertEquals(EcPoint.INFINITY, curve.decode(curve.encode(EcPoint.INFINITY), 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void point_rejectsPointNotOnCurve() {
+        curve.point(BigInteger.ONE, BigInteger.ONE);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.scheme;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class EcElGamalSchemeTests {
+
+    private EcElGamalScheme subject;
+
+    @Before
+    public void beforeEach() {
+        subject = EcElGamalScheme.generate(EcCurve.P256, 256);
+    }
+
+    @Test
+    public void decrypt_recoversSmallPlaintexts() {
+        for (long m : new long[]{0, 1, 255, 256, 257, 40000, -1, -300}) {
+            assertEquals(BigInteger.valueOf(m), subject.decrypt(subject.encrypt(BigInteger.valueOf(m))));
+        }
+    }
+
+    @Test
+    public void homomorphicOperations_actOnPlaintexts() {
+        EcElGamalCiphertext a = subject.encrypt(BigInteger.valueOf(17));
+        EcElGamalCiphertext b = subject.encrypt(BigInteger.valueOf(25));
+
+        assertEquals(BigInteger.valueOf(42), subject.decrypt(subject.add(a, b)));
+        assertEquals(BigInteger.valueOf(51), subject.decrypt(subject.multiply(a, BigInteger.valueOf(3))));
+        assertEquals(BigInteger.valueOf(-17), subject.decrypt(subject.negate(a)));
+        assertEquals(BigInteger.valueOf(17), subject.decrypt(subject.rerandomize(a)));
+    }
+
+    @Test
+    public void decode_restoresEncodedCiphertext() {
+        EcElGamalCiphertext c = subject.encrypt(BigInteger.TEN);
+        byte[] encoded = subject.encode(c);
+
+        assertEquals(2 * EcCurve.P256.encodedLength(), encoded.length);
+        assertEquals(c, subject.decode(encoded));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void decrypt_rejectsPlaintextOutOfRange() {
+        subject.decrypt(subject.encrypt(BigInteger.valueOf(256 * 256 + 1)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void decrypt_requiresPrivateKey() {
+        EcElGamalScheme publicScheme = subject.publicScheme();
+
+        publicScheme.decrypt(publicScheme.encrypt(BigInteger.ONE));
+    }
+}
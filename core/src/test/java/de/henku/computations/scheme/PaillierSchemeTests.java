@@ -0,0 +1,73 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.computations.scheme;
+
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
+import de.henku.jpaillier.KeyPair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class PaillierSchemeTests {
+
+    private KeyPair keyPair;
+    private PaillierScheme subject;
+
+    @Before
+    public void beforeEach() {
+        keyPair = new PaillierKeyPairBuilder().generateKeyPair();
+        subject = new PaillierScheme(keyPair);
+    }
+
+    @Test
+    public void homomorphicOperations_actOnPlaintexts() {
+        BigInteger n = subject.getPlaintextModulus();
+        BigInteger a = subject.encrypt(BigInteger.valueOf(17));
+        BigInteger b = subject.encrypt(BigInteger.valueOf(25));
+
+        assertEquals(BigInteger.valueOf(42), subject.decrypt(subject.add(a, b)));
+        assertEquals(BigInteger.valueOf(51), subject.decrypt(subject.multiply(a, BigInteger.valueOf(3))));
+        assertEquals(n.subtract(BigInteger.valueOf(17)), subject.decrypt(subject.negate(a)));
+    }
+
+    @Test
+    public void decode_restoresEncodedCiphertext() {
+        BigInteger c = subject.encrypt(BigInteger.TEN);
+        byte[] encoded = subject.encode(c);
+
+        assertEquals((keyPair.getPublicKey().getnSquared().bitLength() + 7) / 8, encoded.length);
+        assertEquals(c, subject.decode(encoded));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void decrypt_requiresPrivateKey() {
+        PaillierScheme publicScheme = new PaillierScheme(keyPair.getPublicKey());
+
+        publicScheme.decrypt(publicScheme.encrypt(BigInteger.ONE));
+    }
+}
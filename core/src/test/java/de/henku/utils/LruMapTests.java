@@ -0,0 +1,67 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LruMapTests {
+
+    @Test
+    public void put_evictsLeastRecentlyUsedEntry() {
+        LruMap<String, Integer> subject = new LruMap<>(2);
+        subject.put("a", 1);
+        subject.put("b", 2);
+        subject.get("a");
+
+        subject.put("c", 3);
+
+        assertEquals(2, subject.size());
+        assertTrue(subject.containsKey("a"));
+        assertFalse(subject.containsKey("b"));
+    }
+
+    @Test
+    public void setMaxSize_dropsLeastRecentlyUsedEntries() {
+        LruMap<String, Integer> subject = new LruMap<>(3);
+        subject.put("a", 1);
+        subject.put("b", 2);
+        subject.put("c", 3);
+        subject.get("a");
+
+        subject.setMaxSize(1);
+
+        assertEquals(1, subject.size());
+        assertTrue(subject.containsKey("a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setMaxSize_rejectsNegativeSize() {
+        new LruMap<String, Integer>(-1);
+    }
+}
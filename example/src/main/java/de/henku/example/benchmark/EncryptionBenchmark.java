@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.example.benchmark;
+
+import de.henku.computations.paillier.EncryptionEngine;
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
+import de.henku.computations.random.RandomnessProvider;
+import de.henku.jpaillier.KeyPairBuilder;
+import de.henku.jpaillier.PublicKey;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Compares {@link PublicKey#encrypt(BigInteger)} with the
+ * {@link EncryptionEngine} on the plaintexts of a square division: small
+ * counts and output shares of the size of {@code n}.
+ * <p>
+ * The engine is measured on a key with a random generator, as created by
+ * jpaillier, and on a key with {@code g = n + 1}, as created by
+ * {@link PaillierKeyPairBuilder}, both with the default
+ * blinding factors {@code r^n} and with the opt-in short exponent blinding
+ * factors. Prints the CPU time per encryption and the time to set up the
+ * comb table of a short exponent engine. The
+ * arguments set the key sizes, 1024, 2048 and 3072 bits by default.
+ */
+public class EncryptionBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 100;
+
+    public static void main(String[] args) {
+        int[] bits = args.length > 0 ? parse(args) : new int[]{1024, 2048, 3072};
+
+        for (int b : bits) {
+            PublicKey randomG = new KeyPairBuilder().bits(b).generateKeyPair().getPublicKey();
+            PublicKey nPlusOne = new PaillierKeyPairBuilder().bits(b).generateKeyPair().getPublicKey();
+
+            BigInteger[] plaintexts = plaintexts(randomG);
+
+            run(b, "jpaillier", plaintexts, randomG::encrypt);
+
+            run(b, "engine, random g", plaintexts, new EncryptionEngine(randomG)::encrypt);
+            run(b, "engine, g = n + 1", plaintexts, new EncryptionEngine(nPlusOne)::encrypt);
+
+            long start = cpuTime();
+            EncryptionEngine engine = new EncryptionEngine(randomG, b / 2, EncryptionEngine.DEFAULT_TEETH);
+            long setup = cpuTime() - start;
+            run(b, "DJN, random g", plaintexts, engine::encrypt);
+
+            EncryptionEngine fast = new EncryptionEngine(nPlusOne, b / 2, EncryptionEngine.DEFAULT_TEETH);
+            run(b, "DJN, g = n + 1", plaintexts, fast::encrypt);
+
+            System.out.printf("%5d bits  %-18s  %9.3f ms%n", b, "engine setup", setup / 1e6);
+        }
+    }
+
+    private static BigInteger[] plaintexts(PublicKey publicKey) {
+        BigInteger[] plaintexts = new BigInteger[16];
+        RandomnessProvider randomness = RandomnessProvider.getDefault();
+
+        for (int i = 0; i < plaintexts.length; i++) {
+            plaintexts[i] = i % 2 == 0
+                    ? BigInteger.valueOf(i * 100)
+                    : randomness.nextShare(publicKey);
+        }
+
+        return plaintexts;
+    }
+
+    private static void run(int bits, String name, BigInteger[] plaintexts, UnaryOperator<BigInteger> encrypt) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            encrypt.apply(plaintexts[i % plaintexts.length]);
+        }
+
+        long start = cpuTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            encrypt.apply(plaintexts[i % plaintexts.length]);
+        }
+
+        System.out.printf("%5d bits  %-18s  %9.3f ms per encryption%n",
+                bits, name, (cpuTime() - start) / 1e6 / ROUNDS);
+    }
+
+    private static long cpuTime() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.getCurrentThreadCpuTime();
+    }
+
+    private static int[] parse(String[] args) {
+        int[] bits = new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            bits[i] = Integer.parseInt(args[i]);
+        }
+        return bits;
+    }
+}
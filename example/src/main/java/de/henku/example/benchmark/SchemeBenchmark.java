@@ -0,0 +1,229 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.example.benchmark;
+
+import com.opencsv.CSVReader;
+import de.henku.algorithm.id3_horizontal.AdditionResults;
+import de.henku.algorithm.id3_horizontal.Attribute;
+import de.henku.algorithm.id3_horizontal.DataLayer;
+import de.henku.algorithm.id3_horizontal.EncryptedCounts;
+import de.henku.algorithm.id3_horizontal.EncryptedSums;
+import de.henku.algorithm.id3_horizontal.HomomorphicSquareDivisionMaster;
+import de.henku.algorithm.id3_horizontal.HomomorphicSquareDivisionSlave;
+import de.henku.algorithm.id3_horizontal.MultiplicationResult;
+import de.henku.algorithm.id3_horizontal.SecureSquareDivisionMaster;
+import de.henku.algorithm.id3_horizontal.SecureSquareDivisionSlave;
+import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+import de.henku.computations.concurrent.CryptoExecutor;
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
+import de.henku.computations.scheme.EcCurve;
+import de.henku.computations.scheme.EcElGamalScheme;
+import de.henku.computations.scheme.HomomorphicScheme;
+import de.henku.computations.scheme.PaillierScheme;
+import de.henku.example.id3.cars.Cars;
+import de.henku.example.id3.cars.CarsListRow;
+import de.henku.example.id3.utils.ListAttributeBuilder;
+import de.henku.example.id3.utils.ListDataLayer;
+import de.henku.jpaillier.KeyPair;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigInteger;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the homomorphic schemes on the square divisions of the root
+ * node of the "Car Evaluation Data Set", split between two parties.
+ * <p>
+ * Runs one square division per attribute value with
+ * <ul>
+ * <li>the share based protocol of {@link SecureSquareDivisionMaster} on
+ * Paillier,</li>
+ * <li>the direct protocol of {@link HomomorphicSquareDivisionMaster} on
+ * Paillier and</li>
+ * <li>the direct protocol on EC-ElGamal over P-256,</li>
+ * </ul>
+ * and prints the CPU time and the number of ciphertext bytes exchanged by
+ * both parties. The first argument sets the Paillier key size, 2048 bits by
+ * default.
+ * <p>
+ * The CPU time is measured on the calling thread, so the share based
+ * square divisions run with {@link CryptoExecutor#sequential()} instead of
+ * the default pool, whose threads would not be counted.
+ */
+public class SchemeBenchmark {
+
+    private static final List<NodeValuePair> ROOT = Collections.emptyList();
+
+    public static void main(String[] args) throws IOException {
+        int bits = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+
+        List<CarsListRow> transactions = loadData();
+        Collections.shuffle(transactions, new Random(42));
+
+        List<Attribute> attributes = extractAttributes(transactions);
+        Attribute classAttribute = new ListAttributeBuilder<CarsListRow>("classValue").from_transactions(transactions);
+
+        int half = transactions.size() / 2;
+        DataLayer master = new ListDataLayer<>(transactions.subList(0, half), classAttribute);
+        DataLayer slave = new ListDataLayer<>(transactions.subList(half, transactions.size()), classAttribute);
+
+        KeyPair keyPair = new PaillierKeyPairBuilder().bits(bits).generateKeyPair();
+        PaillierScheme paillier = new PaillierScheme(keyPair);
+        EcElGamalScheme ecElGamal = EcElGamalScheme.generate(EcCurve.P256);
+
+        // warm up, including the discrete log table
+        shares(keyPair, paillier, attributes, master, slave);
+        direct(paillier, new PaillierScheme(keyPair.getPublicKey()), attributes, master, slave);
+        direct(ecElGamal, ecElGamal.publicScheme(), attributes, master, slave);
+
+        report("Paillier " + bits + " shares", shares(keyPair, paillier, attributes, master, slave));
+        report("Paillier " + bits + " direct",
+                direct(paillier, new PaillierScheme(keyPair.getPublicKey()), attributes, master, slave));
+        report("EC-ElGamal P-256 direct",
+                direct(ecElGamal, ecElGamal.publicScheme(), attributes, master, slave));
+    }
+
+    private static long[] shares(KeyPair keyPair, PaillierScheme scheme, List<Attribute> attributes,
+                                 DataLayer masterData, DataLayer slaveData) {
+        int length = scheme.encode(scheme.encrypt(BigInteger.ZERO)).length;
+        long ciphertexts = 0;
+        long start = cpuTime();
+        int divisions = 0;
+
+        for (Attribute a : attributes) {
+            for (String value : a.getValues()) {
+                SecureSquareDivisionMaster master = new SecureSquareDivisionMaster(keyPair);
+                SecureSquareDivisionSlave slave = new SecureSquareDivisionSlave(keyPair.getPublicKey());
+                master.setExecutor(CryptoExecutor.sequential());
+                slave.setExecutor(CryptoExecutor.sequential());
+
+                Map<Object, Long> masterCounts = masterData.countPerClassValue(ROOT, a.getName(), value);
+                Map<Object, Long> slaveCounts = slaveData.countPerClassValue(ROOT, a.getName(), value);
+
+                List<MultiplicationResult> mr = master.createMultiplications(masterCounts);
+                mr = slave.handleMultiplicationForwardStep(slaveCounts, mr);
+                mr = slave.handleMultiplicationBackwardStep(mr);
+                AdditionResults ar = master.handleMultiplicationBackwardStep(mr);
+                ar = slave.handleAdditionForwardStep(ar);
+                ar = slave.handleAdditionBackwardStep(ar);
+                master.handleAdditionBackwardStep(ar);
+                master.computeResult(Collections.singletonList(slave.getAdditionOutputShares()));
+
+                // multiplications there and back, Z and W there and back
+                ciphertexts += 2 * mr.size() + 4;
+                divisions++;
+            }
+        }
+
+        return new long[]{divisions, cpuTime() - start, ciphertexts * length};
+    }
+
+    private static <C> long[] direct(HomomorphicScheme<C> masterScheme, HomomorphicScheme<C> slaveScheme,
+                                     List<Attribute> attributes, DataLayer masterData, DataLayer slaveData) {
+        long bytes = 0;
+        long start = cpuTime();
+        int divisions = 0;
+
+        for (Attribute a : attributes) {
+            for (String value : a.getValues()) {
+                HomomorphicSquareDivisionMaster<C> master = new HomomorphicSquareDivisionMaster<>(masterScheme);
+                HomomorphicSquareDivisionSlave<C> slave = new HomomorphicSquareDivisionSlave<>(slaveScheme);
+
+                Map<Object, Long> masterCounts = masterData.countPerClassValue(ROOT, a.getName(), value);
+                Map<Object, Long> slaveCounts = slaveData.countPerClassValue(ROOT, a.getName(), value);
+
+                EncryptedCounts<C> counts = master.encryptCounts(masterCounts);
+                EncryptedSums<C> sums = slave.addCounts(slaveCounts, counts);
+                master.computeResult(sums);
+
+                for (C c : counts.getCounts()) {
+                    bytes += masterScheme.encode(c).length;
+                }
+                bytes += masterScheme.encode(counts.getSumOfSquares()).length;
+                bytes += masterScheme.encode(sums.getZ()).length + masterScheme.encode(sums.getW()).length;
+                divisions++;
+            }
+        }
+
+        return new long[]{divisions, cpuTime() - start, bytes};
+    }
+
+    private static void report(String name, long[] result) {
+        System.out.printf("%-28s %3d divisions  %10.1f ms CPU  %9d bytes%n",
+                name, result[0], result[1] / 1e6, result[2]);
+    }
+
+    private static long cpuTime() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.getCurrentThreadCpuTime();
+    }
+
+    private static List<Attribute> extractAttributes(List<CarsListRow> transactions) {
+        List<Attribute> attributes = new ArrayList<>();
+        for (String name : Arrays.asList("buying", "maint", "doors", "persons", "lug_boot", "safety")) {
+            attributes.add(new ListAttributeBuilder<CarsListRow>(name).from_transactions(transactions));
+        }
+
+        return attributes;
+    }
+
+    private static List<CarsListRow> loadData() throws IOException {
+        List<CarsListRow> transactions = new ArrayList<>();
+
+        ClassLoader classloader = Thread.currentThread().getContextClassLoader();
+        URL url = classloader.getResource(Cars.DATASET_URL);
+        assert url != null;
+        CSVReader reader = new CSVReader(new FileReader(new File(url.getFile())));
+
+        String[] nextLine;
+        while ((nextLine = reader.readNext()) != null) {
+            if (nextLine.length != 7) {
+                throw new IOException("not enough rows");
+            }
+
+            transactions.add(new CarsListRow(
+                    nextLine[0],
+                    nextLine[1],
+                    nextLine[2],
+                    nextLine[3],
+                    nextLine[4],
+                    nextLine[5],
+                    nextLine[6]
+            ));
+        }
+
+        return transactions;
+    }
+}
@@ -31,10 +31,10 @@ import de.henku.algorithm.id3_horizontal.SecureID3;
 import de.henku.algorithm.id3_horizontal.SquareDivisionLastController;
 import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
 import de.henku.algorithm.id3_horizontal.tree.ID3Node;
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
 import de.henku.example.id3.utils.ListAttributeBuilder;
 import de.henku.example.id3.utils.ListDataLayer;
 import de.henku.jpaillier.KeyPair;
-import de.henku.jpaillier.KeyPairBuilder;
 
 import java.io.File;
 import java.io.FileReader;
@@ -73,7 +73,7 @@ public class TicTacToe {
         List<TTTListRow> transactions1 = transactions.subList(0, half);
         List<TTTListRow> transactions2 = transactions.subList(half, transactions.size());
 
-        KeyPair keyPair = new KeyPairBuilder().bits(128)
+        KeyPair keyPair = new PaillierKeyPairBuilder().bits(128)
                 .generateKeyPair();
 
         DataLayer dataLayerSlave = new ListDataLayer<>(transactions2, playBall);
@@ -25,6 +25,7 @@
 package de.henku.example.id3.utils;
 
 import de.henku.algorithm.id3_horizontal.Attribute;
+import de.henku.algorithm.id3_horizontal.ContingencyTable;
 import de.henku.algorithm.id3_horizontal.DataLayer;
 import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
 
@@ -76,4 +77,31 @@ public class ListDataLayer<T extends HashMap<String, String>> implements DataLay
         return result;
     }
 
+    /**
+     * Counts all attribute values of the rows on the path in a single scan.
+     */
+    @Override
+    public ContingencyTable contingencyTable(List<NodeValuePair> path) {
+        String className = classAttribute.getName();
+        ContingencyTable table = new ContingencyTable(classAttribute.getValues());
+
+        for (T row : transactions) {
+            boolean onPath = true;
+            for (NodeValuePair nvp : path) {
+                onPath &= row.get(nvp.getNode()).equals(nvp.getValue());
+            }
+            if (!onPath) {
+                continue;
+            }
+
+            String classValue = row.get(className);
+            for (Map.Entry<String, String> e : row.entrySet()) {
+                if (!e.getKey().equals(className)) {
+                    table.increment(e.getKey(), e.getValue(), classValue);
+                }
+            }
+        }
+
+        return table;
+    }
 }
@@ -32,10 +32,10 @@ import de.henku.algorithm.id3_horizontal.SecureID3;
 import de.henku.algorithm.id3_horizontal.SquareDivisionLastController;
 import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
 import de.henku.algorithm.id3_horizontal.tree.ID3Node;
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
 import de.henku.example.id3.utils.ListAttributeBuilder;
 import de.henku.example.id3.utils.ListDataLayer;
 import de.henku.jpaillier.KeyPair;
-import de.henku.jpaillier.KeyPairBuilder;
 import org.jgrapht.UndirectedGraph;
 import org.jgrapht.ext.JGraphXAdapter;
 import org.jgrapht.graph.SimpleGraph;
@@ -61,7 +61,7 @@ public class TwoPartyExample {
         System.out.println(transactions2);
         System.out.println();
 
-        KeyPair keyPair = new KeyPairBuilder().bits(512)
+        KeyPair keyPair = new PaillierKeyPairBuilder().bits(512)
                 .generateKeyPair();
 
         DataLayer dataLayerSlave = new ListDataLayer<>(transactions2, playBall);
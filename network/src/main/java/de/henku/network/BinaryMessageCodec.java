@@ -0,0 +1,571 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.network;
+
+import de.henku.algorithm.id3_horizontal.AdditionResults;
+import de.henku.algorithm.id3_horizontal.MultiplicationResult;
+import de.henku.algorithm.id3_horizontal.PackedAdditionResults;
+import de.henku.algorithm.id3_horizontal.PackedMultiplicationResult;
+import de.henku.algorithm.id3_horizontal.PackedSecureSquareDivisionSlave;
+import de.henku.algorithm.id3_horizontal.SquareDivisionResult;
+import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+import de.henku.algorithm.id3_horizontal.communication.FusedSquareDivisionPojo;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionPojo;
+import de.henku.jpaillier.PublicKey;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact {@link MessageCodec} for a fixed key and attribute schema.
+ * <p>
+ * The body of a frame is laid out as follows:
+ * <ul>
+ * <li>Ciphertexts are written as fixed-width unsigned big-endian numbers of
+ * {@code ceil(bitLength(n^2) / 8)} bytes, without length or sign.</li>
+ * <li>Attribute names, attribute values and class values are written as
+ * varint ordinals of the {@link ValueDictionary}. The code {@code 0} is
+ * followed by a literal UTF-8 string for values missing from the
+ * dictionary; class values reserve the code {@code 1} for
+ * {@code null}.</li>
+ * <li>Ids, counts and slot widths are unsigned varints, output shares are
+ * length-prefixed two's-complement numbers, as they are not reduced modulo
+ * the key.</li>
+ * <li>Batches are written as their size followed by the square divisions,
+ * each with its id.</li>
+ * <li>The results of a square division pojo are preceded by a flag byte
+ * for packed results and the fused protocol flow. Fused replies append
+ * their additions and output shares.</li>
+ * </ul>
+ * Frames are encoded into direct buffers of a {@link BufferPool}, which are
+ * returned to the pool by {@link #release(ByteBuffer)} once the transport
+ * has written them, and decoded straight from the read buffer of the
+ * transport. The only copies left are the magnitude arrays, which
+ * {@link BigInteger} needs on both sides.
+ */
+public class BinaryMessageCodec implements MessageCodec {
+
+    private static final Message.Type[] TYPES = Message.Type.values();
+
+    private static final int BATCH = 0x80;
+
+    private static final int LITERAL = 0;
+    private static final int NULL_CLASS_VALUE = 1;
+    private static final int CLASS_VALUE_OFFSET = 2;
+
+    private static final int PACKED = 1;
+    private static final int FUSED = 2;
+    private static final int FUSED_REPLY = 4;
+
+    private static final int MAX_VARINT = 10;
+
+    private final ValueDictionary dictionary;
+    private final BufferPool pool;
+    private final BigInteger nSquared;
+    private final int ciphertextLength;
+
+    public BinaryMessageCodec(PublicKey publicKey, ValueDictionary dictionary) {
+        this(publicKey, dictionary, new BufferPool());
+    }
+
+    /**
+     * @param publicKey  The key, whose {@code n^2} determines the width of
+     *                   the ciphertexts.
+     * @param dictionary The ordinals, which have to match the peer.
+     * @param pool       The pool of the frame buffers.
+     */
+    public BinaryMessageCodec(PublicKey publicKey, ValueDictionary dictionary, BufferPool pool) {
+        this.dictionary = dictionary;
+        this.pool = pool;
+        this.nSquared = publicKey.getnSquared();
+        this.ciphertextLength = (nSquared.bitLength() + 7) >>> 3;
+    }
+
+    public int getCiphertextLength() {
+        return ciphertextLength;
+    }
+
+    @Override
+    public ByteBuffer encode(Message message) {
+        ByteBuffer frame = pool.acquire(4 + maxBodyLength(message));
+
+        frame.position(4);
+        frame.put((byte) (message.getType().ordinal() | (message.isBatch() ? BATCH : 0)));
+        if (message.isBatch()) {
+            writeVarLong(frame, message.size());
+        }
+
+        for (int i = 0; i < message.size(); i++) {
+            writeVarLong(frame, message.getSquareIDs().get(i));
+
+            switch (message.getType()) {
+                case MULTIPLICATION_FORWARD:
+                case MULTIPLICATION_BACKWARD:
+                    writePojo(frame, message.getPojos().get(i));
+                    break;
+                case ADDITION_FORWARD:
+                case ADDITION_BACKWARD:
+                    writeAdditionResults(frame, message.getAllAdditionResults().get(i));
+                    break;
+                case OUTPUT_SHARES:
+                    writeOutputShares(frame, message.getAllOutputShares().get(i));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        frame.flip();
+        frame.putInt(0, frame.limit() - 4);
+        return frame;
+    }
+
+    @Override
+    public Message decode(ByteBuffer body) throws IOException {
+        try {
+            int header = body.get() & 0xFF;
+            int typeIndex = header & ~BATCH;
+            if (typeIndex >= TYPES.length) {
+                throw new IOException("unknown message type " + typeIndex);
+            }
+            Message.Type type = TYPES[typeIndex];
+            boolean batch = (header & BATCH) != 0;
+            int count = batch ? readLength(body) : 1;
+
+            List<Long> ids = new ArrayList<>(Math.min(count, body.remaining()));
+            List<SquareDivisionPojo> pojos = new ArrayList<>();
+            List<AdditionResults> additionResults = new ArrayList<>();
+            List<List<SquareDivisionResult>> outputShares = new ArrayList<>();
+
+            for (int i = 0; i < count; i++) {
+                long squareID = readVarLong(body);
+                ids.add(squareID);
+
+                switch (type) {
+                    case MULTIPLICATION_FORWARD:
+                    case MULTIPLICATION_BACKWARD:
+                        pojos.add(readPojo(body, squareID));
+                        break;
+                    case ADDITION_FORWARD:
+                    case ADDITION_BACKWARD:
+                        additionResults.add(readAdditionResults(body));
+                        break;
+                    case OUTPUT_SHARES:
+                        outputShares.add(readOutputShares(body));
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            if (body.hasRemaining()) {
+                throw new IOException(body.remaining() + " trailing bytes in frame");
+            }
+
+            switch (type) {
+                case MULTIPLICATION_FORWARD:
+                case MULTIPLICATION_BACKWARD:
+                    return batch ? Message.multiplications(type, pojos) : Message.multiplication(type, pojos.get(0));
+                case ADDITION_FORWARD:
+                case ADDITION_BACKWARD:
+                    return batch
+                            ? Message.additions(type, ids, additionResults)
+                            : Message.addition(type, ids.get(0), additionResults.get(0));
+                case OUTPUT_SHARES:
+                    return batch
+                            ? Message.outputShares(ids, outputShares)
+                            : Message.outputShares(ids.get(0), outputShares.get(0));
+                case FAILED:
+                    return Message.failed(ids);
+                default:
+                    return batch ? Message.collectOutputShares(ids) : Message.collectOutputShares(ids.get(0));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("malformed frame", e);
+        }
+    }
+
+    @Override
+    public void release(ByteBuffer frame) {
+        pool.release(frame);
+    }
+
+    /**
+     * Upper bound of the body length, so that the body can be written into a
+     * single buffer without growing it.
+     */
+    private int maxBodyLength(Message message) {
+        int length = 1 + MAX_VARINT;
+
+        for (int i = 0; i < message.size(); i++) {
+            length += MAX_VARINT;
+
+            switch (message.getType()) {
+                case MULTIPLICATION_FORWARD:
+                case MULTIPLICATION_BACKWARD:
+                    length += maxPojoLength(message.getPojos().get(i));
+                    break;
+                case ADDITION_FORWARD:
+                case ADDITION_BACKWARD:
+                    length += 1 + 2 * ciphertextLength;
+                    break;
+                case OUTPUT_SHARES:
+                    length += maxOutputSharesLength(message.getAllOutputShares().get(i));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        return length;
+    }
+
+    private int maxOutputSharesLength(List<SquareDivisionResult> shares) {
+        int length = MAX_VARINT;
+        for (SquareDivisionResult r : shares) {
+            length += 1 + maxShareLength(r.getOutputShareZ()) + maxShareLength(r.getOutputShareW())
+                    + maxClassValueLength(r.getClassValue());
+        }
+
+        return length;
+    }
+
+    private int maxPojoLength(SquareDivisionPojo pojo) {
+        int length = maxLiteralLength(pojo.getAttrName()) + maxLiteralLength(pojo.getAttrValue());
+
+        length += MAX_VARINT;
+        for (NodeValuePair nvp : pojo.getPath()) {
+            length += maxLiteralLength(nvp.getNode()) + maxLiteralLength(nvp.getValue());
+        }
+
+        length += 1 + 2 * MAX_VARINT;
+        for (MultiplicationResult r : pojo.getResults()) {
+            length += ciphertextLength;
+            if (r instanceof PackedMultiplicationResult) {
+                for (Object cv : ((PackedMultiplicationResult) r).getClassValues()) {
+                    length += maxClassValueLength(cv);
+                }
+            } else {
+                length += maxClassValueLength(r.getClassValue());
+            }
+        }
+
+        if (pojo instanceof FusedSquareDivisionPojo && ((FusedSquareDivisionPojo) pojo).isReply()) {
+            length += 1 + 2 * ciphertextLength
+                    + maxOutputSharesLength(((FusedSquareDivisionPojo) pojo).getOutputShares());
+        }
+
+        return length;
+    }
+
+    private void writePojo(ByteBuffer out, SquareDivisionPojo pojo) {
+        writeAttribute(out, pojo.getAttrName(), pojo.getAttrValue());
+
+        writeVarLong(out, pojo.getPath().size());
+        for (NodeValuePair nvp : pojo.getPath()) {
+            writeAttribute(out, nvp.getNode(), nvp.getValue());
+        }
+
+        int flags = 0;
+        if (pojo instanceof FusedSquareDivisionPojo) {
+            flags |= ((FusedSquareDivisionPojo) pojo).isReply() ? FUSED | FUSED_REPLY : FUSED;
+        }
+
+        List<MultiplicationResult> results = pojo.getResults();
+        if (PackedSecureSquareDivisionSlave.isPacked(results)) {
+            PackedMultiplicationResult r = (PackedMultiplicationResult) results.get(0);
+            out.put((byte) (flags | PACKED));
+            writeVarLong(out, r.getSlotBits());
+            writeVarLong(out, r.getClassValues().size());
+            for (Object cv : r.getClassValues()) {
+                writeClassValue(out, cv);
+            }
+            writeCiphertext(out, r.getResult());
+        } else {
+            out.put((byte) flags);
+            writeVarLong(out, results.size());
+            for (MultiplicationResult r : results) {
+                if (r instanceof PackedMultiplicationResult) {
+                    throw new IllegalArgumentException("packed results have to be sent alone");
+                }
+                writeClassValue(out, r.getClassValue());
+                writeCiphertext(out, r.getResult());
+            }
+        }
+
+        if ((flags & FUSED_REPLY) != 0) {
+            FusedSquareDivisionPojo reply = (FusedSquareDivisionPojo) pojo;
+            writeAdditionResults(out, reply.getAdditionResults());
+            writeOutputShares(out, reply.getOutputShares());
+        }
+    }
+
+    private SquareDivisionPojo readPojo(ByteBuffer in, long squareID) throws IOException {
+        String[] attribute = readAttribute(in);
+
+        int pathSize = readLength(in);
+        List<NodeValuePair> path = new ArrayList<>(Math.min(pathSize, in.remaining()));
+        for (int i = 0; i < pathSize; i++) {
+            String[] nvp = readAttribute(in);
+            path.add(new NodeValuePair(nvp[0], nvp[1]));
+        }
+
+        int flags = in.get();
+        if ((flags & ~(PACKED | FUSED | FUSED_REPLY)) != 0) {
+            throw new IOException("unknown square division flags " + flags);
+        }
+
+        List<MultiplicationResult> results;
+        if ((flags & PACKED) != 0) {
+            int slotBits = readLength(in);
+            int count = readLength(in);
+            List<Object> classValues = new ArrayList<>(Math.min(count, in.remaining()));
+            for (int i = 0; i < count; i++) {
+                classValues.add(readClassValue(in));
+            }
+
+            results = new ArrayList<>(1);
+            results.add(new PackedMultiplicationResult(classValues, slotBits, readCiphertext(in)));
+        } else {
+            int count = readLength(in);
+            results = new ArrayList<>(Math.min(count, in.remaining()));
+            for (int i = 0; i < count; i++) {
+                Object classValue = readClassValue(in);
+                results.add(new MultiplicationResult(classValue, readCiphertext(in)));
+            }
+        }
+
+        if ((flags & FUSED_REPLY) != 0) {
+            AdditionResults additionResults = readAdditionResults(in);
+            return new FusedSquareDivisionPojo(squareID, attribute[0], attribute[1], path, results,
+                    additionResults, readOutputShares(in));
+        } else if ((flags & FUSED) != 0) {
+            return new FusedSquareDivisionPojo(squareID, attribute[0], attribute[1], path, results);
+        }
+
+        return new SquareDivisionPojo(squareID, attribute[0], attribute[1], path, results);
+    }
+
+    private void writeAdditionResults(ByteBuffer out, AdditionResults results) {
+        boolean packed = results instanceof PackedAdditionResults;
+
+        out.put((byte) (packed ? 1 : 0));
+        writeCiphertext(out, results.getResultForZ());
+        if (!packed) {
+            writeCiphertext(out, results.getResultForW());
+        }
+    }
+
+    private AdditionResults readAdditionResults(ByteBuffer in) {
+        if (in.get() != 0) {
+            return new PackedAdditionResults(readCiphertext(in));
+        }
+
+        BigInteger z = readCiphertext(in);
+        return new AdditionResults(z, readCiphertext(in));
+    }
+
+    private void writeOutputShares(ByteBuffer out, List<SquareDivisionResult> shares) {
+        writeVarLong(out, shares.size());
+        for (SquareDivisionResult r : shares) {
+            out.put((byte) ((r.getOutputShareZ() != null ? 1 : 0) | (r.getOutputShareW() != null ? 2 : 0)));
+            writeShare(out, r.getOutputShareZ());
+            writeShare(out, r.getOutputShareW());
+            writeClassValue(out, r.getClassValue());
+        }
+    }
+
+    private List<SquareDivisionResult> readOutputShares(ByteBuffer in) throws IOException {
+        int count = readLength(in);
+        List<SquareDivisionResult> shares = new ArrayList<>(Math.min(count, in.remaining()));
+        for (int i = 0; i < count; i++) {
+            int present = in.get();
+            BigInteger z = (present & 1) != 0 ? readShare(in) : null;
+            BigInteger w = (present & 2) != 0 ? readShare(in) : null;
+            shares.add(new SquareDivisionResult(z, w, readClassValue(in)));
+        }
+        return shares;
+    }
+
+    private void writeAttribute(ByteBuffer out, String name, String value) {
+        int attribute = dictionary.attributeOrdinal(name);
+        int ordinal = attribute < 0 ? -1 : dictionary.valueOrdinal(name, value);
+
+        if (ordinal < 0) {
+            writeVarLong(out, LITERAL);
+            writeLiteral(out, name);
+            writeLiteral(out, value);
+        } else {
+            writeVarLong(out, attribute + 1);
+            writeVarLong(out, ordinal);
+        }
+    }
+
+    private String[] readAttribute(ByteBuffer in) throws IOException {
+        int attribute = readLength(in);
+        if (attribute == LITERAL) {
+            return new String[]{readLiteral(in), readLiteral(in)};
+        }
+
+        int ordinal = readLength(in);
+        return new String[]{dictionary.attributeName(attribute - 1), dictionary.value(attribute - 1, ordinal)};
+    }
+
+    private void writeClassValue(ByteBuffer out, Object classValue) {
+        if (classValue == null) {
+            writeVarLong(out, NULL_CLASS_VALUE);
+            return;
+        }
+
+        int ordinal = dictionary.classValueOrdinal(classValue);
+        if (ordinal >= 0) {
+            writeVarLong(out, ordinal + CLASS_VALUE_OFFSET);
+        } else if (classValue instanceof String) {
+            writeVarLong(out, LITERAL);
+            writeLiteral(out, (String) classValue);
+        } else {
+            throw new IllegalArgumentException("unknown class value " + classValue);
+        }
+    }
+
+    private Object readClassValue(ByteBuffer in) throws IOException {
+        int code = readLength(in);
+        switch (code) {
+            case LITERAL:
+                return readLiteral(in);
+            case NULL_CLASS_VALUE:
+                return null;
+            default:
+                return dictionary.classValue(code - CLASS_VALUE_OFFSET);
+        }
+    }
+
+    private void writeCiphertext(ByteBuffer out, BigInteger c) {
+        if (c.signum() < 0 || c.compareTo(nSquared) >= 0) {
+            throw new IllegalArgumentException("ciphertext out of range");
+        }
+
+        byte[] bytes = c.toByteArray();
+        // drop the sign byte, pad to the fixed width
+        int offset = bytes[0] == 0 && bytes.length > 1 ? 1 : 0;
+        int length = bytes.length - offset;
+        for (int i = length; i < ciphertextLength; i++) {
+            out.put((byte) 0);
+        }
+        out.put(bytes, offset, length);
+    }
+
+    private BigInteger readCiphertext(ByteBuffer in) {
+        byte[] magnitude = new byte[ciphertextLength];
+        in.get(magnitude);
+        return new BigInteger(1, magnitude);
+    }
+
+    private static void writeShare(ByteBuffer out, BigInteger share) {
+        if (share == null) {
+            return;
+        }
+
+        byte[] bytes = share.toByteArray();
+        writeVarLong(out, bytes.length);
+        out.put(bytes);
+    }
+
+    private static BigInteger readShare(ByteBuffer in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return new BigInteger(bytes);
+    }
+
+    private static void writeLiteral(ByteBuffer out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.put(bytes);
+    }
+
+    private static String readLiteral(ByteBuffer in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int maxClassValueLength(Object classValue) {
+        if (classValue instanceof String && dictionary.classValueOrdinal(classValue) < 0) {
+            return MAX_VARINT + maxLiteralLength((String) classValue);
+        }
+        return MAX_VARINT;
+    }
+
+    private static int maxLiteralLength(String s) {
+        // three bytes per char cover every UTF-8 encoding of UTF-16 input
+        return 2 * MAX_VARINT + 3 * s.length();
+    }
+
+    private static int maxShareLength(BigInteger share) {
+        return share == null ? 0 : MAX_VARINT + (share.bitLength() >>> 3) + 1;
+    }
+
+    private static void writeVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint too long");
+    }
+
+    private static byte[] readBytes(ByteBuffer in) throws IOException {
+        int length = readLength(in);
+        if (length > in.remaining()) {
+            // checked before allocating, a corrupt length must not cost a huge array
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static int readLength(ByteBuffer in) throws IOException {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("length out of range: " + value);
+        }
+        return (int) value;
+    }
+}
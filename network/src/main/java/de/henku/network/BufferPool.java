@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.network;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe pool of direct {@link ByteBuffer}s.
+ * <p>
+ * Buffers are grouped into size classes of powers of two, starting at
+ * 4 KiB. Direct buffers are expensive to allocate, but can be handed to
+ * the socket without the copy into a temporary direct buffer that the JDK
+ * makes for heap buffers.
+ */
+public class BufferPool {
+
+    public static final int DEFAULT_BUFFERS_PER_CLASS = 32;
+
+    private static final int MIN_SHIFT = 12;
+    private static final int MAX_SHIFT = 27;
+
+    private final int buffersPerClass;
+    private final List<Queue<ByteBuffer>> pools;
+    private final AtomicInteger[] pooled;
+
+    public BufferPool() {
+        this(DEFAULT_BUFFERS_PER_CLASS);
+    }
+
+    /**
+     * @param buffersPerClass The maximum number of idle buffers kept per size
+     *                        class.
+     */
+    public BufferPool(int buffersPerClass) {
+        this.buffersPerClass = buffersPerClass;
+
+        int classes = MAX_SHIFT - MIN_SHIFT + 1;
+        this.pools = new ArrayList<>(classes);
+        this.pooled = new AtomicInteger[classes];
+        for (int i = 0; i < classes; i++) {
+            pools.add(new ConcurrentLinkedQueue<>());
+            pooled[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Returns a cleared buffer with a capacity of at least {@code size}
+     * bytes and its limit set to {@code size}.
+     *
+     * @param size The required size.
+     * @return The buffer.
+     */
+    public ByteBuffer acquire(int size) {
+        int sizeClass = sizeClass(size);
+        if (sizeClass >= pools.size()) {
+            return ByteBuffer.allocateDirect(size);
+        }
+
+        ByteBuffer buffer = pools.get(sizeClass).poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(1 << (sizeClass + MIN_SHIFT));
+        } else {
+            pooled[sizeClass].decrementAndGet();
+            buffer.clear();
+        }
+
+        buffer.limit(size);
+        return buffer;
+    }
+
+    /**
+     * Returns the buffer to the pool. Buffers, which were not acquired from a
+     * pool, are dropped.
+     *
+     * @param buffer The buffer.
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (!buffer.isDirect() || capacity < 1 << MIN_SHIFT || Integer.bitCount(capacity) != 1) {
+            return;
+        }
+
+        int sizeClass = sizeClass(capacity);
+        if (sizeClass >= pools.size() || pooled[sizeClass].incrementAndGet() > buffersPerClass) {
+            if (sizeClass < pools.size()) {
+                pooled[sizeClass].decrementAndGet();
+            }
+            return;
+        }
+
+        pools.get(sizeClass).add(buffer);
+    }
+
+    private static int sizeClass(int size) {
+        if (size <= 1 << MIN_SHIFT) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+}
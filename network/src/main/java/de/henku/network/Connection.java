@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.network;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A non-blocking connection of a {@link SocketTransport}.
+ * <p>
+ * Frames can be queued from any thread with {@link #send(ByteBuffer)}. All
+ * reads and writes happen on the selector thread of the transport, which
+ * writes as many queued frames as the socket accepts with a single
+ * gathering write. The read buffer is direct, so that the codec can decode
+ * the frames without another copy.
+ */
+final class Connection {
+
+    static final int MAX_FRAME_LENGTH = 1 << 26;
+
+    private static final int INITIAL_READ_BUFFER = 1 << 14;
+    private static final int MAX_GATHER = 64;
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final MessageCodec codec;
+    private final Consumer<Connection> flushScheduler;
+
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // only touched by the selector thread
+    private final ArrayDeque<ByteBuffer> writing = new ArrayDeque<>();
+    private ByteBuffer in = ByteBuffer.allocateDirect(INITIAL_READ_BUFFER);
+
+    Connection(SocketChannel channel, SelectionKey key, MessageCodec codec,
+               Consumer<Connection> flushScheduler) {
+        this.channel = channel;
+        this.key = key;
+        this.codec = codec;
+        this.flushScheduler = flushScheduler;
+    }
+
+    SocketChannel channel() {
+        return channel;
+    }
+
+    /**
+     * Queues the frame without waiting for the socket.
+     */
+    void send(ByteBuffer frame) {
+        outbound.add(frame);
+
+        if (flushScheduled.compareAndSet(false, true)) {
+            flushScheduler.accept(this);
+        }
+    }
+
+    /**
+     * Registers the interest in writing. Has to be called on the selector
+     * thread.
+     */
+    void enableWrite() {
+        if (key.isValid()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Writes queued frames until the queue is empty or the socket buffer is
+     * full.
+     */
+    void write() throws IOException {
+        while (true) {
+            ByteBuffer next;
+            while (writing.size() < MAX_GATHER && (next = outbound.poll()) != null) {
+                writing.add(next);
+            }
+
+            if (writing.isEmpty()) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                flushScheduled.set(false);
+
+                // a frame might have been queued after the poll above without scheduling a flush
+                if (outbound.isEmpty() || !flushScheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                continue;
+            }
+
+            channel.write(writing.toArray(new ByteBuffer[writing.size()]));
+
+            while (!writing.isEmpty() && !writing.peek().hasRemaining()) {
+                codec.release(writing.poll());
+            }
+
+            if (!writing.isEmpty()) {
+                // socket buffer is full, wait for the next OP_WRITE
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads from the socket and passes every complete frame to the codec.
+     * A frame, which the codec cannot decode, fails the connection like a
+     * read error.
+     *
+     * @param handler Receives the decoded messages.
+     */
+    void read(Consumer<Message> handler) throws IOException {
+        if (channel.read(in) < 0) {
+            throw new EOFException("connection closed by peer");
+        }
+
+        in.flip();
+        while (in.remaining() >= 4) {
+            int length = in.getInt(in.position());
+            if (length < 0 || length > MAX_FRAME_LENGTH) {
+                throw new IOException("invalid frame length " + length);
+            }
+
+            if (in.remaining() < 4 + length) {
+                if (in.capacity() < 4 + length) {
+                    ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(4 + length, 2 * in.capacity()));
+                    larger.put(in);
+                    in = larger;
+                    return;
+                }
+                break;
+            }
+
+            int start = in.position() + 4;
+            ByteBuffer body = in.duplicate();
+            body.position(start).limit(start + length);
+            Message message;
+            try {
+                message = codec.decode(body);
+            } catch (RuntimeException e) {
+                throw new IOException("malformed frame of " + length + " bytes", e);
+            }
+            handler.accept(message);
+
+            in.position(start + length);
+        }
+        in.compact();
+    }
+
+    void close() {
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // nothing left to do
+        }
+
+        ByteBuffer frame;
+        while ((frame = writing.poll()) != null) {
+            codec.release(frame);
+        }
+        while ((frame = outbound.poll()) != null) {
+            codec.release(frame);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.network;
+
+import de.henku.algorithm.id3_horizontal.AdditionResults;
+import de.henku.algorithm.id3_horizontal.MultiplicationResult;
+import de.henku.algorithm.id3_horizontal.PackedAdditionResults;
+import de.henku.algorithm.id3_horizontal.PackedMultiplicationResult;
+import de.henku.algorithm.id3_horizontal.SquareDivisionResult;
+import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+import de.henku.algorithm.id3_horizontal.communication.FusedSquareDivisionPojo;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionPojo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Straightforward {@link MessageCodec} based on {@link DataOutput}.
+ * <p>
+ * Ciphertexts are written as length-prefixed two's-complement byte arrays,
+ * strings as modified UTF-8. Class values may be {@code null}, strings,
+ * integral numbers or lists of those, which covers the class values of the
+ * packed square divisions. Batches are written as their size followed by
+ * the single messages without their type. Square division pojos end with
+ * their protocol flow, fused replies with their additions and output
+ * shares.
+ */
+public class DataMessageCodec implements MessageCodec {
+
+    private static final Message.Type[] TYPES = Message.Type.values();
+
+    private static final int BATCH = 0x80;
+
+    private static final int PLAIN = 0;
+    private static final int FUSED = 1;
+    private static final int FUSED_REPLY = 2;
+
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int LONG = 2;
+    private static final int LIST = 3;
+
+    @Override
+    public ByteBuffer encode(Message message) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            // placeholder for the length prefix
+            out.writeInt(0);
+            out.writeByte(message.getType().ordinal() | (message.isBatch() ? BATCH : 0));
+            if (message.isBatch()) {
+                out.writeInt(message.size());
+            }
+
+            for (int i = 0; i < message.size(); i++) {
+                out.writeLong(message.getSquareIDs().get(i));
+                writeElement(out, message, i);
+            }
+        } catch (IOException e) {
+            // cannot happen for an in-memory stream
+            throw new UncheckedIOException(e);
+        }
+
+        ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+        frame.putInt(0, frame.capacity() - 4);
+        return frame;
+    }
+
+    @Override
+    public Message decode(ByteBuffer body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(body));
+
+        int header = in.readUnsignedByte();
+        int typeIndex = header & ~BATCH;
+        if (typeIndex >= TYPES.length) {
+            throw new IOException("unknown message type " + typeIndex);
+        }
+        Message.Type type = TYPES[typeIndex];
+        boolean batch = (header & BATCH) != 0;
+        int count = batch ? in.readInt() : 1;
+        if (count < 0) {
+            throw new IOException("invalid batch size " + count);
+        }
+
+        List<Long> ids = new ArrayList<>();
+        List<SquareDivisionPojo> pojos = new ArrayList<>();
+        List<AdditionResults> additionResults = new ArrayList<>();
+        List<List<SquareDivisionResult>> outputShares = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            long squareID = in.readLong();
+            ids.add(squareID);
+
+            switch (type) {
+                case MULTIPLICATION_FORWARD:
+                case MULTIPLICATION_BACKWARD:
+                    pojos.add(readPojo(in, squareID));
+                    break;
+                case ADDITION_FORWARD:
+                case ADDITION_BACKWARD:
+                    additionResults.add(readAdditionResults(in));
+                    break;
+                case OUTPUT_SHARES:
+                    outputShares.add(readOutputShares(in));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        switch (type) {
+            case MULTIPLICATION_FORWARD:
+            case MULTIPLICATION_BACKWARD:
+                return batch ? Message.multiplications(type, pojos) : Message.multiplication(type, pojos.get(0));
+            case ADDITION_FORWARD:
+            case ADDITION_BACKWARD:
+                return batch
+                        ? Message.additions(type, ids, additionResults)
+                        : Message.addition(type, ids.get(0), additionResults.get(0));
+            case OUTPUT_SHARES:
+                return batch
+                        ? Message.outputShares(ids, outputShares)
+                        : Message.outputShares(ids.get(0), outputShares.get(0));
+            case FAILED:
+                return Message.failed(ids);
+            default:
+                return batch ? Message.collectOutputShares(ids) : Message.collectOutputShares(ids.get(0));
+        }
+    }
+
+    private static void writeElement(DataOutput out, Message message, int i) throws IOException {
+        switch (message.getType()) {
+            case MULTIPLICATION_FORWARD:
+            case MULTIPLICATION_BACKWARD:
+                writePojo(out, message.getPojos().get(i));
+                break;
+            case ADDITION_FORWARD:
+            case ADDITION_BACKWARD:
+                writeAdditionResults(out, message.getAllAdditionResults().get(i));
+                break;
+            case OUTPUT_SHARES:
+                writeOutputShares(out, message.getAllOutputShares().get(i));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void writePojo(DataOutput out, SquareDivisionPojo pojo) throws IOException {
+        out.writeUTF(pojo.getAttrName());
+        out.writeUTF(pojo.getAttrValue());
+
+        out.writeInt(pojo.getPath().size());
+        for (NodeValuePair nvp : pojo.getPath()) {
+            out.writeUTF(nvp.getNode());
+            out.writeUTF(nvp.getValue());
+        }
+
+        out.writeInt(pojo.getResults().size());
+        for (MultiplicationResult r : pojo.getResults()) {
+            if (r instanceof PackedMultiplicationResult) {
+                out.writeBoolean(true);
+                out.writeInt(((PackedMultiplicationResult) r).getSlotBits());
+            } else {
+                out.writeBoolean(false);
+            }
+            writeValue(out, r.getClassValue());
+            writeBigInteger(out, r.getResult());
+        }
+
+        if (!(pojo instanceof FusedSquareDivisionPojo)) {
+            out.writeByte(PLAIN);
+        } else if (!((FusedSquareDivisionPojo) pojo).isReply()) {
+            out.writeByte(FUSED);
+        } else {
+            FusedSquareDivisionPojo reply = (FusedSquareDivisionPojo) pojo;
+            out.writeByte(FUSED_REPLY);
+            writeAdditionResults(out, reply.getAdditionResults());
+            writeOutputShares(out, reply.getOutputShares());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SquareDivisionPojo readPojo(DataInput in, long squareID) throws IOException {
+        String attrName = in.readUTF();
+        String attrValue = in.readUTF();
+
+        int pathSize = in.readInt();
+        List<NodeValuePair> path = new ArrayList<>(pathSize);
+        for (int i = 0; i < pathSize; i++) {
+            path.add(new NodeValuePair(in.readUTF(), in.readUTF()));
+        }
+
+        int resultCount = in.readInt();
+        List<MultiplicationResult> results = new ArrayList<>(resultCount);
+        for (int i = 0; i < resultCount; i++) {
+            if (in.readBoolean()) {
+                int slotBits = in.readInt();
+                List<Object> classValues = (List<Object>) readValue(in);
+                results.add(new PackedMultiplicationResult(classValues, slotBits, readBigInteger(in)));
+            } else {
+                Object classValue = readValue(in);
+                results.add(new MultiplicationResult(classValue, readBigInteger(in)));
+            }
+        }
+
+        switch (in.readByte()) {
+            case PLAIN:
+                return new SquareDivisionPojo(squareID, attrName, attrValue, path, results);
+            case FUSED:
+                return new FusedSquareDivisionPojo(squareID, attrName, attrValue, path, results);
+            case FUSED_REPLY:
+                AdditionResults additionResults = readAdditionResults(in);
+                return new FusedSquareDivisionPojo(squareID, attrName, attrValue, path, results,
+                        additionResults, readOutputShares(in));
+            default:
+                throw new IOException("unknown square division flow");
+        }
+    }
+
+    private static void writeAdditionResults(DataOutput out, AdditionResults results) throws IOException {
+        out.writeBoolean(results instanceof PackedAdditionResults);
+        writeBigInteger(out, results.getResultForZ());
+        writeBigInteger(out, results.getResultForW());
+    }
+
+    private static AdditionResults readAdditionResults(DataInput in) throws IOException {
+        boolean packed = in.readBoolean();
+        BigInteger z = readBigInteger(in);
+        BigInteger w = readBigInteger(in);
+
+        return packed ? new PackedAdditionResults(z) : new AdditionResults(z, w);
+    }
+
+    private static void writeOutputShares(DataOutput out, List<SquareDivisionResult> shares) throws IOException {
+        out.writeInt(shares.size());
+        for (SquareDivisionResult r : shares) {
+            writeBigInteger(out, r.getOutputShareZ());
+            writeBigInteger(out, r.getOutputShareW());
+            writeValue(out, r.getClassValue());
+        }
+    }
+
+    private static List<SquareDivisionResult> readOutputShares(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<SquareDivisionResult> shares = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BigInteger z = readBigInteger(in);
+            BigInteger w = readBigInteger(in);
+            shares.add(new SquareDivisionResult(z, w, readValue(in)));
+        }
+        return shares;
+    }
+
+    private static void writeBigInteger(DataOutput out, BigInteger value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.toByteArray();
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static BigInteger readBigInteger(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new BigInteger(bytes);
+    }
+
+    private static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            out.writeByte(LONG);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object o : list) {
+                writeValue(out, o);
+            }
+        } else {
+            throw new IllegalArgumentException("unsupported class value " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(DataInput in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return in.readUTF();
+            case LONG:
+                return in.readLong();
+            case LIST:
+                int size = in.readInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            default:
+                throw new IOException("unknown value tag " + tag);
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
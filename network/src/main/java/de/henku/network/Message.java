@@ -0,0 +1,211 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.network;
+
+import de.henku.algorithm.id3_horizontal.AdditionResults;
+import de.henku.algorithm.id3_horizontal.SquareDivisionResult;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionPojo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A protocol message of one or a batch of square divisions, as it is sent
+ * over the wire.
+ * <p>
+ * Every message carries the ids of its square divisions, so that many
+ * square divisions can be in flight on the same connection. Depending on
+ * the {@link Type} a message carries per square division either a
+ * {@link SquareDivisionPojo}, {@link AdditionResults}, output shares or
+ * nothing. Batches are sent by the batch methods of the adapters, e.g.
+ * {@link de.henku.algorithm.id3_horizontal.communication.SquareDivisionSenderAdapter#handleMultiplicationForwardSteps(List)}.
+ */
+public final class Message {
+
+    public enum Type {
+        /**
+         * {@link de.henku.algorithm.id3_horizontal.communication.SquareDivisionSenderAdapter#handleMultiplicationForwardStep(SquareDivisionPojo)}
+         */
+        MULTIPLICATION_FORWARD,
+        /**
+         * {@link de.henku.algorithm.id3_horizontal.communication.SquareDivisionSenderAdapter#handleAdditionForwardStep(long, AdditionResults)}
+         */
+        ADDITION_FORWARD,
+        /**
+         * {@link de.henku.algorithm.id3_horizontal.communication.SquareDivisionSenderAdapter#collectOutputShares(long)}
+         */
+        COLLECT_OUTPUT_SHARES,
+        /**
+         * {@link de.henku.algorithm.id3_horizontal.communication.SquareDivisionReceiverAdapter#handleMultiplicationBackwardStep(SquareDivisionPojo)}
+         */
+        MULTIPLICATION_BACKWARD,
+        /**
+         * {@link de.henku.algorithm.id3_horizontal.communication.SquareDivisionReceiverAdapter#handleAdditionBackwardStep(long, AdditionResults)}
+         */
+        ADDITION_BACKWARD,
+        /**
+         * {@link de.henku.algorithm.id3_horizontal.communication.SquareDivisionReceiverAdapter#handleCollectOutputShares(long, List)}
+         */
+        OUTPUT_SHARES,
+        /**
+         * {@link de.henku.algorithm.id3_horizontal.communication.SquareDivisionReceiverAdapter#handleFailedSquareDivisions(List)}
+         */
+        FAILED
+    }
+
+    private final Type type;
+    private final boolean batch;
+    private final List<Long> squareIDs;
+    private final List<SquareDivisionPojo> pojos;
+    private final List<AdditionResults> additionResults;
+    private final List<List<SquareDivisionResult>> outputShares;
+
+    private Message(Type type, boolean batch, List<Long> squareIDs, List<SquareDivisionPojo> pojos,
+                    List<AdditionResults> additionResults, List<List<SquareDivisionResult>> outputShares) {
+        this.type = type;
+        this.batch = batch;
+        this.squareIDs = squareIDs;
+        this.pojos = pojos;
+        this.additionResults = additionResults;
+        this.outputShares = outputShares;
+    }
+
+    public static Message multiplication(Type type, SquareDivisionPojo pojo) {
+        return multiplications(type, Collections.singletonList(pojo), false);
+    }
+
+    public static Message multiplications(Type type, List<SquareDivisionPojo> pojos) {
+        return multiplications(type, pojos, true);
+    }
+
+    public static Message addition(Type type, long squareID, AdditionResults results) {
+        return additions(type, Collections.singletonList(squareID), Collections.singletonList(results), false);
+    }
+
+    public static Message additions(Type type, List<Long> squareIDs, List<AdditionResults> results) {
+        return additions(type, squareIDs, results, true);
+    }
+
+    public static Message collectOutputShares(long squareID) {
+        return new Message(Type.COLLECT_OUTPUT_SHARES, false, Collections.singletonList(squareID), null, null, null);
+    }
+
+    public static Message collectOutputShares(List<Long> squareIDs) {
+        return new Message(Type.COLLECT_OUTPUT_SHARES, true, squareIDs, null, null, null);
+    }
+
+    public static Message outputShares(long squareID, List<SquareDivisionResult> outputShares) {
+        return new Message(Type.OUTPUT_SHARES, false, Collections.singletonList(squareID), null, null,
+                Collections.singletonList(outputShares));
+    }
+
+    public static Message outputShares(List<Long> squareIDs, List<List<SquareDivisionResult>> outputShares) {
+        checkSize(squareIDs, outputShares);
+        return new Message(Type.OUTPUT_SHARES, true, squareIDs, null, null, outputShares);
+    }
+
+    public static Message failed(List<Long> squareIDs) {
+        return new Message(Type.FAILED, true, squareIDs, null, null, null);
+    }
+
+    private static Message multiplications(Type type, List<SquareDivisionPojo> pojos, boolean batch) {
+        if (type != Type.MULTIPLICATION_FORWARD && type != Type.MULTIPLICATION_BACKWARD) {
+            throw new IllegalArgumentException("not a multiplication step: " + type);
+        }
+
+        List<Long> ids = new ArrayList<>(pojos.size());
+        for (SquareDivisionPojo pojo : pojos) {
+            ids.add(pojo.getId());
+        }
+        return new Message(type, batch, ids, pojos, null, null);
+    }
+
+    private static Message additions(Type type, List<Long> squareIDs, List<AdditionResults> results,
+                                     boolean batch) {
+        if (type != Type.ADDITION_FORWARD && type != Type.ADDITION_BACKWARD) {
+            throw new IllegalArgumentException("not an addition step: " + type);
+        }
+        checkSize(squareIDs, results);
+        return new Message(type, batch, squareIDs, null, results, null);
+    }
+
+    private static void checkSize(List<Long> squareIDs, List<?> values) {
+        if (squareIDs.size() != values.size()) {
+            throw new IllegalArgumentException("expected " + squareIDs.size() + " values, got " + values.size());
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return {@code true}, if the message was created by a batch method of
+     * the adapters, even if it contains a single square division.
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
+    /**
+     * @return The number of square divisions in the message.
+     */
+    public int size() {
+        return squareIDs.size();
+    }
+
+    public List<Long> getSquareIDs() {
+        return squareIDs;
+    }
+
+    public long getSquareID() {
+        return squareIDs.get(0);
+    }
+
+    public List<SquareDivisionPojo> getPojos() {
+        return pojos;
+    }
+
+    public SquareDivisionPojo getPojo() {
+        return pojos.get(0);
+    }
+
+    public List<AdditionResults> getAllAdditionResults() {
+        return additionResults;
+    }
+
+    public AdditionResults getAdditionResults() {
+        return additionResults.get(0);
+    }
+
+    public List<List<SquareDivisionResult>> getAllOutputShares() {
+        return outputShares;
+    }
+
+    public List<SquareDivisionResult> getOutputShares() {
+        return outputShares.get(0);
+    }
+}
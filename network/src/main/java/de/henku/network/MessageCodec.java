@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Converts {@link Message}s to frames and back.
+ * <p>
+ * A frame starts with the length of its body as a big-endian {@code int},
+ * followed by the body itself. The transport only relies on this length
+ * prefix, the layout of the body is up to the codec.
+ */
+public interface MessageCodec {
+
+    /**
+     * Encodes the message into a frame.
+     *
+     * @param message The message.
+     * @return The frame including its length prefix, ready to be read from
+     * position to limit.
+     */
+    ByteBuffer encode(Message message);
+
+    /**
+     * Decodes the body of a frame. The buffer is only valid during the call.
+     *
+     * @param body The body without the length prefix, from position to
+     *             limit.
+     * @return The message.
+     * @throws IOException if the body is malformed.
+     */
+    Message decode(ByteBuffer body) throws IOException;
+
+    /**
+     * Called by the transport once a frame returned by
+     * {@link #encode(Message)} was written completely.
+     *
+     * @param frame The frame.
+     */
+    default void release(ByteBuffer frame) {
+    }
+}
@@ -0,0 +1,676 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.network;
+
+import de.henku.algorithm.id3_horizontal.AdditionResults;
+import de.henku.algorithm.id3_horizontal.SquareDivisionResult;
+import de.henku.algorithm.id3_horizontal.communication.FusedSquareDivisionPojo;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionPojo;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionReceiverAdapter;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionSenderAdapter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Non-blocking socket transport between the master and the last party of
+ * the square divisions.
+ * <p>
+ * The transport implements both adapters. On the master side it is the
+ * {@link SquareDivisionSenderAdapter} of the
+ * {@link de.henku.algorithm.id3_horizontal.SquareDivisionMasterController}
+ * and hands the replies to the receiver set with
+ * {@link #setReceiver(SquareDivisionReceiverAdapter)}. On the other side it
+ * is the {@link SquareDivisionReceiverAdapter} of the
+ * {@link de.henku.algorithm.id3_horizontal.SquareDivisionLastController} and
+ * hands the requests to the sender set with
+ * {@link #setSender(SquareDivisionSenderAdapter)}:
+ * <pre>
+ * // last party
+ * SocketTransport server = SocketTransport.listen(new InetSocketAddress(port));
+ * SquareDivisionLastController last = new SquareDivisionLastController(dataLayer, publicKey);
+ * last.setReceiver(server);
+ * server.setSender(last);
+ *
+ * // master
+ * SocketTransport client = SocketTransport.connect(new InetSocketAddress(host, port));
+ * SecureID3 id3 = new SecureID3(dataLayer, client, keyPair);
+ * client.setReceiver(id3.getController());
+ * </pre>
+ * All square divisions share one connection. Every message carries its
+ * square division id, and the adapter methods only queue the encoded
+ * message and return, so any number of requests can be pipelined without
+ * waiting for the replies. A single selector thread does all socket I/O;
+ * the decoded messages are handed to the adapters on a dispatch executor,
+ * so the crypto of the controllers never blocks the socket. By default the
+ * dispatcher is a single thread, which handles the messages in the order
+ * they arrived.
+ * <p>
+ * The batch methods of the adapters, which the master controller uses for
+ * all square divisions of a tree node, are sent as a single message per
+ * protocol round.
+ * <p>
+ * The {@link DataMessageCodec} used by default needs no configuration. The
+ * {@link BinaryMessageCodec} writes considerably smaller frames, but needs
+ * the public key and the attribute definitions on both sides.
+ * <p>
+ * A listening transport serves one peer at a time; a new connection
+ * replaces the previous one.
+ * <p>
+ * The transport keeps track of the square divisions it started for the
+ * receiver. If the connection is lost, a frame cannot be decoded or the
+ * transport is closed, the square divisions without a final reply are
+ * reported to the receiver by
+ * {@link SquareDivisionReceiverAdapter#handleFailedSquareDivisions(List)},
+ * so their results do not wait forever. Square divisions, that the master
+ * gives up on by {@link #abandonSquareDivisions(List)}, are no longer
+ * tracked.
+ * <p>
+ * If an adapter throws while handling a message, the error is logged. For
+ * a request of the master, the square divisions of the message are
+ * reported back as failed; for a reply, they are reported to the receiver
+ * as failed.
+ */
+public class SocketTransport implements SquareDivisionSenderAdapter, SquareDivisionReceiverAdapter, Closeable {
+
+    private static final Logger LOG = Logger.getLogger(SocketTransport.class.getName());
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final MessageCodec codec;
+    private final Executor dispatcher;
+    private final ExecutorService ownDispatcher;
+    private final Thread ioThread;
+
+    private final Queue<Connection> pendingFlushes = new ConcurrentLinkedQueue<>();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private volatile Connection connection;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    private volatile SquareDivisionSenderAdapter sender;
+    private volatile SquareDivisionReceiverAdapter receiver;
+
+    private SocketTransport(Selector selector, ServerSocketChannel server, MessageCodec codec, Executor dispatcher) {
+        this.selector = selector;
+        this.server = server;
+        this.codec = codec;
+
+        if (dispatcher == null) {
+            this.ownDispatcher = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "square-division-dispatcher");
+                t.setDaemon(true);
+                return t;
+            });
+            this.dispatcher = ownDispatcher;
+        } else {
+            this.ownDispatcher = null;
+            this.dispatcher = dispatcher;
+        }
+
+        this.ioThread = new Thread(this::run, "square-division-io");
+        this.ioThread.setDaemon(true);
+    }
+
+    /**
+     * Connects to a listening transport with the default codec and
+     * dispatcher.
+     *
+     * @param address The address of the peer.
+     * @return The connected transport.
+     * @throws IOException if the connection cannot be established.
+     */
+    public static SocketTransport connect(SocketAddress address) throws IOException {
+        return connect(address, new DataMessageCodec(), null);
+    }
+
+    /**
+     * Connects to a listening transport.
+     *
+     * @param address    The address of the peer.
+     * @param codec      The codec, which has to match the codec of the peer.
+     * @param dispatcher The executor, on which incoming messages are handed
+     *                   to the adapters, or {@code null} for a single
+     *                   dispatch thread owned by the transport.
+     * @return The connected transport.
+     * @throws IOException if the connection cannot be established.
+     */
+    public static SocketTransport connect(SocketAddress address, MessageCodec codec, Executor dispatcher)
+            throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        Selector selector = Selector.open();
+
+        SocketTransport transport = new SocketTransport(selector, null, codec, dispatcher);
+        try {
+            transport.register(channel);
+        } catch (IOException e) {
+            channel.close();
+            selector.close();
+            throw e;
+        }
+        transport.ioThread.start();
+
+        return transport;
+    }
+
+    /**
+     * Listens for a peer with the default codec and dispatcher.
+     *
+     * @param address The local address, port 0 picks a free port.
+     * @return The listening transport.
+     * @throws IOException if the address cannot be bound.
+     */
+    public static SocketTransport listen(SocketAddress address) throws IOException {
+        return listen(address, new DataMessageCodec(), null);
+    }
+
+    /**
+     * Listens for a peer.
+     *
+     * @param address    The local address, port 0 picks a free port.
+     * @param codec      The codec, which has to match the codec of the peer.
+     * @param dispatcher The executor, on which incoming messages are handed
+     *                   to the adapters, or {@code null} for a single
+     *                   dispatch thread owned by the transport.
+     * @return The listening transport.
+     * @throws IOException if the address cannot be bound.
+     */
+    public static SocketTransport listen(SocketAddress address, MessageCodec codec, Executor dispatcher)
+            throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        Selector selector = Selector.open();
+
+        try {
+            server.bind(address);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+
+        SocketTransport transport = new SocketTransport(selector, server, codec, dispatcher);
+        transport.ioThread.start();
+
+        return transport;
+    }
+
+    /**
+     * Returns the address the transport listens on.
+     *
+     * @return The bound address or {@code null} for a connecting transport.
+     * @throws IOException if the address cannot be determined.
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return server == null ? null : (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /**
+     * Sets the adapter, which receives the requests of the peer.
+     *
+     * @param sender Usually the
+     *               {@link de.henku.algorithm.id3_horizontal.SquareDivisionLastController}.
+     */
+    public void setSender(SquareDivisionSenderAdapter sender) {
+        this.sender = sender;
+    }
+
+    /**
+     * Sets the adapter, which receives the replies of the peer.
+     *
+     * @param receiver Usually the
+     *                 {@link de.henku.algorithm.id3_horizontal.SquareDivisionMasterController}.
+     */
+    public void setReceiver(SquareDivisionReceiverAdapter receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void handleMultiplicationForwardStep(SquareDivisionPojo pojo) {
+        start(Message.multiplication(Message.Type.MULTIPLICATION_FORWARD, pojo));
+    }
+
+    @Override
+    public void handleAdditionForwardStep(long squareID, AdditionResults pojo) {
+        send(Message.addition(Message.Type.ADDITION_FORWARD, squareID, pojo));
+    }
+
+    @Override
+    public void collectOutputShares(long squareID) {
+        send(Message.collectOutputShares(squareID));
+    }
+
+    @Override
+    public void handleMultiplicationBackwardStep(SquareDivisionPojo data) {
+        send(Message.multiplication(Message.Type.MULTIPLICATION_BACKWARD, data));
+    }
+
+    @Override
+    public void handleAdditionBackwardStep(long squareID, AdditionResults results) {
+        send(Message.addition(Message.Type.ADDITION_BACKWARD, squareID, results));
+    }
+
+    @Override
+    public void handleCollectOutputShares(long squareID, List<SquareDivisionResult> outputShares) {
+        send(Message.outputShares(squareID, outputShares));
+    }
+
+    @Override
+    public void handleMultiplicationForwardSteps(List<SquareDivisionPojo> pojos) {
+        start(Message.multiplications(Message.Type.MULTIPLICATION_FORWARD, pojos));
+    }
+
+    @Override
+    public void handleAdditionForwardSteps(List<Long> squareIDs, List<AdditionResults> results) {
+        send(Message.additions(Message.Type.ADDITION_FORWARD, squareIDs, results));
+    }
+
+    @Override
+    public void collectOutputShares(List<Long> squareIDs) {
+        send(Message.collectOutputShares(squareIDs));
+    }
+
+    @Override
+    public void handleMultiplicationBackwardSteps(List<SquareDivisionPojo> data) {
+        send(Message.multiplications(Message.Type.MULTIPLICATION_BACKWARD, data));
+    }
+
+    @Override
+    public void handleAdditionBackwardSteps(List<Long> squareIDs, List<AdditionResults> results) {
+        send(Message.additions(Message.Type.ADDITION_BACKWARD, squareIDs, results));
+    }
+
+    @Override
+    public void handleCollectOutputShares(List<Long> squareIDs, List<List<SquareDivisionResult>> outputShares) {
+        send(Message.outputShares(squareIDs, outputShares));
+    }
+
+    @Override
+    public void abandonSquareDivisions(List<Long> squareIDs) {
+        inFlight.removeAll(squareIDs);
+    }
+
+    @Override
+    public void handleFailedSquareDivisions(List<Long> squareIDs) {
+        send(Message.failed(squareIDs));
+    }
+
+    /**
+     * @return The number of started square divisions, whose final reply did
+     * not arrive yet.
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Returns the error, which closed the last connection.
+     *
+     * @return The error or {@code null}.
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Closes the connection and stops the selector and the own dispatch
+     * thread. Messages, which were not written yet, are dropped and the
+     * square divisions in flight are reported as failed.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+
+        try {
+            ioThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (ownDispatcher != null) {
+            ownDispatcher.shutdown();
+        }
+    }
+
+    /**
+     * Sends the first message of square divisions and tracks them until
+     * their final reply arrives.
+     */
+    private void start(Message message) {
+        List<Long> ids = message.getSquareIDs();
+        inFlight.addAll(ids);
+
+        try {
+            Connection c = send(message);
+
+            if (connection != c) {
+                // the connection was lost while the message was queued, so
+                // it may have missed the report of the square divisions
+                throw new IllegalStateException("connection lost", failure);
+            }
+        } catch (RuntimeException e) {
+            inFlight.removeAll(ids);
+            throw e;
+        }
+    }
+
+    private Connection send(Message message) {
+        Connection c = connection;
+        if (closed || c == null) {
+            throw new IllegalStateException("not connected", failure);
+        }
+
+        c.send(codec.encode(message));
+        return c;
+    }
+
+    private void scheduleFlush(Connection c) {
+        pendingFlushes.add(c);
+        selector.wakeup();
+    }
+
+    private void register(SocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        Connection c = new Connection(channel, key, codec, this::scheduleFlush);
+        key.attach(c);
+
+        Connection previous = connection;
+        connection = c;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select();
+
+                Connection c;
+                while ((c = pendingFlushes.poll()) != null) {
+                    c.enableWrite();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    if (key.isAcceptable()) {
+                        SocketChannel channel = server.accept();
+                        if (channel != null) {
+                            register(channel);
+                        }
+                        continue;
+                    }
+
+                    handle(key, (Connection) key.attachment());
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (ClosedSelectorException e) {
+            // closed concurrently
+        } catch (RuntimeException e) {
+            failure = new IOException("selector thread failed", e);
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void handle(SelectionKey key, Connection c) {
+        try {
+            if (key.isReadable()) {
+                c.read(this::dispatch);
+            }
+            if (key.isValid() && key.isWritable()) {
+                c.write();
+            }
+        } catch (IOException e) {
+            failure = e;
+            c.close();
+            if (connection == c) {
+                connection = null;
+                failInFlight();
+            }
+        }
+    }
+
+    /**
+     * Reports all square divisions in flight as failed to the receiver. The
+     * report is dispatched like a message, so it is handled after the
+     * replies that arrived before.
+     */
+    private void failInFlight() {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>(inFlight);
+        inFlight.removeAll(ids);
+
+        SquareDivisionReceiverAdapter r = receiver;
+        if (r == null) {
+            return;
+        }
+
+        try {
+            dispatcher.execute(() -> r.handleFailedSquareDivisions(ids));
+        } catch (RejectedExecutionException e) {
+            r.handleFailedSquareDivisions(ids);
+        }
+    }
+
+    private void dispatch(Message message) {
+        dispatcher.execute(() -> {
+            try {
+                deliver(message);
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "failed to handle " + message.getType()
+                        + " of square divisions " + message.getSquareIDs(), e);
+                failDelivery(message);
+            }
+        });
+    }
+
+    /**
+     * Reports the square divisions of a message, whose handling threw, as
+     * failed: requests back to the master, replies to the receiver.
+     */
+    private void failDelivery(Message message) {
+        List<Long> ids = message.getSquareIDs();
+
+        try {
+            switch (message.getType()) {
+                case MULTIPLICATION_FORWARD:
+                case ADDITION_FORWARD:
+                case COLLECT_OUTPUT_SHARES:
+                    send(Message.failed(ids));
+                    break;
+                case FAILED:
+                    break;
+                default:
+                    inFlight.removeAll(ids);
+                    receiver().handleFailedSquareDivisions(ids);
+                    break;
+            }
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "failed to report square divisions " + ids + " as failed", e);
+        }
+    }
+
+    private void deliver(Message message) {
+        completed(message);
+
+        if (message.isBatch()) {
+            deliverBatch(message);
+            return;
+        }
+
+        long id = message.getSquareID();
+
+        switch (message.getType()) {
+            case MULTIPLICATION_FORWARD:
+                sender().handleMultiplicationForwardStep(message.getPojo());
+                break;
+            case ADDITION_FORWARD:
+                sender().handleAdditionForwardStep(id, message.getAdditionResults());
+                break;
+            case COLLECT_OUTPUT_SHARES:
+                sender().collectOutputShares(id);
+                break;
+            case MULTIPLICATION_BACKWARD:
+                receiver().handleMultiplicationBackwardStep(message.getPojo());
+                break;
+            case ADDITION_BACKWARD:
+                receiver().handleAdditionBackwardStep(id, message.getAdditionResults());
+                break;
+            case OUTPUT_SHARES:
+                receiver().handleCollectOutputShares(id, message.getOutputShares());
+                break;
+            default:
+                throw new IllegalStateException("unknown message type " + message.getType());
+        }
+    }
+
+    private void deliverBatch(Message message) {
+        List<Long> ids = message.getSquareIDs();
+
+        switch (message.getType()) {
+            case MULTIPLICATION_FORWARD:
+                sender().handleMultiplicationForwardSteps(message.getPojos());
+                break;
+            case ADDITION_FORWARD:
+                sender().handleAdditionForwardSteps(ids, message.getAllAdditionResults());
+                break;
+            case COLLECT_OUTPUT_SHARES:
+                sender().collectOutputShares(ids);
+                break;
+            case MULTIPLICATION_BACKWARD:
+                receiver().handleMultiplicationBackwardSteps(message.getPojos());
+                break;
+            case ADDITION_BACKWARD:
+                receiver().handleAdditionBackwardSteps(ids, message.getAllAdditionResults());
+                break;
+            case OUTPUT_SHARES:
+                receiver().handleCollectOutputShares(ids, message.getAllOutputShares());
+                break;
+            case FAILED:
+                receiver().handleFailedSquareDivisions(ids);
+                break;
+            default:
+                throw new IllegalStateException("unknown message type " + message.getType());
+        }
+    }
+
+    /**
+     * Stops tracking the square divisions, whose final reply the message
+     * is.
+     */
+    private void completed(Message message) {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+
+        switch (message.getType()) {
+            case OUTPUT_SHARES:
+            case FAILED:
+                inFlight.removeAll(message.getSquareIDs());
+                break;
+            case MULTIPLICATION_BACKWARD:
+                for (SquareDivisionPojo pojo : message.getPojos()) {
+                    if (pojo instanceof FusedSquareDivisionPojo && ((FusedSquareDivisionPojo) pojo).isReply()) {
+                        inFlight.remove(pojo.getId());
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private SquareDivisionSenderAdapter sender() {
+        if (sender == null) {
+            throw new IllegalStateException("no sender set for incoming requests");
+        }
+        return sender;
+    }
+
+    private SquareDivisionReceiverAdapter receiver() {
+        if (receiver == null) {
+            throw new IllegalStateException("no receiver set for incoming replies");
+        }
+        return receiver;
+    }
+
+    private void shutdown() {
+        Connection c = connection;
+        connection = null;
+        if (c != null) {
+            c.close();
+        }
+        failInFlight();
+
+        try {
+            if (server != null) {
+                server.close();
+            }
+            selector.close();
+        } catch (IOException ignored) {
+            // nothing left to do
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.network;
+
+import de.henku.algorithm.id3_horizontal.Attribute;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordinals of the attribute names, attribute values and class values, which
+ * both parties derive from the same attribute definitions.
+ * <p>
+ * Ordinals are assigned in list order: attribute names by their position in
+ * the attribute list, values by their position in
+ * {@link Attribute#getValues()}.
+ *
+ * @see BinaryMessageCodec
+ */
+public class ValueDictionary {
+
+    private final List<Attribute> attributes;
+    private final Attribute classAttribute;
+
+    private final Map<String, Integer> attributeOrdinals = new HashMap<>();
+    private final Map<String, Map<String, Integer>> valueOrdinals = new HashMap<>();
+    private final Map<Object, Integer> classValueOrdinals = new HashMap<>();
+
+    /**
+     * @param attributes     The attributes in the same order as on all other
+     *                       parties.
+     * @param classAttribute The class attribute.
+     */
+    public ValueDictionary(List<Attribute> attributes, Attribute classAttribute) {
+        this.attributes = attributes;
+        this.classAttribute = classAttribute;
+
+        for (int i = 0; i < attributes.size(); i++) {
+            Attribute a = attributes.get(i);
+            attributeOrdinals.put(a.getName(), i);
+            valueOrdinals.put(a.getName(), ordinals(a.getValues()));
+        }
+
+        List<String> classValues = classAttribute.getValues();
+        for (int i = 0; i < classValues.size(); i++) {
+            classValueOrdinals.put(classValues.get(i), i);
+        }
+    }
+
+    /**
+     * @return The ordinal of the attribute or {@code -1} if it is unknown.
+     */
+    public int attributeOrdinal(String name) {
+        Integer ordinal = attributeOrdinals.get(name);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public String attributeName(int ordinal) {
+        return attributes.get(ordinal).getName();
+    }
+
+    /**
+     * @return The ordinal of the value within its attribute or {@code -1} if
+     * the attribute or the value is unknown.
+     */
+    public int valueOrdinal(String attributeName, String value) {
+        Map<String, Integer> ordinals = valueOrdinals.get(attributeName);
+        Integer ordinal = ordinals == null ? null : ordinals.get(value);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public String value(int attributeOrdinal, int ordinal) {
+        return attributes.get(attributeOrdinal).getValues().get(ordinal);
+    }
+
+    /**
+     * @return The ordinal of the class value or {@code -1} if it is unknown.
+     */
+    public int classValueOrdinal(Object classValue) {
+        Integer ordinal = classValueOrdinals.get(classValue);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public String classValue(int ordinal) {
+        return classAttribute.getValues().get(ordinal);
+    }
+
+    private static Map<String, Integer> ordinals(List<String> values) {
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            ordinals.put(values.get(i), i);
+        }
+        return ordinals;
+    }
+}
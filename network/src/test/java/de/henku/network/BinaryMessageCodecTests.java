@@ -0,0 +1,279 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.network;
+
+import de.henku.algorithm.id3_horizontal.AdditionResults;
+import de.henku.algorithm.id3_horizontal.Attribute;
+import de.henku.algorithm.id3_horizontal.AttributeBuilder;
+import de.henku.algorithm.id3_horizontal.MultiplicationResult;
+import de.henku.algorithm.id3_horizontal.PackedAdditionResults;
+import de.henku.algorithm.id3_horizontal.PackedMultiplicationResult;
+import de.henku.algorithm.id3_horizontal.SquareDivisionResult;
+import de.henku.algorithm.id3_horizontal.communication.FusedSquareDivisionPojo;
+import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionPojo;
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
+import de.henku.jpaillier.PublicKey;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BinaryMessageCodecTests {
+
+    private static PublicKey publicKey;
+
+    private BinaryMessageCodec subject;
+    private BufferPool pool;
+    private Random random;
+
+    @BeforeClass
+    public static void beforeAll() {
+        publicKey = new PaillierKeyPairBuilder().bits(512).generateKeyPair().getPublicKey();
+    }
+
+    @Before
+    public void beforeEach() {
+        List<Attribute> attributes = Arrays.asList(
+                attribute("buying", "vhigh", "high", "med", "low"),
+                attribute("safety", "low", "med", "high"));
+        ValueDictionary dictionary = new ValueDictionary(attributes, attribute("class", "unacc", "acc", "good"));
+
+        pool = new BufferPool();
+        subject = new BinaryMessageCodec(publicKey, dictionary, pool);
+        random = new Random(42);
+    }
+
+    @Test
+    public void multiplication_usesFixedWidthCiphertextsAndOrdinals() throws IOException {
+        List<MultiplicationResult> results = Arrays.asList(
+                new MultiplicationResult("unacc", ciphertext()),
+                new MultiplicationResult("good", BigInteger.ONE),
+                new MultiplicationResult(null, ciphertext()));
+        List<NodeValuePair> path = Collections.singletonList(new NodeValuePair("safety", "high"));
+        SquareDivisionPojo pojo = new SquareDivisionPojo(5, "buying", "low", path, results);
+
+        ByteBuffer frame = subject.encode(Message.multiplication(Message.Type.MULTIPLICATION_FORWARD, pojo));
+
+        // type, id, attribute, path, kind and count take one byte each
+        int expected = 1 + 1 + 2 + 1 + 2 + 1 + 1 + 3 * (1 + subject.getCiphertextLength());
+        assertEquals(expected, frame.getInt(0));
+        assertTrue(frame.isDirect());
+
+        SquareDivisionPojo p = decode(frame).getPojo();
+        assertEquals(5, p.getId());
+        assertEquals("buying", p.getAttrName());
+        assertEquals("low", p.getAttrValue());
+        assertEquals("safety", p.getPath().get(0).getNode());
+        assertEquals("high", p.getPath().get(0).getValue());
+        assertEquals(results.subList(0, 2), p.getResults().subList(0, 2));
+        assertNull(p.getResults().get(2).getClassValue());
+        assertEquals(results.get(2).getResult(), p.getResults().get(2).getResult());
+    }
+
+    @Test
+    public void multiplication_fallsBackToLiterals() throws IOException {
+        List<MultiplicationResult> results = Collections.singletonList(
+                new MultiplicationResult("unknown", ciphertext()));
+        List<NodeValuePair> path = Collections.singletonList(new NodeValuePair("doors", "5more"));
+        SquareDivisionPojo pojo = new SquareDivisionPojo(1, "buying", "free", path, results);
+
+        SquareDivisionPojo p = roundTrip(Message.multiplication(Message.Type.MULTIPLICATION_BACKWARD, pojo)).getPojo();
+
+        assertEquals("free", p.getAttrValue());
+        assertEquals("doors", p.getPath().get(0).getNode());
+        assertEquals("5more", p.getPath().get(0).getValue());
+        assertEquals(results, p.getResults());
+    }
+
+    @Test
+    public void packedMultiplication_roundTrip() throws IOException {
+        List<Object> classValues = Arrays.asList("unacc", "acc", "good");
+        BigInteger c = ciphertext();
+        SquareDivisionPojo pojo = new SquareDivisionPojo(2, "buying", "med", Collections.emptyList(),
+                Collections.singletonList(new PackedMultiplicationResult(classValues, 57, c)));
+
+        PackedMultiplicationResult r = (PackedMultiplicationResult)
+                roundTrip(Message.multiplication(Message.Type.MULTIPLICATION_FORWARD, pojo)).getPojo().getResults().get(0);
+
+        assertEquals(classValues, r.getClassValues());
+        assertEquals(57, r.getSlotBits());
+        assertEquals(c, r.getResult());
+    }
+
+    @Test
+    public void addition_roundTrip() throws IOException {
+        BigInteger z = ciphertext();
+        BigInteger w = ciphertext();
+
+        AdditionResults r = roundTrip(Message.addition(Message.Type.ADDITION_FORWARD, 300, new AdditionResults(z, w)))
+                .getAdditionResults();
+        assertEquals(z, r.getResultForZ());
+        assertEquals(w, r.getResultForW());
+
+        r = roundTrip(Message.addition(Message.Type.ADDITION_BACKWARD, 300, new PackedAdditionResults(z)))
+                .getAdditionResults();
+        assertTrue(r instanceof PackedAdditionResults);
+        assertEquals(z, r.getResultForZ());
+    }
+
+    @Test
+    public void outputShares_roundTrip() throws IOException {
+        BigInteger z = new BigInteger(600, random).negate();
+        List<SquareDivisionResult> shares = Arrays.asList(
+                new SquareDivisionResult(z, BigInteger.ZERO, "acc"),
+                new SquareDivisionResult(z, null, null));
+
+        List<SquareDivisionResult> r = roundTrip(Message.outputShares(9, shares)).getOutputShares();
+
+        assertEquals(z, r.get(0).getOutputShareZ());
+        assertEquals(BigInteger.ZERO, r.get(0).getOutputShareW());
+        assertEquals("acc", r.get(0).getClassValue());
+        assertNull(r.get(1).getOutputShareW());
+        assertNull(r.get(1).getClassValue());
+    }
+
+    @Test
+    public void batch_roundTrip() throws IOException {
+        List<NodeValuePair> path = Collections.singletonList(new NodeValuePair("safety", "low"));
+        List<SquareDivisionPojo> pojos = Arrays.asList(
+                new SquareDivisionPojo(3, "buying", "vhigh", path,
+                        Collections.singletonList(new MultiplicationResult("acc", ciphertext()))),
+                new SquareDivisionPojo(4, "safety", "med", path,
+                        Collections.singletonList(new MultiplicationResult("good", ciphertext()))));
+
+        Message decoded = roundTrip(Message.multiplications(Message.Type.MULTIPLICATION_BACKWARD, pojos));
+
+        assertTrue(decoded.isBatch());
+        assertEquals(Arrays.asList(3L, 4L), decoded.getSquareIDs());
+        assertEquals("med", decoded.getPojos().get(1).getAttrValue());
+        assertEquals(pojos.get(1).getResults(), decoded.getPojos().get(1).getResults());
+
+        List<List<SquareDivisionResult>> shares = Arrays.asList(
+                Collections.singletonList(new SquareDivisionResult(BigInteger.ONE, BigInteger.TEN, "acc")),
+                Collections.singletonList(new SquareDivisionResult(BigInteger.TEN, null, null)));
+        decoded = roundTrip(Message.outputShares(Arrays.asList(3L, 4L), shares));
+
+        assertEquals(BigInteger.TEN, decoded.getAllOutputShares().get(1).get(0).getOutputShareZ());
+        assertEquals("acc", decoded.getAllOutputShares().get(0).get(0).getClassValue());
+
+        decoded = roundTrip(Message.failed(Arrays.asList(3L, 4L)));
+        assertEquals(Message.Type.FAILED, decoded.getType());
+        assertEquals(Arrays.asList(3L, 4L), decoded.getSquareIDs());
+    }
+
+    @Test
+    public void fusedPackedReply_roundTrip() throws IOException {
+        BigInteger c = ciphertext();
+        List<MultiplicationResult> results = Collections.<MultiplicationResult>singletonList(
+                new PackedMultiplicationResult(Arrays.<Object>asList("acc", "good"), 24, c));
+        List<SquareDivisionResult> shares = Collections.singletonList(
+                new SquareDivisionResult(new BigInteger(600, random), null, "good"));
+
+        SquareDivisionPojo decoded = roundTrip(Message.multiplication(Message.Type.MULTIPLICATION_BACKWARD,
+                new FusedSquareDivisionPojo(5, "buying", "vhigh", Collections.emptyList(), results,
+                        new PackedAdditionResults(c), shares))).getPojo();
+
+        FusedSquareDivisionPojo reply = (FusedSquareDivisionPojo) decoded;
+        assertTrue(reply.isReply());
+        assertEquals(results, reply.getResults());
+        assertTrue(reply.getAdditionResults() instanceof PackedAdditionResults);
+        assertEquals(c, reply.getAdditionResults().getResultForZ());
+        assertEquals(shares.get(0).getOutputShareZ(), reply.getOutputShares().get(0).getOutputShareZ());
+        assertNull(reply.getOutputShares().get(0).getOutputShareW());
+    }
+
+    @Test
+    public void release_returnsBufferToPool() {
+        ByteBuffer frame = subject.encode(Message.collectOutputShares(1));
+        subject.release(frame);
+
+        assertSame(frame, pool.acquire(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encode_rejectsCiphertextOutOfRange() {
+        subject.encode(Message.addition(Message.Type.ADDITION_FORWARD, 1,
+                new AdditionResults(publicKey.getnSquared(), BigInteger.ONE)));
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsTruncatedFrame() throws IOException {
+        ByteBuffer frame = subject.encode(Message.addition(Message.Type.ADDITION_FORWARD, 1,
+                new AdditionResults(ciphertext(), ciphertext())));
+        frame.position(4).limit(frame.limit() - 1);
+
+        subject.decode(frame);
+    }
+
+    @Test
+    public void decode_rejectsShareLongerThanFrame() {
+        ByteBuffer frame = ByteBuffer.allocate(16);
+        frame.put((byte) Message.Type.OUTPUT_SHARES.ordinal());
+        frame.put((byte) 1);  // square id
+        frame.put((byte) 1);  // one output share
+        frame.put((byte) 1);  // z present
+        frame.put(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});  // Integer.MAX_VALUE
+        frame.flip();
+
+        try {
+            subject.decode(frame);
+            fail();
+        } catch (IOException e) {
+            assertEquals("malformed frame", e.getMessage());
+        }
+    }
+
+    private Message roundTrip(Message message) throws IOException {
+        return decode(subject.encode(message));
+    }
+
+    private Message decode(ByteBuffer frame) throws IOException {
+        frame.position(4);
+        return subject.decode(frame);
+    }
+
+    private BigInteger ciphertext() {
+        return new BigInteger(publicKey.getnSquared().bitLength() - 1, random);
+    }
+
+    private static Attribute attribute(String name, String... values) {
+        return new Attribute(new AttributeBuilder(name) {
+        }.values(Arrays.asList(values)));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.network;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BufferPoolTests {
+
+    private BufferPool subject;
+
+    @Before
+    public void beforeEach() {
+        subject = new BufferPool(1);
+    }
+
+    @Test
+    public void acquire_returnsDirectBufferOfPowerOfTwo() {
+        ByteBuffer buffer = subject.acquire(5000);
+
+        assertTrue(buffer.isDirect());
+        assertEquals(8192, buffer.capacity());
+        assertEquals(5000, buffer.limit());
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void release_reusesBufferOfSameClass() {
+        ByteBuffer buffer = subject.acquire(5000);
+        buffer.position(100);
+        subject.release(buffer);
+
+        ByteBuffer reused = subject.acquire(8192);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(8192, reused.limit());
+    }
+
+    @Test
+    public void release_keepsAtMostConfiguredBuffers() {
+        ByteBuffer first = subject.acquire(10);
+        ByteBuffer second = subject.acquire(10);
+        subject.release(first);
+        subject.release(second);
+
+        assertSame(first, subject.acquire(10));
+        assertNotSame(second, subject.acquire(10));
+    }
+
+    @Test
+    public void release_dropsForeignBuffers() {
+        ByteBuffer heap = ByteBuffer.allocate(4096);
+        subject.release(heap);
+
+        assertNotSame(heap, subject.acquire(4096));
+    }
+}
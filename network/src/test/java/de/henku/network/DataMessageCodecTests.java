@@ -0,0 +1,204 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.network;
+
+import de.henku.algorithm.id3_horizontal.AdditionResults;
+import de.henku.algorithm.id3_horizontal.MultiplicationResult;
+import de.henku.algorithm.id3_horizontal.PackedAdditionResults;
+import de.henku.algorithm.id3_horizontal.PackedMultiplicationResult;
+import de.henku.algorithm.id3_horizontal.SquareDivisionResult;
+import de.henku.algorithm.id3_horizontal.communication.FusedSquareDivisionPojo;
+import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionPojo;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DataMessageCodecTests {
+
+    private DataMessageCodec subject;
+    private Random random;
+
+    @Before
+    public void beforeEach() {
+        subject = new DataMessageCodec();
+        random = new Random(42);
+    }
+
+    @Test
+    public void multiplication_roundTrip() throws IOException {
+        List<NodeValuePair> path = Arrays.asList(new NodeValuePair("safety", "high"), new NodeValuePair("doors", "4"));
+        List<MultiplicationResult> results = Arrays.asList(
+                new MultiplicationResult("acc", ciphertext()),
+                new MultiplicationResult("unacc", ciphertext()));
+        SquareDivisionPojo pojo = new SquareDivisionPojo(7, "buying", "vhigh", path, results);
+
+        Message decoded = roundTrip(Message.multiplication(Message.Type.MULTIPLICATION_FORWARD, pojo));
+
+        assertEquals(Message.Type.MULTIPLICATION_FORWARD, decoded.getType());
+        assertEquals(7, decoded.getSquareID());
+        SquareDivisionPojo p = decoded.getPojo();
+        assertEquals("buying", p.getAttrName());
+        assertEquals("vhigh", p.getAttrValue());
+        assertEquals(2, p.getPath().size());
+        assertEquals("doors", p.getPath().get(1).getNode());
+        assertEquals("4", p.getPath().get(1).getValue());
+        assertEquals(results, p.getResults());
+    }
+
+    @Test
+    public void packedMultiplication_roundTrip() throws IOException {
+        BigInteger c = ciphertext();
+        List<Object> classValues = Arrays.asList("yes", "no");
+        SquareDivisionPojo pojo = new SquareDivisionPojo(1, "outlook", "sunny", Collections.emptyList(),
+                Collections.singletonList(new PackedMultiplicationResult(classValues, 53, c)));
+
+        Message decoded = roundTrip(Message.multiplication(Message.Type.MULTIPLICATION_BACKWARD, pojo));
+
+        PackedMultiplicationResult r = (PackedMultiplicationResult) decoded.getPojo().getResults().get(0);
+        assertEquals(classValues, r.getClassValues());
+        assertEquals(53, r.getSlotBits());
+        assertEquals(c, r.getResult());
+    }
+
+    @Test
+    public void addition_roundTrip() throws IOException {
+        BigInteger z = ciphertext();
+        BigInteger w = ciphertext();
+
+        Message decoded = roundTrip(Message.addition(Message.Type.ADDITION_FORWARD, 3, new AdditionResults(z, w)));
+        assertFalse(decoded.getAdditionResults() instanceof PackedAdditionResults);
+        assertEquals(z, decoded.getAdditionResults().getResultForZ());
+        assertEquals(w, decoded.getAdditionResults().getResultForW());
+
+        decoded = roundTrip(Message.addition(Message.Type.ADDITION_BACKWARD, 3, new PackedAdditionResults(z)));
+        assertTrue(decoded.getAdditionResults() instanceof PackedAdditionResults);
+        assertEquals(z, ((PackedAdditionResults) decoded.getAdditionResults()).getResult());
+    }
+
+    @Test
+    public void outputShares_roundTrip() throws IOException {
+        BigInteger z = ciphertext().negate();
+        List<SquareDivisionResult> shares = Arrays.asList(
+                new SquareDivisionResult(z, BigInteger.TEN, 5L),
+                new SquareDivisionResult(z, null, null));
+
+        Message decoded = roundTrip(Message.outputShares(11, shares));
+
+        assertEquals(Message.Type.OUTPUT_SHARES, decoded.getType());
+        List<SquareDivisionResult> r = decoded.getOutputShares();
+        assertEquals(z, r.get(0).getOutputShareZ());
+        assertEquals(BigInteger.TEN, r.get(0).getOutputShareW());
+        assertEquals(5L, r.get(0).getClassValue());
+        assertNull(r.get(1).getOutputShareW());
+        assertNull(r.get(1).getClassValue());
+    }
+
+    @Test
+    public void fusedPojos_roundTrip() throws IOException {
+        BigInteger z = ciphertext();
+        List<MultiplicationResult> results = Collections.singletonList(new MultiplicationResult("acc", z));
+        List<SquareDivisionResult> shares = Collections.singletonList(
+                new SquareDivisionResult(BigInteger.ONE, BigInteger.TEN, "acc"));
+        List<SquareDivisionPojo> pojos = Arrays.<SquareDivisionPojo>asList(
+                new FusedSquareDivisionPojo(1, "a", "b", Collections.emptyList(), results),
+                new FusedSquareDivisionPojo(2, "a", "c", Collections.emptyList(), results,
+                        new AdditionResults(z, BigInteger.ONE), shares));
+
+        List<SquareDivisionPojo> decoded =
+                roundTrip(Message.multiplications(Message.Type.MULTIPLICATION_BACKWARD, pojos)).getPojos();
+
+        FusedSquareDivisionPojo request = (FusedSquareDivisionPojo) decoded.get(0);
+        assertFalse(request.isReply());
+
+        FusedSquareDivisionPojo reply = (FusedSquareDivisionPojo) decoded.get(1);
+        assertTrue(reply.isReply());
+        assertEquals(results, reply.getResults());
+        assertEquals(z, reply.getAdditionResults().getResultForZ());
+        assertEquals(BigInteger.TEN, reply.getOutputShares().get(0).getOutputShareW());
+        assertEquals("acc", reply.getOutputShares().get(0).getClassValue());
+    }
+
+    @Test
+    public void encode_writesLengthPrefix() throws IOException {
+        ByteBuffer frame = subject.encode(Message.collectOutputShares(Long.MAX_VALUE));
+
+        assertEquals(frame.remaining() - 4, frame.getInt(0));
+
+        frame.position(4);
+        Message decoded = subject.decode(frame);
+        assertEquals(Message.Type.COLLECT_OUTPUT_SHARES, decoded.getType());
+        assertEquals(Long.MAX_VALUE, decoded.getSquareID());
+    }
+
+    @Test
+    public void batch_roundTrip() throws IOException {
+        BigInteger z = ciphertext();
+        List<Long> ids = Arrays.asList(4L, 9L);
+        List<AdditionResults> results = Arrays.asList(new AdditionResults(z, BigInteger.ONE), new PackedAdditionResults(z));
+
+        Message decoded = roundTrip(Message.additions(Message.Type.ADDITION_BACKWARD, ids, results));
+
+        assertTrue(decoded.isBatch());
+        assertEquals(ids, decoded.getSquareIDs());
+        assertEquals(BigInteger.ONE, decoded.getAllAdditionResults().get(0).getResultForW());
+        assertTrue(decoded.getAllAdditionResults().get(1) instanceof PackedAdditionResults);
+
+        decoded = roundTrip(Message.collectOutputShares(ids));
+        assertTrue(decoded.isBatch());
+        assertEquals(ids, decoded.getSquareIDs());
+
+        decoded = roundTrip(Message.failed(ids));
+        assertEquals(Message.Type.FAILED, decoded.getType());
+        assertEquals(ids, decoded.getSquareIDs());
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsUnknownType() throws IOException {
+        subject.decode(ByteBuffer.wrap(new byte[]{(byte) 0x7F, 0, 0, 0, 0, 0, 0, 0, 0}));
+    }
+
+    private Message roundTrip(Message message) throws IOException {
+        ByteBuffer frame = subject.encode(message);
+        frame.position(4);
+        return subject.decode(frame);
+    }
+
+    private BigInteger ciphertext() {
+        return new BigInteger(2048, random);
+    }
+}
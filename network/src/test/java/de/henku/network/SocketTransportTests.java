@@ -0,0 +1,418 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Hendrik Kunert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.henku.network;
+
+import de.henku.algorithm.id3_horizontal.AdditionResults;
+import de.henku.algorithm.id3_horizontal.Attribute;
+import de.henku.algorithm.id3_horizontal.AttributeBuilder;
+import de.henku.algorithm.id3_horizontal.DataLayer;
+import de.henku.algorithm.id3_horizontal.GiniGainResult;
+import de.henku.algorithm.id3_horizontal.MultiplicationResult;
+import de.henku.algorithm.id3_horizontal.SquareDivisionLastController;
+import de.henku.algorithm.id3_horizontal.SquareDivisionMasterController;
+import de.henku.algorithm.id3_horizontal.SquareDivisionResult;
+import de.henku.algorithm.id3_horizontal.communication.NodeValuePair;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionPojo;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionReceiverAdapter;
+import de.henku.algorithm.id3_horizontal.communication.SquareDivisionSenderAdapter;
+import de.henku.computations.paillier.PaillierKeyPairBuilder;
+import de.henku.jpaillier.KeyPair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SocketTransportTests {
+
+    private static final List<String> CLASS_VALUES = new ArrayList<>();
+
+    static {
+        Collections.addAll(CLASS_VALUES, "unacc", "acc", "good", "vgood");
+    }
+
+    private SocketTransport server;
+    private SocketTransport client;
+
+    @Before
+    public void beforeEach() throws IOException {
+        server = SocketTransport.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = SocketTransport.connect(server.getLocalAddress());
+    }
+
+    @After
+    public void afterEach() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void squareDivisions_matchInProcessResults() throws Exception {
+        KeyPair keyPair = new PaillierKeyPairBuilder().bits(512).generateKeyPair();
+
+        assertMatchesInProcessResults(keyPair, client, server);
+    }
+
+    @Test
+    public void squareDivisions_withBinaryCodec() throws Exception {
+        KeyPair keyPair = new PaillierKeyPairBuilder().bits(512).generateKeyPair();
+        Attribute classAttribute = new Attribute(new AttributeBuilder("class") {
+        }.values(CLASS_VALUES));
+        ValueDictionary dictionary = new ValueDictionary(Collections.emptyList(), classAttribute);
+
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (SocketTransport binaryServer = SocketTransport.listen(loopback,
+                new BinaryMessageCodec(keyPair.getPublicKey(), dictionary), null);
+             SocketTransport binaryClient = SocketTransport.connect(binaryServer.getLocalAddress(),
+                     new BinaryMessageCodec(keyPair.getPublicKey(), dictionary), null)) {
+
+            assertMatchesInProcessResults(keyPair, binaryClient, binaryServer);
+        }
+    }
+
+    @Test
+    public void squareDivisions_withFusedRounds() throws Exception {
+        KeyPair keyPair = new PaillierKeyPairBuilder().bits(512).generateKeyPair();
+
+        assertMatchesInProcessResults(keyPair, client, server, true);
+    }
+
+    @Test
+    public void computeAll_sendsOneMessagePerRound() throws Exception {
+        // multiplications, additions and the collection of the output shares
+        assertEquals(3, framesOfComputeAll(false));
+    }
+
+    @Test
+    public void computeAll_withFusedRoundsSendsSingleMessage() throws Exception {
+        assertEquals(1, framesOfComputeAll(true));
+    }
+
+    private static int framesOfComputeAll(boolean fusedRounds) throws Exception {
+        KeyPair keyPair = new PaillierKeyPairBuilder().bits(512).generateKeyPair();
+        CountingCodec clientCodec = new CountingCodec();
+
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (SocketTransport countingServer = SocketTransport.listen(loopback);
+             SocketTransport countingClient = SocketTransport.connect(countingServer.getLocalAddress(),
+                     clientCodec, null)) {
+
+            SquareDivisionMasterController master =
+                    new SquareDivisionMasterController(counts(1), countingClient, keyPair);
+            master.setFusedRounds(fusedRounds);
+            countingClient.setReceiver(master);
+
+            SquareDivisionLastController last = new SquareDivisionLastController(counts(2), keyPair.getPublicKey());
+            last.setReceiver(countingServer);
+            countingServer.setSender(last);
+
+            List<NodeValuePair> attributeValues = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                attributeValues.add(new NodeValuePair("attr" + (i % 3), "value" + i));
+            }
+            List<CompletableFuture<GiniGainResult>> results =
+                    master.computeAll(attributeValues, Collections.emptyList());
+
+            for (CompletableFuture<GiniGainResult> f : results) {
+                assertNotNull(f.get(30, TimeUnit.SECONDS).getResult());
+            }
+            assertEquals(0, countingClient.getInFlight());
+        }
+
+        return clientCodec.frames.get();
+    }
+
+    @Test
+    public void connectionLoss_failsDivisionsInFlight() throws Exception {
+        KeyPair keyPair = new PaillierKeyPairBuilder().bits(512).generateKeyPair();
+        SquareDivisionMasterController master = new SquareDivisionMasterController(counts(1), client, keyPair);
+        client.setReceiver(master);
+
+        // the peer never replies
+        server.setSender(new SilentSender());
+
+        CompletableFuture<GiniGainResult> f = master.compute("attr", "value", Collections.emptyList());
+        server.close();
+
+        assertFailed(f);
+        assertEquals(0, master.getLiveSessions());
+        assertEquals(0, client.getInFlight());
+    }
+
+    @Test
+    public void malformedFrame_failsConnectionAndDivisionsInFlight() throws Exception {
+        KeyPair keyPair = new PaillierKeyPairBuilder().bits(512).generateKeyPair();
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        MessageCodec broken = new DataMessageCodec() {
+            @Override
+            public Message decode(ByteBuffer frame) {
+                throw new IllegalArgumentException("unknown message type");
+            }
+        };
+
+        try (SocketTransport brokenServer = SocketTransport.listen(loopback, broken, null);
+             SocketTransport brokenClient = SocketTransport.connect(brokenServer.getLocalAddress())) {
+            SquareDivisionMasterController master =
+                    new SquareDivisionMasterController(counts(1), brokenClient, keyPair);
+            brokenClient.setReceiver(master);
+            brokenServer.setSender(new SilentSender());
+
+            CompletableFuture<GiniGainResult> f;
+            try {
+                f = master.compute("attr", "value", Collections.emptyList());
+            } catch (IllegalStateException e) {
+                // the connection was already lost when compute returned
+                f = new CompletableFuture<>();
+                f.completeExceptionally(e);
+            }
+
+            assertFailed(f);
+            assertEquals(0, master.getLiveSessions());
+            assertTrue(brokenServer.getFailure().getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    public void throwingSender_failsDivisionAtMaster() throws Exception {
+        KeyPair keyPair = new PaillierKeyPairBuilder().bits(512).generateKeyPair();
+        SquareDivisionMasterController master = new SquareDivisionMasterController(counts(1), client, keyPair);
+        client.setReceiver(master);
+        server.setSender(new SilentSender() {
+            @Override
+            public void handleMultiplicationForwardStep(SquareDivisionPojo pojo) {
+                throw new IllegalArgumentException("unknown attribute");
+            }
+        });
+
+        CompletableFuture<GiniGainResult> f = master.compute("attr", "value", Collections.emptyList());
+
+        assertFailed(f);
+        assertEquals(0, master.getLiveSessions());
+        assertEquals(0, client.getInFlight());
+    }
+
+    @Test
+    public void expiredDivision_isNoLongerInFlight() throws Exception {
+        KeyPair keyPair = new PaillierKeyPairBuilder().bits(512).generateKeyPair();
+        SquareDivisionMasterController master = new SquareDivisionMasterController(counts(1), client, keyPair);
+        client.setReceiver(master);
+        server.setSender(new SilentSender());
+        master.setSessionTimeout(50, TimeUnit.MILLISECONDS);
+
+        try {
+            CompletableFuture<GiniGainResult> f = master.compute("attr", "value", Collections.emptyList());
+
+            try {
+                f.get(30, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+            assertEquals(0, client.getInFlight());
+        } finally {
+            master.stopSessionSweeper();
+        }
+    }
+
+    private static void assertFailed(CompletableFuture<GiniGainResult> f) throws Exception {
+        try {
+            f.get(30, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void largeFrames_arriveInOrder() throws Exception {
+        RecordingReceiver recorder = new RecordingReceiver();
+        client.setReceiver(recorder);
+
+        // the peer sends every request straight back
+        server.setSender(new EchoSender(server));
+
+        Random random = new Random(42);
+        List<SquareDivisionPojo> sent = new ArrayList<>();
+        for (long id = 0; id < 50; id++) {
+            List<MultiplicationResult> results = new ArrayList<>();
+            for (int k = 0; k < 100; k++) {
+                results.add(new MultiplicationResult("v" + k, new BigInteger(6144, random)));
+            }
+            SquareDivisionPojo pojo = new SquareDivisionPojo(id, "a", "b", Collections.emptyList(), results);
+            sent.add(pojo);
+            client.handleMultiplicationForwardStep(pojo);
+        }
+
+        for (SquareDivisionPojo expected : sent) {
+            SquareDivisionPojo actual = recorder.pojos.poll(30, TimeUnit.SECONDS);
+            assertNotNull(actual);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getResults(), actual.getResults());
+        }
+    }
+
+    private static void assertMatchesInProcessResults(KeyPair keyPair, SocketTransport client,
+                                                      SocketTransport server) throws Exception {
+        assertMatchesInProcessResults(keyPair, client, server, false);
+    }
+
+    /**
+     * Compares the results over the transport with the results of the
+     * unfused protocol flow in process.
+     */
+    private static void assertMatchesInProcessResults(KeyPair keyPair, SocketTransport client,
+                                                      SocketTransport server, boolean fusedRounds) throws Exception {
+        DataLayer masterData = counts(1);
+        DataLayer slaveData = counts(2);
+
+        SquareDivisionMasterController master = new SquareDivisionMasterController(masterData, client, keyPair);
+        master.setFusedRounds(fusedRounds);
+        client.setReceiver(master);
+
+        SquareDivisionLastController last = new SquareDivisionLastController(slaveData, keyPair.getPublicKey());
+        last.setReceiver(server);
+        server.setSender(last);
+
+        SquareDivisionLastController localLast = new SquareDivisionLastController(slaveData, keyPair.getPublicKey());
+        SquareDivisionMasterController local = new SquareDivisionMasterController(masterData, localLast, keyPair);
+        localLast.setReceiver(local);
+
+        // all requests are sent before the first reply is handled
+        List<CompletableFuture<GiniGainResult>> remote = new ArrayList<>();
+        List<NodeValuePair> path = Collections.singletonList(new NodeValuePair("safety", "high"));
+        for (int i = 0; i < 20; i++) {
+            remote.add(master.compute("attr" + (i % 5), "value" + i, path));
+        }
+
+        for (int i = 0; i < remote.size(); i++) {
+            GiniGainResult expected = local.compute("attr" + (i % 5), "value" + i, path).get();
+            GiniGainResult actual = remote.get(i).get(30, TimeUnit.SECONDS);
+
+            assertEquals(expected.getResult(), actual.getResult());
+            assertEquals(expected.getClassValue(), actual.getClassValue());
+        }
+    }
+
+    private static DataLayer counts(long seed) {
+        return (path, attrName, attrValue) -> {
+            Random random = new Random(seed * 31 + (attrName + attrValue).hashCode());
+            Map<Object, Long> counts = new HashMap<>();
+            for (String classValue : CLASS_VALUES) {
+                counts.put(classValue, (long) random.nextInt(500));
+            }
+            return counts;
+        };
+    }
+
+    private static class CountingCodec extends DataMessageCodec {
+
+        private final AtomicInteger frames = new AtomicInteger();
+
+        @Override
+        public ByteBuffer encode(Message message) {
+            frames.incrementAndGet();
+            return super.encode(message);
+        }
+    }
+
+    private static class EchoSender implements SquareDivisionSenderAdapter {
+
+        private final SquareDivisionReceiverAdapter peer;
+
+        EchoSender(SquareDivisionReceiverAdapter peer) {
+            this.peer = peer;
+        }
+
+        @Override
+        public void handleMultiplicationForwardStep(SquareDivisionPojo pojo) {
+            peer.handleMultiplicationBackwardStep(pojo);
+        }
+
+        @Override
+        public void handleAdditionForwardStep(long squareID, AdditionResults pojo) {
+            peer.handleAdditionBackwardStep(squareID, pojo);
+        }
+
+        @Override
+        public void collectOutputShares(long squareID) {
+            peer.handleCollectOutputShares(squareID, Collections.emptyList());
+        }
+    }
+
+    private static class SilentSender implements SquareDivisionSenderAdapter {
+
+        @Override
+        public void handleMultiplicationForwardStep(SquareDivisionPojo pojo) {
+        }
+
+        @Override
+        public void handleAdditionForwardStep(long squareID, AdditionResults pojo) {
+        }
+
+        @Override
+        public void collectOutputShares(long squareID) {
+        }
+    }
+
+    private static class RecordingReceiver implements SquareDivisionReceiverAdapter {
+
+        private final BlockingQueue<SquareDivisionPojo> pojos = new LinkedBlockingQueue<>();
+
+        @Override
+        public void handleMultiplicationBackwardStep(SquareDivisionPojo data) {
+            pojos.add(data);
+        }
+
+        @Override
+        public void handleAdditionBackwardStep(long squareID, AdditionResults results) {
+        }
+
+        @Override
+        public void handleCollectOutputShares(long squareID, List<SquareDivisionResult> outputShares) {
+        }
+    }
+}